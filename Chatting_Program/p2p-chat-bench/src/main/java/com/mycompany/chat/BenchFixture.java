@@ -0,0 +1,70 @@
+package com.mycompany.chat; // BenchFixture 클래스가 속한 패키지 선언
+
+import java.util.ArrayList; // 생성한 닉네임 목록
+import java.util.List; // 리스트 인터페이스
+
+/**
+ * 벤치마크용 서버 상태: 방 rooms개 × 방마다 사용자 usersPerRoom명.
+ * - 사용자는 실제 접속 경로(ClientHandler.handleLine → ChatServer.addClient → joinRoom)로 등록하고, 송신은 소켓 대신 메모리 싱크로 받는다.
+ * - 모든 사용자는 Lobby에도 들어가므로 전체 접속자/Lobby 목록 크기는 rooms × usersPerRoom이다.
+ */ // ChatServer 상태가 정적이므로 JMH 포크(JVM) 하나에 하나만 만든다
+final class BenchFixture { // 벤치마크 상태 클래스가 소유
+
+    static final String ROOM_PREFIX = "room-"; // 벤치마크 방 이름 접두어
+    private static boolean serverReady; // ChatServer.init() 호출 여부
+
+    /** 보낸 메시지를 세기만 하는 송신 통로(협상된 형식의 인코딩은 실제 연결처럼 꺼냄) */ // OutboundQueue/소켓 비용 제외
+    static final class SinkTransport implements ClientTransport { // 연결 하나
+        private final boolean binary; // true면 frame(), false면 textBytes()
+        long messages; // 받은 메시지 수(전파 스레드와 경쟁하므로 대략값)
+        long bytes; // 인코딩된 바이트 수(대략값)
+
+        SinkTransport(boolean binary) { this.binary = binary; } // 형식 지정
+
+        @Override public void send(ServerMessage msg) { // 인코딩 꺼내기 + 집계
+            messages++; // 메시지 수
+            bytes += binary ? msg.frame().length : msg.textBytes().length; // 메시지마다 첫 수신자만 인코딩 비용을 냄
+        } // send 끝
+
+        @Override public void close() {} // 닫을 자원 없음
+    } // SinkTransport 끝
+
+    final List<String> nicknames = new ArrayList<>(); // 등록한 전체 닉네임
+    final List<String> senders = new ArrayList<>(); // 방마다 첫 번째 사용자(해당 방이 활성 방)
+    final List<SinkTransport> sinks = new ArrayList<>(); // 전체 송신 통로
+
+    static String room(int index) { return ROOM_PREFIX + index; } // 방 이름
+
+    /** 서버를 초기화하고 사용자를 등록 */ // @Setup(Level.Trial)에서 호출
+    static synchronized BenchFixture populate(int rooms, int usersPerRoom, boolean binary) { // 상태 생성
+        if (!serverReady) { ChatServer.init(); serverReady = true; } // 기본 방/지표/로그 저장기(메모리 드라이버로 연결)
+        BenchFixture f = new BenchFixture(); // 결과
+        for (int r = 0; r < rooms; r++) { // 방마다
+            String room = room(r); // 방 이름
+            for (int u = 0; u < usersPerRoom; u++) { // 사용자마다
+                String nick = "u" + r + "-" + u; // 닉네임
+                SinkTransport sink = new SinkTransport(binary); // 메모리 싱크
+                new ClientHandler(sink).handleLine(nick); // 첫 줄(닉네임)로 접속 처리
+                ChatServer.joinRoom(nick, room); // 벤치마크 방 참가(활성 방이 됨)
+                f.nicknames.add(nick); // 기록
+                f.sinks.add(sink); // 기록
+                if (u == 0) f.senders.add(nick); // 방의 대표 발신자
+            } // for 끝
+        } // for 끝
+        return f; // 완성
+    } // populate 끝
+
+    /** 등록한 사용자를 모두 퇴장 처리 */ // @TearDown(Level.Trial)에서 호출
+    void clear() { // 상태 정리
+        for (String nick : nicknames) ChatServer.removeClient(nick); // 퇴장
+        nicknames.clear(); // 비우기
+        senders.clear(); // 비우기
+        sinks.clear(); // 비우기
+    } // clear 끝
+
+    long messagesReceived() { // 싱크들이 받은 메시지 합계(대략값)
+        long n = 0; // 합계
+        for (SinkTransport s : sinks) n += s.messages; // 더하기
+        return n; // 결과
+    } // messagesReceived 끝
+} // BenchFixture 클래스 끝
@@ -0,0 +1,57 @@
+package com.mycompany.chat; // BroadcastBenchmark 클래스가 속한 패키지 선언
+
+import java.util.concurrent.TimeUnit; // 출력 시간 단위
+import org.openjdk.jmh.annotations.Benchmark; // 측정 메서드
+import org.openjdk.jmh.annotations.BenchmarkMode; // 측정 방식
+import org.openjdk.jmh.annotations.Fork; // 포크 설정
+import org.openjdk.jmh.annotations.Level; // 준비/정리 시점
+import org.openjdk.jmh.annotations.Measurement; // 측정 반복
+import org.openjdk.jmh.annotations.Mode; // 측정 방식 종류
+import org.openjdk.jmh.annotations.OutputTimeUnit; // 출력 단위
+import org.openjdk.jmh.annotations.Param; // 매개변수 스윕
+import org.openjdk.jmh.annotations.Scope; // 상태 공유 범위
+import org.openjdk.jmh.annotations.Setup; // 준비
+import org.openjdk.jmh.annotations.State; // 상태 클래스
+import org.openjdk.jmh.annotations.TearDown; // 정리
+import org.openjdk.jmh.annotations.Warmup; // 워밍업 반복
+
+/**
+ * 채팅 한 줄의 팬아웃 비용: ChatServer.broadcastMessage → 방 멤버 수만큼 송신 통로 호출(+ 메모리 드라이버로 로그 저장 요청).
+ * - 송신 통로는 메모리 싱크라 소켓/대기열 비용은 빠지고, 멤버 조회·메시지 생성·형식별 인코딩(메시지당 한 번)만 남는다.
+ */ // 방 수 × 방당 사용자 수 × 형식 스윕
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dchat.db.enabled=true", "-Dchat.db.url=jdbc:chatmem:bench", "-Dchat.auth.required=false", "-Dchat.metrics.port=0", "-Dchat.ratelimit.enabled=false"})
+public class BroadcastBenchmark { // JMH 벤치마크
+
+    @Param({"10", "100", "1000"})
+    int usersPerRoom; // 방당 사용자 수(팬아웃 크기)
+
+    @Param({"1", "10"})
+    int rooms; // 방 수(다른 방 멤버는 받지 않아야 함)
+
+    @Param({"text", "binary"})
+    String format; // 수신자가 협상한 형식
+
+    private BenchFixture fixture; // 서버 상태
+    private String sender; // 첫 번째 방의 발신자
+
+    @Setup(Level.Trial)
+    public void setup() { // 서버 상태 준비
+        fixture = BenchFixture.populate(rooms, usersPerRoom, "binary".equals(format)); // 사용자 등록
+        sender = fixture.senders.get(0); // room-0이 활성 방인 사용자
+    } // setup 끝
+
+    @TearDown(Level.Trial)
+    public void tearDown() { // 서버 상태 정리
+        fixture.clear(); // 퇴장 처리
+    } // tearDown 끝
+
+    @Benchmark
+    public void broadcast() { // 채팅 한 줄 전송
+        ChatServer.broadcastMessage(sender, "안녕하세요, 오늘 회의는 3시에 시작합니다."); // 활성 방 멤버 전원에게
+    } // broadcast 끝
+} // BroadcastBenchmark 클래스 끝
@@ -0,0 +1,84 @@
+package com.mycompany.chat; // CommandParseBenchmark 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 프레임 해석 예외
+import java.util.concurrent.TimeUnit; // 출력 시간 단위
+import org.openjdk.jmh.annotations.Benchmark; // 측정 메서드
+import org.openjdk.jmh.annotations.BenchmarkMode; // 측정 방식
+import org.openjdk.jmh.annotations.Fork; // 포크 설정
+import org.openjdk.jmh.annotations.Level; // 준비/정리 시점
+import org.openjdk.jmh.annotations.Measurement; // 측정 반복
+import org.openjdk.jmh.annotations.Mode; // 측정 방식 종류
+import org.openjdk.jmh.annotations.OutputTimeUnit; // 출력 단위
+import org.openjdk.jmh.annotations.Scope; // 상태 공유 범위
+import org.openjdk.jmh.annotations.Setup; // 준비
+import org.openjdk.jmh.annotations.State; // 상태 클래스
+import org.openjdk.jmh.annotations.TearDown; // 정리
+import org.openjdk.jmh.annotations.Warmup; // 워밍업 반복
+import org.openjdk.jmh.infra.Blackhole; // 결과 소비
+
+/**
+ * 클라이언트 명령 해석 비용: 텍스트 줄(ClientCommand.parseText) / 바이너리 프레임(WireCodec.decodeCommand),
+ * 그리고 ClientHandler가 해석 후 분기까지 하는 경로(상태를 바꾸지 않는 명령).
+ */ // 명령 종류를 고르게 섞은 묶음 하나를 한 번의 호출로 처리
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dchat.db.enabled=true", "-Dchat.db.url=jdbc:chatmem:bench", "-Dchat.auth.required=false", "-Dchat.metrics.port=0", "-Dchat.ratelimit.enabled=false"})
+public class CommandParseBenchmark { // JMH 벤치마크
+
+    private static final String[] LINES = { // 실제 클라이언트가 보내는 명령 모양
+            "안녕하세요, 오늘 회의는 3시에 시작합니다.", // 일반 채팅
+            "status:자리 비움", // 상태 변경
+            "room:create:스터디", // 방 생성
+            "room:join:스터디", // 방 참가
+            "room:switch:Lobby", // 활성 방 전환
+            "room:leave:스터디", // 방 나가기
+            "room:list", // 스냅샷 요청
+            "caps:presence-delta", // 기능 협상
+            "presence:sync", // 재동기화
+            "/quit", // 종료
+    }; // LINES 끝
+
+    private byte[][] frames; // 같은 명령의 바이너리 프레임
+    private int[] headerLens; // 프레임별 길이 접두 바이트 수
+    private BenchFixture fixture; // 분기 측정용 사용자 한 명
+    private ClientHandler handler; // 그 사용자의 핸들러
+
+    @Setup(Level.Trial)
+    public void setup() { // 입력 준비
+        frames = new byte[LINES.length][]; // 프레임 배열
+        headerLens = new int[LINES.length]; // 접두 길이 배열
+        for (int i = 0; i < LINES.length; i++) { // 명령마다
+            frames[i] = WireCodec.encode(ClientCommand.parseText(LINES[i])); // 인코딩
+            headerLens[i] = (int) (WireCodec.readHeader(frames[i], 0, frames[i].length) >>> 32); // 접두 길이
+        } // for 끝
+        fixture = BenchFixture.populate(1, 1, true); // 사용자 한 명
+        handler = new ClientHandler(new BenchFixture.SinkTransport(true)); // 분기 측정용 핸들러
+        handler.handleLine("parser"); // 접속(닉네임)
+        fixture.nicknames.add("parser"); // 정리 대상에 포함
+    } // setup 끝
+
+    @TearDown(Level.Trial)
+    public void tearDown() { // 정리
+        fixture.clear(); // 퇴장 처리
+    } // tearDown 끝
+
+    @Benchmark
+    public void parseText(Blackhole bh) { // 텍스트 줄 해석(명령 묶음 한 번)
+        for (String line : LINES) bh.consume(ClientCommand.parseText(line)); // 접두어 분기
+    } // parseText 끝
+
+    @Benchmark
+    public void decodeBinary(Blackhole bh) throws IOException { // 바이너리 프레임 해석(명령 묶음 한 번)
+        for (int i = 0; i < frames.length; i++) { // 프레임마다
+            bh.consume(WireCodec.decodeCommand(frames[i], headerLens[i], frames[i].length - headerLens[i])); // 본문 디코딩
+        } // for 끝
+    } // decodeBinary 끝
+
+    @Benchmark
+    public boolean handleLineNoop() { // 해석 + ClientHandler 분기(같은 상태 재설정이라 서버 상태는 그대로)
+        return handler.handleLine("status:활동 중"); // PresenceCache에서 변경 없음으로 끝남
+    } // handleLineNoop 끝
+} // CommandParseBenchmark 클래스 끝
@@ -0,0 +1,107 @@
+package com.mycompany.chat; // InMemoryDriver 클래스가 속한 패키지 선언
+
+import java.lang.reflect.InvocationHandler; // 프록시 메서드 처리
+import java.lang.reflect.Proxy; // JDBC 인터페이스 동적 구현
+import java.sql.Connection; // 커넥션 인터페이스
+import java.sql.Driver; // JDBC 드라이버 인터페이스
+import java.sql.DriverManager; // 드라이버 등록
+import java.sql.DriverPropertyInfo; // 드라이버 속성 정보
+import java.sql.PreparedStatement; // 문장 인터페이스
+import java.sql.ResultSet; // 결과 인터페이스
+import java.sql.SQLException; // 등록 실패
+import java.sql.SQLFeatureNotSupportedException; // 미지원 기능
+import java.util.Arrays; // 배치 결과 채우기
+import java.util.Properties; // 접속 속성
+import java.util.concurrent.atomic.LongAdder; // 저장 건수
+import java.util.logging.Logger; // 드라이버 로거
+
+/**
+ * 벤치마크용 메모리 JDBC 드라이버(jdbc:chatmem:).
+ * - ConnectionPool/ChatLogWriter/UserIdCache가 쓰는 호출만 흉내 낸다: users.id 조회는 닉네임에서 만든 id를 돌려주고, INSERT 배치는 건수만 센다.
+ * - MySQL 없이 DB 경로(풀 대여, 문장 캐시, 배치 저장)를 그대로 거치게 하려고 드라이버 단계에서 바꿔 끼운다.
+ */ // META-INF/services/java.sql.Driver 로 등록, @Fork에서 -Dchat.db.url=jdbc:chatmem:bench 지정
+public final class InMemoryDriver implements Driver { // DriverManager가 찾는 드라이버
+
+    static final String URL_PREFIX = "jdbc:chatmem:"; // 이 드라이버가 받는 URL 접두어
+    static final LongAdder ROWS = new LongAdder(); // 저장된 채팅 로그 행 수
+    static final LongAdder QUERIES = new LongAdder(); // 실행된 조회 수
+
+    static { // ServiceLoader가 인스턴스를 만들 때 DriverManager에 스스로 등록(JDBC 드라이버 규약)
+        try {
+            DriverManager.registerDriver(new InMemoryDriver()); // 등록
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e); // 등록 실패는 벤치마크 설정 오류
+        } // try-catch 끝
+    } // static 끝
+
+    @Override public boolean acceptsURL(String url) { return url != null && url.startsWith(URL_PREFIX); } // URL 판별
+
+    @Override
+    public Connection connect(String url, Properties info) { // 새 커넥션(풀이 필요할 때만 호출)
+        if (!acceptsURL(url)) return null; // 다른 드라이버 몫
+        boolean[] closed = {false}; // 닫힘 여부
+        return proxy(Connection.class, (p, m, args) -> switch (m.getName()) { // 커넥션 메서드별
+            case "prepareStatement" -> statement((String) args[0]); // 문장 생성
+            case "isValid" -> !closed[0]; // 검증
+            case "isClosed" -> closed[0]; // 닫힘 조회
+            case "close" -> { closed[0] = true; yield null; } // 닫기
+            case "getAutoCommit" -> true; // 항상 자동 커밋(풀 반납 시 롤백 생략)
+            default -> defaultValue(m.getReturnType()); // commit/rollback/setAutoCommit 등은 무시
+        }); // proxy 끝
+    } // connect 끝
+
+    private static PreparedStatement statement(String sql) { // SQL 종류에 맞춘 문장
+        boolean query = sql.trim().toUpperCase().startsWith("SELECT"); // 조회 여부
+        boolean history = sql.contains("chat_logs"); // 채팅 기록 조회(항상 빈 결과: 벤치마크 방은 기록 없이 시작)
+        String[] param = {null}; // 마지막으로 바인딩된 첫 번째 문자열 인자
+        int[] batch = {0}; // 쌓인 배치 수
+        boolean[] closed = {false}; // 닫힘 여부
+        return proxy(PreparedStatement.class, (p, m, args) -> switch (m.getName()) { // 문장 메서드별
+            case "setString" -> { if ((int) args[0] == 1) param[0] = (String) args[1]; yield null; } // 첫 번째 인자만 기억(닉네임)
+            case "addBatch" -> { batch[0]++; yield null; } // 배치 추가
+            case "executeBatch" -> { int n = batch[0]; batch[0] = 0; ROWS.add(n); int[] r = new int[n]; Arrays.fill(r, 1); yield r; } // 모두 1행씩 성공
+            case "executeUpdate" -> { ROWS.increment(); yield 1; } // 단건 저장
+            case "executeQuery" -> { QUERIES.increment(); yield resultSet(query && !history ? param[0] : null); } // users.id 조회
+            case "clearBatch" -> { batch[0] = 0; yield null; } // 배치 비우기
+            case "isClosed" -> closed[0]; // 닫힘 조회
+            case "close" -> { closed[0] = true; yield null; } // 닫기
+            default -> defaultValue(m.getReturnType()); // setInt/clearParameters 등은 무시
+        }); // proxy 끝
+    } // statement 끝
+
+    private static ResultSet resultSet(String nickname) { // 한 행짜리 결과(id = "mem-" + 닉네임)
+        boolean[] consumed = {nickname == null}; // 닉네임이 없으면 빈 결과
+        return proxy(ResultSet.class, (p, m, args) -> switch (m.getName()) { // 결과 메서드별
+            case "next" -> { boolean has = !consumed[0]; consumed[0] = true; yield has; } // 한 번만 true
+            case "getString" -> "mem-" + nickname; // id 컬럼
+            default -> defaultValue(m.getReturnType()); // close 등
+        }); // proxy 끝
+    } // resultSet 끝
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler h) { // 인터페이스 프록시 생성
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, m, args) -> { // 공통 처리
+            if (m.getDeclaringClass() == Object.class) { // equals/hashCode/toString
+                return switch (m.getName()) { // Object 메서드별
+                    case "equals" -> p == args[0]; // 동일성
+                    case "hashCode" -> System.identityHashCode(p); // 해시
+                    default -> type.getSimpleName() + "@chatmem"; // 문자열
+                }; // switch 끝
+            } // if 끝
+            return h.invoke(p, m, args); // 인터페이스 메서드
+        }); // newProxyInstance 끝
+    } // proxy 끝
+
+    private static Object defaultValue(Class<?> type) { // 반환형 기본값
+        if (type == boolean.class) return false; // 논리형
+        if (type == int.class) return 0; // 정수
+        if (type == long.class) return 0L; // 긴 정수
+        return null; // 참조형/void
+    } // defaultValue 끝
+
+    @Override public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) { return new DriverPropertyInfo[0]; } // 속성 없음
+    @Override public int getMajorVersion() { return 1; } // 주 버전
+    @Override public int getMinorVersion() { return 0; } // 부 버전
+    @Override public boolean jdbcCompliant() { return false; } // 표준 준수 아님
+    @Override public Logger getParentLogger() throws SQLFeatureNotSupportedException { throw new SQLFeatureNotSupportedException(); } // 미지원
+} // InMemoryDriver 클래스 끝
@@ -0,0 +1,87 @@
+package com.mycompany.chat; // PayloadBenchmark 클래스가 속한 패키지 선언
+
+import java.util.concurrent.TimeUnit; // 출력 시간 단위
+import org.openjdk.jmh.annotations.Benchmark; // 측정 메서드
+import org.openjdk.jmh.annotations.BenchmarkMode; // 측정 방식
+import org.openjdk.jmh.annotations.Fork; // 포크 설정
+import org.openjdk.jmh.annotations.Level; // 준비/정리 시점
+import org.openjdk.jmh.annotations.Measurement; // 측정 반복
+import org.openjdk.jmh.annotations.Mode; // 측정 방식 종류
+import org.openjdk.jmh.annotations.OutputTimeUnit; // 출력 단위
+import org.openjdk.jmh.annotations.Param; // 매개변수 스윕
+import org.openjdk.jmh.annotations.Scope; // 상태 공유 범위
+import org.openjdk.jmh.annotations.Setup; // 준비
+import org.openjdk.jmh.annotations.State; // 상태 클래스
+import org.openjdk.jmh.annotations.TearDown; // 정리
+import org.openjdk.jmh.annotations.Warmup; // 워밍업 반복
+
+/**
+ * 목록 페이로드 생성 비용: 전체 접속자(캐시 적중 / 변경 직후 재생성), 방 참가자 목록, 방 목록.
+ * - 참가자 목록은 요청마다 새로 만들므로 생성과 형식별 인코딩을 따로 잰다.
+ */ // 방 수 × 방당 사용자 수 스윕
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dchat.db.enabled=true", "-Dchat.db.url=jdbc:chatmem:bench", "-Dchat.auth.required=false", "-Dchat.metrics.port=0", "-Dchat.ratelimit.enabled=false"})
+public class PayloadBenchmark { // JMH 벤치마크
+
+    @Param({"10", "100", "1000"})
+    int usersPerRoom; // 방당 사용자 수
+
+    @Param({"1", "10"})
+    int rooms; // 방 수(전체 접속자 = rooms × usersPerRoom)
+
+    private BenchFixture fixture; // 서버 상태
+    private String room; // 측정 대상 방
+    private PresenceCache presence; // 재생성 측정용 캐시(서버 것과 같은 크기)
+    private String[] nicks; // 상태를 바꿀 사용자
+    private int next; // 다음 사용자 위치
+
+    @Setup(Level.Trial)
+    public void setup() { // 서버 상태 준비
+        fixture = BenchFixture.populate(rooms, usersPerRoom, true); // 사용자 등록
+        room = BenchFixture.room(0); // 첫 번째 방
+        presence = new PresenceCache(64); // 서버와 같은 변경분 한도
+        for (String nick : fixture.nicknames) presence.put(nick, PresenceCache.DEFAULT_STATUS); // 같은 접속자
+        nicks = fixture.nicknames.toArray(new String[0]); // 배열로
+    } // setup 끝
+
+    @TearDown(Level.Trial)
+    public void tearDown() { // 서버 상태 정리
+        fixture.clear(); // 퇴장 처리
+    } // tearDown 끝
+
+    @Benchmark
+    public ServerMessage allUsersCached() { // 버전이 그대로일 때(대부분의 전파)
+        return ChatServer.buildAllUsersPayload(); // 캐시 반환
+    } // allUsersCached 끝
+
+    @Benchmark
+    public byte[] allUsersAfterChange() { // 상태 변경 1건 뒤 스냅샷 재생성 + 바이너리 인코딩
+        String nick = nicks[next++ % nicks.length]; // 돌아가며 한 명
+        presence.put(nick, "활동 중".equals(presence.status(nick)) ? "자리 비움" : "활동 중"); // 상태 뒤집기(버전 증가)
+        return presence.payload().frame(); // 재생성 + 인코딩
+    } // allUsersAfterChange 끝
+
+    @Benchmark
+    public ServerMessage userList() { // 방 참가자 목록 생성
+        return ChatServer.buildUserListPayloadForRoom(room); // 요청마다 새로 생성
+    } // userList 끝
+
+    @Benchmark
+    public byte[] userListText() { // 생성 + 텍스트 인코딩
+        return ChatServer.buildUserListPayloadForRoom(room).textBytes(); // "userlist:..." UTF-8
+    } // userListText 끝
+
+    @Benchmark
+    public byte[] userListBinary() { // 생성 + 바이너리 인코딩
+        return ChatServer.buildUserListPayloadForRoom(room).frame(); // 길이 접두 프레임
+    } // userListBinary 끝
+
+    @Benchmark
+    public ServerMessage roomList() { // 방 목록(방 생성 시에만 재생성되는 캐시)
+        return ChatServer.getRoomListPayload(); // 캐시 반환
+    } // roomList 끝
+} // PayloadBenchmark 클래스 끝
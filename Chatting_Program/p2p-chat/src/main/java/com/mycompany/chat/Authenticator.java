@@ -0,0 +1,303 @@
+package com.mycompany.chat; // Authenticator 클래스가 속한 패키지 선언
+
+import java.lang.management.ManagementFactory; // 플랫폼 MBean 서버
+import java.nio.charset.StandardCharsets; // 토큰 서명 입력 UTF-8
+import java.security.GeneralSecurityException; // HMAC 초기화 실패
+import java.security.MessageDigest; // 서명 비교(상수 시간)
+import java.security.SecureRandom; // 서명 키가 설정되지 않았을 때 임시 키
+import java.sql.*; // JDBC(Connection, PreparedStatement 등)
+import java.util.Base64; // 토큰 인코딩(URL 안전)
+import java.util.concurrent.ArrayBlockingQueue; // 해시 작업 대기열(고정 크기)
+import java.util.concurrent.RejectedExecutionException; // 대기열이 가득 참
+import java.util.concurrent.ThreadPoolExecutor; // 해시 전용 스레드 풀
+import java.util.concurrent.TimeUnit; // 유지 시간 단위
+import java.util.concurrent.atomic.AtomicInteger; // 스레드 이름 번호
+import java.util.concurrent.atomic.LongAdder; // 지표 카운터
+import java.util.function.Consumer; // 결과를 받는 쪽(ClientHandler)
+import java.util.function.Supplier; // 해시 스레드에서 할 일
+import javax.crypto.Mac; // HMAC-SHA256
+import javax.crypto.spec.SecretKeySpec; // 서명 키
+import javax.management.ObjectName; // MBean 이름
+import org.mindrot.jbcrypt.BCrypt; // 비밀번호 해시/검증
+
+/**
+ * 서버 쪽 로그인/회원가입(auth: 명령).
+ * - auth:login:<아이디>:<비밀번호> / auth:signup:<아이디>:<닉네임>:<비밀번호> 는 BCrypt가 필요하므로
+ *   CPU 코어 수만큼의 전용 스레드와 고정 크기 대기열에서 처리한다. 대기열이 차면 바로 "busy"로 거절(입장 제어)해서
+ *   로그인 폭주가 수신 스레드/이벤트 루프나 다른 연결의 채팅 처리까지 밀어내지 않게 한다.
+ * - 성공하면 닉네임과 서명된 세션 토큰(닉네임 + 만료 시각 + HMAC-SHA256)을 돌려준다.
+ *   재접속은 auth:token:<토큰>으로 하고, 서명 확인은 마이크로초 단위라 호출 스레드에서 바로 끝난다(BCrypt 없음, 실패해도 BCrypt로 넘어가지 않음).
+ * - 토큰 서명 키(chat.auth.tokenSecret)를 클러스터 노드가 같이 쓰면 다른 노드로 재접속해도 통한다. 비워 두면 프로세스마다 임시 키.
+ * - BCrypt 비용(chat.auth.bcryptCost, BcryptCalibration으로 고름)은 새 해시에 쓰이고, 저장된 해시의 비용이 다르면
+ *   로그인 성공 직후 같은 비밀번호로 다시 해시해 교체한다(응답은 기다리지 않음). 따라서 비용을 올리거나 내려도 마이그레이션이 필요 없다.
+ */ // ChatServer가 하나 소유, 결과는 ClientHandler가 받아 접속 처리
+final class Authenticator { // 인증기
+
+    /** 인증 결과(성공이면 닉네임/토큰, 실패면 사유) */ // 사유: bad / exists / invalid / busy / error
+    record Result(boolean ok, String nickname, String token, String reason) { // 값 레코드
+        static Result success(String nickname, String token) { return new Result(true, nickname, token, null); } // 성공
+        static Result fail(String reason) { return new Result(false, null, null, reason); } // 실패
+    } // Result 끝
+
+    static final String BAD = "bad"; // 아이디/비밀번호/토큰이 틀림(어느 쪽인지 알려 주지 않음)
+    static final String EXISTS = "exists"; // 회원가입: 아이디나 닉네임 중복
+    static final String INVALID = "invalid"; // 회원가입: 형식 오류(빈 값, 짧은 비밀번호, 닉네임에 구분자)
+    static final String BUSY = "busy"; // 해시 대기열이 가득 참(잠시 후 다시)
+    static final String ERROR = "error"; // DB 오류 등
+
+    private static final String LOGIN_SQL = "SELECT password_hash, nickname FROM users WHERE id = ?"; // 아이디 → 해시/닉네임
+    private static final String SIGNUP_SQL = "INSERT INTO users (id, password_hash, nickname) VALUES (?, ?, ?)"; // 새 사용자
+    private static final String REHASH_SQL = "UPDATE users SET password_hash = ? WHERE id = ? AND password_hash = ?"; // 비용 교체(그사이 비밀번호가 바뀌었으면 건드리지 않음)
+
+    private final boolean required; // true면 auth: 없이 닉네임만 보낸 연결을 거절
+    private final int maxAttempts; // 연결당 최대 시도 수(넘으면 연결 종료)
+    private final int cost; // BCrypt 비용(2^cost 라운드)
+    private final long tokenTtlMs; // 토큰 유효 시간
+    private final ThreadPoolExecutor hashers; // BCrypt 전용 스레드(코어 수 이하, 대기열 고정)
+    private final Mac macPrototype; // 서명기 원본(스레드마다 복제해서 사용)
+    private volatile String dummyHash; // 없는 아이디도 같은 시간만큼 검증하도록 쓰는 해시(처음 쓸 때 생성)
+
+    private final LongAdder logins = new LongAdder(); // 비밀번호 로그인 성공
+    private final LongAdder signups = new LongAdder(); // 회원가입 성공
+    private final LongAdder failures = new LongAdder(); // 비밀번호/회원가입 실패
+    private final LongAdder rejected = new LongAdder(); // 대기열이 가득 차서 거절
+    private final LongAdder tokenLogins = new LongAdder(); // 토큰 재접속 성공
+    private final LongAdder tokenRejected = new LongAdder(); // 토큰 서명/만료 실패
+    private final LongAdder hashNanos = new LongAdder(); // BCrypt 작업에 쓴 시간 합계
+    private final LongAdder rehashed = new LongAdder(); // 비용을 바꿔 다시 저장한 해시 수
+    private final LongAdder rehashSkipped = new LongAdder(); // 대기열이 가득 차서 미룬 교체(다음 로그인 때 다시)
+
+    Authenticator() { // 설정값(chat.auth.*)으로 구성
+        this(ServerConfig.getBoolean("chat.auth.required", ServerConfig.getBoolean("chat.db.enabled", true)), // 기본: users 테이블이 있으면 필수
+                ServerConfig.getInt("chat.auth.threads", 0), // 해시 스레드 수(0이면 CPU 코어 수)
+                ServerConfig.getInt("chat.auth.queue", 64), // 대기열 크기
+                ServerConfig.getInt("chat.auth.maxAttempts", 5), // 연결당 최대 시도 수
+                ServerConfig.getInt("chat.auth.bcryptCost", 10), // BCrypt 비용(jBCrypt 기본값과 같음)
+                ServerConfig.getLong("chat.auth.tokenTtlMs", 12L * 3600 * 1000), // 토큰 유효 시간(12시간)
+                ServerConfig.get("chat.auth.tokenSecret", "")); // 서명 키(비우면 임시 키)
+    } // 기본 생성자 끝
+
+    Authenticator(boolean required, int threads, int queue, int maxAttempts, int cost, long tokenTtlMs, String secret) { // 필수 여부, 스레드 수, 대기열 크기, 시도 수, BCrypt 비용, 토큰 유효 시간, 서명 키
+        this.required = required; // 보관
+        this.maxAttempts = Math.max(1, maxAttempts); // 최소 1
+        this.cost = Math.min(31, Math.max(4, cost)); // jBCrypt 허용 범위(4~31)
+        this.tokenTtlMs = tokenTtlMs; // 보관
+        int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors(); // CPU 작업이므로 코어 수 이하
+        AtomicInteger seq = new AtomicInteger(); // 스레드 번호
+        this.hashers = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queue)), // 고정 크기 풀 + 고정 크기 대기열
+                r -> { Thread t = new Thread(r, "auth-hash-" + seq.incrementAndGet()); t.setDaemon(true); return t; }, // 플랫폼 데몬 스레드(CPU 작업이라 가상 스레드 이점 없음)
+                new ThreadPoolExecutor.AbortPolicy()); // 가득 차면 RejectedExecutionException → busy
+        this.hashers.allowCoreThreadTimeOut(true); // 로그인이 없을 때는 스레드를 놓음
+        byte[] key = secret.isBlank() ? randomKey() : secret.getBytes(StandardCharsets.UTF_8); // 서명 키
+        if (secret.isBlank()) System.out.println("chat.auth.tokenSecret 미설정: 임시 키 사용(재시작/다른 노드에서는 토큰 재접속 불가)"); // 안내
+        try { // 알고리즘은 JDK 기본 제공
+            this.macPrototype = Mac.getInstance("HmacSHA256"); // 서명기
+            this.macPrototype.init(new SecretKeySpec(key, "HmacSHA256")); // 키 설정
+        } catch (GeneralSecurityException e) { // 일어나지 않음
+            throw new IllegalStateException("HmacSHA256 초기화 실패", e); // 시작 실패
+        } // try-catch 끝
+    } // 생성자 끝
+
+    boolean required() { return required; } // auth: 필수 여부
+    int maxAttempts() { return maxAttempts; } // 연결당 최대 시도 수
+
+    /** auth: 인자를 해석해 인증 시작(결과는 done으로, 토큰/형식 오류/거절은 호출 스레드에서 바로) */ // ClientHandler가 연결마다 한 번에 하나씩 호출
+    void submit(String arg, Consumer<Result> done) { // 인증 요청
+        int c = arg.indexOf(':'); // 종류 끝
+        String kind = c < 0 ? arg : arg.substring(0, c); // login / signup / token
+        String rest = c < 0 ? "" : arg.substring(c + 1); // 나머지
+        switch (kind) { // 종류별
+            case "token" -> done.accept(resume(rest)); // 서명 확인만(바로 끝남)
+            case "login" -> { // "아이디:비밀번호"(비밀번호에는 ':'가 있어도 됨)
+                String[] p = rest.split(":", 2); // 나누기
+                if (p.length < 2) { done.accept(Result.fail(BAD)); return; } // 형식 오류
+                hash(done, () -> login(p[0].trim(), p[1])); // 해시 스레드에서
+            } // login 끝
+            case "signup" -> { // "아이디:닉네임:비밀번호"
+                String[] p = rest.split(":", 3); // 나누기
+                if (p.length < 3) { done.accept(Result.fail(INVALID)); return; } // 형식 오류
+                hash(done, () -> signup(p[0].trim(), p[1].trim(), p[2])); // 해시 스레드에서
+            } // signup 끝
+            default -> done.accept(Result.fail(BAD)); // 모르는 종류
+        } // switch 끝
+    } // submit 끝
+
+    private void hash(Consumer<Result> done, Supplier<Result> work) { // 해시 스레드에 넘김(대기열이 차면 바로 거절)
+        try { // 입장 제어
+            hashers.execute(() -> { // 해시 스레드
+                long start = System.nanoTime(); // 시작 시각
+                Result r; // 결과
+                try { r = work.get(); } // 실행
+                catch (RuntimeException e) { // 예상 못 한 오류
+                    System.err.println("인증 처리 실패: " + e.getMessage()); // 경고
+                    r = Result.fail(ERROR); // 오류
+                } // try-catch 끝
+                hashNanos.add(System.nanoTime() - start); // 지표
+                if (!r.ok()) failures.increment(); // 지표
+                done.accept(r); // 결과 전달(이 스레드에서)
+            }); // execute 끝
+        } catch (RejectedExecutionException e) { // 대기열이 가득 참
+            rejected.increment(); // 지표
+            done.accept(Result.fail(BUSY)); // 잠시 후 다시
+        } // try-catch 끝
+    } // hash 끝
+
+    private Result login(String id, String password) { // 아이디/비밀번호 확인(해시 스레드)
+        String hash = null, nickname = null; // 저장된 해시/닉네임
+        try (Connection conn = Database.dataSource().getConnection(); // 풀에서 대여(close 시 반납)
+             PreparedStatement pstmt = conn.prepareStatement(LOGIN_SQL)) { // 캐시된 문장 재사용
+            pstmt.setString(1, id); // 1번 파라미터: 아이디
+            try (ResultSet rs = pstmt.executeQuery()) { // 실행
+                if (rs.next()) { hash = rs.getString(1); nickname = rs.getString(2); } // 있으면
+            } // try-with-resources(ResultSet) 끝
+        } catch (SQLException e) { // 조회 실패
+            System.err.println("로그인 조회 실패: " + e.getMessage()); // 경고
+            return Result.fail(ERROR); // 오류
+        } // try-catch 끝
+        boolean ok = checkpw(password, hash != null ? hash : dummyHash()); // 없는 아이디도 같은 비용으로 검증(응답 시간으로 아이디 존재를 알 수 없게)
+        if (!ok || hash == null) return Result.fail(BAD); // 실패
+        logins.increment(); // 지표
+        if (costOf(hash) != cost) rehash(id, password, hash); // 비용이 다르면 백그라운드에서 교체
+        return Result.success(nickname, issue(nickname)); // 성공
+    } // login 끝
+
+    private Result signup(String id, String nickname, String password) { // 새 사용자 등록(해시 스레드)
+        if (id.isEmpty() || nickname.isEmpty() || password.length() < 4) return Result.fail(INVALID); // 빈 값/짧은 비밀번호
+        if (nickname.chars().anyMatch(ch -> ch == ':' || ch == ',' || ch == '|')) return Result.fail(INVALID); // 텍스트 프로토콜 구분자
+        String hash = BCrypt.hashpw(password, BCrypt.gensalt(cost)); // 설정된 비용으로 솔트 포함 해시
+        try (Connection conn = Database.dataSource().getConnection(); // 풀에서 대여(close 시 반납)
+             PreparedStatement pstmt = conn.prepareStatement(SIGNUP_SQL)) { // 캐시된 문장 재사용
+            pstmt.setString(1, id); // 1번 파라미터: 아이디
+            pstmt.setString(2, hash); // 2번 파라미터: 해시
+            pstmt.setString(3, nickname); // 3번 파라미터: 닉네임
+            pstmt.executeUpdate(); // 실행
+        } catch (SQLException e) { // 실패
+            if (e.getErrorCode() == 1062) return Result.fail(EXISTS); // MySQL 중복 키(아이디 또는 닉네임)
+            System.err.println("회원가입 실패: " + e.getMessage()); // 경고
+            return Result.fail(ERROR); // 오류
+        } // try-catch 끝
+        signups.increment(); // 지표
+        return Result.success(nickname, issue(nickname)); // 가입 즉시 로그인
+    } // signup 끝
+
+    private void rehash(String id, String password, String oldHash) { // 설정된 비용으로 다시 해시해 교체(같은 풀, 응답 후)
+        try { // 입장 제어(로그인보다 우선하지 않음)
+            hashers.execute(() -> { // 해시 스레드
+                long start = System.nanoTime(); // 시작 시각
+                String fresh = BCrypt.hashpw(password, BCrypt.gensalt(cost)); // 새 해시
+                hashNanos.add(System.nanoTime() - start); // 지표
+                try (Connection conn = Database.dataSource().getConnection(); // 풀에서 대여(close 시 반납)
+                     PreparedStatement pstmt = conn.prepareStatement(REHASH_SQL)) { // 캐시된 문장 재사용
+                    pstmt.setString(1, fresh); // 1번 파라미터: 새 해시
+                    pstmt.setString(2, id); // 2번 파라미터: 아이디
+                    pstmt.setString(3, oldHash); // 3번 파라미터: 확인한 해시(그사이 바뀌었으면 0행)
+                    if (pstmt.executeUpdate() == 1) rehashed.increment(); // 지표
+                } catch (SQLException e) { // 실패해도 로그인은 이미 끝남
+                    System.err.println("비밀번호 해시 교체 실패(" + id + "): " + e.getMessage()); // 경고(다음 로그인 때 다시)
+                } // try-catch 끝
+            }); // execute 끝
+        } catch (RejectedExecutionException e) { // 대기열이 가득 참
+            rehashSkipped.increment(); // 다음 로그인 때 다시
+        } // try-catch 끝
+    } // rehash 끝
+
+    static int costOf(String hash) { // "$2a$10$..." → 10(형식이 다르면 -1)
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$' || hash.charAt(6) != '$') return -1; // 형식 확인
+        try { return Integer.parseInt(hash.substring(4, 6)); } catch (NumberFormatException e) { return -1; } // 두 자리 비용
+    } // costOf 끝
+
+    private static boolean checkpw(String password, String hash) { // BCrypt 검증(형식이 깨진 해시는 실패로)
+        try { return BCrypt.checkpw(password, hash); } // 검증
+        catch (IllegalArgumentException e) { return false; } // 잘못된 솔트 형식
+    } // checkpw 끝
+
+    private String dummyHash() { // 비교용 해시(설정된 비용, 한 번만 만듦)
+        String h = dummyHash; // 캐시 읽기
+        if (h == null) dummyHash = h = BCrypt.hashpw("dummy-password", BCrypt.gensalt(cost)); // 경쟁 시 두 번 만들 수 있으나 무해
+        return h; // 반환
+    } // dummyHash 끝
+
+    /* ---------------- 세션 토큰 ---------------- */ // base64url(닉네임).만료시각.base64url(HMAC)
+
+    String issue(String nickname) { // 토큰 발급
+        String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(nickname.getBytes(StandardCharsets.UTF_8)) // 닉네임(구분자와 섞이지 않게)
+                + "." + (System.currentTimeMillis() + tokenTtlMs); // 만료 시각
+        return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(payload)); // 서명 추가
+    } // issue 끝
+
+    private Result resume(String token) { // 토큰 확인 후 새 토큰 발급(만료 연장)
+        String t = token.trim(); // 앞뒤 공백 제거
+        int d2 = t.lastIndexOf('.'), d1 = d2 > 0 ? t.lastIndexOf('.', d2 - 1) : -1; // 서명/만료 앞 구분자
+        if (d1 <= 0) { tokenRejected.increment(); return Result.fail(BAD); } // 형식 오류
+        try { // 디코딩 오류 대비
+            byte[] mac = Base64.getUrlDecoder().decode(t.substring(d2 + 1)); // 받은 서명
+            if (!MessageDigest.isEqual(mac, sign(t.substring(0, d2)))) { tokenRejected.increment(); return Result.fail(BAD); } // 위조(상수 시간 비교)
+            if (Long.parseLong(t.substring(d1 + 1, d2)) < System.currentTimeMillis()) { tokenRejected.increment(); return Result.fail(BAD); } // 만료
+            String nickname = new String(Base64.getUrlDecoder().decode(t.substring(0, d1)), StandardCharsets.UTF_8); // 닉네임
+            tokenLogins.increment(); // 지표
+            return Result.success(nickname, issue(nickname)); // 성공
+        } catch (IllegalArgumentException e) { // base64/숫자 형식 오류
+            tokenRejected.increment(); // 지표
+            return Result.fail(BAD); // 실패
+        } // try-catch 끝
+    } // resume 끝
+
+    private byte[] sign(String payload) { // HMAC-SHA256
+        try { // Mac은 스레드 안전하지 않으므로 원본을 복제해서 사용
+            Mac mac = (Mac) macPrototype.clone(); // 키가 설정된 복제본
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)); // 서명
+        } catch (CloneNotSupportedException e) { // JDK 기본 구현은 복제 지원
+            throw new IllegalStateException(e); // 일어나지 않음
+        } // try-catch 끝
+    } // sign 끝
+
+    private static byte[] randomKey() { // 임시 서명 키
+        byte[] key = new byte[32]; // 256비트
+        new SecureRandom().nextBytes(key); // 채우기
+        return key; // 반환
+    } // randomKey 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=Authenticator)
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        long getLogins(); // 비밀번호 로그인 성공
+        long getSignups(); // 회원가입 성공
+        long getFailures(); // 실패
+        long getRejected(); // 대기열 초과 거절
+        long getTokenLogins(); // 토큰 재접속 성공
+        long getTokenRejected(); // 토큰 실패
+        double getAvgHashMs(); // BCrypt 작업 평균 시간
+        int getQueued(); // 대기 중인 해시 작업
+        int getActive(); // 실행 중인 해시 작업
+        int getCost(); // BCrypt 비용
+        long getRehashed(); // 비용을 바꿔 다시 저장한 해시 수
+        long getRehashSkipped(); // 대기열이 가득 차서 미룬 교체
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 카운터를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(필드 직접 접근)
+        @Override public long getLogins() { return logins.sum(); } // 로그인
+        @Override public long getSignups() { return signups.sum(); } // 회원가입
+        @Override public long getFailures() { return failures.sum(); } // 실패
+        @Override public long getRejected() { return rejected.sum(); } // 거절
+        @Override public long getTokenLogins() { return tokenLogins.sum(); } // 토큰
+        @Override public long getTokenRejected() { return tokenRejected.sum(); } // 토큰 실패
+        @Override public double getAvgHashMs() { long n = logins.sum() + signups.sum() + failures.sum() + rehashed.sum(); return n == 0 ? 0 : hashNanos.sum() / 1e6 / n; } // 평균
+        @Override public int getQueued() { return hashers.getQueue().size(); } // 대기
+        @Override public int getActive() { return hashers.getActiveCount(); } // 실행
+        @Override public int getCost() { return cost; } // 비용
+        @Override public long getRehashed() { return rehashed.sum(); } // 교체
+        @Override public long getRehashSkipped() { return rehashSkipped.sum(); } // 미룸
+    } // Stats 끝
+
+    Stats stats() { return new Stats(); } // 지표 객체
+
+    void registerMBean() { // 플랫폼 MBean 서버에 등록
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats(), new ObjectName("com.mycompany.chat:type=Authenticator")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("인증 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // Authenticator 클래스 끝
@@ -0,0 +1,81 @@
+package com.mycompany.chat; // BcryptCalibration 클래스가 속한 패키지 선언
+
+import java.util.Arrays; // 표본 정렬
+import java.util.concurrent.CountDownLatch; // 동시 시작
+import java.util.concurrent.atomic.LongAdder; // 동시 측정 결과 합산
+import org.mindrot.jbcrypt.BCrypt; // 측정 대상
+
+/**
+ * BCrypt 비용(chat.auth.bcryptCost) 보정 도구.
+ * - 비용을 4부터 하나씩 올리며 해시 한 번의 시간(표본 중앙값)을 재고, 목표 지연(--targetMs) 안에 드는 가장 큰 비용을 고른다.
+ * - 고른 비용으로 코어 수만큼의 스레드를 동시에 돌려 이 호스트의 초당 해시 수(= 초당 비밀번호 로그인 처리량 상한)와 코어당 값을 잰다.
+ * - 서버는 비용이 다른 기존 해시를 로그인 때 자동으로 교체하므로, 결과 값을 설정에 넣고 재시작하기만 하면 된다.
+ * 실행 예: java -cp target/classes:<jbcrypt.jar> com.mycompany.chat.BcryptCalibration --targetMs 250 --threads 8
+ */ // 클래스 설명 주석
+public class BcryptCalibration { // 명령행 도구 클래스
+
+    private static volatile Object sink; // JIT가 결과를 버리지 못하도록 보관
+
+    public static void main(String[] args) throws Exception { // 도구 진입점
+        double targetMs = 250; // 로그인 한 번에 허용할 해시 시간 기본값
+        int threads = Runtime.getRuntime().availableProcessors(); // 처리량 측정 스레드 수 기본값(서버의 chat.auth.threads=0과 같음)
+        int samples = 5; // 비용마다 표본 수 기본값
+        int maxCost = 20; // 시도할 최대 비용
+        for (int i = 0; i + 1 < args.length; i += 2) { // "--이름 값" 쌍 해석
+            switch (args[i]) { // 옵션 이름별 분기
+                case "--targetMs" -> targetMs = Double.parseDouble(args[i + 1]); // 목표 지연
+                case "--threads" -> threads = Integer.parseInt(args[i + 1]); // 스레드 수
+                case "--samples" -> samples = Integer.parseInt(args[i + 1]); // 표본 수
+                case "--maxCost" -> maxCost = Math.min(31, Integer.parseInt(args[i + 1])); // 최대 비용
+                default -> System.err.println("알 수 없는 옵션 무시: " + args[i]); // 그 외
+            } // switch 끝
+        } // for 끝
+
+        for (int i = 0; i < 20; i++) sink = BCrypt.hashpw("warmup", BCrypt.gensalt(4)); // 워밍업(JIT 컴파일)
+
+        System.out.printf("%-6s %12s %14s%n", "cost", "ms/hash", "hashes/s/core"); // 결과 표 머리글
+        int chosen = 4; // 목표 안에 드는 가장 큰 비용
+        for (int cost = 4; cost <= maxCost; cost++) { // 비용마다(한 단계 오를 때마다 약 두 배)
+            double ms = medianMs(cost, samples); // 해시 한 번 시간
+            System.out.printf("%-6d %12.2f %14.1f%n", cost, ms, 1000 / ms); // 결과 한 줄
+            if (ms <= targetMs) chosen = cost; // 목표 안
+            if (ms > targetMs * 2) break; // 다음 비용은 목표의 네 배 이상이므로 중단
+        } // for 끝
+
+        double perSec = throughput(chosen, threads, Math.max(threads * 4, 16)); // 동시 처리량
+        System.out.println(); // 빈 줄
+        System.out.printf("목표 %.0fms 이하 최대 비용: %d%n", targetMs, chosen); // 결과
+        System.out.printf("스레드 %d개 동시 처리량: %.1f 해시/s (코어당 %.1f)%n", threads, perSec, perSec / threads); // 처리량
+        System.out.printf("→ chat.auth.bcryptCost=%d (로그인 폭주 시 초당 약 %.0f건, 그 이상은 chat.auth.queue에서 대기 후 busy)%n", chosen, perSec); // 설정 제안
+    } // main 끝
+
+    private static double medianMs(int cost, int samples) { // 한 비용의 해시 시간 중앙값(ms)
+        double[] ms = new double[Math.max(1, samples)]; // 표본
+        for (int i = 0; i < ms.length; i++) { // 표본마다
+            String salt = BCrypt.gensalt(cost); // 솔트(시간에 포함하지 않음)
+            long start = System.nanoTime(); // 시작 시각
+            sink = BCrypt.hashpw("calibration-password", salt); // 해시(checkpw와 같은 비용)
+            ms[i] = (System.nanoTime() - start) / 1e6; // 경과 시간
+        } // for 끝
+        Arrays.sort(ms); // 정렬
+        return ms[ms.length / 2]; // 중앙값
+    } // medianMs 끝
+
+    private static double throughput(int cost, int threads, int total) throws InterruptedException { // 동시 해시 처리량(해시/s)
+        LongAdder done = new LongAdder(); // 완료 수
+        CountDownLatch go = new CountDownLatch(1); // 동시 시작 신호
+        Thread[] workers = new Thread[threads]; // 작업 스레드
+        int each = Math.max(1, total / threads); // 스레드당 해시 수
+        for (int t = 0; t < threads; t++) { // 스레드마다
+            workers[t] = new Thread(() -> { // 서버 해시 스레드와 같은 플랫폼 스레드
+                try { go.await(); } catch (InterruptedException e) { return; } // 시작 대기
+                for (int i = 0; i < each; i++) { sink = BCrypt.hashpw("calibration-password", BCrypt.gensalt(cost)); done.increment(); } // 해시 반복
+            }, "calibrate-" + t); // 이름
+            workers[t].start(); // 시작
+        } // for 끝
+        long start = System.nanoTime(); // 시작 시각
+        go.countDown(); // 동시에 출발
+        for (Thread w : workers) w.join(); // 모두 끝날 때까지
+        return done.sum() / ((System.nanoTime() - start) / 1e9); // 초당 해시 수
+    } // throughput 끝
+} // BcryptCalibration 클래스 끝
@@ -1,104 +1,367 @@
 package com.mycompany.chat; // 패키지 선언: 이 클래스가 속한 네임스페이스(디렉터리 구조와 매핑)
 
-import javafx.application.Platform; // JavaFX UI 스레드에 작업을 위임할 때 사용하는 유틸(Platform.runLater)
-
-import java.io.*; // 입출력 관련 클래스(BufferedReader, PrintWriter 등) 사용
+import java.io.*; // 입출력 관련 클래스(BufferedInputStream, BufferedReader 등) 사용
 import java.net.Socket; // TCP 소켓 통신을 위한 Socket 클래스
 import java.nio.charset.StandardCharsets; // 문자 인코딩(UTF-8) 상수 제공
+import java.util.HashMap; // 방 → 마지막으로 받은 채팅 순번
+import java.util.LinkedHashMap; // 재접속 상태의 방 순서
+import java.util.List; // 가입 방 목록
+import java.util.Map; // 맵 인터페이스
+import java.util.Queue; // 수신함 인터페이스
+import java.util.concurrent.ConcurrentLinkedQueue; // 수신 스레드 → UI 스레드 수신함(잠금 없음)
+import java.util.concurrent.ThreadLocalRandom; // 재접속 대기 시간 지터
+import java.util.function.Consumer; // 받은 메시지를 넘길 곳
 
 /** 클라이언트 ↔ 서버 네트워크 통신 담당 */ // 클래스 역할에 대한 문서화 주석
 public class ChatClient { // ChatClient 클래스 선언 시작
 
-    private final Socket socket; // 서버와 TCP 연결을 유지하는 소켓
-    private final BufferedReader in; // 서버로부터 문자열 라인을 읽는 입력 스트림(버퍼링)
-    private final PrintWriter out; // 서버로 문자열 라인을 보내는 출력 스트림(자동 flush)
-    private final ChatMainController controller; // 수신한 메시지를 UI에 반영할 컨트롤러 참조
-    private final String nickname; // 로그인한 사용자의 닉네임(서버에 최초 1줄로 전송)
+    private static final boolean PREFER_BINARY = ServerConfig.getBoolean("chat.client.binary", true); // 접속 시 바이너리 프레임을 요청할지(서버가 거절하면 텍스트)
+    private static final String CAPS = "presence-delta,room-mux,heartbeat"; // 전체 접속자 목록은 변경분으로, 방 전환 때 따라잡기는 생략(가입한 방의 메시지는 방별 창에 이미 쌓임), 조용할 때 ping/pong
+    private static final boolean RECONNECT = ServerConfig.getBoolean("chat.client.reconnect.enabled", true); // 끊기면 다시 접속할지
+    private static final long RECONNECT_BASE_MS = ServerConfig.getLong("chat.client.reconnect.baseMs", 500); // 첫 대기 상한(시도마다 두 배)
+    private static final long RECONNECT_MAX_MS = ServerConfig.getLong("chat.client.reconnect.maxMs", 30_000); // 대기 상한의 최댓값
+    private static final int RECONNECT_MAX_ATTEMPTS = ServerConfig.getInt("chat.client.reconnect.maxAttempts", 0); // 최대 시도 수(0이면 닫을 때까지)
 
-    private final Thread listenerThread; // 서버 수신 전용 백그라운드 스레드
+    private enum Attempt { OK, RETRY, FATAL } // 재접속 한 번의 결과(FATAL: 토큰 거절 등 다시 로그인해야 함)
 
-    public ChatClient(String serverAddress, int serverPort, // 생성자: 서버 주소/포트, UI 컨트롤러, 닉네임을 전달받음
-                      ChatMainController controller, String nickname) throws IOException { // 네트워크 오류가 나면 IOException 발생
-        this.socket = new Socket(serverAddress, serverPort); // 서버로 TCP 연결 시도(성공 시 소켓 생성)
-        this.in = new BufferedReader( // 입력 스트림 초기화(문자 스트림 + 버퍼)
-                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)); // 소켓 입력 스트림을 UTF-8로 읽음
-        this.out = new PrintWriter( // 출력 스트림 초기화(문자 스트림 + 자동 flush)
-                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true); // 소켓 출력 스트림을 UTF-8로 쓰고 autoFlush=true
-        this.controller = controller; // UI 갱신을 요청할 컨트롤러 보관
-        this.nickname = nickname; // 닉네임 보관
+    private final String host; // 서버 주소(재접속용)
+    private final int port; // 서버 포트(재접속용)
+    private volatile Socket socket; // 서버와 TCP 연결을 유지하는 소켓(재접속 때 교체)
+    private InputStream in; // 서버로부터 줄/프레임을 읽는 입력 스트림(버퍼링, 수신 스레드 전용)
+    private OutputStream out; // 서버로 줄/프레임을 보내는 출력 스트림(버퍼링, send에서 동기화)
+    private volatile boolean binary; // 핸드셰이크 결과: true면 길이 접두 프레임, false면 텍스트 줄
+    private WireCodec.Pages pages = new WireCodec.Pages(); // 나뉜 목록 프레임 합치기(수신 스레드 전용, 연결마다 새로)
+    private final Queue<ServerMessage> inbox = new ConcurrentLinkedQueue<>(); // 수신한 메시지(UI가 화면 갱신 주기마다 한꺼번에 꺼냄)
+    private volatile String nickname; // 인증 결과로 받은 닉네임
+    private volatile String sessionToken; // 인증 결과로 받은 재접속용 세션 토큰(auth:token:<토큰>)
 
-        // 최초 1줄: 닉네임 전송
-        out.println(nickname); // 서버 프로토콜 규약: 연결 직후 첫 줄로 클라이언트 닉네임을 보냄
+    // 재접속 재개 상태 // 수신 스레드만 읽고 씀(끊긴 뒤 같은 스레드가 재접속)
+    private long epoch; // 서버 세대("resume:<세대>", 0이면 모름 → 재개 없이 방만 다시 가입)
+    private long presenceVersion = ServerMessage.NO_VERSION; // 마지막으로 받은 전체 접속자 버전
+    private int roomCount; // 마지막으로 받은 방 목록의 방 수
+    private String activeRoom; // 마지막으로 받은 활성 방
+    private List<String> myRooms = List.of(); // 마지막으로 받은 가입 방 목록(가입 순서)
+    private final Map<String, Long> lastSeq = new HashMap<>(); // 방 → 마지막으로 받은 채팅 순번
+    private final Map<String, Long> seenBits = new HashMap<>(); // 방 → 마지막 순번부터 아래로 SEQ_WINDOW개 중 받은 것(비트 i = lastSeq - i)
+    private static final int SEQ_WINDOW = 64; // 중복을 가려낼 순번 폭(재개 직후 재전송과 실시간 전달이 겹치는 구간보다 넉넉히)
 
-        // 서버 수신 스레드 시작
-        this.listenerThread = new Thread(this::listenForMessages, "chat-client-listener"); // 수신 루프를 실행할 데몬 스레드 생성(람다 대신 메서드 레퍼런스)
-        this.listenerThread.setDaemon(true); // 데몬 스레드 설정: 애플리케이션 종료 시 자동으로 함께 종료됨
-        this.listenerThread.start(); // 수신 스레드 실행 시작
+    private volatile boolean closed; // close()로 직접 닫았는지
+    private Thread listenerThread; // 서버 수신 전용 백그라운드 스레드(start에서 시작)
+    private Consumer<ServerMessage> sink = inbox::offer; // 받은 메시지를 넘길 곳(기본: 수신함, 화면 없는 사용처는 start(sink)로 바꿈)
+
+    public ChatClient(String serverAddress, int serverPort) throws IOException { // 생성자: 연결 + 형식 협상까지만(인증은 authenticate, 수신은 start)
+        this.host = serverAddress; // 보관(재접속용)
+        this.port = serverPort; // 보관(재접속용)
+        connect(); // 첫 연결
     } // 생성자 끝
 
+    private void connect() throws IOException { // 소켓 연결 + 형식 협상(생성자, 재접속)
+        Socket s = new Socket(host, port); // 서버로 TCP 연결 시도(성공 시 소켓 생성)
+        try { // 협상 실패 시 소켓 정리
+            InputStream i = new BufferedInputStream(s.getInputStream()); // 핸드셰이크 줄과 이후 줄/프레임을 같은 버퍼에서 읽음
+            OutputStream o = new BufferedOutputStream(s.getOutputStream()); // 바이트 단위 출력(명령마다 flush)
+
+            // 형식 협상: 바이너리 프레임을 요청하고 서버 답을 기다림
+            boolean bin = false; // 기본은 텍스트
+            if (PREFER_BINARY) { // 바이너리를 쓰려면
+                o.write((WireCodec.HANDSHAKE_BINARY + "\n").getBytes(StandardCharsets.UTF_8)); // "proto:bin1" 요청(핸드셰이크 줄은 항상 텍스트)
+                o.flush(); // 즉시 전송
+                bin = WireCodec.HANDSHAKE_BINARY.equals(WireCodec.readLine(i)); // 서버가 같은 줄로 답하면 수락("proto:text"면 텍스트 유지)
+            } // if 끝
+            synchronized (this) { // send와 겹치지 않게 한꺼번에 교체
+                this.socket = s; // 새 소켓
+                this.in = i; // 새 입력
+                this.out = o; // 새 출력
+                this.binary = bin; // 결과 보관
+                this.pages = new WireCodec.Pages(); // 끊긴 연결에서 받다 만 목록은 버림
+            } // synchronized 끝
+        } catch (IOException e) { // 협상 중 끊김
+            try { s.close(); } catch (IOException ignore) {} // 정리
+            throw e; // 호출자에게
+        } // try-catch 끝
+    } // connect 끝
+
+    /**
+     * 인증 요청 하나를 보내고 응답(authok/authfail)을 받을 때까지 기다림(수신 스레드 시작 전, UI 스레드가 아닌 곳에서 호출).
+     * arg: "login:아이디:비밀번호" / "signup:아이디:닉네임:비밀번호" / "token:토큰". 실패하면 같은 연결로 다시 시도 가능.
+     */ // 서버는 BCrypt를 해시 전용 스레드에서 하므로 응답까지 수백 ms 걸릴 수 있음
+    public ServerMessage authenticate(String arg) throws IOException { // 인증
+        send(ClientCommand.of(ClientCommand.Type.AUTH, arg)); // "auth:..." 전송
+        ServerMessage reply = readOne(); // 인증 전에는 서버가 다른 메시지를 보내지 않음
+        if (reply.type == ServerMessage.Type.AUTH_OK) { // 성공이면
+            this.nickname = reply.sender; // 서버가 확정한 닉네임
+            this.sessionToken = reply.text; // 재접속용 토큰
+        } // if 끝
+        return reply; // 호출자가 성공/사유 확인
+    } // authenticate 끝
+
+    private ServerMessage readOne() throws IOException { // 응답 하나를 협상된 형식으로 읽음
+        if (binary) { // 바이너리 프레임
+            ServerMessage m = readMessage(); // 한 메시지
+            if (m == null) throw new EOFException("서버가 연결을 닫았습니다."); // 끊김(시도 횟수 초과 등)
+            return m; // 해석 결과
+        } // if 끝
+        String line = WireCodec.readLine(in); // 한 줄(버퍼를 앞질러 읽지 않음)
+        if (line == null) throw new EOFException("서버가 연결을 닫았습니다."); // 끊김
+        return ServerMessage.parseText(line); // 해석
+    } // readOne 끝
+
+    private ServerMessage readMessage() throws IOException { // 바이너리 메시지 하나(나뉜 목록은 마지막 프레임까지 모아 합침), EOF면 null
+        byte[] frame; // 프레임 본문
+        while ((frame = WireCodec.readFrame(in, WireCodec.MAX_SERVER_FRAME_BYTES)) != null) { // 서버 → 클라이언트 한도로 읽음
+            ServerMessage m = pages.add(frame); // 해석(중간 프레임이면 null)
+            if (m != null) return m; // 완성된 메시지
+        } // while 끝
+        return null; // 끊김
+    } // readMessage 끝
+
+    /** 인증 없이 닉네임만으로 접속(chat.auth.required=false인 서버) */ // 응답 없음(서버가 곧바로 로비 입장 메시지들을 보냄)
+    public void sendNickname(String nickname) { // 닉네임 전송
+        this.nickname = nickname; // 보관
+        send(ClientCommand.of(ClientCommand.Type.NICK, nickname)); // 첫 줄 = 닉네임
+    } // sendNickname 끝
+
+    /** 인증 후 수신을 시작(받은 메시지는 수신함에 쌓이고, 화면이 poll로 꺼냄) */ // 화면(FXML)을 띄운 다음 UI 스레드에서 호출
+    public void start() { // 수신 시작
+        start(inbox::offer); // 기본 수신함
+    } // start 끝
+
+    /** 받은 메시지를 수신 스레드에서 곧바로 sink로 넘기며 수신 시작 */ // 화면 없는 사용처(LoadGenerator 등), sink는 빨리 반환해야 함
+    public void start(Consumer<ServerMessage> sink) { // 수신 시작
+        this.sink = sink; // 넘길 곳
+        send(ClientCommand.of(ClientCommand.Type.CAPS, caps())); // 기능 협상
+
+        // 서버 수신 스레드 시작
+        this.listenerThread = Thread.ofVirtual().name("chat-client-listener").start(this::listenForMessages); // 가상 스레드(항상 데몬, 연결 수천 개를 한 프로세스에 띄워도 가벼움)
+    } // start 끝
+
     /* ===== 송신 유틸 ===== */ // 서버로 메시지를 보낼 때 사용하는 헬퍼 메서드 섹션
 
+    /** 명령 하나를 협상된 형식으로 전송 */ // UI 스레드와 생성자에서 호출되므로 동기화
+    private synchronized void send(ClientCommand cmd) { // 공용 송신 메서드
+        try { // 쓰기 예외 대비
+            if (binary) out.write(WireCodec.encode(cmd)); // 길이 접두 프레임
+            else out.write((cmd.toText() + "\n").getBytes(StandardCharsets.UTF_8)); // 텍스트 줄
+            out.flush(); // 즉시 전송
+        } catch (IOException e) { // 연결 끊김 등
+            System.err.println("메시지 전송 실패: " + e.getMessage()); // 에러 로그(수신 스레드가 끊김을 UI에 표시)
+        } // try-catch 끝
+    } // send 끝
+
+    private String caps() { // 보낼 기능 목록(재개는 방/순번이 실리는 바이너리 프레임에서만)
+        return binary ? CAPS + ",resume" : CAPS; // 텍스트 채팅 줄에는 방/순번이 없음
+    } // caps 끝
+
     /** 현재 활성 방으로 일반 채팅 전송 */ // 사용자가 입력한 채팅 텍스트를 서버로 전송
     public void sendMessage(String message) { // 일반 채팅 전송 메서드
         if (message == null) return; // null 안전 처리(아무것도 전송하지 않음)
-        out.println(message); // 서버에 한 줄 전송(활성 방 기준으로 방송은 서버가 처리)
+        send(ClientCommand.of(ClientCommand.Type.CHAT, message)); // 서버에 전송(활성 방 기준으로 방송은 서버가 처리)
     } // sendMessage 끝
 
     /** 상태 변경 전송 ("활동 중" / "자리 비움") */ // 상태 변경을 서버에 알림
     public void sendStatus(String status) { // 상태 전송 메서드
         if (status == null) return; // null이면 무시
-        out.println("status:" + status.trim()); // 프로토콜: "status:<값>" 형식으로 서버에 전달
+        send(ClientCommand.of(ClientCommand.Type.STATUS, status.trim())); // 프로토콜: "status:<값>" 형식으로 서버에 전달
     } // sendStatus 끝
 
-    /** 임의의 프로토콜 라인 전송 (예: room:list) */ // 필요한 커맨드를 문자열로 직접 보낼 수 있게 함
+    /** 임의의 프로토콜 라인 전송 (예: room:list) */ // 텍스트 명령 줄을 명령으로 해석해 협상된 형식으로 전송
     public void sendRaw(String line) { // 임의 라인 전송 메서드
         if (line == null) return; // null이면 무시
-        out.println(line); // 전달받은 문자열을 그대로 서버로 전송
+        send(ClientCommand.parseText(line)); // 텍스트 규약대로 해석 후 전송
     } // sendRaw 끝
 
     /** 방 참가(+활성화) */ // 특정 방에 가입하고 그 방을 활성 방으로 설정하도록 요청
     public void sendJoinRoom(String room) { // 방 참가 요청 메서드
         if (room == null || room.isBlank()) return; // 빈 문자열/공백만 있으면 무시
-        out.println("room:join:" + room.trim()); // 프로토콜: "room:join:<방이름>"
+        send(ClientCommand.of(ClientCommand.Type.ROOM_JOIN, room.trim())); // 프로토콜: "room:join:<방이름>"
     } // sendJoinRoom 끝
 
     /** 방 나가기 */ // 특정 방에서 탈퇴 요청
     public void sendLeaveRoom(String room) { // 방 나가기 요청 메서드
         if (room == null || room.isBlank()) return; // 유효성 검사
-        out.println("room:leave:" + room.trim()); // 프로토콜: "room:leave:<방이름>"
+        send(ClientCommand.of(ClientCommand.Type.ROOM_LEAVE, room.trim())); // 프로토콜: "room:leave:<방이름>"
     } // sendLeaveRoom 끝
 
     /** 활성 방 전환(가입되어 있지 않다면 서버가 자동 가입) */ // 현재 채팅 전송 대상 방을 전환
     public void sendSwitchRoom(String room) { // 활성 방 전환 요청 메서드
         if (room == null || room.isBlank()) return; // 유효성 검사
-        out.println("room:switch:" + room.trim()); // 프로토콜: "room:switch:<방이름>"
+        send(ClientCommand.of(ClientCommand.Type.ROOM_SWITCH, room.trim())); // 프로토콜: "room:switch:<방이름>"
     } // sendSwitchRoom 끝
 
     /** 새 방 생성 */ // 서버에 새 채팅방 생성을 요청
     public void sendCreateRoom(String room) { // 방 생성 요청 메서드
         if (room == null || room.isBlank()) return; // 유효성 검사
-        out.println("room:create:" + room.trim()); // 프로토콜: "room:create:<방이름>"
+        send(ClientCommand.of(ClientCommand.Type.ROOM_CREATE, room.trim())); // 프로토콜: "room:create:<방이름>"
     } // sendCreateRoom 끝
 
-    /* ===== 수신 루프 ===== */ // 서버에서 오는 메시지를 계속 읽어 UI로 전달하는 부분
+    /** 기록 한 페이지 요청(beforeId보다 오래된 것, 0이면 가장 최신부터) */ // 서버가 history: 행들과 historyend:(다음 커서)로 응답
+    public void requestHistory(String room, long beforeId, int limit) { // 기록 페이지 요청 메서드
+        if (room == null || room.isBlank()) return; // 유효성 검사
+        send(ClientCommand.of(ClientCommand.Type.HISTORY, room.trim() + ":" + Math.max(0, beforeId) + ":" + limit)); // 프로토콜: "history:<방>:<beforeId>:<limit>"
+    } // requestHistory 끝
+
+        /* ===== 수신 루프 ===== */ // 서버에서 오는 메시지를 계속 읽어 UI로 전달하는 부분
 
-    private void listenForMessages() { // 백그라운드에서 실행될 수신 루프
-        try { // IO 예외 처리 블록 시작
+    private void listenForMessages() { // 백그라운드에서 실행될 수신 루프(끊기면 재접속 후 계속)
+        while (true) { // 연결마다
+            String reason = "서버가 연결을 닫았습니다."; // 끊긴 이유(로그용)
+            try { // IO 예외 처리 블록 시작
+                receive(); // 끊길 때까지 수신
+            } catch (IOException e) { // 수신 중 예외 발생 시
+                reason = e.getMessage(); // 이유
+            } finally { // 정상/예외 상관없이 마지막에 실행
+                try { socket.close(); } catch (IOException ignore) {} // 소켓 정리(이미 닫혔더라도 예외 무시)
+            } // try-catch-finally 끝
+            if (closed) return; // 직접 닫은 경우는 끊김이 아님
+            System.err.println("서버와의 연결이 끊어졌습니다: " + reason); // 에러 로그 출력
+            if (!RECONNECT || !reconnect()) { // 다시 붙지 못했으면
+                if (!closed) sink.accept(ServerMessage.system("연결이 끊어졌습니다.")); // 받은 메시지 뒤에 시스템 메시지로 표시
+                return; // 수신 종료
+            } // if 끝
+        } // while 끝
+    } // listenForMessages 끝
+
+    private void receive() throws IOException { // 현재 연결에서 끊길 때까지 받아 넘김(EOF면 반환)
+        if (binary) { // 바이너리 프레임 모드
+            ServerMessage m; // 받은 메시지
+            while ((m = readMessage()) != null) { // 서버로부터 메시지가 들어올 때까지 블로킹, EOF일 경우 null(수신 스레드에서 해석, UI 스레드는 적용만)
+                if (!heartbeat(m) && track(m)) sink.accept(m); // 넘기기만 함(기본 수신함: 메시지마다 UI 작업을 예약하지 않음)
+            } // while 끝(서버가 연결을 끊으면 null이 되어 루프 종료)
+        } else { // 텍스트 줄 모드
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)); // 소켓 입력 스트림을 UTF-8 줄 단위로 읽음
             String msg; // 한 줄씩 읽어들일 버퍼 변수
-            while ((msg = in.readLine()) != null) { // 서버로부터 라인이 들어올 때까지 블로킹, EOF일 경우 null
-                final String line = msg; // 지역 변수 캡처: 람다에서 사용하기 위해 final로 별도 변수에 담음
-                Platform.runLater(() -> controller.displayMessage(line)); // UI 스레드에서 컨트롤러로 전달하여 화면 갱신
+            while ((msg = reader.readLine()) != null) { // 서버로부터 라인이 들어올 때까지 블로킹, EOF일 경우 null
+                ServerMessage m = ServerMessage.parseText(msg); // 수신 스레드에서 해석(UI 스레드는 적용만)
+                if (!heartbeat(m) && track(m)) sink.accept(m); // 넘기기만 함(기본 수신함: 메시지마다 UI 작업을 예약하지 않음)
             } // while 끝(서버가 연결을 끊으면 null이 되어 루프 종료)
-        } catch (IOException e) { // 수신 중 예외 발생 시
-            System.err.println("서버와의 연결이 끊어졌습니다: " + e.getMessage()); // 에러 로그 출력
-            Platform.runLater(() -> controller.appendSystem("연결이 끊어졌습니다.")); // UI에 시스템 메시지로 표시
-        } finally { // 정상/예외 상관없이 마지막에 실행
-            try { socket.close(); } catch (IOException ignore) {} // 소켓 정리(이미 닫혔더라도 예외 무시)
-        } // try-catch-finally 끝
-    } // listenForMessages 끝
+        } // if-else 끝
+    } // receive 끝
+
+    /** 서버 ping이면 pong으로 답하고 true(화면에는 넘기지 않음) */ // 수신 스레드 전용
+    private boolean heartbeat(ServerMessage m) throws IOException { // 하트비트 처리
+        if (m.type != ServerMessage.Type.PING) return false; // 일반 메시지
+        send(ClientCommand.of(ClientCommand.Type.PONG, null)); // 응답
+        if (m.version > 0) socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, m.version * 3)); // 서버가 조용해도 간격마다 ping이 오므로 세 번 놓치면 끊김으로 봄(반쯤 열린 연결)
+        return true; // 처리함
+    } // heartbeat 끝
+
+    /** 재접속에 쓸 상태를 받은 메시지에서 기록. 화면에 넘기지 않을 메시지면 false */ // 수신 스레드 전용
+    private boolean track(ServerMessage m) { // 상태 기록
+        switch (m.type) { // 종류별
+            case CHAT -> { if (m.room != null && m.version > 0 && !firstSeen(m.room, m.version)) return false; } // 이미 받은 순번이면 버림(재개 재전송과 실시간 전달이 겹친 것)
+            case MY_ROOMS -> { // 가입 방(불변 목록)
+                myRooms = m.names; // 보관
+                lastSeq.keySet().retainAll(m.names); // 나간 방의 순번은 버림(다시 가입할 때 따라잡기를 거르지 않도록)
+                seenBits.keySet().retainAll(m.names); // 마찬가지
+            } // MY_ROOMS 끝
+            case ROOM_ACTIVE -> activeRoom = m.room; // 활성 방
+            case ROOM_LIST -> roomCount = m.names.size(); // 방 수
+            case ALL_USERS -> { if (m.version != ServerMessage.NO_VERSION) presenceVersion = Math.max(presenceVersion, m.version); } // 버전 포함 스냅샷
+            case ALL_USERS_PUT, ALL_USERS_REMOVE -> presenceVersion = Math.max(presenceVersion, m.version); // 변경분
+            case RESUME -> { // 서버 세대
+                if (m.version == epoch) return false; // 같은 서버에 재개함: 화면의 접속자 목록 기준은 그대로
+                newGeneration(m.version); // 다른 서버(첫 접속/재시작/다른 노드)
+                return false; // newGeneration이 이미 넘김
+            } // RESUME 끝
+            default -> { } // 그 외는 기록할 것 없음
+        } // switch 끝
+        return true; // 화면으로
+    } // track 끝
+
+    private boolean firstSeen(String room, long seq) { // 방의 채팅 순번을 처음 받았으면 기록하고 true(늦게 온 작은 순번도 폭 안이면 받음)
+        long top = lastSeq.getOrDefault(room, 0L); // 지금까지 받은 가장 큰 순번
+        long bits = seenBits.getOrDefault(room, 0L); // 그 아래 받은 순번
+        if (seq > top) { // 새 순번
+            long shift = seq - top; // 올라간 만큼
+            lastSeq.put(room, seq); // 가장 큰 순번
+            seenBits.put(room, (shift >= SEQ_WINDOW ? 0 : bits << shift) | 1); // 창을 밀고 자신 표시
+            return true; // 처음
+        } // if 끝
+        long back = top - seq; // 가장 큰 순번과의 거리
+        if (back >= SEQ_WINDOW || (bits & (1L << back)) != 0) return false; // 창보다 오래됐거나 이미 받음
+        seenBits.put(room, bits | (1L << back)); // 표시
+        return true; // 처음(여러 발신자의 실시간 전달 순서가 조금 엇갈린 경우)
+    } // firstSeen 끝
+
+    private void newGeneration(long e) { // 서버 세대가 바뀜: 순번/버전 기준을 버림
+        epoch = e; // 새 세대(0이면 모름)
+        presenceVersion = ServerMessage.NO_VERSION; // 이전 서버의 버전은 비교할 수 없음
+        lastSeq.clear(); // 순번도 마찬가지
+        seenBits.clear(); // 마찬가지
+        sink.accept(ServerMessage.resume(e)); // 화면도 접속자 목록 기준을 버리고 다음 스냅샷을 기다림
+    } // newGeneration 끝
+
+    /** 지터를 넣은 지수 백오프로 다시 접속(수신 스레드). 성공하면 true */ // 대기 시간은 [0, min(maxMs, baseMs·2^시도)]에서 고르게 뽑음(full jitter)
+    private boolean reconnect() { // 재접속
+        sink.accept(ServerMessage.system("연결이 끊어졌습니다. 다시 연결하는 중...")); // 안내
+        for (int attempt = 0; !closed && (RECONNECT_MAX_ATTEMPTS <= 0 || attempt < RECONNECT_MAX_ATTEMPTS); attempt++) { // 닫히거나 한도까지
+            long cap = Math.min(RECONNECT_MAX_MS, RECONNECT_BASE_MS << Math.min(attempt, 20)); // 이번 대기 상한
+            try { // 대기
+                Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1)); // 서버가 돌아왔을 때 모든 클라이언트가 한꺼번에 붙지 않도록 흩뿌림
+            } catch (InterruptedException e) { // close()
+                return false; // 중단
+            } // try-catch 끝
+            if (closed) return false; // 기다리는 동안 닫힘
+            Attempt result; // 이번 시도 결과
+            try { result = resumeSession(); } // 연결 + 인증 + 재개
+            catch (IOException e) { // 서버가 아직 안 떠 있음 등
+                try { socket.close(); } catch (IOException ignore) {} // 반쯤 만든 연결 정리
+                continue; // 다음 시도
+            } // try-catch 끝
+            if (result == Attempt.OK) { // 성공
+                sink.accept(ServerMessage.system("다시 연결되었습니다.")); // 안내
+                return true; // 수신 계속
+            } // if 끝
+            try { socket.close(); } catch (IOException ignore) {} // 실패한 연결 정리
+            if (result == Attempt.FATAL) { // 다시 로그인해야 함
+                if (!closed) sink.accept(ServerMessage.system("세션이 만료되어 다시 연결할 수 없습니다. 다시 로그인하세요.")); // 안내
+                return false; // 포기
+            } // if 끝
+        } // for 끝
+        return false; // 한도 초과
+    } // reconnect 끝
+
+    /**
+     * 새 연결에서 인증하고 끊기기 전 상태를 이어 감.
+     * - 바이너리이고 서버 세대를 알면 인증 전에 caps와 resume(세대, 접속자 버전, 방 수, 활성 방, 방별 마지막 순번)을 보냄
+     *   → 서버가 방들에 다시 가입시키고 빠진 채팅/변경분만 보냄(전체 목록과 방 목록을 다시 만들어 보내지 않음).
+     * - 그 밖에는 보통 접속 뒤 방마다 다시 가입하고 활성 방으로 전환(따라잡기로 최근 채팅을 받음).
+     */ // 수신 스레드에서 호출
+    private Attempt resumeSession() throws IOException { // 재접속 한 번
+        connect(); // 새 소켓 + 형식 협상
+        if (closed) return Attempt.FATAL; // 그 사이 닫힘
+        boolean resuming = binary && epoch != 0; // 빠진 부분만 받을 수 있는지
+        if (resuming) { // 재개
+            send(ClientCommand.of(ClientCommand.Type.CAPS, caps())); // 접속 처리에 반영되도록 먼저
+            Map<String, Long> rooms = new LinkedHashMap<>(); // 가입 순서대로
+            for (String r : myRooms) rooms.put(r, lastSeq.getOrDefault(r, 0L)); // 방 + 마지막 순번
+            send(ClientCommand.of(ClientCommand.Type.RESUME, new ResumeState(epoch, presenceVersion, roomCount, activeRoom, rooms).encode())); // 재접속 상태
+        } // if 끝
+        if (sessionToken != null) { // 인증 서버
+            ServerMessage reply = authenticate("token:" + sessionToken); // BCrypt 없이 서명만 확인
+            if (reply.type != ServerMessage.Type.AUTH_OK) return "busy".equals(reply.text) ? Attempt.RETRY : Attempt.FATAL; // 바쁘면 다시, 토큰 거절이면 포기
+        } else if (nickname != null) { // 인증을 끈 서버
+            sendNickname(nickname); // 같은 닉네임
+        } else { // 로그인 전이었음
+            return Attempt.FATAL; // 이어 갈 세션 없음
+        } // if-else 끝
+        if (!resuming) { // 보통 접속
+            send(ClientCommand.of(ClientCommand.Type.CAPS, caps())); // 기능 협상(서버가 세대를 알려 주면 다음 재접속은 재개)
+            newGeneration(0); // 세대를 모름: 화면은 다음 스냅샷을 기준으로
+            for (String r : myRooms) send(ClientCommand.of(ClientCommand.Type.ROOM_JOIN, r)); // 방 다시 가입
+            if (activeRoom != null) send(ClientCommand.of(ClientCommand.Type.ROOM_SWITCH, activeRoom)); // 활성 방 복원
+        } // if 끝
+        return Attempt.OK; // 성공
+    } // resumeSession 끝
+
+    /** 수신함에서 메시지 하나를 꺼냄(없으면 null) */ // UI 스레드가 화면 갱신 주기(pulse)마다 호출
+    public ServerMessage poll() { // 꺼내기
+        return inbox.poll(); // 잠금 없음
+    } // poll 끝
 
     /** 명시적으로 종료하고 싶을 때 호출 */ // 외부에서 클라이언트를 종료할 때 사용하는 메서드
     public void close() { // 자원 정리 메서드
+        closed = true; // 수신 스레드가 끊김으로 알리지 않도록
         try { socket.close(); } catch (IOException ignore) {} // 소켓 닫기(예외 무시)
         if (listenerThread != null && listenerThread.isAlive()) { // 수신 스레드가 아직 살아있다면
             listenerThread.interrupt(); // 인터럽트로 종료 유도(블로킹 readLine에 바로 적용되지는 않을 수 있음)
@@ -108,4 +371,8 @@ public class ChatClient { // ChatClient 클래스 선언 시작
     public String getNickname() { // 닉네임 getter
         return nickname; // 보관 중인 사용자 닉네임 반환
     } // getNickname 끝
+
+    public String getSessionToken() { // 세션 토큰 getter
+        return sessionToken; // 재접속 때 auth:token:<토큰>으로 사용
+    } // getSessionToken 끝
 } // ChatClient 클래스 끝
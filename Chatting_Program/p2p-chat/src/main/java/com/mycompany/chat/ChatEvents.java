@@ -0,0 +1,50 @@
+package com.mycompany.chat; // ChatEvents 클래스가 속한 패키지 선언
+
+import jdk.jfr.Category; // 이벤트 분류
+import jdk.jfr.Description; // 이벤트 설명
+import jdk.jfr.Event; // JFR 사용자 정의 이벤트 기반 클래스
+import jdk.jfr.Label; // 표시 이름
+import jdk.jfr.Name; // 이벤트 이름
+import jdk.jfr.StackTrace; // 스택 수집 여부
+
+/**
+ * 서버 JFR 사용자 정의 이벤트.
+ * - 녹화 중이 아니면 begin/end/shouldCommit은 거의 비용이 없다(JIT가 걷어냄). 운영에서 필요할 때
+ *   jcmd <pid> JFR.start 로 켜고 JDK Mission Control에서 방/명령별로 본다.
+ * - 임계값은 녹화 설정으로 준다(예: com.mycompany.chat.Broadcast#threshold=1 ms).
+ */ // 누적 값(개수, 분포)은 Metrics로
+final class ChatEvents { // 이벤트 묶음
+
+    private ChatEvents() {} // 인스턴스 생성 방지
+
+    @Name("com.mycompany.chat.Broadcast") // 이벤트 이름
+    @Label("Chat Broadcast") // 표시 이름
+    @Category({"Chat", "Server"}) // 분류
+    @Description("채팅 한 건을 방 멤버 대기열에 넣는 데 걸린 시간") // 설명
+    @StackTrace(false) // 스택은 필요 없음(비용 절약)
+    static final class Broadcast extends Event { // 브로드캐스트
+        @Label("Room") String room; // 방
+        @Label("Fan-out") int fanOut; // 받은 연결 수
+    } // Broadcast 끝
+
+    @Name("com.mycompany.chat.Command") // 이벤트 이름
+    @Label("Chat Command") // 표시 이름
+    @Category({"Chat", "Server"}) // 분류
+    @Description("클라이언트 명령 하나를 처리하는 데 걸린 시간") // 설명
+    @StackTrace(false) // 스택은 필요 없음
+    static final class Command extends Event { // 명령 처리
+        @Label("Type") String type; // 명령 종류
+        @Label("Nickname") String nickname; // 보낸 사용자(인증 전이면 null)
+    } // Command 끝
+
+    @Name("com.mycompany.chat.StoreBatch") // 이벤트 이름
+    @Label("Chat Store Batch") // 표시 이름
+    @Category({"Chat", "Store"}) // 분류
+    @Description("채팅 로그 배치 INSERT 한 번(재시도 포함)") // 설명
+    @StackTrace(false) // 스택은 필요 없음
+    static final class StoreBatch extends Event { // 배치 저장
+        @Label("Rows") int rows; // 배치 건수
+        @Label("Attempts") int attempts; // 시도 횟수
+        @Label("Failed") boolean failed; // 끝내 실패했는지
+    } // StoreBatch 끝
+} // ChatEvents 클래스 끝
@@ -0,0 +1,150 @@
+package com.mycompany.chat; // ChatLogWriter 클래스가 속한 패키지 선언
+
+import java.sql.*; // JDBC(Connection, PreparedStatement 등)
+import javax.sql.DataSource; // 공용 커넥션 풀
+import java.util.ArrayList; // 배치 버퍼
+import java.util.HashMap; // 배치 안 닉네임 → id 조회 결과
+import java.util.List; // 리스트 인터페이스
+import java.util.Map; // 맵 인터페이스
+import java.util.concurrent.ArrayBlockingQueue; // 고정 크기 링 버퍼
+import java.util.concurrent.BlockingQueue; // 블로킹 큐 인터페이스
+import java.util.concurrent.TimeUnit; // 대기 시간 단위
+import java.util.concurrent.atomic.LongAdder; // 처리/실패 카운터
+import java.util.function.Function; // 닉네임 → 사용자 id 조회 함수
+
+/**
+ * 채팅 로그 비동기 저장기(write-behind).
+ * - 발신자 스레드는 submit()으로 링 버퍼에 넣기만 하고 바로 브로드캐스트로 넘어간다.
+ * - 전용 스레드 하나가 버퍼를 모아 JDBC 배치 INSERT(addBatch/executeBatch)로 저장하고, 실패 시 제한 횟수만큼 재시도한다.
+ * - 서버 종료 시 남은 항목을 모두 저장한 뒤 끝난다.
+ */ // DB 지연이 메시지 전달 지연에 더해지지 않도록 분리
+final class ChatLogWriter implements Runnable { // 전용 플랫폼 스레드에서 실행(JDBC 드라이버의 synchronized가 가상 스레드를 고정하지 않도록)
+
+    private static final String INSERT_SQL = "INSERT INTO chat_logs (id, nickname, message, room) VALUES (?, ?, ?, ?)"; // 저장 SQL
+
+    record Entry(String nickname, String message, String room) {} // 저장 대기 항목
+    private record Row(String userId, String nickname, String message, String room) {} // id가 확인된 INSERT 행
+
+    private final DataSource dataSource; // 커넥션 공급(공용 풀)
+    private final Function<String, String> idResolver; // 닉네임 → users.id 조회
+    private final BlockingQueue<Entry> buffer; // 링 버퍼(가득 차면 새 항목은 버림)
+    private final int batchSize; // 한 번에 저장할 최대 건수
+    private final int maxRetries; // 배치 실패 시 재시도 횟수
+    private final Thread thread; // 저장 스레드
+    private volatile boolean running = true; // 동작 여부
+
+    private final LongAdder written = new LongAdder(); // 저장 완료 건수
+    private final LongAdder droppedFull = new LongAdder(); // 버퍼가 가득 차서 버린 건수
+    private final LongAdder droppedFailed = new LongAdder(); // 재시도 후에도 실패해서 버린 건수
+    private static final LatencyHistogram BATCH_US = Metrics.histogram("chat_store_batch_us"); // 배치 저장 시간(µs, 재시도 포함)
+    private static final LongAdder FAILED_ATTEMPTS = Metrics.counter("chat_store_failed_attempts_total"); // 실패한 배치 시도 수(재시도 전 포함)
+
+    ChatLogWriter(DataSource dataSource, Function<String, String> idResolver, // 커넥션 풀과 id 조회 함수
+                  int capacity, int batchSize, int maxRetries) { // 버퍼 크기, 배치 크기, 재시도 횟수
+        this.dataSource = dataSource; // 보관
+        this.idResolver = idResolver; // 보관
+        this.buffer = new ArrayBlockingQueue<>(capacity); // 링 버퍼 생성
+        this.batchSize = batchSize; // 보관
+        this.maxRetries = maxRetries; // 보관
+        this.thread = new Thread(this, "chat-log-writer"); // 저장 스레드 생성
+    } // 생성자 끝
+
+    void start() { // 저장 스레드 시작(종료 시 flush는 MySqlMessageStore.shutdown으로)
+        thread.start(); // 스레드 실행
+    } // start 끝
+
+    /** 저장 요청(발신자 스레드, 블로킹하지 않음) */ // 가득 차 있으면 false
+    boolean submit(String nickname, String message, String room) { // 링 버퍼에 추가
+        if (buffer.offer(new Entry(nickname, message, room))) return true; // 여유가 있으면 추가
+        droppedFull.increment(); // 가득 참 카운트
+        return false; // 버림
+    } // submit 끝
+
+    @Override
+    public void run() { // 저장 루프
+        List<Entry> batch = new ArrayList<>(batchSize); // 재사용 배치 버퍼
+        while (running || !buffer.isEmpty()) { // 종료 요청 후에도 버퍼가 빌 때까지
+            try { // 인터럽트 대비
+                Entry first = buffer.poll(200, TimeUnit.MILLISECONDS); // 첫 항목 대기(종료 확인을 위해 시간 제한)
+                if (first == null) continue; // 없으면 다시 확인
+                batch.add(first); // 배치에 추가
+                buffer.drainTo(batch, batchSize - 1); // 이미 쌓인 것을 한꺼번에 가져옴
+                writeWithRetry(batch); // 배치 저장
+            } catch (InterruptedException e) { // 종료 중 인터럽트
+                running = false; // 남은 것만 처리하고 종료
+            } finally { // 항상
+                batch.clear(); // 배치 비우기
+            } // try-catch-finally 끝
+        } // while 끝
+        System.out.println("채팅 로그 저장기 종료: 저장 " + written.sum() + "건, 버퍼 초과 " + droppedFull.sum() + "건, 실패 " + droppedFailed.sum() + "건"); // 요약 로그
+    } // run 끝
+
+    private void writeWithRetry(List<Entry> batch) { // 배치 저장(제한 횟수 재시도, 걸린 시간 기록)
+        ChatEvents.StoreBatch event = new ChatEvents.StoreBatch(); // JFR 이벤트(녹화 중이 아니면 비용 거의 없음)
+        event.begin(); // 시작
+        long start = System.nanoTime(); // 저장 시작 시각
+        int attempts = 0; // 시도 횟수
+        boolean failed = false; // 끝내 실패했는지
+        for (int attempt = 0; ; attempt++) { // 시도 반복
+            attempts++; // 시도 수
+            try { // SQL 예외 대비
+                writeBatch(batch); // 저장
+                break; // 성공
+            } catch (SQLException e) { // 실패
+                FAILED_ATTEMPTS.increment(); // 실패한 시도 수
+                if (attempt >= maxRetries) { // 재시도 소진
+                    droppedFailed.add(batch.size()); // 실패 카운트
+                    System.err.println("채팅 로그 배치 저장 실패(" + batch.size() + "건 버림): " + e.getMessage()); // 로그 출력
+                    failed = true; // 포기
+                    break; // 반복 끝
+                } // if 끝
+                try { Thread.sleep(100L << attempt); } catch (InterruptedException ie) { running = false; } // 지수 백오프(100, 200, 400ms ...)
+            } // try-catch 끝
+        } // for 끝
+        BATCH_US.record((System.nanoTime() - start) / 1_000); // 배치 저장 시간(µs)
+        event.end(); // 끝
+        if (event.shouldCommit()) { event.rows = batch.size(); event.attempts = attempts; event.failed = failed; event.commit(); } // 임계값을 넘었을 때만 기록
+    } // writeWithRetry 끝
+
+    private void writeBatch(List<Entry> batch) throws SQLException { // 배치 INSERT 한 번
+        Map<String, String> ids = new HashMap<>(); // 배치 안에서는 닉네임마다 한 번만 조회
+        List<Row> rows = new ArrayList<>(batch.size()); // id가 확인된 저장 대상
+        int added = 0; // 배치에 들어간 건수
+        for (Entry e : batch) { // 각 항목
+            String userId = ids.computeIfAbsent(e.nickname(), idResolver); // 사용자 id 조회
+            if (userId == null) { // users에 없는 닉네임이면
+                System.err.println("메시지 보낸 닉네임을 users에서 찾지 못함: " + e.nickname()); // 경고 출력
+                continue; // 저장하지 않음
+            } // if 끝
+            rows.add(new Row(userId, e.nickname(), e.message(), e.room())); // 저장 목록에 추가
+            added++; // 개수 증가
+        } // for 끝
+        if (added == 0) return; // 저장할 것이 없음
+        try (Connection conn = dataSource.getConnection(); // 풀에서 대여(연결 오류가 났던 커넥션은 반납 시 폐기되어 재시도는 새 커넥션 사용)
+             PreparedStatement insert = conn.prepareStatement(INSERT_SQL)) { // 캐시된 INSERT 문 재사용
+            for (Row r : rows) { // 저장할 항목
+                insert.setString(1, r.userId()); // 1번 파라미터: id
+                insert.setString(2, r.nickname()); // 2번 파라미터: nickname
+                insert.setString(3, r.message()); // 3번 파라미터: message
+                insert.setString(4, r.room()); // 4번 파라미터: room
+                insert.addBatch(); // 배치에 추가
+            } // for 끝
+            insert.executeBatch(); // 한 번에 실행(rewriteBatchedStatements면 다중 VALUES 한 문장)
+        } // try-with-resources 끝
+        written.add(added); // 완료 카운트
+    } // writeBatch 끝
+
+    void shutdown(long timeoutMs) { // 새 항목 받기를 멈추고 남은 것을 저장할 때까지 대기
+        running = false; // 루프 종료 요청(버퍼가 빌 때까지는 계속)
+        try { // 대기 중 인터럽트 대비
+            thread.join(timeoutMs); // 저장 스레드 종료 대기
+        } catch (InterruptedException e) { // 인터럽트
+            Thread.currentThread().interrupt(); // 상태 복구
+        } // try-catch 끝
+    } // shutdown 끝
+
+    long written() { return written.sum(); } // 저장 완료 건수
+    long droppedFull() { return droppedFull.sum(); } // 버퍼 초과로 버린 건수
+    long droppedFailed() { return droppedFailed.sum(); } // 저장 실패로 버린 건수
+    int pending() { return buffer.size(); } // 저장 대기 건수
+} // ChatLogWriter 클래스 끝
@@ -1,11 +1,15 @@
 package com.mycompany.chat; // 이 클래스가 속한 패키지(네임스페이스) 선언
 
+import javafx.animation.AnimationTimer; // 화면 갱신 주기(pulse)마다 호출되는 타이머
 import javafx.collections.FXCollections; // 관찰 가능한 리스트 생성 유틸(FX 컬렉션 팩토리)
 import javafx.collections.ObservableList; // UI와 자동 동기화되는 리스트 타입
 import javafx.fxml.FXML; // FXML에서 주입될 필드/메서드를 표시하는 어노테이션
-import javafx.scene.control.*; // JavaFX UI 컨트롤들(ListView, TextArea, Button 등)
+import javafx.fxml.FXMLLoader; // 탭 내용(chat_tab.fxml) 로더
+import javafx.scene.Node; // 탭 내용 루트 노드
+import javafx.scene.control.*; // JavaFX UI 컨트롤들(ListView, TextField, Button 등)
 import javafx.scene.input.MouseButton; // 마우스 버튼(좌/우/중) 상수
 
+import java.io.IOException; // 탭 FXML 로드 실패
 import java.util.*; // 컬렉션(Set, HashSet, Arrays 등) 사용
 
 public class ChatMainController { // 메인 채팅 화면을 제어하는 컨트롤러 클래스 시작
@@ -22,8 +26,8 @@ public class ChatMainController { // 메인 채팅 화면을 제어하는 컨트
     @FXML private ListView<String> allUsersListView; // 서버 전체 접속자 목록 리스트뷰(FXML 주입)
     @FXML private Label allUsersTitle; // "전체 접속자 (N명)" 라벨(FXML 주입)
 
-    // 중앙: 채팅 영역 + 입력창 // 섹션 설명 주석
-    @FXML private TextArea chatArea; // 채팅 로그 표시 영역(FXML 주입)
+    // 중앙: 방별 채팅 탭 + 입력창 // 섹션 설명 주석
+    @FXML private TabPane roomTabs; // 가입한 방마다 탭 하나(선택한 탭 = 활성 방, FXML 주입)
     @FXML private TextField messageField; // 메시지 입력 필드(FXML 주입)
     @FXML private Button sendBtn; // 전송 버튼(FXML 주입)
 
@@ -36,10 +40,58 @@ public class ChatMainController { // 메인 채팅 화면을 제어하는 컨트
     private final ObservableList<String> allUserItems = FXCollections.observableArrayList(); // 전체 접속자 목록(관찰 가능)
     private final ObservableList<String> roomUserItems = FXCollections.observableArrayList(); // 활성 방 참가자 목록(관찰 가능)
 
+    /** 방 탭 하나에 남길 최대 줄 수 */ // 넘치면 오래된 줄부터 버림(메모리 상한)
+    private static final int SCROLLBACK = Math.max(100, ServerConfig.getInt("chat.client.scrollback", 5000)); // 설정값
+    /** 한 번의 화면 갱신에서 처리할 최대 수신 메시지 수 */ // 폭주해도 한 프레임이 너무 길어지지 않게(남은 것은 다음 프레임)
+    private static final int MAX_PER_PULSE = Math.max(1, ServerConfig.getInt("chat.client.maxPerPulse", 2000)); // 설정값
+    /** 로그를 메모리에 들고 있을 최대 탭 수 */ // 넘치면 가장 오래 안 본 탭의 로그를 버림(선택한 탭은 제외)
+    private static final int MAX_LOADED_TABS = Math.max(1, ServerConfig.getInt("chat.client.loadedTabs", 4)); // 설정값
+    /** 버렸던 탭을 다시 볼 때 기록에서 채울 줄 수 */ // history:<방>:0:<줄 수>
+    private static final int RELOAD_LINES = Math.max(1, ServerConfig.getInt("chat.client.reloadLines", 100)); // 설정값
+
+    /** 방 탭 하나(탭 + 로그 + 안 읽은 수) */ // 로그(pane)는 처음 볼 때 만들고, 오래 안 보면 버림
+    private static final class RoomTab { // 방마다 하나
+        final String room; // 방 이름
+        final Tab tab = new Tab(); // 탭(제목 = 방 이름 + 안 읽은 수)
+        ChatTabController pane; // 로그(null이면 아직 안 만들었거나 버림)
+        boolean stale; // 로그가 없는 동안 받은 줄을 버렸는지(다시 볼 때 기록에서 채움)
+        int unread; // 안 읽은 채팅 수(선택하지 않은 동안)
+        boolean dirty; // 이번 프레임에 반영할 것이 있는지
+        final List<String> pending = new ArrayList<>(); // 이번 프레임에 로그 끝에 붙일 줄(도착 순서)
+        final List<String> pendingHistory = new ArrayList<>(); // 이번 프레임에 로그 맨 위에 끼울 기록 줄(최신 것부터)
+
+        RoomTab(String room) { // 생성
+            this.room = room; // 보관
+            tab.setText(room); // 제목
+            tab.setClosable(false); // 나가기는 "나가기" 버튼으로(서버가 myrooms로 탭을 없앰)
+            tab.setUserData(this); // 선택 이벤트에서 찾기 위해
+        } // 생성자 끝
+    } // RoomTab 끝
+
+    /** 가입한 방의 탭(방 이름 → 탭) */ // myrooms:로 만들고 없앰(표시 순서 = 가입 순서)
+    private final Map<String, RoomTab> tabs = new LinkedHashMap<>(); // 전체 탭
+    /** 로그를 들고 있는 탭(최근에 본 순서) */ // 접근 순서 LinkedHashMap: 맨 앞이 가장 오래 안 본 탭
+    private final LinkedHashMap<String, RoomTab> loaded = new LinkedHashMap<>(16, 0.75f, true); // LRU
+    /** 이번 프레임에 바뀐 탭 */ // 프레임 끝에 이 탭들만 반영
+    private final List<RoomTab> dirtyTabs = new ArrayList<>(); // 도착 순서
+    /** 탭 목록을 고치는 중인지 */ // 탭을 넣고 빼며 생기는 선택 변경을 사용자 선택으로 보지 않도록
+    private boolean syncingTabs = false; // myrooms: 반영 중 true
+
+    /** 수신함을 비우는 타이머 */ // 메시지마다 Platform.runLater를 예약하지 않고, 프레임마다 한 번 모아서 처리
+    private final AnimationTimer receivePump = new AnimationTimer() { // 익명 타이머
+        @Override public void handle(long now) { drainInbox(); } // 프레임마다 호출(UI 스레드)
+    }; // receivePump 끝
+
     /** 내가 가입한 방들 */ // 로그인 사용자가 현재 가입(join)해 있는 방들의 집합
     private final Set<String> myRooms = new HashSet<>(); // 중복 없이 보관하기 위해 Set 사용
     /** 현재 활성 방(메시지 전송 대상) */ // sendMessage 시 대상이 되는 방
     private String activeRoom = null; // 서버에서 내려주는 roomactive:로 갱신
+    /** 전체 접속자(닉네임 → 상태) */ // allusers@ 스냅샷을 기준으로 allusers+:/allusers-: 변경분을 적용
+    private final Map<String, String> allUsers = new LinkedHashMap<>(); // 표시 순서 유지
+    /** 마지막으로 반영한 전체 접속자 버전(-1: 기준 스냅샷 없음) */ // 변경분은 정확히 다음 버전일 때만 적용
+    private long presenceVersion = -1; // allusers@<버전>: 수신 시 설정
+    /** 재동기화 요청 후 스냅샷 대기 중인지 */ // 같은 누락으로 여러 번 요청하지 않도록
+    private boolean presenceSyncPending = false; // presence:sync 전송 여부
     /** 활성 방에서 타이핑 중인지 */ // 입력창에 글자가 있으면 true
     private boolean typingActive = false; // 타이핑 상태 플래그(셀 렌더링 시 "채팅 중" 표시용)
 
@@ -53,7 +105,16 @@ public class ChatMainController { // 메인 채팅 화면을 제어하는 컨트
         this.client = client; // 클라이언트 저장
 
         if (myNickLabel != null) myNickLabel.setText(nickname); // 상단 라벨에 내 닉네임 표시
-        if (chatArea != null) chatArea.setWrapText(true); // 채팅 영역 줄바꿈(오버플로 방지)
+        if (roomTabs != null) { // 방 탭이 주입되어 있다면
+            roomTabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE); // 탭 닫기 버튼 없음
+            // 탭 선택 → 활성 방 전환 // 사용자가 고른 탭의 방으로 보내도록 서버에 알림
+            roomTabs.getSelectionModel().selectedItemProperty().addListener((obs, ov, nv) -> { // 선택 변경 리스너
+                if (syncingTabs || nv == null) return; // 탭 목록 갱신 중이거나 선택 없음
+                RoomTab t = (RoomTab) nv.getUserData(); // 선택한 탭
+                show(t); // 로그 준비 + 안 읽은 수 초기화
+                if (client != null && activeRoom != null && !t.room.equals(activeRoom)) client.sendSwitchRoom(t.room); // 서버가 활성 방을 바꾸고 roomactive:로 알려 줌
+            }); // addListener 끝
+        } // if 끝
 
         if (statusCombo != null) { // 상태 콤보박스가 주입되어 있다면
             statusCombo.setItems(FXCollections.observableArrayList("활동 중", "자리 비움")); // 두 상태값 세팅
@@ -96,64 +157,199 @@ public class ChatMainController { // 메인 채팅 화면을 제어하는 컨트
 
         // 최초 목록 요청 // 로그인 직후 서버의 스냅샷 요청(방 목록/내 가입 방/활성 방/참가자/전체 사용자 등)
         if (client != null) client.sendRaw("room:list"); // 서버에 "room:list" 커맨드 송신
+        receivePump.start(); // 수신함 비우기 시작
     } // init 끝
 
-    /* ---------------- 서버 수신 처리 ---------------- */ // 서버에서 온 프로토콜 라인을 분기 처리
-
-    public void displayMessage(String line) { // ChatClient 수신 스레드가 UI 스레드로 호출
-        if (line == null) return; // null 방어
-
-        if (line.startsWith("chat:")) { // 일반 채팅 포맷: "chat:닉네임: 메시지"
-            appendChat(line.substring("chat:".length())); // "chat:" 접두어 제거 후 본문 출력
-
-        } else if (line.startsWith("system:")) { // 시스템 메시지 포맷: "system:메시지"
-            appendSystem(line.substring("system:".length())); // 시스템 메시지로 출력
-
-        } else if (line.startsWith("roomlist:")) { // 방 목록 포맷: "roomlist:방1,방2,방3"
-            updateRoomList(line.substring("roomlist:".length())); // 방 목록 갱신
-
-        } else if (line.startsWith("myrooms:")) { // 내 가입 방 목록: "myrooms:방1,방2"
-            updateMyRooms(line.substring("myrooms:".length())); // 내 방 세트 갱신
-
-        } else if (line.startsWith("roomactive:")) { // 활성 방 알림: "roomactive:방이름"
-            activeRoom = line.substring("roomactive:".length()); // 활성 방 이름 저장
-            if (roomListView != null) roomListView.refresh(); // 셀 표시(채팅 중 배지 등) 갱신
-
-        } else if (line.startsWith("userlist:")) { // 참가자 목록: "userlist:<room>:nick|status,nick|status"
-            // 형식: "userlist:<room>:nick|status,nick|status" // 상세 형식 주석
-            String body = line.substring("userlist:".length()); // "userlist:" 접두어 제거
-            String room = body; // 기본값으로 전체 body를 room으로 두고
-            String csv = ""; // 참가자 CSV 기본값은 빈 문자열
-            int idx = body.indexOf(':'); // 첫 번째 ':' 위치 찾기
-            if (idx >= 0) { // ':'가 있다면
-                room = body.substring(0, idx); // 앞부분은 방 이름
-                csv  = body.substring(idx + 1); // 뒷부분은 참가자 CSV
-            } // if 끝
-            // 우측 패널은 "활성 방"의 참가자만 표시 // 다른 방 참가자는 표시하지 않음
-            if (room != null && room.equals(activeRoom)) { // 수신된 방이 현재 활성 방이면
-                updateRoomUsers(csv); // 참가자 패널 갱신
-            } // if 끝
-
-        } else if (line.startsWith("allusers:")) { // 전체 접속자: "allusers:nick|status,nick|status"
-            updateAllUsers(line.substring("allusers:".length())); // 전체 접속자 리스트 갱신
+    /* ---------------- 서버 수신 처리 ---------------- */ // 서버에서 온 메시지를 종류별로 분기 처리(텍스트/바이너리 형식은 ChatClient가 해석)
+
+    private void drainInbox() { // 수신함에 쌓인 메시지를 한 프레임에 모아 처리(UI 스레드)
+        if (client == null) return; // 주입 전
+        ServerMessage m; // 꺼낸 메시지
+        for (int n = 0; n < MAX_PER_PULSE && (m = client.poll()) != null; n++) displayMessage(m); // 도착 순서대로
+        flushChatLines(); // 모은 줄을 한 번에 반영
+    } // drainInbox 끝
+
+    private void flushChatLines() { // 이번 프레임에 모은 줄을 방 탭마다 한 번에 반영
+        for (RoomTab t : dirtyTabs) { // 바뀐 탭만
+            t.dirty = false; // 표시 해제
+            if (t.pane != null) { // 로그가 있으면
+                if (!t.pendingHistory.isEmpty()) t.pane.prepend(t.pendingHistory); // 기록은 위에
+                t.pane.append(t.pending); // 새 줄은 아래에
+            } else if (!t.pending.isEmpty()) { // 로그가 없으면(안 만들었거나 버림)
+                t.stale = true; // 줄은 버리고 다시 볼 때 기록에서 채움(안 읽은 수만 유지)
+            } // if-else 끝
+            t.pending.clear(); // 비움
+            t.pendingHistory.clear(); // 비움
+            t.tab.setText(t.unread > 0 ? t.room + " (" + t.unread + ")" : t.room); // 제목에 안 읽은 수
+        } // for 끝
+        dirtyTabs.clear(); // 비움
+    } // flushChatLines 끝
+
+    private RoomTab target(String room) { // 메시지를 넣을 탭(방 정보가 없는 텍스트 형식 메시지는 활성 방 탭으로)
+        RoomTab t = room != null ? tabs.get(room) : null; // 방 탭
+        return t != null ? t : activeRoom != null ? tabs.get(activeRoom) : null; // 없으면 활성 방 탭(그것도 없으면 버림)
+    } // target 끝
+
+    private void markDirty(RoomTab t) { // 프레임 끝에 반영할 탭으로 표시
+        if (t.dirty) return; // 이미 표시됨
+        t.dirty = true; // 표시
+        dirtyTabs.add(t); // 목록에 추가
+    } // markDirty 끝
+
+    private void syncTabs(List<String> rooms) { // 가입한 방 목록에 맞춰 탭을 만들고 없앰
+        syncingTabs = true; // 이 사이 선택 변경은 무시
+        try { // 항상 해제
+            Set<String> keep = new HashSet<>(rooms); // 남길 방
+            for (Iterator<RoomTab> it = tabs.values().iterator(); it.hasNext(); ) { // 나간 방
+                RoomTab t = it.next(); // 탭
+                if (keep.contains(t.room)) continue; // 아직 가입 중
+                it.remove(); // 목록에서 제거
+                loaded.remove(t.room); // 로그도 버림
+                dirtyTabs.remove(t); // 반영할 것도 버림
+                if (roomTabs != null) roomTabs.getTabs().remove(t.tab); // 화면에서 제거
+            } // for 끝
+            for (String room : rooms) { // 새로 가입한 방
+                if (tabs.containsKey(room)) continue; // 이미 있음
+                RoomTab t = new RoomTab(room); // 탭만 만들고 로그는 처음 볼 때
+                tabs.put(room, t); // 목록에 추가
+                if (roomTabs != null) roomTabs.getTabs().add(t.tab); // 화면에 추가
+            } // for 끝
+        } finally { // 항상
+            syncingTabs = false; // 해제
+        } // try-finally 끝
+        if (activeRoom != null) selectTab(activeRoom); // 활성 방 탭이 선택되어 있도록
+    } // syncTabs 끝
+
+    private void selectTab(String room) { // 서버가 알려 준 활성 방의 탭을 앞으로
+        RoomTab t = tabs.get(room); // 탭
+        if (t == null) return; // 아직 myrooms:가 안 옴(오면 syncTabs에서 선택)
+        if (roomTabs != null) roomTabs.getSelectionModel().select(t.tab); // 선택(리스너는 활성 방과 같으므로 전환 요청을 보내지 않음)
+        show(t); // 이미 선택되어 있어 이벤트가 없었어도 준비
+    } // selectTab 끝
+
+    private void show(RoomTab t) { // 탭을 보여 줄 준비(로그 생성 + 안 읽은 수 초기화)
+        if (t.pane == null) loadPane(t); // 처음 보거나 버린 탭이면 로그 생성
+        else loaded.get(t.room); // 최근에 본 것으로 표시(접근 순서 갱신)
+        if (t.unread > 0) { t.unread = 0; t.tab.setText(t.room); } // 읽음
+    } // show 끝
+
+    private void loadPane(RoomTab t) { // 탭 로그를 만들고, 넘치면 가장 오래 안 본 탭의 로그를 버림
+        try { // FXML 로드
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/chat_tab.fxml")); // chat_tab.fxml 로더
+            Node content = loader.load(); // 탭 내용
+            t.pane = loader.getController(); // 탭 컨트롤러
+            t.pane.init(SCROLLBACK); // 줄 수 상한
+            t.tab.setContent(content); // 탭에 넣음
+        } catch (IOException e) { // 리소스 경로/구문 오류
+            e.printStackTrace(); // 디버그 로그 출력
+            return; // 로그 없이 계속(줄은 버려짐)
+        } // try-catch 끝
+        loaded.put(t.room, t); // 로그가 있는 탭으로
+        if (t.stale && client != null) client.requestHistory(t.room, 0, RELOAD_LINES); // 버린 줄은 기록에서 채움(history: 행으로 옴)
+        t.stale = false; // 채우는 중
+        for (Iterator<RoomTab> it = loaded.values().iterator(); loaded.size() > MAX_LOADED_TABS && it.hasNext(); ) { // 가장 오래 안 본 탭부터
+            RoomTab old = it.next(); // 후보
+            if (old == t || old.tab.isSelected()) continue; // 보고 있는 탭은 유지
+            it.remove(); // 목록에서 제거
+            old.tab.setContent(null); // 화면 노드와 로그를 놓아줌
+            old.pane = null; // 로그 버림
+            old.stale = true; // 다시 볼 때 기록에서 채움
+        } // for 끝
+    } // loadPane 끝
+
+    void displayMessage(ServerMessage m) { // 수신함에서 꺼낸 메시지를 UI 스레드에서 처리(채팅 줄은 프레임 끝에 한 번에 반영)
+        if (m == null) return; // null 방어
+
+        switch (m.type) { // 메시지 종류별
+            case CHAT -> appendChat(m.room, m.sender + ": " + m.text); // 일반 채팅: "닉네임: 메시지"(방 탭으로)
+
+            case SYSTEM -> appendSystem(m.room, m.text); // 시스템 메시지로 출력(방 정보가 없으면 활성 방 탭)
+
+            case ROOM_LIST -> updateRoomList(m.names); // 방 목록 갱신
+
+            case MY_ROOMS -> { // 내 가입 방
+                updateMyRooms(m.names); // 내 방 세트 갱신
+                syncTabs(m.names); // 방 탭 만들기/없애기
+            } // MY_ROOMS 끝
+
+            case ROOM_ACTIVE -> { // 활성 방 알림
+                activeRoom = m.room; // 활성 방 이름 저장
+                selectTab(m.room); // 그 방 탭을 앞으로
+                if (roomListView != null) roomListView.refresh(); // 셀 표시(채팅 중 배지 등) 갱신
+            } // ROOM_ACTIVE 끝
+
+            case USER_LIST -> { // 참가자 목록
+                // 우측 패널은 "활성 방"의 참가자만 표시 // 다른 방 참가자는 표시하지 않음
+                if (m.room != null && m.room.equals(activeRoom)) { // 수신된 방이 현재 활성 방이면
+                    updateRoomUsers(m.users); // 참가자 패널 갱신
+                } // if 끝
+            } // USER_LIST 끝
 
-        } else { // 그 외(디버그/미정 의도 메세지)
-            if (chatArea != null) chatArea.appendText(line + "\n"); // 원문을 로그 영역에 출력
-        } // if-else 체인 끝
+            case ALL_USERS -> { // 전체 접속자 스냅샷(버전 없음 = 기존 형식, 있음 = 델타 기준점)
+                if (m.version != ServerMessage.NO_VERSION) { // 버전 포함 스냅샷이면
+                    if (m.version < presenceVersion) return; // 이미 더 새 상태면 무시
+                    presenceVersion = m.version; // 기준 버전 갱신
+                    presenceSyncPending = false; // 재동기화 완료
+                } // if 끝
+                updateAllUsers(m.users); // 전체 교체
+            } // ALL_USERS 끝
+
+            case ALL_USERS_PUT, ALL_USERS_REMOVE -> { // 변경분(추가/상태 변경, 퇴장)
+                if (presenceVersion < 0 || m.version <= presenceVersion) return; // 기준이 없거나 이미 반영된 변경분이면 무시
+                if (m.version != presenceVersion + 1) { // 중간 변경분이 빠졌으면
+                    requestPresenceSync(); // 스냅샷 다시 요청
+                    return; // 적용하지 않음
+                } // if 끝
+                presenceVersion = m.version; // 버전 갱신
+                if (m.type == ServerMessage.Type.ALL_USERS_PUT) { // 추가/상태 변경
+                    ServerMessage.User u = m.users.get(0); // 변경된 사용자
+                    allUsers.put(u.nick(), u.status()); // 추가 또는 갱신
+                } else { // 퇴장
+                    allUsers.remove(m.sender); // 제거
+                } // if-else 끝
+                renderAllUsers(); // 목록 다시 표시
+            } // ALL_USERS_PUT/REMOVE 끝
+
+            case HISTORY -> { // 기록 페이지의 한 행(최신 것부터 옴)
+                RoomTab t = tabs.get(m.room); // 그 방 탭(활성 방이 아니어도)
+                if (t != null && t.pane != null) { t.pendingHistory.add(m.sender + ": " + m.text); markDirty(t); } // 맨 위에 끼워 넣으면 시간순이 됨
+            } // HISTORY 끝
+
+            case HISTORY_END -> { } // 페이지 끝(다음 커서 m.version은 다음 requestHistory 호출에 사용)
+
+            case AUTH_OK, AUTH_FAIL -> { } // 인증 응답은 로그인 화면(ChatClient.authenticate)에서 이미 처리
+
+            case RESUME -> { // 다른 서버 세대에 (다시) 접속함: 이전 버전과 비교할 수 없으므로 다음 스냅샷을 기준으로
+                presenceVersion = -1; // 기준 버림(그 사이 변경분은 무시)
+                presenceSyncPending = false; // 이전 연결에서 보낸 재동기화 요청은 무효
+            } // RESUME 끝
+
+            case UNKNOWN -> { // 그 외(디버그/미정 의도 메세지)
+                RoomTab t = target(null); // 활성 방 탭
+                if (t != null) { t.pending.add(m.text); markDirty(t); } // 원문을 로그 영역에 출력
+            } // UNKNOWN 끝
+        } // switch 끝
     } // displayMessage 끝
 
-    private void appendChat(String body) { // 채팅 로그에 한 줄 추가
-        if (chatArea != null) chatArea.appendText(body + "\n"); // 본문 출력 후 줄바꿈
+    private void appendChat(String room, String body) { // 방 탭 로그에 한 줄 추가
+        RoomTab t = target(room); // 넣을 탭
+        if (t == null) return; // 가입한 방이 아직 없음
+        t.pending.add(body); // 프레임 끝에 한 번에 반영
+        if (!t.tab.isSelected()) t.unread++; // 보고 있지 않으면 안 읽은 수 증가
+        markDirty(t); // 반영 대상
     } // appendChat 끝
-    public void appendSystem(String msg) { // 시스템 메시지를 로그에 추가
-        if (chatArea != null) chatArea.appendText("== " + msg + " ==\n"); // 구분선 스타일로 출력
+    public void appendSystem(String msg) { // 시스템 메시지를 활성 방 탭에 추가
+        appendSystem(null, msg); // 방 정보 없음
+    } // appendSystem 끝
+    private void appendSystem(String room, String msg) { // 시스템 메시지를 방 탭 로그에 추가
+        RoomTab t = target(room); // 넣을 탭
+        if (t == null) return; // 가입한 방이 아직 없음
+        t.pending.add("== " + msg + " =="); // 구분선 스타일로 출력(프레임 끝에 반영, 안 읽은 수에는 넣지 않음)
+        markDirty(t); // 반영 대상
     } // appendSystem 끝
 
-    private void updateRoomList(String csv) { // 서버에서 받은 방 목록 CSV로 리스트 갱신
-        roomItems.clear(); // 기존 방 목록 비우기
-        if (csv != null && !csv.isBlank()) { // 유효한 CSV라면
-            roomItems.addAll(Arrays.asList(csv.split(","))); // 콤마로 분리하여 추가
-        } // if 끝
+    private void updateRoomList(List<String> names) { // 서버에서 받은 방 목록으로 리스트 갱신
+        roomItems.setAll(names); // 한 번에 교체
         if (roomListView != null) roomListView.refresh(); // 커스텀 셀 재렌더링
         // 선택이 없으면 첫 항목만 선택(참가 아님) // 시각적 포커스만, 실제 join은 아님
         if (!roomItems.isEmpty() && roomListView.getSelectionModel().isEmpty()) { // 방이 있고 아직 선택이 없다면
@@ -161,44 +357,42 @@ public class ChatMainController { // 메인 채팅 화면을 제어하는 컨트
         } // if 끝
     } // updateRoomList 끝
 
-    private void updateMyRooms(String csv) { // 내 가입 방 목록 갱신
+    private void updateMyRooms(List<String> names) { // 내 가입 방 목록 갱신
         myRooms.clear(); // 기존 세트 초기화
-        if (csv != null && !csv.isBlank()) { // 유효한 CSV라면
-            myRooms.addAll(Arrays.asList(csv.split(","))); // 콤마 분리 후 Set에 저장
-        } // if 끝
+        myRooms.addAll(names); // Set에 저장
         if (roomListView != null) roomListView.refresh(); // 셀 렌더링 갱신(입장 중 배지 반영)
     } // updateMyRooms 끝
 
-    private void updateRoomUsers(String csv) { // 활성 방 참가자 목록 갱신
-        roomUserItems.clear(); // 기존 참가자 리스트 초기화
-        int count = 0; // 카운터 초기화(라벨에 N명 표시용)
-        if (csv != null && !csv.isBlank()) { // 유효한 CSV라면
-            for (String token : csv.split(",")) { // 각 참가자 토큰 반복("nick|status")
-                String[] parts = token.split("\\|", 2); // 닉네임과 상태를 '|'로 분리(최대 2개)
-                String nick = parts[0]; // 닉네임
-                String st = (parts.length > 1 && !parts[1].isBlank()) ? parts[1] : "활동 중"; // 상태 기본값 처리
-                roomUserItems.add(nick + " (" + st + ")"); // "닉네임 (상태)" 형식으로 추가
-                count++; // 카운트 증가
-            } // for 끝
-        } // if 끝
-        if (roomUsersTitle != null) roomUsersTitle.setText("참가자 (" + count + "명)"); // 우측 라벨에 인원 반영
+    private void updateRoomUsers(List<ServerMessage.User> users) { // 활성 방 참가자 목록 갱신
+        List<String> items = new ArrayList<>(users.size()); // 표시 문자열
+        for (ServerMessage.User u : users) { // 각 참가자
+            items.add(u.nick() + " (" + u.status() + ")"); // "닉네임 (상태)" 형식으로 추가
+        } // for 끝
+        roomUserItems.setAll(items); // 한 번에 교체
+        if (roomUsersTitle != null) roomUsersTitle.setText("참가자 (" + users.size() + "명)"); // 우측 라벨에 인원 반영
     } // updateRoomUsers 끝
 
-    private void updateAllUsers(String csv) { // 전체 접속자 목록 갱신
-        allUserItems.clear(); // 기존 목록 초기화
-        int count = 0; // 카운트 초기화
-        if (csv != null && !csv.isBlank()) { // 유효한 CSV라면
-            for (String token : csv.split(",")) { // 각 사용자 토큰 반복("nick|status")
-                String[] parts = token.split("\\|", 2); // 닉네임/상태 분리
-                String nick = parts[0]; // 닉네임
-                String st = (parts.length > 1 && !parts[1].isBlank()) ? parts[1] : "활동 중"; // 상태 기본값
-                allUserItems.add(nick + " (" + st + ")"); // "닉네임 (상태)" 형식으로 추가
-                count++; // 카운트 증가
-            } // for 끝
-        } // if 끝
-        if (allUsersTitle != null) allUsersTitle.setText("전체 접속자 (" + count + "명)"); // 라벨에 총원 반영
+    private void updateAllUsers(List<ServerMessage.User> users) { // 전체 접속자 목록 갱신(스냅샷으로 전체 교체)
+        allUsers.clear(); // 기존 목록 초기화
+        for (ServerMessage.User u : users) allUsers.put(u.nick(), u.status()); // 저장
+        renderAllUsers(); // 표시
     } // updateAllUsers 끝
 
+    private void renderAllUsers() { // 전체 접속자 맵을 리스트뷰에 반영
+        List<String> items = new ArrayList<>(allUsers.size()); // 표시 문자열
+        for (Map.Entry<String, String> e : allUsers.entrySet()) { // 각 사용자
+            items.add(e.getKey() + " (" + e.getValue() + ")"); // "닉네임 (상태)" 형식
+        } // for 끝
+        allUserItems.setAll(items); // 한 번에 교체(변경 이벤트 한 번)
+        if (allUsersTitle != null) allUsersTitle.setText("전체 접속자 (" + allUsers.size() + "명)"); // 라벨에 총원 반영
+    } // renderAllUsers 끝
+
+    private void requestPresenceSync() { // 변경분 누락 시 스냅샷 재요청
+        if (presenceSyncPending || client == null) return; // 이미 요청했거나 연결 전이면 생략
+        presenceSyncPending = true; // 요청 표시
+        client.sendRaw("presence:sync"); // 서버에 재동기화 요청
+    } // requestPresenceSync 끝
+
     /* ---------------- FXML 이벤트 ---------------- */ // FXML에서 onAction 등으로 연결되는 이벤트 핸들러
 
     @FXML private void changeStatusAction() { // 상태 콤보 변경 시 호출
@@ -3,199 +3,360 @@ package com.mycompany.chat; // ChatServer 클래스가 속한 패키지 선언
 import java.io.IOException; // 입출력(예: 소켓) 예외 처리에 사용
 import java.net.ServerSocket; // 서버 소켓(클라이언트 접속 대기)
 import java.net.Socket; // 접속된 클라이언트 소켓 표현
-import java.sql.*; // JDBC 사용을 위한 패키지 전체 임포트
 import java.util.*; // List, Set, Map 등 컬렉션 사용
-import java.util.concurrent.ConcurrentHashMap; // 스레드 안전한 맵(동시성 고려)
+import java.util.concurrent.Executor; // 클라이언트 핸들러 실행 방식 추상화
+import java.util.concurrent.Executors; // 스레드 풀/가상 스레드 실행기 팩토리
+import java.util.concurrent.ThreadLocalRandom; // 프로세스 세대 값
+import java.util.concurrent.TimeUnit; // 드레인 대기 시간
+import java.util.concurrent.atomic.AtomicBoolean; // 드레인을 한 번만
+import java.util.concurrent.atomic.LongAdder; // 접속/종료 카운터
+import java.util.function.Consumer; // 인증 결과를 받는 쪽
 
 public class ChatServer { // 채팅 서버 전체 로직을 담는 클래스 시작
 
-    private static final int PORT = 8000; // 서버가 바인드할 포트 번호
+    private static final int PORT = ServerConfig.getInt("chat.server.port", 8000); // 서버가 바인드할 포트 번호(설정으로 변경 가능)
     private static final String DEFAULT_ROOM = "Lobby"; // 기본(초기) 채팅방 이름
 
-    // 닉네임 -> 핸들러 // 각 사용자의 네트워크 연결을 관리하는 핸들러 매핑
-    private static final Map<String, ClientHandler> clients = new ConcurrentHashMap<>(); // 동시 접근 안전한 맵
-    // 닉네임 -> 상태 // 유저의 현재 상태(활동 중/자리 비움) 저장
-    private static final Map<String, String> clientStatuses = new ConcurrentHashMap<>(); // 상태 문자열 보관
-    // 방이름 -> 닉네임 세트 // 방마다 누가 있는지 관리
-    private static final Map<String, Set<String>> rooms = new ConcurrentHashMap<>(); // 방 구성원 집합
-    // 닉네임 -> 가입한 방들(여러개 가능) // 한 사용자가 가입한 모든 방 목록
-    private static final Map<String, Set<String>> userRooms = new ConcurrentHashMap<>(); // 멤버십 관리
-    // 닉네임 -> 활성(채팅 송신 대상) 방 // 사용자가 현재 채팅을 보낼 기본 대상 방
-    private static final Map<String, String> activeRoom = new ConcurrentHashMap<>(); // 활성 방 매핑
+    // 접속자/방 멤버십/활성 방 // 사용자 락 + 방 줄무늬 락으로 함께 갱신하고, 방 멤버는 쓰기 때 복사하는 배열로 보관
+    private static final RoomRegistry REGISTRY = new RoomRegistry( // 서버 전체에서 하나
+            ServerConfig.getInt("chat.rooms.lockStripes", 64)); // 방 멤버 배열 락 줄무늬 수
+    // 닉네임 -> 상태 + 전체 접속자/방 목록 스냅샷 // 버전마다 한 번만 만든 페이로드를 모두에게 공유
+    private static final PresenceCache PRESENCE = new PresenceCache( // 상태 문자열과 캐시된 목록 보관
+            ServerConfig.getInt("chat.presence.maxDeltas", 64)); // 한 번에 보낼 최대 변경분 수(넘으면 스냅샷)
+    // 목록 갱신 묶음 전파기 // userlist/allusers/roomlist는 변경 표시만 하고 tick마다 최신 내용으로 한 번 전송
+    private static final PresenceScheduler PRESENCE_FLUSH = new PresenceScheduler( // 서버 전체에서 하나
+            ServerConfig.getLong("chat.presence.tickMs", 100)); // 전파 간격(0이면 즉시)
 
     private static final Set<String> ALLOWED_STATUSES = Set.of("활동 중", "자리 비움"); // 허용되는 상태값 정의
 
-    // DB // 데이터베이스 접속 정보 상수
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/chat_app?serverTimezone=UTC"; // JDBC URL
-    private static final String DB_USER = "root"; // DB 사용자
-    private static final String DB_PASSWORD = "ljy"; // DB 비밀번호
+    // 채팅 로그 저장소 // chat.store로 고름(mysql: chat_logs 배치 INSERT / log: 방별 내장 로그 파일 / memory: 메모리 / none), 발신자 스레드는 버퍼에 넣기만 함
+    private static final MessageStore STORE = MessageStore.fromConfig(); // 서버 전체에서 하나(저장하지 않으면 null)
+
+    // 방별 최근 채팅 링 버퍼 // 가입/전환 때 메모리에서 바로 따라잡기, DB는 방이 처음 생길 때 한 번만 읽음
+    private static final MessageHistory HISTORY = new MessageHistory( // 서버 전체에서 하나
+            ServerConfig.getInt("chat.history.size", 200), // 방마다 보관할 최근 메시지 수
+            ServerConfig.getInt("chat.history.catchUp", 50), // 가입/전환 때 보낼 메시지 수(0이면 끔)
+            STORE == null ? null : STORE::recent); // 재시작 전 기록 불러오기(저장하지 않으면 메모리만)
+
+    // 채팅 기록 페이지 조회기 // history:<방>:<beforeId>:<limit>를 저장소의 키셋 페이지로 읽어 받는 대로 전송
+    private static final HistoryReader HISTORY_PAGES = new HistoryReader( // 서버 전체에서 하나
+            STORE, // 저장하지 않으면 항상 빈 페이지
+            ServerConfig.getInt("chat.history.page.maxConcurrent", 4), // 동시에 도는 조회 수(풀 크기보다 작게)
+            ServerConfig.getInt("chat.history.page.maxRows", 200), // 한 페이지 최대 행 수
+            ServerConfig.getLong("chat.history.page.waitMs", 2_000)); // 조회 차례 대기 시간
+
+    // 인증기 // auth: 로그인/회원가입은 코어 수만큼의 해시 스레드와 고정 대기열에서(가득 차면 busy), 재접속은 서명된 토큰으로 BCrypt 없이
+    private static final Authenticator AUTH = new Authenticator(); // 서버 전체에서 하나
+
+    // 클러스터 // 다른 노드와 접속자/방 멤버십을 복제하고, 채팅은 그 방에 멤버가 있는 노드에만 전달(chat.cluster.bus=none이면 단일 노드)
+    private static final ClusterNode CLUSTER = new ClusterNode(ClusterBus.fromConfig()); // 서버 전체에서 하나
+
+    // 송신 제한 // 연결별(채팅/방 조작/상태) + 방별(채팅) 토큰 버킷, 넘치면 delay/drop/disconnect
+    private static final RateLimiter LIMITER = new RateLimiter(); // 서버 전체에서 하나
+
+    // 유휴 감시 // 연결마다 타이머 바퀴 예약 하나로 ping 전송과 유휴 연결 종료
+    private static final IdleMonitor IDLE = new IdleMonitor(); // 서버 전체에서 하나
+
+    // 드레인 // 종료 신호(SIGTERM)를 받으면 접속 수락 중지 → 안내 → 송신 대기열 비우기 → 연결 종료 → 로그 저장 flush
+    private static final AtomicBoolean STORE_FULL = new AtomicBoolean(false); // 채팅 로그 버퍼가 넘친 상태인지(경고를 넘칠 때/회복할 때 한 번씩만)
+    private static final AtomicBoolean DRAINING = new AtomicBoolean(false); // 드레인 중인지
+    private static final long DRAIN_TIMEOUT_MS = ServerConfig.getLong("chat.drain.timeoutMs", 10_000); // 송신 대기열/로그 저장을 기다릴 최대 시간
+    private static final long DRAIN_LINGER_MS = ServerConfig.getLong("chat.drain.lingerMs", 200); // 대기열이 빈 뒤 소켓에 쓰는 중인 묶음을 기다릴 시간
+    private static volatile ServerSocket listener; // 스레드 모드 수락 소켓(드레인 때 닫음)
+    private static volatile NioChatServer nioServer; // nio 모드 서버(드레인 때 수락 중지)
+
+    // 재접속 재개 // 채팅 순번/전체 접속자 버전은 이 프로세스 안에서만 이어지므로, 세대가 같을 때만 빠진 부분만 보냄(다르면 따라잡기/스냅샷)
+    private static final long EPOCH = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE); // 프로세스 세대("resume:<세대>"로 알림)
+    static final int RESUME_MAX_ROOMS = ServerConfig.getInt("chat.resume.maxRooms", 50); // 재접속 한 번에 다시 가입시킬 최대 방 수(방 조작 송신 제한을 거치지 않으므로)
+
+    // 지표 // GET /metrics(Metrics)로 노출, 한 건의 자세한 내용은 JFR 이벤트(ChatEvents.Broadcast)로
+    private static final LongAdder CONNECTS = Metrics.counter("chat_connections_opened_total"); // 접속 수
+    private static final LongAdder DISCONNECTS = Metrics.counter("chat_connections_closed_total"); // 종료 수
+    private static final int METRIC_ROOMS = ServerConfig.getInt("chat.metrics.maxRoomLabels", 100); // 방 레이블을 따로 둘 방 수(나머지는 _other)
+    private static final Metrics.Family MESSAGES_IN = new Metrics.Family("chat_messages_in_total", "room", METRIC_ROOMS); // 방별 받은 채팅 수
+    private static final Metrics.Family MESSAGES_OUT = new Metrics.Family("chat_messages_out_total", "room", METRIC_ROOMS); // 방별 내보낸 메시지 수(채팅 × 멤버)
+    private static final LatencyHistogram FAN_OUT = Metrics.histogram("chat_fanout"); // 채팅 한 건을 받은 연결 수
+    private static final LatencyHistogram BROADCAST_US = Metrics.histogram("chat_broadcast_us"); // 채팅 한 건을 멤버 대기열에 넣는 시간(µs)
 
     public static void main(String[] args) { // 서버 진입점(메인 함수)
-        ensureRoom(DEFAULT_ROOM); // 기본 방(Lobby)을 미리 생성(존재하지 않으면)
+        init(); // 기본 방/지표/로그 저장기 준비
         System.out.println("서버가 " + PORT + "번 포트에서 시작되었습니다."); // 서버 시작 로그 출력
+        String mode = ServerConfig.get("chat.server.mode", "thread"); // 연결 처리 방식 선택(thread/nio)
+        if ("nio".equalsIgnoreCase(mode)) { // Selector 기반 논블로킹 모드
+            try { // 채널/셀렉터 예외 처리
+                nioServer = new NioChatServer(PORT, ServerConfig.getInt("chat.nio.loops", 0)); // 드레인 때 수락을 멈출 수 있도록 보관
+                nioServer.run(); // 소수의 이벤트 루프로 모든 연결 처리(드레인으로 수락이 멈추면 반환)
+            } catch (IOException e) { // 바인드 실패 등
+                e.printStackTrace(); // 스택트레이스 출력
+            } // try-catch 끝
+            return; // 기존 스레드 모드는 실행하지 않음
+        } // if 끝
+        Executor workers; // ClientHandler를 실행할 방식
+        if ("virtual".equalsIgnoreCase(mode)) { // 접속당 가상 스레드 모드
+            workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("client-", 0).factory()); // 핸들러마다 가상 스레드 하나
+            System.out.println("가상 스레드 모드로 실행합니다."); // 모드 로그
+        } else { // 기존 모드: 접속당 플랫폼 스레드
+            workers = r -> new Thread(r).start(); // 접속당 새 스레드
+        } // if-else 끝
         try (ServerSocket serverSocket = new ServerSocket(PORT)) { // 지정 포트로 서버소켓 생성(try-with-resources로 자동 close)
-            while (true) { // 서버는 무한 루프로 접속을 처리
-                Socket clientSocket = serverSocket.accept(); // 클라이언트 접속 수락(블로킹)
-                new Thread(new ClientHandler(clientSocket)).start(); // 접속당 새 스레드로 ClientHandler 실행
+            listener = serverSocket; // 드레인 때 닫을 수 있도록 보관
+            while (!DRAINING.get()) { // 드레인 전까지 접속을 처리
+                Socket clientSocket = serverSocket.accept(); // 클라이언트 접속 수락(블로킹, 드레인이 소켓을 닫으면 예외)
+                workers.execute(new ClientHandler(clientSocket)); // 접속마다 선택된 방식(플랫폼/가상 스레드)으로 ClientHandler 실행
             } // while 끝
         } catch (IOException e) { // 소켓 생성/accept 중 예외 처리
-            e.printStackTrace(); // 스택트레이스 출력
+            if (!DRAINING.get()) e.printStackTrace(); // 드레인으로 닫힌 것은 정상 종료
         } // try-catch 끝
     } // main 끝
 
+    /** 소켓을 열기 전 준비(기본 방, JMX/HTTP 지표, 로그 저장 스레드) */ // main과 벤치마크(p2p-chat-bench)가 한 번 호출
+    static void init() { // 서버 상태 초기화
+        ensureRoom(DEFAULT_ROOM); // 기본 방(Lobby)을 미리 생성(존재하지 않으면)
+        Metrics.gauge("chat_connections", REGISTRY::size); // 현재 접속자 수
+        Metrics.gauge("chat_rooms", () -> REGISTRY.roomNames().size()); // 현재 방 수
+        OutboundQueue.registerMBean(); // 송신 대기열 지표(JMX) 등록
+        PRESENCE_FLUSH.registerMBean(); // 목록 전파 합치기 지표(JMX) 등록
+        HISTORY.registerMBean(); // 채팅 기록 링 지표(JMX) 등록
+        HISTORY_PAGES.registerMBean(); // 채팅 기록 페이지 조회 지표(JMX) 등록
+        AUTH.registerMBean(); // 인증 지표(JMX) 등록
+        LIMITER.registerMBean(); // 송신 제한 지표(JMX) 등록
+        if (STORE != null) { // 채팅 로그 저장을 쓸 때만
+            STORE.registerMBean(); // 저장소 지표(JMX) 등록
+            STORE.start(); // 채팅 로그 저장 스레드 시작(종료 시 flush는 드레인에서)
+        } // if 끝
+        if (CLUSTER.enabled()) { // 클러스터 모드일 때만
+            try { // 바인드 실패 처리
+                CLUSTER.start(); // 노드 간 버스 시작(다른 노드로 연결은 백그라운드에서 재시도)
+            } catch (IOException e) { // 클러스터 포트 사용 중 등
+                throw new IllegalStateException("클러스터 버스 시작 실패", e); // 반쪽 클러스터로 뜨지 않도록 시작 실패
+            } // try-catch 끝
+            CLUSTER.registerMBean(); // 클러스터 지표(JMX) 등록
+        } // if 끝
+        IDLE.registerMBean(); // 유휴 감시 지표(JMX) 등록
+        IDLE.start(); // 타이머 바퀴 시작
+        Metrics.startHttp(); // GET /metrics(chat.metrics.port, 0이면 끔)
+        Runtime.getRuntime().addShutdownHook(new Thread(ChatServer::drain, "chat-drain")); // 종료 신호(SIGTERM, Ctrl+C)를 받으면 드레인 후 종료
+    } // init 끝
+
+    /**
+     * 드레인: 새 접속을 받지 않고 클러스터 링크를 닫은 뒤, 접속자에게 알리고 송신 대기열이 빌 때까지 기다려 연결을 닫고, 마지막으로 로그 저장을 flush한다.
+     * 롤링 재시작에서 이미 받은 채팅이 전달/저장되지 않고 사라지는 일이 없도록 한다(각 단계는 chat.drain.timeoutMs 안에서).
+     */ // 종료 훅에서 한 번(여러 번 불려도 한 번만 실행)
+    static void drain() { // 드레인
+        if (!DRAINING.compareAndSet(false, true)) return; // 이미 진행 중
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MS); // 기다릴 한도
+        System.out.println("드레인 시작: 새 접속을 받지 않습니다. 현재 접속자 수: " + REGISTRY.size()); // 로그
+        ServerSocket s = listener; // 스레드 모드 수락 소켓
+        if (s != null) { try { s.close(); } catch (IOException ignore) {} } // accept에서 빠져나오게
+        NioChatServer nio = nioServer; // nio 모드 서버
+        if (nio != null) nio.stopAccepting(); // 수락만 멈춤(이벤트 루프는 연결을 닫을 때까지 계속)
+        CLUSTER.stop(); // 노드 간 링크/수신 스레드 종료(다른 노드가 이 노드의 사용자를 정리하고, 여기로 채팅을 더 보내지 않음)
+
+        ServerMessage notice = ServerMessage.system("서버를 다시 시작합니다. 잠시 후 다시 접속됩니다."); // 한 번만 만들어 공유
+        for (RoomRegistry.Member m : REGISTRY.all()) m.handler.sendMessage(notice); // 모두에게 안내(대기열 뒤에 붙어 이미 받은 채팅 다음에 도착)
+        while (OutboundQueue.totalDepth() > 0 && System.nanoTime() < deadline) { // 송신 대기열이 빌 때까지
+            try { Thread.sleep(20); } catch (InterruptedException e) { break; } // 잠깐씩 확인
+        } // while 끝
+        try { Thread.sleep(DRAIN_LINGER_MS); } catch (InterruptedException ignore) {} // 대기열에서 꺼내 소켓에 쓰는 중인 마지막 묶음
+        long left = OutboundQueue.totalDepth(); // 남은 메시지(시간 초과면 0이 아님)
+
+        int closed = 0; // 닫은 연결 수
+        for (RoomRegistry.Member m : REGISTRY.all()) { m.handler.onDisconnect(); closed++; } // 연결 종료(드레인 중에는 퇴장 알림을 보내지 않음)
+        if (nio != null) nio.shutdownLoops(); // 인증 전 연결까지 정리하고 이벤트 루프 종료
+        IDLE.stop(); // 타이머 바퀴 정지
+
+        if (STORE != null) STORE.shutdown(Math.max(1_000, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))); // 남은 채팅 로그 저장(최소 1초)
+        System.out.println("드레인 완료: 연결 " + closed + "개 종료, 보내지 못한 메시지 " + left + "건"); // 로그
+    } // drain 끝
+
+    static boolean draining() { return DRAINING.get(); } // 드레인 중인지
+
+    static IdleMonitor idleMonitor() { return IDLE; } // ClientHandler가 연결마다 감시 등록
+
     /* ---------------- 유틸 ---------------- */ // 공용 유틸리티 메서드 구역
 
-    private static void ensureRoom(String room) { // 방이 존재하지 않으면 생성하는 헬퍼
-        rooms.computeIfAbsent(room, r -> ConcurrentHashMap.newKeySet()); // 방 이름 키로 빈 동시성 Set 생성
+    private static boolean ensureRoom(String room) { // 방이 존재하지 않으면 생성하는 헬퍼(새로 만들었으면 true)
+        if (!REGISTRY.ensureRoom(room)) return false; // 이미 있으면(경쟁에서 졌어도) 기존 방 사용
+        HISTORY.open(room); // 기록 링 생성(DB의 최근 기록은 백그라운드에서 채움)
+        return PRESENCE.addRoom(room); // 방 목록 캐시에 반영
     } // ensureRoom 끝
 
-    private static Set<String> membership(String nick) { // 닉네임의 멤버십 Set 확보(없으면 생성)
-        return userRooms.computeIfAbsent(nick, k -> ConcurrentHashMap.newKeySet()); // 사용자별 가입 방 집합 반환
-    } // membership 끝
-
-    private static void sendTo(String nick, String line) { // 특정 사용자에게 한 줄 메세지 전송
-        ClientHandler h = clients.get(nick); // 닉네임으로 핸들러 조회
-        if (h != null) h.sendMessage(line); // 핸들러가 있으면 송신
+    private static void sendTo(String nick, ServerMessage msg) { // 특정 사용자에게 메세지 하나 전송
+        RoomRegistry.Member m = REGISTRY.member(nick); // 닉네임으로 사용자 조회
+        if (m != null) m.handler.sendMessage(msg); // 접속 중이면 송신
     } // sendTo 끝
 
+    private static int sendToRoom(String room, ServerMessage msg) { // 방 멤버 전원에게 같은 메시지 전송(받은 연결 수 반환)
+        RoomRegistry.Member[] members = REGISTRY.members(room); // 쓰기 때 복사하는 배열(복사/조회 없음)
+        for (RoomRegistry.Member m : members) m.handler.sendMessage(msg); // 그대로 순회
+        MESSAGES_OUT.of(room).add(members.length); // 방별 내보낸 수
+        return members.length; // 받은 연결 수
+    } // sendToRoom 끝
+
+    private static void sendHistory(String nick, String room) { // 방의 최근 채팅을 한 사용자에게 전송(메모리 링에서)
+        RoomRegistry.Member m = REGISTRY.member(nick); // 닉네임으로 사용자 조회
+        if (m != null) HISTORY.catchUp(room, m.handler); // 접속 중이면 따라잡기 묶음 전송
+    } // sendHistory 끝
+
+    private static boolean roomMux(String nick) { // 가입한 모든 방의 메시지를 방별 창에 따로 쌓는 클라이언트인지
+        RoomRegistry.Member m = REGISTRY.member(nick); // 닉네임으로 사용자 조회
+        return m != null && m.handler.roomMux(); // 협상 결과
+    } // roomMux 끝
+
+    static RateLimiter rateLimiter() { return LIMITER; } // ClientHandler가 명령마다 판정
+
     public static String getActiveRoomOrDefault(String nick) { // 활성 방이 없을 경우 기본 방 반환
-        return activeRoom.getOrDefault(nick, DEFAULT_ROOM); // 맵 조회 실패 시 Lobby로
+        String room = REGISTRY.active(nick); // 활성 방 조회
+        return room != null ? room : DEFAULT_ROOM; // 없으면 Lobby로
     } // getActiveRoomOrDefault 끝
 
-    private static <T> List<T> snapshot(Collection<T> c) { // 동시성 컬렉션을 안전히 순회하기 위한 스냅샷 리스트 생성
-        return (c == null) ? List.of() : new ArrayList<>(c); // null이면 빈 리스트, 아니면 복사본 반환
-    } // snapshot 끝
+    /* ---------------- payload 생성 ---------------- */ // 클라이언트로 보낼 메시지 생성기(텍스트/바이너리 인코딩은 메시지마다 한 번)
 
-    /* ---------------- payload 생성 ---------------- */ // 클라이언트로 보낼 프로토콜 문자열 생성기
-
-    public static String getRoomListPayload() { // 방 목록 페이로드 생성
-        return "roomlist:" + String.join(",", new TreeSet<>(rooms.keySet())); // 정렬된 방 이름들을 CSV로 연결
+    static ServerMessage getRoomListPayload() { // 방 목록 페이로드(방이 생길 때만 다시 만든 캐시)
+        return PRESENCE.roomListPayload(); // "roomlist:방1,방2"(정렬됨)
     } // getRoomListPayload 끝
 
-    public static String buildAllUsersPayload() { // 전체 접속자 + 상태 페이로드
-        StringBuilder sb = new StringBuilder("allusers:"); // 접두어 작성
-        for (String nick : clients.keySet()) { // 현재 접속 중인 모든 사용자 순회
-            String st = clientStatuses.getOrDefault(nick, "활동 중"); // 상태 조회(기본값: 활동 중)
-            sb.append(nick).append("|").append(st).append(","); // "닉네임|상태," 형태로 추가
-        } // for 끝
-        if (sb.length() > "allusers:".length()) sb.setLength(sb.length() - 1); // 마지막 콤마 제거(항목이 있을 때만)
-        return sb.toString(); // 완성 문자열 반환
+    static ServerMessage buildAllUsersPayload() { // 전체 접속자 + 상태 페이로드(버전마다 한 번 만든 캐시)
+        return PRESENCE.payload(); // "allusers:닉|상태,..."
     } // buildAllUsersPayload 끝
 
-    public static String buildMyRoomsPayload(String nick) { // 특정 사용자의 가입 방 목록 페이로드
-        Set<String> set = userRooms.get(nick); // 사용자 멤버십 집합 조회
-        if (set == null || set.isEmpty()) return "myrooms:"; // 없으면 빈 페이로드 리턴
-        List<String> list = new ArrayList<>(set); // 정렬을 위해 리스트로 복사
-        Collections.sort(list); // 사전순 정렬
-        return "myrooms:" + String.join(",", list); // "myrooms:방1,방2" 형태
+    static ServerMessage buildVersionedAllUsersPayload() { // 델타 모드 클라이언트의 기준 스냅샷
+        return PRESENCE.versionedPayload(); // "allusers@<버전>:닉|상태,..."
+    } // buildVersionedAllUsersPayload 끝
+
+    static ServerMessage buildMyRoomsPayload(String nick) { // 특정 사용자의 가입 방 목록 페이로드
+        return ServerMessage.myRooms(REGISTRY.roomsOf(nick)); // "myrooms:방1,방2" 형태(사전순)
     } // buildMyRoomsPayload 끝
 
-    public static String buildActiveRoomPayload(String nick) { // 활성 방 알림 페이로드
-        return "roomactive:" + getActiveRoomOrDefault(nick); // "roomactive:방"
+    static ServerMessage buildActiveRoomPayload(String nick) { // 활성 방 알림 페이로드
+        return ServerMessage.roomActive(getActiveRoomOrDefault(nick)); // "roomactive:방"
     } // buildActiveRoomPayload 끝
 
-    public static String buildUserListPayloadForRoom(String room) { // 특정 방의 참가자 목록 페이로드
-        StringBuilder sb = new StringBuilder("userlist:"); // 접두어
-        sb.append(room).append(":"); // 방 이름과 구분자 ':' 추가 → "userlist:방:"
-        Set<String> set = rooms.get(room); // 방의 멤버 집합 조회
-        if (set != null) { // 멤버가 존재하면
-            for (String nick : set) { // 각 닉네임에 대해
-                String st = clientStatuses.getOrDefault(nick, "활동 중"); // 상태 조회
-                sb.append(nick).append("|").append(st).append(","); // "닉|상," 추가
-            } // for 끝
-        } // if 끝
-        if (sb.length() > ("userlist:" + room + ":").length()) sb.setLength(sb.length() - 1); // 항목이 있으면 꼬리 콤마 제거
-        return sb.toString(); // 완성 문자열 반환
+    static ServerMessage buildUserListPayloadForRoom(String room) { // 특정 방의 참가자 목록 페이로드
+        RoomRegistry.Member[] members = REGISTRY.members(room); // 방 멤버 배열(일관된 한 시점)
+        List<ServerMessage.User> users = new ArrayList<>(members.length); // 참가자 목록
+        for (RoomRegistry.Member m : members) { // 각 멤버에 대해
+            users.add(new ServerMessage.User(m.nick, PRESENCE.status(m.nick))); // 상태 조회(기본값: 활동 중)
+        } // for 끝
+        for (String nick : CLUSTER.remoteMembers(room)) { // 다른 노드에 있는 멤버(단일 노드면 없음)
+            users.add(new ServerMessage.User(nick, PRESENCE.status(nick))); // 상태는 복제된 값
+        } // for 끝
+        return ServerMessage.userList(room, users); // "userlist:방:닉|상태,..."
     } // buildUserListPayloadForRoom 끝
 
     /* ---------------- 브로드캐스트 ---------------- */ // 여러 사용자에게 일괄 전송
 
-    private static void broadcastRoomListToAll() { // 모든 클라이언트에게 방 목록 전파
-        String payload = getRoomListPayload(); // 페이로드 생성
-        for (ClientHandler c : clients.values()) c.sendMessage(payload); // 전 클라이언트로 전송
+    // 목록 갱신(roomlist/allusers/userlist)은 변경 표시만 하고, PresenceScheduler가 tick마다 아래 flush*로 한 번 전송
+
+    private static void broadcastRoomListToAll() { // 모든 클라이언트에게 방 목록 전파 예약
+        PRESENCE_FLUSH.markRoomList(); // 변경 표시
     } // broadcastRoomListToAll 끝
 
-    private static void broadcastAllUsers() { // 전체 접속자/상태 목록 전파
-        String payload = buildAllUsersPayload(); // 페이로드 생성
-        for (ClientHandler c : clients.values()) c.sendMessage(payload); // 전 클라이언트로 전송
+    private static void broadcastAllUsers() { // 전체 접속자/상태 목록 전파 예약
+        PRESENCE_FLUSH.markRoster(); // 변경 표시
     } // broadcastAllUsers 끝
 
-    private static void broadcastSystemToRoom(String room, String msg) { // 특정 방에 시스템 메시지 발송
-        for (String nick : snapshot(rooms.get(room))) { // 방 멤버 스냅샷 순회
-            ClientHandler c = clients.get(nick); // 핸들러 조회
-            if (c != null) c.sendMessage("system:" + msg); // "system:..." 형태로 전송
-        } // for 끝
-    } // broadcastSystemToRoom 끝
+    private static void broadcastUserList(String room) { // 특정 방의 참가자 목록을 방 멤버들에게 갱신 전파 예약
+        PRESENCE_FLUSH.markRoom(room); // 변경 표시
+    } // broadcastUserList 끝
 
-    private static void broadcastUserList(String room) { // 특정 방의 참가자 목록을 방 멤버들에게 갱신 전파
-        String payload = buildUserListPayloadForRoom(room); // 페이로드 생성
-        for (String nick : snapshot(rooms.get(room))) { // 방 멤버 순회
-            ClientHandler c = clients.get(nick); // 핸들러 조회
-            if (c != null) c.sendMessage(payload); // 참가자 목록 전송
+    static int flushRoomList() { // 방 목록을 모든 클라이언트에게 전송(전파기 스레드), 보낸 줄 수 반환
+        ServerMessage payload = getRoomListPayload(); // 캐시된 페이로드
+        int n = 0; // 보낸 줄 수
+        for (RoomRegistry.Member m : REGISTRY.all()) { m.handler.sendMessage(payload); n++; } // 전 클라이언트로 전송
+        return n; // 결과
+    } // flushRoomList 끝
+
+    static int flushAllUsers() { // 전체 접속자 변경을 전송(전파기 스레드), 보낸 줄 수 반환
+        List<ServerMessage> deltas = PRESENCE.drainDeltas(); // 지난 전파 이후 변경분(버전 순, 너무 많으면 null)
+        ServerMessage full = null; // 기존 형식 전체 목록(필요할 때 한 번만 조회)
+        int n = 0; // 보낸 줄 수
+        for (RoomRegistry.Member m : REGISTRY.all()) { // 전 클라이언트
+            ClientHandler c = m.handler; // 송신 대상
+            if (c.presenceDelta()) { // 델타 모드면
+                if (deltas == null) { c.sendMessage(buildVersionedAllUsersPayload()); n++; continue; } // 변경분이 너무 많으면 스냅샷
+                for (ServerMessage d : deltas) c.sendMessage(d); // 변경분만 순서대로
+                n += deltas.size(); // 줄 수
+                continue; // 다음
+            } // if 끝
+            if (full == null) full = buildAllUsersPayload(); // 캐시된 전체 목록
+            c.sendMessage(full); // 기존 클라이언트에는 전체 목록
+            n++; // 줄 수
         } // for 끝
-    } // broadcastUserList 끝
+        return n; // 결과
+    } // flushAllUsers 끝
+
+    static int flushUserList(String room) { // 방 참가자 목록을 방 멤버에게 전송(전파기 스레드), 보낸 줄 수 반환
+        ServerMessage payload = buildUserListPayloadForRoom(room); // 방마다 한 번 생성
+        RoomRegistry.Member[] members = REGISTRY.members(room); // 방 멤버 배열
+        for (RoomRegistry.Member m : members) m.handler.sendMessage(payload); // 참가자 목록 전송
+        return members.length; // 보낸 줄 수
+    } // flushUserList 끝
+
+    private static void broadcastSystemToRoom(String room, String msg) { // 특정 방에 시스템 메시지 발송
+        sendToRoom(room, ServerMessage.system(room, msg)); // 한 번만 만들어 모두에게 공유("system:..." 형태, 바이너리는 방 포함)
+        CLUSTER.relaySystem(room, msg); // 그 방에 멤버가 있는 다른 노드에도 전달
+    } // broadcastSystemToRoom 끝
 
     /* ---------------- 방/멤버십 관리 ---------------- */ // 방 생성/입장/나가기/스위치
 
     public static void createRoom(String room) { // 새 방 생성(이미 있으면 유지)
-        ensureRoom(room); // 방 존재 보장
-        broadcastRoomListToAll(); // 전체에 방 목록 갱신 통지
+        if (!ensureRoom(room)) return; // 이미 있으면 알릴 것 없음
+        CLUSTER.roomCreated(room); // 다른 노드에도 방 생성 복제
+        broadcastRoomListToAll(); // 새로 생겼을 때만 전체에 방 목록 갱신 통지
     } // createRoom 끝
 
     public static void joinRoom(String nickname, String room) { // 사용자를 방에 가입시키고 활성화
-        ensureRoom(room); // 방 생성 보장
-        // 멤버십 추가 // 사용자-방 양쪽에 기록
-        membership(nickname).add(room); // 사용자 가입 방 집합에 추가
-        rooms.get(room).add(nickname); // 방 멤버 집합에 사용자 추가
-        // 활성 방을 새 방으로 전환 // 이 사용자에게 기본 송신 방을 지정
-        activeRoom.put(nickname, room); // 활성 방 갱신
+        boolean created = ensureRoom(room); // 방 생성 보장(새 방인지 기록)
+        if (created) CLUSTER.roomCreated(room); // 새 방이면 다른 노드에도 복제
+        // 멤버십 추가 + 활성 방 전환 // 사용자-방 양쪽을 한 번에 기록
+        if (!REGISTRY.join(nickname, room)) { // 이미 퇴장한 사용자면
+            if (created) broadcastRoomListToAll(); // 방이 생긴 것만 알림
+            return; // 종료
+        } // if 끝
+
+        CLUSTER.joined(room, nickname); // 다른 노드에 멤버십 복제(입장 메시지보다 먼저 도착)
 
         // 알림 // 가입자와 관련 클라이언트들에게 상태 전파
         sendTo(nickname, buildMyRoomsPayload(nickname)); // 내 가입 방 목록 갱신 전송
         sendTo(nickname, buildActiveRoomPayload(nickname)); // 내 활성 방 갱신 전송
+        sendHistory(nickname, room); // 최근 채팅 따라잡기(입장 메시지보다 먼저)
         broadcastUserList(room); // 해당 방의 참가자 목록을 모든 멤버에게 갱신
         broadcastSystemToRoom(room, nickname + "님이 채팅방에 입장했습니다."); // 시스템 입장 메시지 브로드캐스트
-        broadcastRoomListToAll(); // 방 목록 갱신 전파
-        broadcastAllUsers(); // 전체 접속자/상태 갱신 전파
+        if (created) broadcastRoomListToAll(); // 방이 새로 생겼을 때만 방 목록 갱신 전파(입장은 전체 접속자 목록을 바꾸지 않음)
     } // joinRoom 끝
 
     public static void leaveRoom(String nickname, String room) { // 사용자가 특정 방을 나가기
-        Set<String> mem = membership(nickname); // 사용자의 멤버십 집합 조회
-        if (!mem.contains(room)) return; // 해당 방에 없으면 아무 작업도 하지 않음
+        RoomRegistry.Leave left = REGISTRY.leave(nickname, room); // 멤버십 제거 + 필요하면 활성 방 전환(한 번에)
+        if (left == null) return; // 해당 방에 없으면 아무 작업도 하지 않음
+        CLUSTER.left(room, nickname); // 다른 노드에 멤버십 복제
 
-        mem.remove(room); // 사용자 멤버십에서 해당 방 제거
-        Set<String> rs = rooms.get(room); // 방 멤버 집합 조회
-        if (rs != null) rs.remove(nickname); // 방 멤버에서 사용자 제거
-
-        // 활성 방을 나갔으면 다른 방으로 스위치(없으면 Lobby에 자동 합류)
-        if (room.equals(activeRoom.get(nickname))) { // 현재 활성 방을 나간 경우
-            String next = mem.stream().findFirst().orElse(null); // 가입된 다른 방 중 하나 선택(있으면)
+        // 활성 방을 나갔으면 다른 방으로 스위치됨(없으면 Lobby에 자동 합류)
+        if (left.wasActive()) { // 현재 활성 방을 나간 경우
+            String next = left.nextActive(); // 가입된 다른 방 중 가장 먼저 가입한 방(있으면)
             if (next == null) { // 더 이상 가입된 방이 없다면
                 // 로비로 되돌림 // 기본 방으로 자동 입장
                 joinRoom(nickname, DEFAULT_ROOM); // 로비에 조인(이 과정에서 활성화/알림 처리됨)
             } else { // 다른 가입 방이 존재할 경우
-                activeRoom.put(nickname, next); // 활성 방을 그 방으로 변경
-                sendTo(nickname, buildActiveRoomPayload(nickname)); // 활성 방 변경 알림 전송
-                broadcastUserList(next); // 새 활성 방의 참가자 목록 갱신 전파
+                sendTo(nickname, ServerMessage.roomActive(next)); // 활성 방 변경 알림 전송
+                sendTo(nickname, buildUserListPayloadForRoom(next)); // 새 활성 방의 참가자 목록은 본인에게만 바로(다른 멤버 목록은 바뀌지 않음)
             } // if-else 끝
         } // if 끝
 
         sendTo(nickname, buildMyRoomsPayload(nickname)); // 내 가입 방 목록 갱신 전송
         broadcastUserList(room); // 나간 방의 참가자 목록 갱신 전파
-        broadcastSystemToRoom(room, nickname + "님이 채팅방을 나갔습니다."); // 시스템 퇴장 메시지
-        broadcastRoomListToAll(); // 방 목록 갱신 전파
-        broadcastAllUsers(); // 전체 접속자/상태 갱신 전파
+        broadcastSystemToRoom(room, nickname + "님이 채팅방을 나갔습니다."); // 시스템 퇴장 메시지(방 목록/전체 접속자는 바뀌지 않음)
     } // leaveRoom 끝
 
     public static void switchRoom(String nickname, String room) { // 활성 방만 전환(가입이 안 되어 있으면 자동 가입)
-        if (!membership(nickname).contains(room)) { // 해당 방에 가입되어 있지 않다면
+        if (!REGISTRY.switchTo(nickname, room)) { // 해당 방에 가입되어 있지 않다면(가입된 방이면 활성 방만 바뀜)
             // 아직 가입 안 한 방이면 자동 가입 + 스위치
             joinRoom(nickname, room); // joinRoom이 활성화까지 처리하므로 그대로 리턴
             return; // 조기 종료
         } // if 끝
-        activeRoom.put(nickname, room); // 이미 가입된 방이면 활성 방만 바꿈
-        sendTo(nickname, buildActiveRoomPayload(nickname)); // 활성 방 변경 알림 전송
-        broadcastUserList(room); // 새 활성 방의 참가자 목록 갱신 전파
+        sendTo(nickname, ServerMessage.roomActive(room)); // 활성 방 변경 알림 전송
+        sendTo(nickname, buildUserListPayloadForRoom(room)); // 새 활성 방의 참가자 목록은 본인에게만 바로(다른 멤버 목록은 바뀌지 않음)
+        if (!roomMux(nickname)) sendHistory(nickname, room); // 최근 채팅 따라잡기(방별 창 클라이언트는 가입한 방의 메시지를 이미 받고 있으므로 생략)
     } // switchRoom 끝
 
     public static String getRoom(String nickname) { // 외부에서 활성 방을 조회하려고 할 때 사용
@@ -204,39 +365,103 @@ public class ChatServer { // 채팅 서버 전체 로직을 담는 클래스 시
 
     /* ---------------- 수명주기 ---------------- */ // 접속/해제 시 처리
 
+    /* ---------------- 인증 ---------------- */ // ClientHandler의 auth: 처리
+
+    static boolean authRequired() { return AUTH.required(); } // auth: 없이 닉네임만 보낸 연결을 거절할지
+    static int authMaxAttempts() { return AUTH.maxAttempts(); } // 연결당 최대 인증 시도 수
+
+    static void authenticate(String arg, Consumer<Authenticator.Result> done) { // 인증 시작(결과는 done으로)
+        AUTH.submit(arg, done); // 해시 스레드 또는 바로
+    } // authenticate 끝
+
     public static void addClient(String nickname, ClientHandler handler) { // 새 사용자가 접속했을 때 호출
-        clients.put(nickname, handler); // 클라이언트 핸들러 등록
-        clientStatuses.put(nickname, "활동 중"); // 기본 상태를 "활동 중"으로 설정
+        addClient(nickname, handler, null); // 재개 상태 없음
+    } // addClient 끝
+
+    static void addClient(String nickname, ClientHandler handler, ResumeState resume) { // 접속 처리(resume이 있으면 끊기기 전 방/활성 방으로 재개)
+        RoomRegistry.Member replaced = REGISTRY.register(nickname, handler); // 클라이언트 핸들러 등록
+        if (replaced != null) { // 같은 닉네임의 이전 연결이 남아 있었으면
+            for (String r : REGISTRY.detach(replaced)) broadcastUserList(r); // 이전 항목의 멤버십 정리(이전 연결의 퇴장 처리는 무시됨)
+        } // if 끝
+        if (PRESENCE.put(nickname, PresenceCache.DEFAULT_STATUS)) broadcastAllUsers(); // 기본 상태를 "활동 중"으로 설정하고 전체 접속자 갱신 예약
+        CLUSTER.userUp(nickname, PresenceCache.DEFAULT_STATUS); // 다른 노드에 접속 복제(로비 가입보다 먼저)
+        if (STORE != null) STORE.online(nickname); // 저장소 준비(MySQL: 로그 저장용 id를 미리 조회)
+        if (resume != null && rejoin(nickname, handler, resume)) { // 재접속: 빠진 부분만 보냄
+            CONNECTS.increment(); // 접속 수
+            System.out.println(nickname + " 재접속(방 " + resume.rooms().size() + "개). 현재 접속자 수: " + REGISTRY.size()); // 접속 로그 출력
+            return; // 스냅샷은 rejoin이 필요한 것만 보냄
+        } // if 끝
         // 기본으로 로비에 가입 + 활성화
         joinRoom(nickname, DEFAULT_ROOM); // 로비에 입장(활성화 및 각종 알림 포함)
-        System.out.println(nickname + " 접속. 현재 접속자 수: " + clients.size()); // 접속 로그 출력
+        CONNECTS.increment(); // 접속 수
+        System.out.println(nickname + " 접속. 현재 접속자 수: " + REGISTRY.size()); // 접속 로그 출력
 
         // 스냅샷 // 접속자 본인에게 현재 상태를 한 번에 내려줌
         handler.sendMessage(getRoomListPayload()); // 방 목록 전달
-        handler.sendMessage(buildAllUsersPayload()); // 전체 접속자/상태 전달
+        handler.sendMessage(handler.presenceDelta() ? buildVersionedAllUsersPayload() : buildAllUsersPayload()); // 전체 접속자/상태 전달(기능을 인증 전에 알린 연결이면 델타 기준점)
         handler.sendMessage(buildMyRoomsPayload(nickname)); // 내 가입 방 목록 전달
         handler.sendMessage(buildActiveRoomPayload(nickname)); // 내 활성 방 전달
         handler.sendMessage(buildUserListPayloadForRoom(getActiveRoomOrDefault(nickname))); // 활성 방 참가자 목록 전달
     } // addClient 끝
 
+    /**
+     * 재접속한 사용자를 끊기기 전의 방들에 다시 가입시키고 빠진 것만 보냄. 다시 가입한 방이 없으면 false(보통 접속으로 처리).
+     * 같은 세대면 방마다 받은 순번 뒤의 채팅, 받은 버전 뒤의 접속자 변경분만 보내고 방 목록은 방 수가 바뀌었을 때만 보낸다.
+     * 세대가 다르면(재시작/다른 노드) 방마다 따라잡기와 스냅샷으로 대신한다. 입장 안내는 보내지 않는다(재시작 직후 모두가 다시 붙을 때 방마다 안내가 쏟아지지 않도록).
+     * 같은 세대에서는 지금 있는 방에만 다시 가입하고, 세대가 달라 방을 다시 만들어야 하면 방마다 그 연결의 방 조작 예산을 쓴다(클라이언트가 보낸 방 이름으로 방을 마구 만들지 못하게).
+     * 빠진 채팅은 가입 전에 먼저 보내고, 가입 직후 그 사이 구간을 한 번 더 보낸다(실시간 전달보다 앞서 도착, 겹친 몇 개는 클라이언트가 순번으로 거름).
+     */ // addClient에서 호출(등록/접속자 반영 뒤)
+    private static boolean rejoin(String nickname, ClientHandler handler, ResumeState resume) { // 방 재가입 + 빠진 부분
+        boolean sameEpoch = resume.epoch() == EPOCH; // 순번/버전을 비교할 수 있는지
+        boolean roomsChanged = false; // 재가입 중에 방이 새로 생겼는지
+        int joined = 0; // 다시 가입한 방 수
+        for (Map.Entry<String, Long> e : resume.rooms().entrySet()) { // 끊기기 전 가입 순서대로
+            String room = e.getKey(); // 방 이름
+            if (!REGISTRY.hasRoom(room)) { // 지금은 없는 방
+                if (sameEpoch || !handler.admit(RateLimiter.Kind.ROOM)) continue; // 같은 프로세스면 그 사이 없어진 방이 아님(건너뜀), 재시작 뒤면 방 조작 예산 안에서만 다시 만듦
+                if (ensureRoom(room)) { CLUSTER.roomCreated(room); roomsChanged = true; } // 새 방이면 다른 노드에도 복제
+            } // if 끝
+            long upto = sameEpoch ? HISTORY.replay(room, e.getValue(), handler) : -1; // 가입 전: 받은 순번 뒤의 채팅(실시간 전달과 섞이지 않음)
+            if (!REGISTRY.join(nickname, room)) return true; // 그 사이 끊김(남은 처리는 퇴장 쪽에서)
+            CLUSTER.joined(room, nickname); // 다른 노드에 멤버십 복제
+            if (upto >= 0) HISTORY.replay(room, upto, handler); // 가입 직전까지 기록된 나머지(짧은 구간)
+            else HISTORY.catchUp(room, handler); // 다른 프로세스이거나 기록을 채우는 중: 최근 채팅 따라잡기
+            broadcastUserList(room); // 그 방 참가자 목록 갱신(본인 포함)
+            joined++; // 카운트
+        } // for 끝
+        if (joined == 0) return false; // 보낼 방이 없었음: 로비로
+        if (resume.rooms().containsKey(resume.active())) REGISTRY.switchTo(nickname, resume.active()); // 끊기기 전 활성 방(다시 가입하지 못했거나 없으면 마지막으로 가입한 방)
+        handler.sendMessage(buildMyRoomsPayload(nickname)); // 내 가입 방 목록(서버 기준으로 확정)
+        handler.sendMessage(buildActiveRoomPayload(nickname)); // 내 활성 방
+        if (roomsChanged) broadcastRoomListToAll(); // 방이 새로 생겼으면 모두에게(본인 포함)
+        else if (!sameEpoch || resume.roomCount() != PRESENCE.roomCount()) handler.sendMessage(getRoomListPayload()); // 그 사이 방이 생겼을 때만
+        List<ServerMessage> deltas = sameEpoch && handler.presenceDelta() ? PRESENCE.deltasSince(resume.presenceVersion()) : null; // 빠진 접속자 변경분
+        if (deltas != null) for (ServerMessage d : deltas) handler.sendMessage(d); // 변경분만(뒤이은 전파에서 다시 받아도 클라이언트가 버전으로 거름)
+        else handler.sendMessage(handler.presenceDelta() ? buildVersionedAllUsersPayload() : buildAllUsersPayload()); // 스냅샷
+        return true; // 재개함
+    } // rejoin 끝
+
+    static ServerMessage resumeEpoch() { return ServerMessage.resume(EPOCH); } // "resume:<세대>"(caps:resume를 보낸 연결에 접속 직후 전송)
+
     public static void removeClient(String nickname) { // 사용자가 접속 종료할 때 호출
-        clients.remove(nickname); // 클라이언트 핸들러 제거
-        clientStatuses.remove(nickname); // 상태 정보 제거
-
-        Set<String> mem = userRooms.remove(nickname); // 사용자의 멤버십 집합 제거
-        activeRoom.remove(nickname); // 활성 방 정보 제거
-
-        if (mem != null) { // 사용자가 가입했던 방들이 있다면
-            for (String r : snapshot(mem)) { // 각 방에 대해
-                Set<String> rs = rooms.get(r); // 방 멤버 집합 조회
-                if (rs != null) rs.remove(nickname); // 방 멤버에서 제거
-                broadcastUserList(r); // 해당 방 참가자 목록 갱신 전파
-                broadcastSystemToRoom(r, nickname + "님이 채팅방을 나갔습니다."); // 퇴장 시스템 메시지
-            } // for 끝
-        } // if 끝
-        broadcastRoomListToAll(); // 방 목록 갱신 전파
-        broadcastAllUsers(); // 전체 접속자/상태 갱신 전파
-        System.out.println(nickname + " 종료. 현재 접속자 수: " + clients.size()); // 종료 로그 출력
+        removeClient(nickname, null); // 연결을 가리지 않고 제거
+    } // removeClient 끝
+
+    static void removeClient(String nickname, ClientHandler handler) { // 특정 연결의 퇴장 처리(같은 닉네임으로 새로 접속한 연결은 유지)
+        List<String> left = REGISTRY.unregister(nickname, handler); // 사용자와 모든 방 멤버십/활성 방을 한 번에 제거
+        if (left == null) return; // 이미 제거됐거나 새 연결로 교체됨
+        CLUSTER.userGone(nickname); // 다른 노드에 퇴장 복제(받는 쪽이 모든 방 멤버십도 정리)
+        boolean presenceChanged = PRESENCE.remove(nickname); // 상태 정보 제거(전파는 방 정리 후)
+        if (STORE != null) STORE.offline(nickname); // 저장소 정리(MySQL: id를 오프라인 LRU로 이동)
+        DISCONNECTS.increment(); // 종료 수
+        if (DRAINING.get()) return; // 드레인 중: 모두 곧 끊기므로 남은 사람들에게 퇴장/목록 갱신을 보내지 않음
+
+        for (String r : left) { // 사용자가 가입했던 각 방에 대해
+            broadcastUserList(r); // 해당 방 참가자 목록 갱신 전파
+            broadcastSystemToRoom(r, nickname + "님이 채팅방을 나갔습니다."); // 퇴장 시스템 메시지
+        } // for 끝
+        if (presenceChanged) broadcastAllUsers(); // 전체 접속자/상태 갱신 전파
+        System.out.println(nickname + " 종료. 현재 접속자 수: " + REGISTRY.size()); // 종료 로그 출력
     } // removeClient 끝
 
     /* ---------------- 상태/메시지 ---------------- */ // 상태 변경과 메시지 브로드캐스트
@@ -246,10 +471,11 @@ public class ChatServer { // 채팅 서버 전체 로직을 담는 클래스 시
             System.out.println("무시: 허용되지 않은 상태값 (" + status + ")"); // 로그만 남기고
             return; // 종료
         } // if 끝
-        clientStatuses.put(nickname, status); // 상태값 저장
+        if (!PRESENCE.put(nickname, status)) return; // 상태값 저장(같은 상태면 전파 생략)
+        CLUSTER.userUp(nickname, status); // 다른 노드에 상태 복제
 
         // 본인이 속한 모든 방의 참가자 목록 갱신
-        for (String room : snapshot(userRooms.get(nickname))) { // 유저가 가입한 모든 방 순회
+        for (String room : REGISTRY.roomsOf(nickname)) { // 유저가 가입한 모든 방 순회
             broadcastUserList(room); // 각 방의 참가자 목록 갱신 전파
         } // for 끝
         broadcastAllUsers(); // 전체 접속자/상태 목록도 갱신 전파
@@ -257,46 +483,66 @@ public class ChatServer { // 채팅 서버 전체 로직을 담는 클래스 시
 
     public static void broadcastMessage(String senderNickname, String message) { // 채팅 메시지 브로드캐스트
         String room = getActiveRoomOrDefault(senderNickname); // 발신자의 현재 활성 방 결정
-        saveMessageToDb(senderNickname, message, room); // DB에 로그 저장 시도
-        for (String nick : snapshot(rooms.get(room))) { // 활성 방의 모든 멤버에게
-            ClientHandler c = clients.get(nick); // 핸들러 조회
-            if (c != null) c.sendMessage("chat:" + senderNickname + ": " + message); // "chat:닉: 내용" 송신
-        } // for 끝
+        saveMessageToDb(senderNickname, message, room); // DB 저장 요청(버퍼에 넣기만 하고 바로 반환)
+        ServerMessage chat = HISTORY.record(room, senderNickname, message); // 기록 링에 먼저 넣고 방별 순번을 붙여 한 번만 만듦(그 사이 가입한 사람은 놓치지 않고 많아야 한 번 더 받음)
+        MESSAGES_IN.of(room).increment(); // 방별 받은 수
+        ChatEvents.Broadcast event = new ChatEvents.Broadcast(); // JFR 이벤트(녹화 중이 아니면 비용 거의 없음)
+        event.begin(); // 시작
+        long start = System.nanoTime(); // 분배 시작 시각
+        int fanOut = sendToRoom(room, chat); // 활성 방의 모든 멤버에게 공유
+        BROADCAST_US.record((System.nanoTime() - start) / 1_000); // 분배 시간(µs)
+        FAN_OUT.record(fanOut); // 받은 연결 수
+        event.end(); // 끝
+        if (event.shouldCommit()) { event.room = room; event.fanOut = fanOut; event.commit(); } // 임계값을 넘었을 때만 필드 채워 기록
+        CLUSTER.relayChat(room, senderNickname, message); // 그 방에 멤버가 있는 다른 노드에만 전달(로그 저장은 보낸 노드에서 한 번)
     } // broadcastMessage 끝
 
-    /* ---------------- DB ---------------- */ // 채팅 로그 영속화 관련
+    /* ---------------- 클러스터 ---------------- */ // ClusterNode가 다른 노드의 변경을 반영할 때 호출(버스 수신 스레드)
 
-    private static void saveMessageToDb(String nickname, String message, String room) { // 메시지를 DB에 저장
-        String userId = fetchIdFromDatabase(nickname); // 닉네임으로 사용자 id 조회
-        if (userId == null) { // 사용자가 users 테이블에 없으면
-            System.err.println("메시지 보낸 닉네임을 users에서 찾지 못함: " + nickname); // 경고 출력
-            return; // 저장하지 않고 종료
-        } // if 끝
-        String sql = "INSERT INTO chat_logs (id, nickname, message, room) VALUES (?, ?, ?, ?)"; // INSERT SQL
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD); // 커넥션 열기
-             PreparedStatement pstmt = conn.prepareStatement(sql)) { // 프리페어드 스테이트먼트 준비
-            pstmt.setString(1, userId); // 1번 파라미터: id
-            pstmt.setString(2, nickname); // 2번 파라미터: nickname
-            pstmt.setString(3, message); // 3번 파라미터: message
-            pstmt.setString(4, room); // 4번 파라미터: room
-            pstmt.executeUpdate(); // INSERT 실행
-        } catch (SQLException e) { // SQL 예외 처리
-            e.printStackTrace(); // 스택트레이스 출력
-        } // try-catch 끝
-    } // saveMessageToDb 끝
+    static void remoteRoom(String room) { // 다른 노드에서 만든 방
+        if (ensureRoom(room)) broadcastRoomListToAll(); // 처음 보는 방이면 방 목록 갱신(다시 복제하지 않음)
+    } // remoteRoom 끝
 
-    private static String fetchIdFromDatabase(String nickname) { // 닉네임으로 users 테이블에서 id 조회
-        String sql = "SELECT id FROM users WHERE nickname = ?"; // 조회용 SQL
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD); // 커넥션
-             PreparedStatement pstmt = conn.prepareStatement(sql)) { // 스테이트먼트
-            pstmt.setString(1, nickname); // 1번 파라미터 바인딩
-            try (ResultSet rs = pstmt.executeQuery()) { // 쿼리 실행 및 결과셋 획득
-                if (rs.next()) return rs.getString("id"); // 결과가 있으면 id 컬럼 반환
-            } // try-with-resources(ResultSet) 끝
-        } catch (SQLException e) { // SQL 예외 처리
-            System.err.println("DB 조회 실패: " + e.getMessage()); // 에러 로그 간단 출력
-            e.printStackTrace(); // 자세한 스택트레이스
-        } // try-catch 끝
-        return null; // 못 찾았으면 null 반환
-    } // fetchIdFromDatabase 끝
+    static void remoteStatus(String nick, String status) { // 다른 노드 사용자의 접속/상태 변경
+        if (PRESENCE.put(nick, status)) broadcastAllUsers(); // 전체 접속자 갱신
+    } // remoteStatus 끝
+
+    static void remoteUserGone(String nick) { // 다른 노드 사용자의 퇴장
+        if (REGISTRY.member(nick) != null) return; // 같은 닉네임이 이 노드에 접속 중이면 상태 유지
+        if (PRESENCE.remove(nick)) broadcastAllUsers(); // 전체 접속자 갱신
+    } // remoteUserGone 끝
+
+    static void remoteRoomChanged(String room) { // 다른 노드의 방 멤버 변경
+        broadcastUserList(room); // 이 노드 멤버들의 참가자 목록 갱신
+    } // remoteRoomChanged 끝
+
+    static void deliverLocal(String room, ServerMessage msg) { // 다른 노드에서 온 채팅/시스템 메시지
+        if (msg.type == ServerMessage.Type.CHAT) msg = HISTORY.record(room, msg.sender, msg.text); // 채팅은 이 노드의 기록 링에도(순번은 노드마다)
+        sendToRoom(room, msg); // 이 노드의 멤버에게만(다시 중계하지 않음)
+    } // deliverLocal 끝
+
+    static List<ClusterMessage> clusterSnapshot() { // 새 링크에 먼저 보낼 현재 상태(방 → 사용자/상태 → 가입)
+        List<ClusterMessage> out = new ArrayList<>(); // 결과
+        for (String room : REGISTRY.roomNames()) out.add(ClusterMessage.room(room)); // 방
+        for (RoomRegistry.Member m : REGISTRY.all()) { // 이 노드의 접속자
+            out.add(ClusterMessage.user(m.nick, PRESENCE.status(m.nick))); // 접속 + 상태
+            for (String room : REGISTRY.roomsOf(m.nick)) out.add(ClusterMessage.join(room, m.nick)); // 가입 방
+        } // for 끝
+        return out; // 결과
+    } // clusterSnapshot 끝
+
+    static void requestHistory(String arg, ClientHandler handler) { // 기록 페이지 요청(바로 반환, 결과는 조회 스레드가 전송)
+        HISTORY_PAGES.request(arg, handler); // "방:beforeId:limit"
+    } // requestHistory 끝
+
+    /* ---------------- 저장 ---------------- */ // 채팅 로그 영속화 관련
+
+    private static void saveMessageToDb(String nickname, String message, String room) { // 메시지를 저장소에 저장(비동기)
+        if (STORE == null) return; // 저장이 꺼져 있으면 생략
+        if (!STORE.append(nickname, message, room)) { // 버퍼가 가득 차 있으면(건수는 저장소의 droppedFull 지표가 셈)
+            if (!STORE_FULL.get() && STORE_FULL.compareAndSet(false, true)) System.err.println("채팅 로그 버퍼가 가득 차 저장을 건너뛰기 시작함(건수는 chat_store_dropped_full_total)"); // 넘친 동안 경고는 한 번만(전달은 계속)
+        } else if (STORE_FULL.get() && STORE_FULL.compareAndSet(true, false)) { // 넘쳤다가 다시 들어가면
+            System.err.println("채팅 로그 버퍼에 다시 여유가 생겨 저장을 재개함"); // 한 번만
+        } // if-else 끝
+    } // saveMessageToDb 끝
 } // ChatServer 클래스 끝
@@ -0,0 +1,60 @@
+package com.mycompany.chat; // 이 클래스가 속한 패키지(네임스페이스) 선언
+
+import javafx.collections.FXCollections; // 관찰 가능한 리스트 생성 유틸(FX 컬렉션 팩토리)
+import javafx.collections.ObservableList; // UI와 자동 동기화되는 리스트 타입
+import javafx.fxml.FXML; // FXML에서 주입될 필드를 표시하는 어노테이션
+import javafx.scene.control.Control; // 크기 상수(USE_PREF_SIZE)
+import javafx.scene.control.ListCell; // 리스트 셀
+import javafx.scene.control.ListView; // 가상화 리스트
+
+import java.util.ArrayList; // 기록 줄 복사
+import java.util.Collections; // 순서 뒤집기
+import java.util.List; // 리스트 인터페이스
+
+/**
+ * 방 하나의 채팅 탭(chat_tab.fxml).
+ * - 그 방의 채팅 로그 줄을 들고 있다(최대 scrollback줄, 넘치면 오래된 줄부터 버림).
+ * - 탭을 처음 볼 때 만들어지고, 오래 안 본 탭은 ChatMainController가 통째로 버린다(다시 보면 기록 페이지로 채움).
+ */ // 수신 처리(방 분배, 안 읽은 수)는 ChatMainController가 맡고, 이 클래스는 줄을 붙이고 그리기만 함
+public class ChatTabController { // 채팅 탭 컨트롤러 클래스 시작
+
+    @FXML private ListView<String> chatList; // 채팅 로그 표시 영역(가상화 리스트: 보이는 줄만 셀로 그림, FXML 주입)
+
+    private final ObservableList<String> items = FXCollections.observableArrayList(); // 채팅 로그 줄
+    private int scrollback; // 남길 최대 줄 수
+
+    void init(int scrollback) { // 탭을 만든 직후 호출
+        this.scrollback = scrollback; // 보관
+        if (chatList == null) return; // 주입 확인
+        chatList.setItems(items); // 로그 줄 데이터 연결
+        chatList.setFocusTraversable(false); // 입력 포커스는 입력창에
+        chatList.setCellFactory(lv -> { // 긴 줄은 리스트 폭에서 줄바꿈
+            ListCell<String> cell = new ListCell<>() { // 익명 ListCell 구현
+                @Override protected void updateItem(String item, boolean empty) { // 각 셀의 렌더링 로직
+                    super.updateItem(item, empty); // 기본 처리
+                    setText(empty ? null : item); // 비어있으면 표시 없음
+                } // updateItem 끝
+            }; // cell 끝
+            cell.setWrapText(true); // 줄바꿈
+            cell.prefWidthProperty().bind(lv.widthProperty().subtract(20)); // 세로 스크롤바 폭만큼 줄임(가로 스크롤 방지)
+            cell.setMaxWidth(Control.USE_PREF_SIZE); // 선호 폭을 넘지 않음
+            return cell; // 셀 반환
+        }); // setCellFactory 끝
+    } // init 끝
+
+    void append(List<String> lines) { // 로그 끝에 줄 추가(프레임마다 한 번)
+        if (lines.isEmpty()) return; // 없음
+        items.addAll(lines); // 변경 이벤트 한 번
+        int excess = items.size() - scrollback; // 넘친 줄 수
+        if (excess > 0) items.remove(0, excess); // 오래된 줄부터 한 번에 제거
+        if (chatList != null) chatList.scrollTo(items.size() - 1); // 마지막 줄로 스크롤
+    } // append 끝
+
+    void prepend(List<String> newestFirst) { // 로그 맨 위에 기록 줄 추가(기록은 최신 것부터 옴)
+        int fit = Math.min(newestFirst.size(), Math.max(0, scrollback - items.size())); // 남은 자리만큼(넘치는 가장 오래된 행은 버림)
+        if (fit == 0) return; // 자리 없음
+        List<String> older = new ArrayList<>(newestFirst.subList(0, fit)); // 최신 것부터
+        Collections.reverse(older); // 시간순으로
+        items.addAll(0, older); // 변경 이벤트 한 번
+    } // prepend 끝
+} // ChatTabController 클래스 끝
@@ -0,0 +1,75 @@
+package com.mycompany.chat; // ClientCommand 클래스가 속한 패키지 선언
+
+/** 클라이언트 → 서버 명령 한 건(형식과 무관한 값) */ // 텍스트 줄과 바이너리 프레임 모두 이 값으로 해석한 뒤 ClientHandler가 처리
+record ClientCommand(Type type, String arg) { // 종류 + 인자(닉네임/본문/방 이름/상태/기능 목록)
+
+    /** 명령 종류(번호는 바이너리 프레임의 type 필드 값) */ // 새 종류는 번호를 바꾸지 말고 뒤에 추가
+    enum Type { // 종류 목록
+        UNKNOWN(0), // 해석 불가
+        NICK(1), // 접속 직후 닉네임
+        CHAT(2), // 활성 방으로 채팅
+        STATUS(3), // 상태 변경
+        ROOM_CREATE(4), // 방 생성
+        ROOM_JOIN(5), // 방 참가
+        ROOM_LEAVE(6), // 방 나가기
+        ROOM_SWITCH(7), // 활성 방 전환
+        ROOM_LIST(8), // 스냅샷 요청
+        QUIT(9), // 종료
+        CAPS(10), // 기능 협상
+        PRESENCE_SYNC(11), // 전체 접속자 재동기화
+        HISTORY(12), // 기록 페이지 요청: "방:beforeId:limit"
+        AUTH(13), // 인증: "login:아이디:비밀번호" / "signup:아이디:닉네임:비밀번호" / "token:토큰"
+        PONG(14), // 하트비트 응답(인자 없음)
+        RESUME(15); // 재접속 상태(인증 전에 보냄): ResumeState 형식
+
+        final int code; // 프레임 번호
+        Type(int code) { this.code = code; } // 생성자
+
+        private static final Type[] BY_CODE = new Type[16]; // 번호 → 종류
+        static { for (Type t : values()) BY_CODE[t.code] = t; } // 표 채우기
+
+        static Type of(int code) { // 번호로 종류 찾기(모르는 번호는 UNKNOWN)
+            return (code >= 0 && code < BY_CODE.length && BY_CODE[code] != null) ? BY_CODE[code] : UNKNOWN; // 결과
+        } // of 끝
+    } // Type 끝
+
+    static ClientCommand of(Type type, String arg) { return new ClientCommand(type, arg == null ? "" : arg); } // 생성(null 인자 방지)
+
+    /** 텍스트 줄(닉네임 다음 줄부터)을 명령으로 해석 */ // 접두어가 없으면 채팅
+    static ClientCommand parseText(String line) { // 줄 해석
+        if ("/quit".equals(line)) return of(Type.QUIT, null); // 종료
+        if (line.startsWith("status:")) return of(Type.STATUS, line.substring("status:".length())); // "status:활동 중"
+        if (line.startsWith("room:create:")) return of(Type.ROOM_CREATE, line.substring("room:create:".length())); // "room:create:방"
+        if (line.startsWith("room:join:")) return of(Type.ROOM_JOIN, line.substring("room:join:".length())); // "room:join:방"
+        if (line.startsWith("room:leave:")) return of(Type.ROOM_LEAVE, line.substring("room:leave:".length())); // "room:leave:방"
+        if (line.startsWith("room:switch:")) return of(Type.ROOM_SWITCH, line.substring("room:switch:".length())); // "room:switch:방"
+        if ("room:list".equals(line)) return of(Type.ROOM_LIST, null); // 스냅샷 요청
+        if (line.startsWith("caps:")) return of(Type.CAPS, line.substring("caps:".length())); // "caps:presence-delta"
+        if ("presence:sync".equals(line)) return of(Type.PRESENCE_SYNC, null); // 재동기화 요청
+        if (line.startsWith("history:")) return of(Type.HISTORY, line.substring("history:".length())); // "history:방:beforeId:limit"
+        if ("pong".equals(line)) return of(Type.PONG, null); // 하트비트 응답
+        if (line.startsWith("resume:")) return of(Type.RESUME, line.substring("resume:".length())); // "resume:세대\t..."
+        if (line.startsWith("auth:")) return of(Type.AUTH, line.substring("auth:".length())); // "auth:login:아이디:비밀번호" 등
+        return of(Type.CHAT, line); // 그 외는 일반 채팅
+    } // parseText 끝
+
+    /** 텍스트 프로토콜 줄(개행 제외) */ // 텍스트 모드 클라이언트의 송신 형식
+    String toText() { // 줄 생성
+        return switch (type) { // 종류별
+            case NICK, CHAT, UNKNOWN -> arg; // 그대로
+            case STATUS -> "status:" + arg; // 상태
+            case ROOM_CREATE -> "room:create:" + arg; // 방 생성
+            case ROOM_JOIN -> "room:join:" + arg; // 방 참가
+            case ROOM_LEAVE -> "room:leave:" + arg; // 방 나가기
+            case ROOM_SWITCH -> "room:switch:" + arg; // 활성 방 전환
+            case ROOM_LIST -> "room:list"; // 스냅샷 요청
+            case QUIT -> "/quit"; // 종료
+            case CAPS -> "caps:" + arg; // 기능 협상
+            case PRESENCE_SYNC -> "presence:sync"; // 재동기화
+            case HISTORY -> "history:" + arg; // 기록 페이지 요청
+            case AUTH -> "auth:" + arg; // 인증
+            case PONG -> "pong"; // 하트비트 응답
+            case RESUME -> "resume:" + arg; // 재접속 상태
+        }; // switch 끝
+    } // toText 끝
+} // ClientCommand 레코드 끝
@@ -3,78 +3,335 @@ package com.mycompany.chat; // 이 파일이 속한 패키지를 선언. 다른
 import java.io.*; // 입출력 관련 클래스(Reader/Writer 등)를 사용하기 위해 임포트.
 import java.net.Socket; // TCP 소켓 통신을 위한 Socket 클래스를 사용하기 위해 임포트.
 import java.nio.charset.StandardCharsets; // 고정된 문자셋(UTF-8)을 지정해서 스트림을 감싸기 위해 임포트.
+import java.util.EnumMap; // 명령 종류 → 처리 시간 히스토그램.
+import java.util.concurrent.atomic.AtomicBoolean; // 퇴장 처리가 한 번만 실행되도록 보장하는 플래그.
+import java.util.concurrent.CompletableFuture; // 스레드 모드에서 수신 스레드가 인증 결과를 받음.
 
 /** 각 클라이언트 소켓을 처리 */ // 이 클래스는 서버에 접속한 "각 클라이언트"를 담당하는 작업 스레드의 본체.
 public class ClientHandler implements Runnable { // Runnable을 구현하여 스레드에서 실행될 수 있도록 함.
 
-    private final Socket clientSocket; // 접속한 클라이언트와 통신할 소켓 인스턴스(불변).
-    private BufferedReader in; // 클라이언트로부터 문자열(한 줄 단위)을 읽기 위한 입력 스트림 래퍼.
-    private PrintWriter out; // 클라이언트로 문자열(한 줄 단위)을 보내기 위한 출력 스트림 래퍼.
-    private String nickname; // 이 소켓(클라이언트)의 닉네임을 저장.
+    private final Socket clientSocket; // 접속한 클라이언트와 통신할 소켓 인스턴스(스레드 모드 전용, NIO 모드에서는 null).
+    private ClientTransport transport; // 실제 송신 통로(스레드 모드: 소켓 출력 스트림, NIO 모드: 이벤트 루프 연결).
+    private volatile String nickname; // 이 소켓(클라이언트)의 닉네임을 저장(인증 성공 시 인증 스레드가 설정).
+    private volatile boolean presenceDelta; // "caps:presence-delta"를 보낸 클라이언트면 전체 접속자 변경을 델타(allusers+:/allusers-:)로 받음.
+    private volatile boolean roomMux; // "caps:room-mux"를 보낸 클라이언트면 방별 창을 두므로 활성 방 전환 때 따라잡기를 보내지 않음.
+    private volatile boolean heartbeat; // "caps:heartbeat"를 보낸 클라이언트면 조용할 때 ping을 받고 pong으로 응답.
+    private volatile boolean resumable; // "caps:resume"를 보낸 클라이언트면 접속 직후 "resume:<세대>"를 받고, 재접속 때 빠진 부분만 받음.
+    private volatile ResumeState resume; // 인증 전에 받은 재접속 상태(login에서 한 번 사용).
+    private volatile long lastRead = System.nanoTime(); // 마지막으로 명령을 받은 시각(IdleMonitor가 읽음).
+    private volatile TimerWheel.Timeout idleTimer; // 이 연결의 유휴 검사 예약(끊길 때 취소).
+    private final AtomicBoolean disconnected = new AtomicBoolean(false); // removeClient가 중복 호출되지 않도록 하는 플래그.
+    final AtomicBoolean historyPending = new AtomicBoolean(false); // 조회 중인 기록 페이지가 있는지(연결당 하나, HistoryReader가 세우고 내림).
+    private final AtomicBoolean authPending = new AtomicBoolean(false); // auth: 처리 중(응답 전에 다시 보내면 규약 위반).
+    private int authAttempts; // 이 연결의 인증 시도 수(수신 스레드/이벤트 루프에서만 접근).
+    private final TokenBucket[] limits = ChatServer.rateLimiter().newConnection(); // 이 연결의 송신 예산(채팅/방 조작/상태).
+    private boolean throttled; // 예산 초과 안내를 보냈는지(넘친 동안 한 번만, 수신 스레드/이벤트 루프에서만 접근).
 
-    public ClientHandler(Socket socket) { // 생성자: 서버가 accept()로 얻은 소켓을 주입.
+    public ClientHandler(Socket socket) { // 생성자: 서버가 accept()로 얻은 소켓을 주입(스레드 모드).
         this.clientSocket = socket; // 전달받은 소켓을 필드에 보관.
     } // 생성자 끝.
 
+    ClientHandler(ClientTransport transport) { // 생성자: 이미 준비된 송신 통로를 주입(NIO 모드, 읽기는 이벤트 루프가 handleLine/handle로 전달).
+        this.clientSocket = null; // 소켓 스트림을 직접 다루지 않음.
+        this.transport = transport; // 송신 통로 보관.
+    } // 생성자 끝.
+
+    private static final EnumMap<ClientCommand.Type, LatencyHistogram> COMMAND_US = new EnumMap<>(ClientCommand.Type.class); // 명령 종류별 처리 시간(µs, GET /metrics).
+    static { // 처리할 때 이름을 만들지 않도록 미리 등록.
+        for (ClientCommand.Type t : ClientCommand.Type.values()) COMMAND_US.put(t, Metrics.histogram(Metrics.name("chat_command_us", "type", t.name()))); // chat_command_us{type="CHAT"} 등.
+    } // static 끝.
+
+    static final boolean BINARY_PROTOCOL = ServerConfig.getBoolean("chat.protocol.binary", true); // "proto:bin1" 요청을 수락할지(false면 항상 텍스트 유지).
+
+    /** 첫 줄이 핸드셰이크("proto:...")일 때 돌려줄 답(수락하면 WireCodec.HANDSHAKE_BINARY) */ // 스레드/NIO 모드 공용.
+    static String handshakeReply(String line) { // 핸드셰이크 응답 결정.
+        return (BINARY_PROTOCOL && WireCodec.HANDSHAKE_BINARY.equals(line)) ? WireCodec.HANDSHAKE_BINARY : WireCodec.HANDSHAKE_TEXT; // 모르는 버전이면 텍스트 유지.
+    } // handshakeReply 끝.
+
     @Override
     public void run() { // 스레드가 시작되면 실행되는 메서드(핵심 루프 포함).
+        ChatServer.idleMonitor().watch(this); // 유휴 감시 시작(반쯤 열린 연결 정리).
         try { // 네트워크/IO 처리 중 발생하는 예외를 포착.
-            in  = new BufferedReader(new InputStreamReader(clientSocket.getInputStream(), StandardCharsets.UTF_8)); // 소켓 입력 스트림을 UTF-8로 디코딩하는 문자 스트림으로 감싼 뒤, 라인 단위로 읽기 위해 BufferedReader로 래핑.
-            out = new PrintWriter(new OutputStreamWriter(clientSocket.getOutputStream(), StandardCharsets.UTF_8), true); // 소켓 출력 스트림을 UTF-8로 인코딩하는 문자 스트림으로 감싸고, autoFlush=true로 설정한 PrintWriter 생성.
-
-            // 1줄: 닉네임
-            this.nickname = in.readLine(); // 클라이언트가 접속 직후 가장 먼저 보낸 닉네임을 한 줄 읽음(프로토콜 규약).
-            ChatServer.addClient(nickname, this); // 서버의 전역 레지스트리에 이 클라이언트를 등록하고 초기 상태/방(로비 등)을 세팅.
-
-            String message; // 클라이언트가 보낸 각 메시지를 담을 임시 변수.
-            while ((message = in.readLine()) != null) { // 클라이언트가 연결을 끊거나 오류가 나기 전까지 한 줄씩 읽어 처리.
-                if ("/quit".equals(message)) break; // 클라이언트가 /quit를 보내면 루프 탈출(연결 종료 의사).
-
-                if (message.startsWith("status:")) { // 상태 변경 프로토콜: "status:활동 중" 또는 "status:자리 비움" 등.
-                    ChatServer.updateStatus(nickname, message.substring("status:".length()).trim()); // 접두어를 제거하고 상태 문자열만 추출하여 서버에 반영.
-
-                } else if (message.startsWith("room:create:")) { // 방 생성 프로토콜: "room:create:방이름".
-                    String room = message.substring("room:create:".length()).trim(); // 방 이름만 추출.
-                    if (!room.isEmpty()) { // 공백/빈 문자열이 아니면
-                        ChatServer.createRoom(room); // 서버 전역 방 목록에 방을 생성하고 전체에 목록 갱신 브로드캐스트.
-                        // UI에서 즉시 참가+스위치 호출할 것. (원하면 여기서도 join 가능)
-                    } // if 끝.
-
-                } else if (message.startsWith("room:join:")) { // 방 참가 프로토콜: "room:join:방이름".
-                    String room = message.substring("room:join:".length()).trim(); // 방 이름만 추출.
-                    if (!room.isEmpty()) ChatServer.joinRoom(nickname, room); // 유효하면 서버에 참가 처리(멤버십 추가, 활성 방 전환, 알림 전파 등).
-
-                } else if (message.startsWith("room:leave:")) { // 방 나가기 프로토콜: "room:leave:방이름".
-                    String room = message.substring("room:leave:".length()).trim(); // 방 이름만 추출.
-                    if (!room.isEmpty()) ChatServer.leaveRoom(nickname, room); // 유효하면 서버에 나가기 처리(멤버십 삭제, 알림 전파 등).
-
-                } else if (message.startsWith("room:switch:")) { // 활성 방 전환 프로토콜: "room:switch:방이름".
-                    String room = message.substring("room:switch:".length()).trim(); // 방 이름만 추출.
-                    if (!room.isEmpty()) ChatServer.switchRoom(nickname, room); // 유효하면 활성 방만 변경(가입 안 되어 있으면 자동 가입 후 전환).
-
-                } else if ("room:list".equals(message)) { // 클라이언트가 초기 스냅샷(목록들)을 요청할 때: "room:list".
-                    // 스냅샷 4종
-                    sendMessage(ChatServer.getRoomListPayload()); // 현재 존재하는 방 목록을 이 클라이언트에게 전송("roomlist:...").
-                    sendMessage(ChatServer.buildAllUsersPayload()); // 전체 접속자/상태 목록 전송("allusers:...").
-                    sendMessage(ChatServer.buildMyRoomsPayload(nickname)); // 내가 가입한 방 목록 전송("myrooms:...").
-                    sendMessage(ChatServer.buildActiveRoomPayload(nickname)); // 내 활성 방 정보 전송("roomactive:...").
-                    sendMessage(ChatServer.buildUserListPayloadForRoom(ChatServer.getActiveRoomOrDefault(nickname))); // 활성 방 참가자 목록 전송("userlist:<room>:...").
-
-                } else { // 위의 어떤 프로토콜에도 해당하지 않으면
-                    // 일반 채팅(활성 방으로 전송)
-                    ChatServer.broadcastMessage(nickname, message); // 텍스트를 활성 방의 모든 구성원에게 브로드캐스트하고 DB에 저장 시도.
-                } // if-else 사다리 끝.
-            } // while 끝.
-        } catch (IOException e) { // 네트워크/스트림 처리 중 예외 발생 시
+            InputStream in = new BufferedInputStream(clientSocket.getInputStream()); // 핸드셰이크 줄과 이후 텍스트/프레임을 같은 버퍼에서 읽음.
+            String first = WireCodec.readLine(in); // 첫 줄: 핸드셰이크 또는 (기존 클라이언트의) 닉네임.
+            if (first == null) return; // 아무것도 보내지 않고 끊김.
+            boolean binary = false; // 바이너리 프레임 사용 여부.
+            if (first.startsWith(WireCodec.HANDSHAKE_PREFIX)) { // 형식 협상 요청이면
+                String reply = handshakeReply(first); // 응답 결정.
+                OutputStream raw = clientSocket.getOutputStream(); // 작성자 시작 전이므로 직접 씀.
+                raw.write((reply + "\n").getBytes(StandardCharsets.UTF_8)); // 응답 줄은 항상 텍스트.
+                raw.flush(); // 즉시 전송.
+                binary = WireCodec.HANDSHAKE_BINARY.equals(reply); // 이후 형식.
+                first = null; // 닉네임은 다음 메시지로 옴.
+            } // if 끝.
+            transport = new SocketTransport(clientSocket, binary); // 소켓 출력 스트림을 감싼 송신 통로 생성.
+
+            if (binary) { // 바이너리 프레임 모드
+                byte[] frame; // 프레임 본문.
+                while ((frame = WireCodec.readFrame(in)) != null) { // 연결이 끊길 때까지 프레임 단위로 읽음.
+                    if (!handle(WireCodec.decodeCommand(frame, 0, frame.length))) break; // 종료 요청이면 루프 탈출.
+                } // while 끝.
+            } else { // 텍스트 줄 모드
+                if (first != null && !handleLine(first)) return; // 이미 읽은 닉네임 처리.
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)); // 나머지는 UTF-8 줄 단위로 읽기.
+                String message; // 클라이언트가 보낸 각 메시지를 담을 임시 변수.
+                while ((message = reader.readLine()) != null) { // 클라이언트가 연결을 끊거나 오류가 나기 전까지 한 줄씩 읽어 처리.
+                    if (!handleLine(message)) break; // 한 줄 처리 후 종료 요청(/quit)이면 루프 탈출.
+                } // while 끝.
+            } // if-else 끝.
+        } catch (IOException e) { // 네트워크/스트림 처리 중 예외 발생 시(잘못된 프레임 포함)
             System.err.println(nickname + "와의 연결이 끊겼습니다."); // 해당 사용자와의 연결 끊김을 서버 콘솔에 알림.
         } finally { // 정상 종료든 예외든 마지막에 반드시 실행되는 블록
-            if (nickname != null) ChatServer.removeClient(nickname); // 서버 전역 레지스트리에서 이 클라이언트를 제거하고 각 방에 퇴장 알림.
-            try { clientSocket.close(); } catch (IOException ignore) {} // 소켓 자원 정리(예외는 무시).
+            onDisconnect(); // 레지스트리 제거 + 소켓 정리.
         } // try-catch-finally 끝.
     } // run() 끝.
 
-    /** 서버→클라이언트 전송 */ // 서버 측에서 이 핸들러를 통해 해당 클라이언트에게 한 줄을 보낼 때 사용.
-    public void sendMessage(String message) { // 한 줄 메시지를 소켓으로 전송하는 헬퍼 메서드.
-        out.println(message); // PrintWriter로 개행 포함 출력(자동 flush 설정으로 즉시 전송됨).
+    /** 수신한 텍스트 한 줄을 처리(스레드/NIO 모드 공용). 연결을 끊어야 하면 false */ // 첫 줄은 auth: 또는 (인증을 요구하지 않으면) 닉네임, 이후는 명령 줄.
+    boolean handleLine(String message) { // 한 줄 명령 처리 메서드.
+        boolean bareNick = nickname == null && !message.startsWith("auth:"); // 인증 전의 접두어 없는 줄은 기존 닉네임 규약.
+        return handle(bareNick ? ClientCommand.of(ClientCommand.Type.NICK, message) : ClientCommand.parseText(message)); // 텍스트를 명령으로 해석해 공용 처리로 넘김.
+    } // handleLine 끝.
+
+    private static RateLimiter.Kind limitKind(ClientCommand.Type type) { // 명령 → 송신 예산 종류.
+        return switch (type) { // 종류별.
+            case CHAT -> RateLimiter.Kind.CHAT; // 방 전체에 퍼지는 채팅.
+            case ROOM_CREATE, ROOM_JOIN, ROOM_LEAVE, ROOM_SWITCH, ROOM_LIST -> RateLimiter.Kind.ROOM; // 방 목록/참가자 목록 전파나 따라잡기를 부르는 명령.
+            case STATUS, PRESENCE_SYNC -> RateLimiter.Kind.STATUS; // 전체 접속자 목록 전파나 스냅샷을 부르는 명령.
+            case HISTORY -> RateLimiter.Kind.HISTORY; // 저장소 조회를 부르는 명령(동시에 하나는 HistoryReader가 따로 제한).
+            default -> null; // 그 밖(QUIT/CAPS/PONG).
+        }; // switch 끝.
+    } // limitKind 끝.
+
+    /** 명령 하나를 처리(텍스트/바이너리 공용). 연결을 끊어야 하면 false */ // 명령 분기 로직을 전송 방식·형식과 분리.
+    boolean handle(ClientCommand cmd) { // 명령 처리 메서드(처리 시간 기록).
+        ChatEvents.Command event = new ChatEvents.Command(); // JFR 이벤트(녹화 중이 아니면 비용 거의 없음).
+        event.begin(); // 시작.
+        long start = System.nanoTime(); // 처리 시작 시각.
+        lastRead = start; // 받은 시각(유휴 검사는 이 값만 봄, 예약은 건드리지 않음).
+        try { // 어느 분기로 나가든 기록.
+            return dispatch(cmd); // 실제 처리.
+        } finally { // 항상.
+            COMMAND_US.get(cmd.type()).record((System.nanoTime() - start) / 1_000); // 종류별 처리 시간(µs).
+            event.end(); // 끝.
+            if (event.shouldCommit()) { event.type = cmd.type().name(); event.nickname = nickname; event.commit(); } // 임계값을 넘었을 때만 기록.
+        } // try-finally 끝.
+    } // handle 끝.
+
+    private boolean dispatch(ClientCommand cmd) { // 명령 종류별 분기.
+        if (nickname == null) { // 아직 접속 처리 전이라면
+            if (cmd.type() == ClientCommand.Type.AUTH) return authenticate(cmd.arg()); // 로그인/회원가입/토큰 재접속.
+            if (cmd.type() == ClientCommand.Type.CAPS) { applyCaps(cmd.arg()); return true; } // 재접속하는 클라이언트는 기능을 먼저 알림(접속 처리에 반영).
+            if (cmd.type() == ClientCommand.Type.RESUME) { resume = ResumeState.parse(cmd.arg(), ChatServer.RESUME_MAX_ROOMS); return true; } // 재접속 상태(형식 오류면 보통 접속).
+            if (cmd.type() != ClientCommand.Type.NICK || authPending.get()) return false; // 인증 전에 다른 명령이 오면 규약 위반으로 종료.
+            if (ChatServer.authRequired()) { // 닉네임만으로는 접속할 수 없으면
+                System.err.println("인증 없이 접속 시도 거절: " + cmd.arg()); // 로그.
+                return false; // 종료.
+            } // if 끝.
+            login(cmd.arg()); // 클라이언트가 접속 직후 가장 먼저 보낸 닉네임(인증을 끈 서버의 기존 규약).
+            return true; // 계속 수신.
+        } // if 끝.
+
+        RateLimiter.Kind kind = limitKind(cmd.type()); // 송신 예산 종류(제한 없는 명령이면 null).
+        if (kind != null) { // 예산이 있는 명령이면
+            String room = kind == RateLimiter.Kind.CHAT ? ChatServer.getActiveRoomOrDefault(nickname) : null; // 채팅은 방 예산도.
+            switch (ChatServer.rateLimiter().admit(limits, kind, room, clientSocket != null)) { // 판정(연결마다 수신 스레드가 있을 때만 기다림).
+                case DISCONNECT -> { // 끊기 조치.
+                    System.err.println(nickname + " 송신 제한 초과로 연결 종료"); // 로그.
+                    return false; // 종료.
+                } // DISCONNECT 끝.
+                case DROP -> { // 버리기 조치.
+                    if (!throttled) sendMessage(ServerMessage.system("메시지를 너무 빨리 보내고 있습니다. 잠시 후 다시 시도하세요.")); // 넘친 동안 안내는 한 번만.
+                    if (kind == RateLimiter.Kind.HISTORY) sendMessage(HistoryReader.retry(cmd.arg())); // 기록 요청은 페이지 끝을 기다리므로 다시 요청하라고 알림.
+                    throttled = true; // 안내함.
+                    return true; // 이 명령만 무시하고 계속 수신.
+                } // DROP 끝.
+                case ALLOW -> throttled = false; // 통과(다음에 넘치면 다시 안내).
+            } // switch 끝.
+        } // if 끝.
+
+        String arg = cmd.arg(); // 명령 인자.
+        switch (cmd.type()) { // 명령 종류별 분기.
+            case QUIT -> { return false; } // 클라이언트가 /quit를 보내면 연결 종료(연결 종료 의사).
+
+            case STATUS -> ChatServer.updateStatus(nickname, arg.trim()); // 상태 변경: "활동 중" 또는 "자리 비움" 등.
+
+            case ROOM_CREATE -> { // 방 생성.
+                String room = arg.trim(); // 방 이름.
+                if (!room.isEmpty()) { // 공백/빈 문자열이 아니면
+                    ChatServer.createRoom(room); // 서버 전역 방 목록에 방을 생성하고 전체에 목록 갱신 브로드캐스트.
+                    // UI에서 즉시 참가+스위치 호출할 것. (원하면 여기서도 join 가능)
+                } // if 끝.
+            } // ROOM_CREATE 끝.
+
+            case ROOM_JOIN -> { // 방 참가.
+                String room = arg.trim(); // 방 이름.
+                if (!room.isEmpty()) ChatServer.joinRoom(nickname, room); // 유효하면 서버에 참가 처리(멤버십 추가, 활성 방 전환, 알림 전파 등).
+            } // ROOM_JOIN 끝.
+
+            case ROOM_LEAVE -> { // 방 나가기.
+                String room = arg.trim(); // 방 이름.
+                if (!room.isEmpty()) ChatServer.leaveRoom(nickname, room); // 유효하면 서버에 나가기 처리(멤버십 삭제, 알림 전파 등).
+            } // ROOM_LEAVE 끝.
+
+            case ROOM_SWITCH -> { // 활성 방 전환.
+                String room = arg.trim(); // 방 이름.
+                if (!room.isEmpty()) ChatServer.switchRoom(nickname, room); // 유효하면 활성 방만 변경(가입 안 되어 있으면 자동 가입 후 전환).
+            } // ROOM_SWITCH 끝.
+
+            case CAPS -> { // 클라이언트 기능 협상: "presence-delta", "room-mux"(쉼표로 여러 개).
+                applyCaps(arg); // 플래그 설정.
+                if (resumable) sendMessage(ChatServer.resumeEpoch()); // 재접속 때 돌려보낼 세대(세대가 바뀌었으면 클라이언트가 접속자 목록 기준을 버리므로 스냅샷보다 먼저).
+                if (presenceDelta) sendMessage(ChatServer.buildVersionedAllUsersPayload()); // 델타 적용의 기준이 될 버전 포함 스냅샷 전송.
+            } // CAPS 끝.
+
+            case PONG -> { } // 하트비트 응답: 받은 시각은 handle에서 이미 기록.
+
+            case PRESENCE_SYNC -> sendMessage(allUsersSnapshot()); // 델타 누락(버전 건너뜀)을 감지한 클라이언트의 재동기화 요청.
+
+            case HISTORY -> ChatServer.requestHistory(arg, this); // 기록 페이지 요청: "방:beforeId:limit"(조회는 따로, 결과는 history:/historyend:로).
+
+            case ROOM_LIST -> { // 클라이언트가 초기 스냅샷(목록들)을 요청할 때.
+                // 스냅샷 4종
+                sendMessage(ChatServer.getRoomListPayload()); // 현재 존재하는 방 목록을 이 클라이언트에게 전송.
+                sendMessage(allUsersSnapshot()); // 전체 접속자/상태 목록 전송(델타 모드면 버전 포함).
+                sendMessage(ChatServer.buildMyRoomsPayload(nickname)); // 내가 가입한 방 목록 전송.
+                sendMessage(ChatServer.buildActiveRoomPayload(nickname)); // 내 활성 방 정보 전송.
+                sendMessage(ChatServer.buildUserListPayloadForRoom(ChatServer.getActiveRoomOrDefault(nickname))); // 활성 방 참가자 목록 전송.
+            } // ROOM_LIST 끝.
+
+            case NICK, AUTH, RESUME, UNKNOWN -> { } // 접속 후 닉네임/인증/재접속 상태 재전송, 모르는 명령은 무시.
+
+            case CHAT -> ChatServer.broadcastMessage(nickname, arg); // 일반 채팅: 활성 방의 모든 구성원에게 브로드캐스트하고 DB에 저장 시도.
+        } // switch 끝.
+        return true; // 계속 수신.
+    } // dispatch 끝.
+
+    private void applyCaps(String arg) { // 기능 목록 반영(쉼표로 여러 개).
+        for (String cap : arg.split(",")) { // 각 기능 이름.
+            if ("presence-delta".equals(cap.trim())) presenceDelta = true; // 전체 접속자 델타 모드 사용.
+            if ("room-mux".equals(cap.trim())) roomMux = true; // 방별 창 모드 사용.
+            if ("heartbeat".equals(cap.trim())) heartbeat = true; // ping/pong 하트비트 사용.
+            if ("resume".equals(cap.trim())) resumable = true; // 재접속 재개 사용.
+        } // for 끝.
+    } // applyCaps 끝.
+
+    private boolean authenticate(String arg) { // auth: 처리 시작(결과는 onAuthResult로). 연결을 끊어야 하면 false.
+        if (!authPending.compareAndSet(false, true)) return false; // 앞 요청의 응답 전에 또 보냄: 규약 위반.
+        if (++authAttempts > ChatServer.authMaxAttempts()) return false; // 시도 횟수 초과: 연결 종료(새로 접속해야 다시 시도 가능).
+        if (clientSocket != null) { // 스레드 모드: 이 연결 전용 수신 스레드가 결과를 기다렸다가 직접 처리(다음 명령은 접속 처리 뒤에 읽음).
+            CompletableFuture<Authenticator.Result> result = new CompletableFuture<>(); // 해시 스레드가 채움.
+            ChatServer.authenticate(arg, result::complete); // 비밀번호는 해시 스레드에서, 토큰은 바로 확인.
+            onAuthResult(result.join()); // 수신 스레드에서 처리.
+        } else { // NIO 모드: 이벤트 루프를 기다리게 하지 않고 결과 처리를 루프에 예약(명령 처리와 같은 스레드라 authok 뒤 명령은 접속 처리 뒤에 처리됨).
+            ChatServer.authenticate(arg, r -> transport.execute(() -> onAuthResult(r))); // 해시 스레드 → 루프 스레드.
+        } // if-else 끝.
+        return true; // 계속 수신(응답 대기).
+    } // authenticate 끝.
+
+    private void onAuthResult(Authenticator.Result r) { // 인증 결과 처리(이 연결의 명령을 처리하는 스레드에서만: 수신 스레드 또는 이벤트 루프).
+        if (r.ok()) { // 성공이면
+            sendMessage(ServerMessage.authOk(r.nickname(), r.token())); // 닉네임 + 재접속용 토큰(스냅샷보다 먼저).
+            login(r.nickname()); // 접속 처리(닉네임 확정 + 등록, authok 뒤 명령보다 먼저 끝남).
+        } else { // 실패면
+            sendMessage(ServerMessage.authFail(r.reason())); // 사유 전송(같은 연결에서 다시 시도 가능).
+        } // if-else 끝.
+        authPending.set(false); // 다음 요청 허용(같은 스레드라 응답 뒤 명령보다 먼저 보임).
+    } // onAuthResult 끝.
+
+    private void login(String nick) { // 닉네임 확정 + 서버 등록.
+        this.nickname = nick; // 이후 명령은 이 닉네임으로 처리.
+        ResumeState r = resume; // 인증 전에 받은 재접속 상태(없으면 null).
+        resume = null; // 한 번만 사용.
+        if (resumable) sendMessage(ChatServer.resumeEpoch()); // 인증 전에 기능을 알린 재접속 연결: 세대부터(다르면 클라이언트가 이어지는 스냅샷을 새 기준으로 삼음).
+        ChatServer.addClient(nick, this, r); // 서버의 전역 레지스트리에 이 클라이언트를 등록하고 초기 상태/방(로비 등, 재접속이면 끊기기 전 방들)을 세팅.
+        if (disconnected.get()) ChatServer.removeClient(nick, this); // 인증 중에 끊긴 연결이면 바로 정리(onDisconnect가 닉네임을 못 봤을 수 있음, 중복 호출은 무시됨).
+    } // login 끝.
+
+    /** 연결 종료 정리(여러 경로에서 호출돼도 한 번만 실행) */ // 스레드 모드 finally, NIO 모드 채널 종료 양쪽에서 호출.
+    void onDisconnect() { // 퇴장 처리 메서드.
+        if (!disconnected.compareAndSet(false, true)) return; // 이미 처리했으면 무시.
+        TimerWheel.Timeout t = idleTimer; // 유휴 검사 예약.
+        if (t != null) t.cancel(); // 바퀴에서 버려지도록 취소.
+        if (nickname != null) ChatServer.removeClient(nickname, this); // 서버 전역 레지스트리에서 이 클라이언트를 제거하고 각 방에 퇴장 알림(같은 닉네임의 새 연결은 유지).
+        if (transport != null) transport.close(); // 송신 통로(소켓) 정리.
+        else if (clientSocket != null) { try { clientSocket.close(); } catch (IOException ignore) {} } // 통로 생성 전 실패 시 소켓만 정리(예외는 무시).
+    } // onDisconnect 끝.
+
+    boolean admit(RateLimiter.Kind kind) { // 명령이 아닌 서버 처리에 이 연결의 예산을 씀(기다리지 않음, 넘으면 false).
+        return ChatServer.rateLimiter().admit(limits, kind, null, false) == RateLimiter.Verdict.ALLOW; // 버림/끊기 조치는 건너뜀으로.
+    } // admit 끝.
+
+    boolean presenceDelta() { // 전체 접속자 델타 모드 여부(브로드캐스트 시 ChatServer가 확인).
+        return presenceDelta; // 협상 결과.
+    } // presenceDelta 끝.
+
+    boolean roomMux() { // 방별 창 모드 여부(활성 방 전환 시 ChatServer가 확인).
+        return roomMux; // 협상 결과.
+    } // roomMux 끝.
+
+    /* ---------------- 유휴 감시(IdleMonitor, 타이머 바퀴 스레드) ---------------- */ // 여기서는 짧은 일만.
+
+    boolean heartbeat() { return heartbeat; } // ping/pong 협상 여부.
+    long lastRead() { return lastRead; } // 마지막 수신 시각.
+    boolean isLoggedIn() { return nickname != null; } // 인증/닉네임 확정 여부.
+    boolean isDisconnected() { return disconnected.get(); } // 퇴장 처리 여부.
+    void idleTimer(TimerWheel.Timeout t) { idleTimer = t; } // 다음 검사 예약 보관.
+    String describe() { return nickname != null ? nickname : clientSocket != null ? String.valueOf(clientSocket.getRemoteSocketAddress()) : "(인증 전)"; } // 로그용 이름.
+
+    void closeIdle() { // 유휴 연결 끊기(소켓만 닫고, 퇴장 처리는 수신 스레드/이벤트 루프가 이어서 함).
+        ClientTransport t = transport; // 필드를 한 번만 읽음.
+        if (t != null) t.close(); // 송신 통로를 닫으면 막혀 있던 읽기가 예외로 빠져나옴.
+        else if (clientSocket != null) { try { clientSocket.close(); } catch (IOException ignore) {} } // 핸드셰이크 전이면 소켓만.
+    } // closeIdle 끝.
+
+    private ServerMessage allUsersSnapshot() { // 이 클라이언트 형식에 맞는 전체 접속자 스냅샷.
+        return presenceDelta ? ChatServer.buildVersionedAllUsersPayload() : ChatServer.buildAllUsersPayload(); // 델타 모드면 버전 포함.
+    } // allUsersSnapshot 끝.
+
+    /** 서버→클라이언트 전송 */ // 서버 측에서 이 핸들러를 통해 해당 클라이언트에게 메시지를 보낼 때 사용.
+    void sendMessage(ServerMessage message) { // 메시지 하나를 송신 통로로 넘기는 헬퍼 메서드(인코딩은 통로가 형식에 맞게).
+        ClientTransport t = transport; // 필드를 한 번만 읽음.
+        if (t != null) t.send(message); // 송신 통로가 준비되어 있으면 전송.
     } // sendMessage 끝.
+
+    /** 소켓 스트림 기반 송신 통로(스레드/가상 스레드 모드) */ // 브로드캐스트 쪽은 대기열에 넣기만 하고, 연결 전용 작성자가 소켓에 씀.
+    private static final class SocketTransport implements ClientTransport { // ClientHandler 내부에서만 사용.
+        private final Socket socket; // 대상 소켓.
+        private final OutputStream out; // 버퍼링 출력 스트림(작성자 스레드 전용).
+        private final boolean binary; // true면 길이 접두 프레임, false면 텍스트 줄.
+        private final OutboundQueue queue = new OutboundQueue(); // 이 연결의 제한된 송신 대기열.
+
+        SocketTransport(Socket socket, boolean binary) throws IOException { // 소켓 출력 스트림과 작성자 준비.
+            this.socket = socket; // 소켓 보관.
+            this.binary = binary; // 형식 보관.
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 8192); // 미리 인코딩된 바이트를 모아 한 번에 flush.
+            Thread.ofVirtual().name("writer-" + socket.getPort()).start(this::writeLoop); // 연결 전용 작성자(가상 스레드라 연결마다 둬도 가벼움).
+        } // 생성자 끝.
+
+        @Override public void send(ServerMessage msg) { // 메시지 전송 요청(블로킹하지 않음).
+            if (queue.offer(msg) == OutboundQueue.Result.OVERFLOW) { // 대기열 초과(느린 클라이언트)면
+                System.err.println("송신 대기열 초과로 연결 종료: " + socket.getRemoteSocketAddress()); // 로그 출력.
+                close(); // 소켓을 닫으면 수신 스레드가 예외로 빠져나와 퇴장 처리.
+            } // if 끝.
+        } // send 끝.
+
+        private void writeLoop() { // 대기열을 비우며 소켓에 쓰는 작성자 루프.
+            try { // 소켓 쓰기 예외 대비.
+                ServerMessage msg; // 보낼 메시지.
+                while ((msg = queue.take()) != null) { // 닫힐 때까지 하나씩 대기.
+                    do { // 이미 쌓인 메시지는 한꺼번에 씀.
+                        out.write(binary ? msg.frame() : msg.textBytes()); // 메시지마다 한 번만 만든 인코딩을 그대로 씀(받는 사람 수만큼 다시 인코딩하지 않음).
+                    } while ((msg = queue.poll()) != null); // 대기열이 빌 때까지.
+                    out.flush(); // 모은 메시지를 한 번에 전송.
+                } // while 끝.
+            } catch (IOException | InterruptedException e) { // 연결 끊김 등.
+                close(); // 정리.
+            } // try-catch 끝.
+        } // writeLoop 끝.
+
+        @Override public void close() { // 소켓 닫기.
+            queue.close(); // 대기열 폐기 + 작성자 종료.
+            try { socket.close(); } catch (IOException ignore) {} // 소켓 자원 정리(예외는 무시).
+        } // close 끝.
+    } // SocketTransport 끝.
 } // ClientHandler 클래스 끝.
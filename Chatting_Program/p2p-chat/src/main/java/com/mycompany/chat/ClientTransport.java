@@ -0,0 +1,11 @@
+package com.mycompany.chat; // ClientTransport 인터페이스가 속한 패키지 선언
+
+/** 서버 → 클라이언트 송신 통로 */ // 스레드 모드(소켓 스트림)와 NIO 모드(이벤트 루프)를 같은 방식으로 다루기 위한 추상화
+interface ClientTransport { // ClientHandler가 실제 전송 방식을 몰라도 되도록 분리
+
+    void send(ServerMessage msg); // 메시지 한 건을 클라이언트로 전송(연결이 고른 형식으로 인코딩)
+
+    void close(); // 연결 종료(여러 번 호출해도 안전해야 함)
+
+    default void execute(Runnable task) { task.run(); } // 명령을 처리하는 스레드에서 작업 실행(NIO: 이벤트 루프에 예약, 명령과 순서가 섞이지 않음)
+} // ClientTransport 인터페이스 끝
@@ -0,0 +1,41 @@
+package com.mycompany.chat; // ClusterBus 인터페이스가 속한 패키지 선언
+
+import java.io.IOException; // 시작(바인드) 실패
+
+/**
+ * 노드 간 메시지 버스 SPI.
+ * - 노드마다 다른 노드로 가는 송신 링크(link)와 다른 노드에서 오는 수신 피어(peer)가 따로 있고, 버스는 둘의 연결/끊김과 수신 메시지를 Listener로 알린다.
+ * - 같은 노드로 보낸 메시지는 보낸 순서대로 도착해야 한다(상태 복제가 순서에 의존).
+ * - 구현은 chat.cluster.bus로 고른다: none(단일 노드, 기본) / tcp(TcpClusterBus) / 인자 없는 생성자를 가진 구현 클래스 이름.
+ */ // ClusterNode가 하나 소유
+interface ClusterBus { // 버스 구현이 따를 규약
+
+    /** 버스 이벤트 수신자 */ // 콜백은 버스 스레드에서 호출됨(같은 피어의 수신 메시지는 한 스레드에서 순서대로)
+    interface Listener { // ClusterNode가 구현
+        void onLinkUp(String node); // 그 노드로 보낼 수 있게 됨(여기서 보낸 메시지가 이후 메시지보다 먼저 도착)
+        void onLinkDown(String node); // 그 노드로 보내는 링크가 끊김(이후 send는 버려짐)
+        void onPeerUp(String node); // 그 노드가 새로 연결해 옴(이전 연결에서 받은 상태는 무효)
+        void onPeerDown(String node); // 그 노드에서 오는 연결이 끊김
+        void onMessage(String node, ClusterMessage msg); // 그 노드가 보낸 메시지
+    } // Listener 끝
+
+    String nodeId(); // 이 노드의 id(클러스터 안에서 유일)
+
+    void start(Listener listener) throws IOException; // 수신 대기 + 다른 노드로 연결 시작
+
+    boolean send(String node, ClusterMessage msg); // 한 노드로 송신(블로킹하지 않음, 링크가 없거나 밀려 있으면 false)
+
+    void close(); // 모든 연결 종료
+
+    /** 설정(chat.cluster.bus)에 맞는 구현 생성, 단일 노드면 null */ // ChatServer 초기화 때 한 번
+    static ClusterBus fromConfig() { // 구현 선택
+        String kind = ServerConfig.get("chat.cluster.bus", "none").trim(); // 설정값
+        if (kind.isEmpty() || "none".equalsIgnoreCase(kind)) return null; // 클러스터 끔
+        if ("tcp".equalsIgnoreCase(kind)) return new TcpClusterBus(); // 기본 구현
+        try { // 외부 구현 클래스
+            return (ClusterBus) Class.forName(kind).getDeclaredConstructor().newInstance(); // 인자 없는 생성자
+        } catch (ReflectiveOperationException | ClassCastException e) { // 없는 클래스 등
+            throw new IllegalStateException("클러스터 버스 구현을 만들 수 없음: " + kind, e); // 설정 오류는 시작 실패
+        } // try-catch 끝
+    } // fromConfig 끝
+} // ClusterBus 인터페이스 끝
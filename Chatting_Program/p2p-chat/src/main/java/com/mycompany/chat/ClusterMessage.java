@@ -0,0 +1,65 @@
+package com.mycompany.chat; // ClusterMessage 클래스가 속한 패키지 선언
+
+/**
+ * 노드 ↔ 노드 메시지 한 건(클러스터 버스로 오가는 값).
+ * - 상태 복제: ROOM/USER/USER_GONE/JOIN/LEAVE는 연결된 모든 노드에 보내고, 받는 쪽은 보낸 노드의 사용자/방 멤버 목록(뷰)을 갱신한다.
+ * - 전달: CHAT/SYSTEM은 그 방에 멤버가 있는 노드에만 보내고, 받는 쪽은 자기 노드의 멤버에게만 전달한다(다시 중계하지 않음).
+ */ // 바이너리 인코딩은 WireCodec(노드 ↔ 노드 구역), 처음 요청될 때 한 번만 만든다
+final class ClusterMessage { // 불변 값 객체
+
+    /** 메시지 종류(번호는 프레임의 type 필드 값) */ // 새 종류는 번호를 바꾸지 말고 뒤에 추가
+    enum Type { // 종류 목록
+        UNKNOWN(0), // 해석할 수 없는 프레임
+        HELLO(1), // 연결 직후 노드 id 교환: nick = 노드 id
+        ROOM(2), // 방 생성: room
+        USER(3), // 접속/상태 변경: nick, text = 상태
+        USER_GONE(4), // 퇴장(그 사용자의 모든 방 멤버십 포함): nick
+        JOIN(5), // 방 가입: room, nick
+        LEAVE(6), // 방 나가기: room, nick
+        CHAT(7), // 채팅 전달: room, nick, text
+        SYSTEM(8); // 방 시스템 메시지 전달: room, text
+
+        final int code; // 프레임 번호
+        Type(int code) { this.code = code; } // 생성자
+
+        private static final Type[] BY_CODE = new Type[16]; // 번호 → 종류
+        static { for (Type t : values()) BY_CODE[t.code] = t; } // 표 채우기
+
+        static Type of(int code) { // 번호로 종류 찾기(모르는 번호는 UNKNOWN)
+            return (code >= 0 && code < BY_CODE.length && BY_CODE[code] != null) ? BY_CODE[code] : UNKNOWN; // 결과
+        } // of 끝
+    } // Type 끝
+
+    final Type type; // 종류
+    final String room; // 방 이름(ROOM/JOIN/LEAVE/CHAT/SYSTEM)
+    final String nick; // 닉네임(USER/USER_GONE/JOIN/LEAVE/CHAT) 또는 노드 id(HELLO)
+    final String text; // 상태(USER) 또는 본문(CHAT/SYSTEM)
+
+    private volatile byte[] frame; // 캐시된 프레임(길이 접두 포함)
+
+    ClusterMessage(Type type, String room, String nick, String text) { // 모든 필드 지정(코덱용)
+        this.type = type; // 보관
+        this.room = room; // 보관
+        this.nick = nick; // 보관
+        this.text = text; // 보관
+    } // 생성자 끝
+
+    /* ---------------- 생성 ---------------- */ // 종류별 팩토리
+
+    static ClusterMessage hello(String nodeId) { return new ClusterMessage(Type.HELLO, null, nodeId, null); } // 노드 id 교환
+    static ClusterMessage room(String room) { return new ClusterMessage(Type.ROOM, room, null, null); } // 방 생성
+    static ClusterMessage user(String nick, String status) { return new ClusterMessage(Type.USER, null, nick, status); } // 접속/상태
+    static ClusterMessage userGone(String nick) { return new ClusterMessage(Type.USER_GONE, null, nick, null); } // 퇴장
+    static ClusterMessage join(String room, String nick) { return new ClusterMessage(Type.JOIN, room, nick, null); } // 가입
+    static ClusterMessage leave(String room, String nick) { return new ClusterMessage(Type.LEAVE, room, nick, null); } // 나가기
+    static ClusterMessage chat(String room, String nick, String text) { return new ClusterMessage(Type.CHAT, room, nick, text); } // 채팅
+    static ClusterMessage system(String room, String text) { return new ClusterMessage(Type.SYSTEM, room, null, text); } // 시스템 메시지
+
+    byte[] frame() { // 길이 접두 프레임(여러 노드에 보내도 한 번만 인코딩)
+        byte[] f = frame; // 캐시 읽기
+        if (f == null) frame = f = WireCodec.encode(this); // 처음이면 생성
+        return f; // 반환(호출자는 수정하지 않음)
+    } // frame 끝
+
+    @Override public String toString() { return type + "(" + room + ", " + nick + ", " + text + ")"; } // 로그용
+} // ClusterMessage 클래스 끝
@@ -0,0 +1,215 @@
+package com.mycompany.chat; // ClusterNode 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 버스 시작 실패
+import java.lang.management.ManagementFactory; // 플랫폼 MBean 서버
+import java.util.ArrayList; // 다른 노드의 방 멤버 목록
+import java.util.List; // 리스트 인터페이스
+import java.util.Map; // 맵 인터페이스
+import java.util.Set; // 노드/닉네임 집합
+import java.util.concurrent.ConcurrentHashMap; // 노드별 뷰, 방 관심 색인
+import java.util.concurrent.atomic.LongAdder; // 지표 카운터
+import java.util.concurrent.locks.ReentrantLock; // 상태 복제 순서 보장(가상 스레드 고정 없음)
+import javax.management.ObjectName; // MBean 이름
+
+/**
+ * 클러스터 모드에서 이 노드의 상태를 다른 노드와 맞추는 조정자.
+ * - 이 노드의 접속/상태/방 가입·나가기/방 생성은 연결된 모든 노드에 복제하고, 다른 노드에서 온 것은 노드별 뷰(사용자, 방 → 멤버)에 담는다.
+ * - 다른 노드의 사용자는 PresenceCache(전체 접속자)와 참가자 목록에 합쳐 보이고, 채팅/시스템 메시지는 방 → 노드 관심 색인을 보고
+ *   그 방에 멤버가 있는 노드에만 보낸다.
+ * - 새 링크가 열리면 현재 상태 스냅샷을 먼저 보내고 이후 변경을 보낸다. 복제 송신은 한 락 안에서 하므로 스냅샷과 변경이 뒤섞이지 않는다.
+ */ // 버스가 없으면(chat.cluster.bus=none) 모든 메서드가 아무것도 하지 않음
+final class ClusterNode implements ClusterBus.Listener { // ChatServer가 하나 소유
+
+    /** 다른 노드 하나에서 받은 상태 */ // 그 노드의 수신 스레드만 갱신(읽기는 어느 스레드에서나)
+    private static final class NodeView { // 노드 뷰
+        final Map<String, String> users = new ConcurrentHashMap<>(); // 닉네임 → 상태
+        final Map<String, Set<String>> rooms = new ConcurrentHashMap<>(); // 방 → 그 노드의 멤버
+    } // NodeView 끝
+
+    private final ClusterBus bus; // 노드 간 버스(단일 노드면 null)
+    private volatile boolean stopped; // stop 뒤에는 보내지 않음(드레인 중 퇴장 복제 등)
+    private final ReentrantLock replicateLock = new ReentrantLock(); // 복제 송신 + 스냅샷 순서 보장
+    private final Set<String> ready = ConcurrentHashMap.newKeySet(); // 스냅샷을 보낸(복제를 받는) 노드
+    private final Map<String, NodeView> views = new ConcurrentHashMap<>(); // 노드 → 뷰
+    private final Map<String, Set<String>> interest = new ConcurrentHashMap<>(); // 방 → 멤버가 있는 노드
+
+    private final LongAdder replicated = new LongAdder(); // 복제로 보낸 메시지 수(노드 수만큼)
+    private final LongAdder relayed = new LongAdder(); // 채팅/시스템 메시지를 보낸 노드 수
+    private final LongAdder suppressed = new LongAdder(); // 관심 색인 덕에 보내지 않은 노드 수
+    private final LongAdder received = new LongAdder(); // 받은 메시지 수
+
+    ClusterNode(ClusterBus bus) { // 버스 지정(null이면 단일 노드)
+        this.bus = bus; // 보관
+    } // 생성자 끝
+
+    boolean enabled() { return bus != null; } // 클러스터 모드 여부
+
+    void start() throws IOException { // 버스 시작(ChatServer.init에서 한 번)
+        if (bus != null) bus.start(this); // 수신 대기 + 연결 시작
+    } // start 끝
+
+    void stop() { // 버스 종료(드레인에서 수락을 멈춘 직후): 다른 노드는 링크 끊김으로 이 노드의 사용자/멤버십을 정리
+        if (bus == null || stopped) return; // 단일 노드이거나 이미 멈춤
+        stopped = true; // 이후 복제/전달 안 함
+        replicateLock.lock(); // 진행 중인 복제/스냅샷이 끝난 뒤
+        try { ready.clear(); } finally { replicateLock.unlock(); } // 복제 대상 비움
+        bus.close(); // 수신 대기/링크/수신 연결 종료(재연결 안 함)
+    } // stop 끝
+
+    /* ---------------- 이 노드의 변경 복제 ---------------- */ // ChatServer가 로컬 상태를 바꾼 뒤 호출
+
+    void roomCreated(String room) { replicate(ClusterMessage.room(room)); } // 방 생성
+    void userUp(String nick, String status) { replicate(ClusterMessage.user(nick, status)); } // 접속/상태 변경
+    void userGone(String nick) { replicate(ClusterMessage.userGone(nick)); } // 퇴장(받는 쪽이 방 멤버십도 모두 정리)
+    void joined(String room, String nick) { replicate(ClusterMessage.join(room, nick)); } // 방 가입
+    void left(String room, String nick) { replicate(ClusterMessage.leave(room, nick)); } // 방 나가기
+
+    private void replicate(ClusterMessage m) { // 연결된 모든 노드에 보냄
+        if (bus == null || stopped) return; // 단일 노드이거나 멈춤
+        replicateLock.lock(); // 스냅샷과 순서 맞추기(ready 확인도 락 안에서 해야 스냅샷 직전 변경을 놓치지 않음)
+        try { // 해제 보장
+            for (String node : ready) { bus.send(node, m); replicated.increment(); } // 노드마다(인코딩은 한 번)
+        } finally { // 항상
+            replicateLock.unlock(); // 해제
+        } // try-finally 끝
+    } // replicate 끝
+
+    /* ---------------- 메시지 전달 ---------------- */ // 방 관심 색인으로 노드 선택
+
+    void relayChat(String room, String nick, String text) { relay(room, ClusterMessage.chat(room, nick, text)); } // 채팅
+    void relaySystem(String room, String text) { relay(room, ClusterMessage.system(room, text)); } // 시스템 메시지
+
+    private void relay(String room, ClusterMessage m) { // 그 방에 멤버가 있는 노드에만 보냄
+        if (bus == null || stopped) return; // 단일 노드이거나 멈춤
+        Set<String> nodes = interest.get(room); // 관심 노드
+        int sent = 0; // 보낸 노드 수
+        if (nodes != null) { // 있으면
+            for (String node : nodes) if (bus.send(node, m)) sent++; // 노드마다(인코딩은 한 번)
+        } // if 끝
+        relayed.add(sent); // 지표
+        suppressed.add(Math.max(0, ready.size() - sent)); // 방송했다면 보냈을 노드 수와의 차이
+    } // relay 끝
+
+    /** 다른 노드에 있는 방 멤버(참가자 목록 생성용) */ // 단일 노드면 빈 목록
+    List<String> remoteMembers(String room) { // 닉네임 목록
+        if (views.isEmpty()) return List.of(); // 다른 노드 없음
+        List<String> out = new ArrayList<>(); // 결과
+        for (NodeView v : views.values()) { // 노드마다
+            Set<String> s = v.rooms.get(room); // 그 노드의 멤버
+            if (s != null) out.addAll(s); // 추가
+        } // for 끝
+        return out; // 결과
+    } // remoteMembers 끝
+
+    /* ---------------- 버스 이벤트 ---------------- */ // 버스 스레드에서 호출
+
+    @Override
+    public void onLinkUp(String node) { // 새 링크: 스냅샷 먼저, 그다음부터 복제
+        replicateLock.lock(); // 그 사이의 로컬 변경은 스냅샷 뒤로
+        try { // 해제 보장
+            if (stopped) return; // 드레인 중 늦게 올라온 링크(버스가 곧 닫음)
+            for (ClusterMessage m : ChatServer.clusterSnapshot()) bus.send(node, m); // 방/사용자/가입 상태
+            ready.add(node); // 이후 복제 대상
+        } finally { // 항상
+            replicateLock.unlock(); // 해제
+        } // try-finally 끝
+        System.out.println("클러스터 노드 연결: " + node); // 로그
+    } // onLinkUp 끝
+
+    @Override
+    public void onLinkDown(String node) { // 링크 끊김(재연결되면 스냅샷부터 다시)
+        ready.remove(node); // 복제 대상에서 제외
+        System.out.println("클러스터 노드 연결 끊김: " + node); // 로그
+    } // onLinkDown 끝
+
+    @Override public void onPeerUp(String node) { dropView(node); views.put(node, new NodeView()); } // 새 연결: 이전 상태를 지우고 스냅샷을 기다림
+    @Override public void onPeerDown(String node) { dropView(node); } // 연결 끊김: 그 노드의 사용자/멤버를 모두 제거
+
+    @Override
+    public void onMessage(String node, ClusterMessage m) { // 다른 노드의 메시지 처리
+        received.increment(); // 지표
+        NodeView v = views.computeIfAbsent(node, k -> new NodeView()); // 보낸 노드의 뷰
+        switch (m.type) { // 종류별
+            case ROOM -> ChatServer.remoteRoom(m.room); // 방 생성
+            case USER -> { // 접속/상태 변경
+                v.users.put(m.nick, m.text); // 뷰 갱신
+                ChatServer.remoteStatus(m.nick, m.text); // 전체 접속자에 반영
+                for (Map.Entry<String, Set<String>> e : v.rooms.entrySet()) { // 그 사용자가 있는 방의
+                    if (e.getValue().contains(m.nick)) ChatServer.remoteRoomChanged(e.getKey()); // 참가자 목록(상태 표시) 갱신
+                } // for 끝
+            } // USER 끝
+            case USER_GONE -> { // 퇴장
+                v.users.remove(m.nick); // 뷰 갱신
+                for (String room : List.copyOf(v.rooms.keySet())) removeMember(node, v, room, m.nick); // 모든 방에서 제거
+                ChatServer.remoteUserGone(m.nick); // 전체 접속자에서 제거
+            } // USER_GONE 끝
+            case JOIN -> { // 방 가입
+                ChatServer.remoteRoom(m.room); // 방이 없으면 생성
+                if (v.rooms.computeIfAbsent(m.room, k -> ConcurrentHashMap.newKeySet()).add(m.nick)) { // 새 멤버면
+                    interest.computeIfAbsent(m.room, k -> ConcurrentHashMap.newKeySet()).add(node); // 관심 등록
+                    ChatServer.remoteRoomChanged(m.room); // 참가자 목록 갱신
+                } // if 끝
+            } // JOIN 끝
+            case LEAVE -> removeMember(node, v, m.room, m.nick); // 방 나가기
+            case CHAT -> ChatServer.deliverLocal(m.room, ServerMessage.chat(m.nick, m.room, m.text)); // 이 노드의 멤버에게만
+            case SYSTEM -> ChatServer.deliverLocal(m.room, ServerMessage.system(m.room, m.text)); // 이 노드의 멤버에게만
+            default -> { } // HELLO(버스가 처리)/모르는 종류는 무시
+        } // switch 끝
+    } // onMessage 끝
+
+    private void removeMember(String node, NodeView v, String room, String nick) { // 뷰에서 방 멤버 하나 제거
+        Set<String> s = v.rooms.get(room); // 그 노드의 멤버
+        if (s == null || !s.remove(nick)) return; // 없던 멤버
+        if (s.isEmpty()) { // 그 노드에 이 방 멤버가 더 없으면
+            v.rooms.remove(room, s); // 뷰에서 제거
+            Set<String> nodes = interest.get(room); // 관심 노드
+            if (nodes != null) nodes.remove(node); // 관심 해제(이후 이 방 메시지를 보내지 않음)
+        } // if 끝
+        ChatServer.remoteRoomChanged(room); // 참가자 목록 갱신
+    } // removeMember 끝
+
+    private void dropView(String node) { // 노드 뷰 전체 제거
+        NodeView v = views.remove(node); // 제거
+        if (v == null) return; // 없었음
+        for (String room : v.rooms.keySet()) { // 그 노드가 멤버를 두었던 방
+            Set<String> nodes = interest.get(room); // 관심 노드
+            if (nodes != null) nodes.remove(node); // 관심 해제
+            ChatServer.remoteRoomChanged(room); // 참가자 목록 갱신
+        } // for 끝
+        for (String nick : v.users.keySet()) ChatServer.remoteUserGone(nick); // 전체 접속자에서 제거
+    } // dropView 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=ClusterNode)
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        String getNodeId(); // 이 노드 id
+        int getLinkedNodes(); // 복제를 받는 노드 수
+        int getRemoteUsers(); // 다른 노드의 접속자 수
+        long getReplicated(); // 복제 송신 수
+        long getRelayed(); // 채팅/시스템 전달 송신 수
+        long getSuppressed(); // 관심 색인으로 생략한 송신 수
+        long getReceived(); // 수신 수
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 카운터를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(필드 직접 접근)
+        @Override public String getNodeId() { return bus == null ? "" : bus.nodeId(); } // 노드 id
+        @Override public int getLinkedNodes() { return ready.size(); } // 연결 노드
+        @Override public int getRemoteUsers() { int n = 0; for (NodeView v : views.values()) n += v.users.size(); return n; } // 다른 노드 접속자
+        @Override public long getReplicated() { return replicated.sum(); } // 복제
+        @Override public long getRelayed() { return relayed.sum(); } // 전달
+        @Override public long getSuppressed() { return suppressed.sum(); } // 생략
+        @Override public long getReceived() { return received.sum(); } // 수신
+    } // Stats 끝
+
+    Stats stats() { return new Stats(); } // 지표 객체
+
+    void registerMBean() { // 플랫폼 MBean 서버에 등록
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats(), new ObjectName("com.mycompany.chat:type=ClusterNode")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("클러스터 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // ClusterNode 클래스 끝
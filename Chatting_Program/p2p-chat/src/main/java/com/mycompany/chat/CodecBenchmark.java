@@ -0,0 +1,67 @@
+package com.mycompany.chat; // CodecBenchmark 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 프레임 해석 예외
+import java.util.ArrayList; // 샘플 목록
+import java.util.List; // 리스트 인터페이스
+import java.util.function.Supplier; // 측정 대상 작업
+
+/**
+ * 텍스트 줄 / 바이너리 프레임 코덱 비교 도구.
+ * - 채팅 한 줄, 참가자 목록(사용자 수 N), 전체 접속자 스냅샷을 두 형식으로 인코딩/디코딩하며 건당 시간과 바이트 수를 잰다.
+ * - 인코딩은 캐시를 거치지 않은 값(매번 새로 만드는 비용), 디코딩은 클라이언트 수신 경로(parseText / decodeMessage, 큰 목록은 나뉜 프레임 합치기)와 같다.
+ * 실행 예: java -cp target/classes com.mycompany.chat.CodecBenchmark --users 200 --iterations 200000
+ */ // 클래스 설명 주석
+public class CodecBenchmark { // 명령행 도구 클래스
+
+    private static volatile Object sink; // JIT가 결과를 버리지 못하도록 보관
+
+    public static void main(String[] args) throws Exception { // 도구 진입점
+        int users = 200; // 목록 메시지의 사용자 수 기본값
+        int iterations = 200_000; // 측정 반복 횟수 기본값
+        for (int i = 0; i + 1 < args.length; i += 2) { // "--이름 값" 쌍 해석
+            switch (args[i]) { // 옵션 이름별 분기
+                case "--users" -> users = Integer.parseInt(args[i + 1]); // 사용자 수
+                case "--iterations" -> iterations = Integer.parseInt(args[i + 1]); // 반복 횟수
+                default -> System.err.println("알 수 없는 옵션 무시: " + args[i]); // 그 외
+            } // switch 끝
+        } // for 끝
+
+        List<ServerMessage.User> list = new ArrayList<>(users); // 샘플 사용자
+        for (int i = 0; i < users; i++) list.add(new ServerMessage.User("user" + i, i % 3 == 0 ? "자리 비움" : "활동 중")); // 상태 섞기
+        ServerMessage[] samples = { // 측정할 메시지
+                ServerMessage.chat("alice", "Lobby", "안녕하세요, 오늘 회의는 3시에 시작합니다."), // 채팅
+                ServerMessage.userList("Lobby", list), // 참가자 목록
+                ServerMessage.allUsers(list, 12345), // 전체 접속자 스냅샷
+        }; // samples 끝
+        String[] names = {"chat", "userlist(" + users + ")", "allusers@(" + users + ")"}; // 출력 이름
+
+        System.out.printf("%-18s %8s %8s %12s %12s %12s %12s%n", "message", "text B", "bin B", "text enc ns", "bin enc ns", "text dec ns", "bin dec ns"); // 결과 표 머리글
+        for (int s = 0; s < samples.length; s++) { // 메시지마다
+            ServerMessage m = samples[s]; // 대상
+            byte[] line = m.textBytes(); // 텍스트 인코딩(개행 포함)
+            byte[] frame = WireCodec.encode(m); // 바이너리 인코딩(길이 접두 포함)
+            String text = m.text(); // 디코딩 입력(텍스트)
+            int n = iterations; // 람다 캡처용
+
+            double textEnc = measure(n, () -> copy(m).textBytes()); // 캐시 없는 텍스트 인코딩
+            double binEnc = measure(n, () -> WireCodec.encode(m)); // 바이너리 인코딩
+            double textDec = measure(n, () -> ServerMessage.parseText(text)); // 텍스트 해석
+            double binDec = measure(n, () -> { // 바이너리 해석
+                try { return WireCodec.decodeAll(frame); } // 나뉜 목록이면 합치기까지
+                catch (IOException e) { throw new IllegalStateException(e); } // 샘플은 항상 정상
+            }); // measure 끝
+            System.out.printf("%-18s %8d %8d %12.1f %12.1f %12.1f %12.1f%n", names[s], line.length, frame.length, textEnc, binEnc, textDec, binDec); // 결과 한 줄
+        } // for 끝
+    } // main 끝
+
+    private static ServerMessage copy(ServerMessage m) { // 인코딩 캐시가 비어 있는 사본
+        return new ServerMessage(m.type, m.room, m.sender, m.text, m.names, m.users, m.version); // 같은 필드, 새 캐시
+    } // copy 끝
+
+    private static double measure(int iterations, Supplier<Object> op) { // 워밍업 후 건당 평균 시간(ns)
+        for (int i = 0; i < iterations; i++) sink = op.get(); // 워밍업(JIT 컴파일)
+        long start = System.nanoTime(); // 시작 시각
+        for (int i = 0; i < iterations; i++) sink = op.get(); // 측정
+        return (double) (System.nanoTime() - start) / iterations; // 건당 평균
+    } // measure 끝
+} // CodecBenchmark 클래스 끝
@@ -0,0 +1,312 @@
+package com.mycompany.chat; // ConnectionPool 클래스가 속한 패키지 선언
+
+import java.io.PrintWriter; // DataSource 로그 writer
+import java.lang.management.ManagementFactory; // 플랫폼 MBean 서버
+import java.lang.reflect.InvocationHandler; // 커넥션/문장 프록시 처리기
+import java.lang.reflect.InvocationTargetException; // 위임 호출 예외 풀기
+import java.lang.reflect.Method; // 가로챌 메서드 정보
+import java.lang.reflect.Proxy; // 동적 프록시 생성
+import java.sql.*; // JDBC 인터페이스
+import java.util.Deque; // 유휴 커넥션 스택
+import java.util.LinkedHashMap; // LRU 문장 캐시
+import java.util.Map; // 맵 인터페이스
+import java.util.concurrent.ConcurrentLinkedDeque; // 락 없는 유휴 커넥션 스택
+import java.util.concurrent.Executors; // 유휴 정리 스케줄러
+import java.util.concurrent.ScheduledExecutorService; // 주기 작업 실행기
+import java.util.concurrent.Semaphore; // 동시 대여 수 제한
+import java.util.concurrent.TimeUnit; // 시간 단위
+import java.util.concurrent.atomic.AtomicInteger; // 물리 커넥션 수
+import java.util.concurrent.atomic.LongAdder; // 지표 카운터
+import java.util.logging.Logger; // DataSource 인터페이스 요구사항
+import javax.management.ObjectName; // MBean 이름
+import javax.sql.DataSource; // 표준 커넥션 공급 인터페이스
+
+/**
+ * 크기 제한 JDBC 커넥션 풀.
+ * - 최대 maxSize개까지 물리 커넥션을 만들고, close() 하면 끊지 않고 유휴 스택에 돌려놓는다.
+ * - 대여 시 일정 시간 이상 놀던 커넥션은 isValid()로 검증하고, 오래 놀던 커넥션은 백그라운드에서 정리한다.
+ * - 커넥션마다 PreparedStatement를 LRU로 캐시해 같은 SQL을 다시 준비하지 않는다.
+ */ // 매 작업마다 MySQL 핸드셰이크를 하던 DriverManager 호출을 대체
+final class ConnectionPool implements DataSource { // Database.dataSource()로 공유
+
+    private final String url; // JDBC URL
+    private final String user; // DB 사용자
+    private final String password; // DB 비밀번호
+    private final int maxSize; // 최대 커넥션 수
+    private final int minIdle; // 정리 후에도 남겨 둘 최소 유휴 커넥션 수
+    private final long idleTimeoutMs; // 이보다 오래 놀면 정리
+    private final long validateAfterIdleMs; // 이보다 오래 놀았으면 대여 시 검증
+    private final int validationTimeoutSec; // isValid 제한 시간
+    private final long borrowTimeoutMs; // 커넥션 대기 최대 시간
+    private final int stmtCacheSize; // 커넥션당 문장 캐시 크기(0이면 끔)
+
+    private final Semaphore permits; // 대여 가능 수(대여 중인 커넥션 수 제한)
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>(); // 유휴 커넥션(최근 반납한 것부터 재사용)
+    private final AtomicInteger total = new AtomicInteger(); // 열려 있는 물리 커넥션 수
+    private final ScheduledExecutorService evictor; // 유휴 정리 스레드
+    private volatile boolean closed; // 풀 종료 여부
+    private PrintWriter logWriter; // DataSource 규약용(사용하지 않음)
+
+    private final LongAdder borrows = new LongAdder(); // 대여 횟수
+    private final LongAdder created = new LongAdder(); // 새로 만든 물리 커넥션 수
+    private final LongAdder timeouts = new LongAdder(); // 대기 시간 초과 횟수
+    private final LongAdder validationFailures = new LongAdder(); // 검증 실패로 버린 커넥션 수
+    private final LongAdder evicted = new LongAdder(); // 유휴 정리로 닫은 커넥션 수
+    private final LongAdder stmtHits = new LongAdder(); // 문장 캐시 적중
+    private final LongAdder stmtMisses = new LongAdder(); // 문장 캐시 실패
+
+    ConnectionPool(String url, String user, String password, int maxSize, int minIdle, long idleTimeoutMs, // 접속 정보와 크기/정리 설정
+                   long validateAfterIdleMs, int validationTimeoutSec, long borrowTimeoutMs, int stmtCacheSize) { // 검증/대기/캐시 설정
+        this.url = url; // 보관
+        this.user = user; // 보관
+        this.password = password; // 보관
+        this.maxSize = maxSize; // 보관
+        this.minIdle = minIdle; // 보관
+        this.idleTimeoutMs = idleTimeoutMs; // 보관
+        this.validateAfterIdleMs = validateAfterIdleMs; // 보관
+        this.validationTimeoutSec = validationTimeoutSec; // 보관
+        this.borrowTimeoutMs = borrowTimeoutMs; // 보관
+        this.stmtCacheSize = stmtCacheSize; // 보관
+        this.permits = new Semaphore(maxSize, true); // 공정 모드(오래 기다린 대여자 먼저)
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> { // 정리 스레드 생성
+            Thread t = new Thread(r, "db-pool-evictor"); // 이름 지정
+            t.setDaemon(true); // JVM 종료를 막지 않음
+            return t; // 반환
+        }); // newSingleThreadScheduledExecutor 끝
+        long period = Math.max(1000, idleTimeoutMs / 2); // 정리 주기
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS); // 주기 정리 등록
+    } // 생성자 끝
+
+    /* ---------------- 대여/반납 ---------------- */ // 핵심 경로
+
+    @Override
+    public Connection getConnection() throws SQLException { // 커넥션 대여
+        if (closed) throw new SQLException("커넥션 풀이 닫혔습니다."); // 종료 후 호출
+        try { // 대기 중 인터럽트 대비
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) { // 제한 시간 안에 자리가 나지 않으면
+                timeouts.increment(); // 지표 증가
+                throw new SQLTransientConnectionException("커넥션 대기 시간 초과(" + borrowTimeoutMs + "ms)"); // 일시적 오류로 알림
+            } // if 끝
+        } catch (InterruptedException e) { // 인터럽트
+            Thread.currentThread().interrupt(); // 상태 복구
+            throw new SQLException("커넥션 대기 중 인터럽트", e); // 예외 변환
+        } // try-catch 끝
+        try { // 실패 시 자리 반환
+            PooledConnection pc; // 후보 커넥션
+            while ((pc = idle.pollFirst()) != null) { // 유휴 커넥션이 있으면(최근 것부터)
+                if (isAlive(pc)) return pc.lease(); // 살아 있으면 대여
+                destroy(pc); // 죽었으면 폐기 후 다음 후보
+            } // while 끝
+            pc = new PooledConnection(DriverManager.getConnection(url, user, password)); // 없으면 새로 연결
+            total.incrementAndGet(); // 물리 커넥션 수 증가
+            created.increment(); // 지표 증가
+            return pc.lease(); // 대여
+        } catch (SQLException | RuntimeException e) { // 연결 실패 등
+            permits.release(); // 자리 반환
+            throw e; // 그대로 전달
+        } finally { // 항상
+            borrows.increment(); // 지표 증가
+        } // try-catch-finally 끝
+    } // getConnection 끝
+
+    private boolean isAlive(PooledConnection pc) { // 대여 전 검증
+        if (pc.broken) return false; // 사용 중 연결 오류가 났던 커넥션
+        if (System.currentTimeMillis() - pc.lastUsed < validateAfterIdleMs) return true; // 방금 쓰던 것은 검증 생략
+        try { // 검증 예외 대비
+            if (pc.raw.isValid(validationTimeoutSec)) return true; // 서버 왕복 검증 통과
+        } catch (SQLException ignore) { // 검증 중 오류
+        } // try-catch 끝
+        validationFailures.increment(); // 지표 증가
+        return false; // 폐기 대상
+    } // isAlive 끝
+
+    private void release(PooledConnection pc) { // 반납(프록시 close에서 호출)
+        try { // 상태 복구 실패 대비
+            if (closed || pc.broken || pc.raw.isClosed()) { destroy(pc); return; } // 쓸 수 없으면 폐기
+            if (!pc.raw.getAutoCommit()) { // 트랜잭션을 열어 둔 채 반납했다면
+                pc.raw.rollback(); // 미완료 작업 취소
+                pc.raw.setAutoCommit(true); // 기본값 복구
+            } // if 끝
+            pc.lastUsed = System.currentTimeMillis(); // 마지막 사용 시각
+            idle.addFirst(pc); // 유휴 스택 맨 위로
+        } catch (SQLException e) { // 복구 실패
+            destroy(pc); // 폐기
+        } finally { // 항상
+            permits.release(); // 대여 자리 반환
+        } // try-catch-finally 끝
+    } // release 끝
+
+    private void destroy(PooledConnection pc) { // 물리 커넥션 닫기
+        pc.closeStatements(); // 캐시된 문장 정리
+        try { pc.raw.close(); } catch (SQLException ignore) {} // 닫기(예외 무시)
+        total.decrementAndGet(); // 물리 커넥션 수 감소
+    } // destroy 끝
+
+    private void evictIdle() { // 오래 놀던 커넥션 정리(정리 스레드)
+        long now = System.currentTimeMillis(); // 현재 시각
+        for (PooledConnection pc : idle) { // 유휴 커넥션 순회
+            if (total.get() <= minIdle) return; // 최소 개수는 남김
+            if (now - pc.lastUsed < idleTimeoutMs) continue; // 아직 정리 대상 아님
+            if (idle.remove(pc)) { // 그 사이 대여되지 않았으면
+                destroy(pc); // 닫기
+                evicted.increment(); // 지표 증가
+            } // if 끝
+        } // for 끝
+    } // evictIdle 끝
+
+    void close() { // 풀 종료
+        closed = true; // 새 대여 거부
+        evictor.shutdownNow(); // 정리 스레드 종료
+        PooledConnection pc; // 유휴 커넥션
+        while ((pc = idle.pollFirst()) != null) destroy(pc); // 모두 닫기(대여 중인 것은 반납 시 닫힘)
+    } // close 끝
+
+    /* ---------------- 풀 커넥션(프록시) ---------------- */ // close 가로채기 + 문장 캐시
+
+    private final class PooledConnection implements InvocationHandler { // 물리 커넥션 하나
+        final Connection raw; // 실제 커넥션
+        final Connection proxy; // 사용자에게 주는 프록시
+        final Map<String, PreparedStatement> stmtCache; // SQL → 준비된 문장(LRU)
+        volatile long lastUsed = System.currentTimeMillis(); // 마지막 반납 시각
+        volatile boolean leased; // 대여 중 여부
+        volatile boolean broken; // 연결 오류 발생 여부
+
+        PooledConnection(Connection raw) { // 래핑
+            this.raw = raw; // 보관
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, this); // 프록시 생성
+            this.stmtCache = new LinkedHashMap<>(16, 0.75f, true) { // 접근 순서 LRU
+                @Override protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) { // 용량 초과 시
+                    if (size() <= stmtCacheSize) return false; // 여유 있으면 유지
+                    try { eldest.getValue().close(); } catch (SQLException ignore) {} // 가장 오래 안 쓴 문장 닫기
+                    return true; // 제거
+                } // removeEldestEntry 끝
+            }; // stmtCache 끝
+        } // 생성자 끝
+
+        Connection lease() { // 대여 표시 후 프록시 반환
+            leased = true; // 대여 중
+            return proxy; // 프록시
+        } // lease 끝
+
+        @Override
+        public Object invoke(Object p, Method m, Object[] args) throws Throwable { // 모든 커넥션 메서드 호출 가로채기
+            switch (m.getName()) { // 메서드 이름별
+                case "close": // 닫기 → 반납
+                    if (leased) { leased = false; release(this); } // 대여 중일 때만 한 번 반납
+                    return null; // void
+                case "isClosed": // 논리적 닫힘 여부
+                    return !leased || raw.isClosed(); // 반납했으면 닫힌 것으로 보임
+                case "equals": // 프록시 동일성
+                    return p == args[0]; // 참조 비교
+                case "hashCode": // 해시
+                    return System.identityHashCode(p); // 참조 해시
+                case "toString": // 표시 문자열
+                    return "Pooled[" + raw + "]"; // 원본 포함
+                default: // 그 외
+                    break; // 아래에서 처리
+            } // switch 끝
+            if (!leased) throw new SQLException("이미 반납된 커넥션입니다."); // 반납 후 사용 방지
+            if ("prepareStatement".equals(m.getName()) && args != null && args.length == 1 && stmtCacheSize > 0) { // SQL만 받는 prepareStatement면
+                return cachedStatement((String) args[0]); // 캐시에서 꺼냄
+            } // if 끝
+            return delegate(raw, m, args); // 나머지는 그대로 위임
+        } // invoke 끝
+
+        private Object delegate(Object target, Method m, Object[] args) throws Throwable { // 실제 객체에 위임 + 연결 오류 감지
+            try { // 예외 풀기
+                return m.invoke(target, args); // 호출
+            } catch (InvocationTargetException e) { // 실제 메서드가 던진 예외
+                Throwable cause = e.getCause(); // 원인
+                if (cause instanceof SQLException se && se.getSQLState() != null && se.getSQLState().startsWith("08")) broken = true; // SQLState 08xxx: 연결 오류 → 반납 시 폐기
+                throw cause; // 원래 예외 전달
+            } // try-catch 끝
+        } // delegate 끝
+
+        private PreparedStatement cachedStatement(String sql) throws SQLException { // 문장 캐시 조회/생성
+            PreparedStatement ps = stmtCache.get(sql); // 캐시 조회(대여 중에는 한 스레드만 사용)
+            if (ps == null || ps.isClosed()) { // 없거나 닫혔으면
+                stmtMisses.increment(); // 지표 증가
+                ps = raw.prepareStatement(sql); // 새로 준비
+                stmtCache.put(sql, ps); // 캐시에 저장
+            } else { // 있으면
+                stmtHits.increment(); // 지표 증가
+            } // if-else 끝
+            final PreparedStatement real = ps; // 람다 캡처용
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, // 문장 프록시
+                    (sp, sm, sargs) -> { // close만 가로챔
+                        if ("close".equals(sm.getName())) { // 닫기 → 캐시에 남겨 두고 상태만 초기화
+                            real.clearParameters(); // 바인딩 초기화
+                            real.clearBatch(); // 배치 초기화
+                            return null; // void
+                        } // if 끝
+                        if ("getConnection".equals(sm.getName())) return proxy; // 원본 커넥션 노출 방지
+                        return delegate(real, sm, sargs); // 나머지는 위임
+                    }); // newProxyInstance 끝
+        } // cachedStatement 끝
+
+        void closeStatements() { // 캐시된 문장 모두 닫기
+            for (PreparedStatement ps : stmtCache.values()) { try { ps.close(); } catch (SQLException ignore) {} } // 닫기(예외 무시)
+            stmtCache.clear(); // 비우기
+        } // closeStatements 끝
+    } // PooledConnection 끝
+
+    /* ---------------- DataSource 규약 ---------------- */ // 사용하지 않는 부분은 최소 구현
+
+    @Override public Connection getConnection(String username, String password) throws SQLException { // 다른 계정으로 대여
+        throw new SQLFeatureNotSupportedException("풀은 설정된 계정만 사용합니다."); // 지원 안 함
+    } // getConnection(user, pw) 끝
+    @Override public PrintWriter getLogWriter() { return logWriter; } // 로그 writer 조회
+    @Override public void setLogWriter(PrintWriter out) { this.logWriter = out; } // 로그 writer 설정
+    @Override public void setLoginTimeout(int seconds) { DriverManager.setLoginTimeout(seconds); } // 로그인 제한 시간
+    @Override public int getLoginTimeout() { return DriverManager.getLoginTimeout(); } // 로그인 제한 시간 조회
+    @Override public Logger getParentLogger() throws SQLFeatureNotSupportedException { throw new SQLFeatureNotSupportedException(); } // java.util.logging 미사용
+    @Override public <T> T unwrap(Class<T> iface) throws SQLException { // 언랩
+        if (iface.isInstance(this)) return iface.cast(this); // 자기 자신
+        throw new SQLException("언랩 불가: " + iface); // 그 외
+    } // unwrap 끝
+    @Override public boolean isWrapperFor(Class<?> iface) { return iface.isInstance(this); } // 언랩 가능 여부
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=ConnectionPool)
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        int getActive(); // 대여 중 커넥션 수
+        int getIdle(); // 유휴 커넥션 수
+        int getTotal(); // 물리 커넥션 수
+        int getMaxSize(); // 최대 크기
+        int getWaiting(); // 대여 대기 중인 스레드 수
+        long getBorrows(); // 누적 대여
+        long getCreated(); // 누적 생성
+        long getTimeouts(); // 누적 대기 초과
+        long getValidationFailures(); // 누적 검증 실패
+        long getEvicted(); // 누적 유휴 정리
+        long getStatementCacheHits(); // 문장 캐시 적중
+        long getStatementCacheMisses(); // 문장 캐시 실패
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 풀 상태를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(풀 필드 직접 접근)
+        @Override public int getActive() { return maxSize - permits.availablePermits(); } // 대여 중
+        @Override public int getIdle() { return idle.size(); } // 유휴
+        @Override public int getTotal() { return total.get(); } // 물리
+        @Override public int getMaxSize() { return maxSize; } // 최대
+        @Override public int getWaiting() { return permits.getQueueLength(); } // 대기
+        @Override public long getBorrows() { return borrows.sum(); } // 대여
+        @Override public long getCreated() { return created.sum(); } // 생성
+        @Override public long getTimeouts() { return timeouts.sum(); } // 초과
+        @Override public long getValidationFailures() { return validationFailures.sum(); } // 검증 실패
+        @Override public long getEvicted() { return evicted.sum(); } // 정리
+        @Override public long getStatementCacheHits() { return stmtHits.sum(); } // 적중
+        @Override public long getStatementCacheMisses() { return stmtMisses.sum(); } // 실패
+    } // Stats 끝
+
+    Stats stats() { return new Stats(); } // 지표 객체
+
+    void registerMBean() { // 플랫폼 MBean 서버에 등록
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats(), new ObjectName("com.mycompany.chat:type=ConnectionPool")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("커넥션 풀 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // ConnectionPool 클래스 끝
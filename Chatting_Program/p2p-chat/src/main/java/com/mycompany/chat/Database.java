@@ -0,0 +1,43 @@
+package com.mycompany.chat; // Database 클래스가 속한 패키지 선언
+
+import javax.sql.DataSource; // 표준 커넥션 공급 인터페이스
+
+/** 공용 DB 접근점: 설정 파일의 접속 정보로 만든 커넥션 풀 하나를 채팅 로그 저장소와 인증기(Authenticator)가 함께 사용 */ // DriverManager 직접 호출 대체
+final class Database { // 정적 접근만 제공
+
+    private Database() {} // 인스턴스 생성 방지
+
+    private static final class Holder { // 처음 사용할 때 풀을 만드는 지연 초기화 홀더
+        static final ConnectionPool POOL = create(); // 공유 풀
+    } // Holder 끝
+
+    static DataSource dataSource() { // 공유 풀 반환
+        return Holder.POOL; // 첫 호출 시 생성
+    } // dataSource 끝
+
+    static ConnectionPool.Stats stats() { // 풀 지표
+        return Holder.POOL.stats(); // 지표 객체
+    } // stats 끝
+
+    private static String password() { // DB 비밀번호(jar의 기본 설정에는 없음)
+        String pw = ServerConfig.get("chat.db.password", ""); // -D → 환경 변수 → 외부 설정 파일
+        if (pw.isEmpty()) System.err.println("chat.db.password 미설정: CHAT_DB_PASSWORD 환경 변수나 외부 chat-server.properties로 지정하세요."); // 안내(빈 비밀번호로 시도)
+        return pw; // 결과
+    } // password 끝
+
+    private static ConnectionPool create() { // 설정값으로 풀 생성
+        ConnectionPool pool = new ConnectionPool( // 풀 생성
+                ServerConfig.get("chat.db.url", "jdbc:mysql://localhost:3306/chat_app?serverTimezone=UTC"), // JDBC URL
+                ServerConfig.get("chat.db.user", "root"), // DB 사용자
+                password(), // DB 비밀번호(외부 설정 파일이나 CHAT_DB_PASSWORD 환경 변수로)
+                ServerConfig.getInt("chat.db.pool.maxSize", 10), // 최대 커넥션 수
+                ServerConfig.getInt("chat.db.pool.minIdle", 2), // 최소 유휴 커넥션 수
+                ServerConfig.getLong("chat.db.pool.idleTimeoutMs", 300_000), // 유휴 정리 기준(5분)
+                ServerConfig.getLong("chat.db.pool.validateAfterIdleMs", 500), // 이보다 오래 놀았으면 대여 시 검증
+                ServerConfig.getInt("chat.db.pool.validationTimeoutSec", 2), // 검증 제한 시간
+                ServerConfig.getLong("chat.db.pool.borrowTimeoutMs", 5_000), // 대여 대기 제한 시간
+                ServerConfig.getInt("chat.db.pool.statementCacheSize", 32)); // 커넥션당 문장 캐시 크기
+        pool.registerMBean(); // JMX 지표 등록(종료 시 별도로 닫지 않음: 로그 저장기가 마지막 flush에 사용)
+        return pool; // 완성된 풀
+    } // create 끝
+} // Database 클래스 끝
@@ -0,0 +1,138 @@
+package com.mycompany.chat; // HistoryReader 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 조회 실패
+import java.lang.management.ManagementFactory; // 플랫폼 MBean 서버
+import java.util.concurrent.Semaphore; // 동시 조회 수 제한
+import java.util.concurrent.TimeUnit; // 대기 시간 단위
+import java.util.concurrent.atomic.LongAdder; // 지표 카운터
+import javax.management.ObjectName; // MBean 이름
+
+/**
+ * 채팅 기록 페이지 조회기(history:<방>:<beforeId>:<limit>).
+ * - 저장소(MessageStore.page)를 키셋 방식으로 읽는다: beforeId보다 오래된 행을 최신 것부터 limit개.
+ *   OFFSET을 쓰지 않으므로 방에 행이 수천만 개여도 한 페이지 비용은 페이지 크기에 비례한다(MySQL: (room, log_id) 색인, 로그 파일: 희소 색인).
+ * - 행은 저장소가 읽는 대로 연결에 보내고, 마지막에 다음 페이지 커서를 담은 historyend를 보낸다.
+ *   커서 값: 양수 = 다음 요청의 beforeId, 0 = 더 오래된 기록 없음, RETRY(-1) = 바쁘거나 실패해서 이번 페이지를 못 읽음(같은 요청을 나중에 다시).
+ * - 조회는 요청마다 가상 스레드에서 하고(이벤트 루프/수신 스레드를 막지 않음), 동시에 도는 조회 수는 세마포어로 제한한다(MySQL이면 풀 크기 안쪽으로).
+ *   연결마다 조회 중인 페이지는 하나뿐이다: 앞 페이지의 historyend 전에 온 요청은 바로 RETRY로 돌려보낸다(요청 빈도는 RateLimiter의 history 예산).
+ */ // 최근 구간은 MessageHistory(메모리 링)가, 그보다 오래된 구간은 이 조회기가 맡음
+final class HistoryReader { // ChatServer가 하나 소유
+
+    static final long RETRY = -1; // historyend 커서: 다시 요청할 것
+
+    private final MessageStore store; // 저장소(저장하지 않으면 null → 항상 빈 페이지)
+    private final Semaphore permits; // 동시 조회 수
+    private final int maxPage; // 한 번에 돌려줄 최대 행 수
+    private final long waitMs; // 조회 차례를 기다릴 최대 시간
+
+    private final LongAdder queries = new LongAdder(); // 조회 수
+    private final LongAdder rows = new LongAdder(); // 보낸 행 수
+    private final LongAdder rejected = new LongAdder(); // 차례를 못 얻어 거절한 수
+    private final LongAdder failed = new LongAdder(); // 실패한 조회 수
+
+    HistoryReader(MessageStore store, int maxConcurrent, int maxPage, long waitMs) { // 저장소, 동시 조회 수, 페이지 최대 크기, 대기 시간
+        this.store = store; // 보관
+        this.permits = new Semaphore(Math.max(1, maxConcurrent), true); // 요청 순서대로
+        this.maxPage = Math.max(1, maxPage); // 최소 1
+        this.waitMs = waitMs; // 보관
+    } // 생성자 끝
+
+    /** "방:beforeId:limit" 인자를 해석해 조회를 시작(바로 반환) */ // 형식이 틀리면 빈 페이지로 응답
+    void request(String arg, ClientHandler handler) { // 요청 처리
+        int c2 = arg.lastIndexOf(':'); // limit 앞 구분자(방 이름에 ':'가 있어도 뒤에서부터 나눔)
+        int c1 = c2 > 0 ? arg.lastIndexOf(':', c2 - 1) : -1; // beforeId 앞 구분자
+        if (c1 <= 0) { handler.sendMessage(ServerMessage.historyEnd(arg, 0)); return; } // 형식 오류
+        String room = arg.substring(0, c1); // 방
+        long before; // 이 id보다 오래된 행(0이나 빈 값이면 가장 최신부터)
+        int limit; // 요청 행 수
+        try { // 숫자 해석
+            String b = arg.substring(c1 + 1, c2).trim(); // beforeId
+            before = b.isEmpty() ? 0 : Long.parseLong(b); // 해석
+            limit = Integer.parseInt(arg.substring(c2 + 1).trim()); // 해석
+        } catch (NumberFormatException e) { // 숫자가 아님
+            handler.sendMessage(ServerMessage.historyEnd(room, 0)); // 빈 페이지
+            return; // 종료
+        } // try-catch 끝
+        if (store == null) { handler.sendMessage(ServerMessage.historyEnd(room, 0)); return; } // DB 없음: 기록 없음
+        long cursor = before <= 0 ? Long.MAX_VALUE : before; // 키셋 시작점
+        int n = Math.min(Math.max(1, limit), maxPage); // 크기 제한
+        if (!handler.historyPending.compareAndSet(false, true)) { // 이 연결의 앞 페이지가 아직 조회 중이면
+            rejected.increment(); // 지표
+            handler.sendMessage(ServerMessage.historyEnd(room, RETRY)); // 가상 스레드를 더 만들지 않고 나중에 다시 하게 함
+            return; // 종료
+        } // if 끝
+        Thread.ofVirtual().name("history-page").start(() -> page(room, cursor, n, handler)); // 따로 조회
+    } // request 끝
+
+    /** 받지 않은 요청에 돌려줄 페이지 끝(커서 RETRY) */ // 송신 제한으로 버린 요청에 ClientHandler가 사용
+    static ServerMessage retry(String arg) { // 재시도 응답
+        int c2 = arg.lastIndexOf(':'); // limit 앞 구분자
+        int c1 = c2 > 0 ? arg.lastIndexOf(':', c2 - 1) : -1; // beforeId 앞 구분자
+        return ServerMessage.historyEnd(c1 > 0 ? arg.substring(0, c1) : arg, RETRY); // 방(형식 오류면 인자 그대로)
+    } // retry 끝
+
+    private void page(String room, long before, int limit, ClientHandler handler) { // 한 페이지 조회 + 전송(가상 스레드)
+        boolean acquired = false; // 차례 획득 여부
+        try { // 대기 중 인터럽트 대비
+            acquired = permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS); // 동시 조회 수 제한
+        } catch (InterruptedException e) { // 인터럽트
+            Thread.currentThread().interrupt(); // 상태 복구
+        } // try-catch 끝
+        if (!acquired) { // 너무 많이 밀려 있으면
+            rejected.increment(); // 지표
+            handler.historyPending.set(false); // 이 연결의 다음 요청 허용
+            handler.sendMessage(ServerMessage.historyEnd(room, RETRY)); // 나중에 같은 요청을 다시 하게 함
+            return; // 종료
+        } // if 끝
+        long[] oldest = {0}; // 보낸 행 중 가장 작은 id
+        int sent = 0; // 보낸 행 수
+        boolean ok = false; // 끝까지 읽었는지
+        try { // 조회 실패 대비
+            queries.increment(); // 지표
+            sent = store.page(room, before, limit, m -> { // 최신 것부터
+                oldest[0] = m.version; // 커서 갱신
+                handler.sendMessage(m); // 받는 대로 전송(송신 대기열이 묶어서 씀)
+            }); // page 끝
+            ok = true; // 완료
+        } catch (IOException | RuntimeException e) { // 조회 실패
+            failed.increment(); // 지표
+            System.err.println("채팅 기록 페이지 조회 실패(" + room + "): " + e.getMessage()); // 경고
+        } finally { // 항상
+            permits.release(); // 차례 반납
+            rows.add(sent); // 지표
+        } // try-catch-finally 끝
+        long next = !ok ? RETRY : sent == limit ? oldest[0] : 0; // 실패면 재시도, 꽉 찼으면 다음 커서, 아니면 끝
+        handler.historyPending.set(false); // historyend를 받은 클라이언트가 바로 다음 페이지를 요청할 수 있게 먼저 내림
+        handler.sendMessage(ServerMessage.historyEnd(room, next)); // 페이지 끝(중간에 실패했으면 받은 행은 버리고 다시 요청)
+    } // page 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=HistoryReader)
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        long getQueries(); // 조회 수
+        long getRows(); // 보낸 행 수
+        long getRejected(); // 거절 수
+        long getFailed(); // 실패 수
+        int getAvailablePermits(); // 남은 동시 조회 자리
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 카운터를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(필드 직접 접근)
+        @Override public long getQueries() { return queries.sum(); } // 조회
+        @Override public long getRows() { return rows.sum(); } // 행
+        @Override public long getRejected() { return rejected.sum(); } // 거절
+        @Override public long getFailed() { return failed.sum(); } // 실패
+        @Override public int getAvailablePermits() { return permits.availablePermits(); } // 남은 자리
+    } // Stats 끝
+
+    Stats stats() { return new Stats(); } // 지표 객체
+
+    void registerMBean() { // 플랫폼 MBean 서버에 등록
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats(), new ObjectName("com.mycompany.chat:type=HistoryReader")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("채팅 기록 조회 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // HistoryReader 클래스 끝
@@ -0,0 +1,86 @@
+package com.mycompany.chat; // IdleMonitor 클래스가 속한 패키지 선언
+
+import java.lang.management.ManagementFactory; // JMX 플랫폼 MBean 서버
+import java.util.concurrent.TimeUnit; // 시간 단위
+import java.util.concurrent.atomic.LongAdder; // 핑/종료 카운터
+import javax.management.ObjectName; // MBean 이름
+
+/**
+ * 유휴 연결 감시 + 하트비트.
+ * - 연결마다 예약 하나만 타이머 바퀴(TimerWheel)에 두고, 만료되면 마지막 수신 시각을 보고 판단한 뒤 다시 예약한다.
+ *   명령을 받을 때는 시각만 적고 예약을 건드리지 않으므로 수신 경로 비용은 volatile 쓰기 하나다.
+ * - "caps:heartbeat"를 보낸 클라이언트: intervalMs 동안 받은 것이 없으면 ping을 보내고, timeoutMs 동안 아무것도(pong 포함) 못 받으면 끊는다.
+ *   반쯤 열린 TCP 연결(상대가 사라졌지만 FIN이 오지 않음)도 이렇게 정리되어 스레드/메모리/방 멤버십을 붙잡고 있지 않는다.
+ * - ping을 모르는 기존 클라이언트는 legacyTimeoutMs(0이면 끔), 인증 전 연결은 authTimeoutMs로만 판단한다.
+ */ // ChatServer가 하나 소유, ClientHandler가 연결마다 watch 호출
+final class IdleMonitor { // 서버 전체에서 하나
+
+    private final TimerWheel wheel; // 연결마다 예약 하나
+    private final long intervalMs; // 검사/핑 간격(0 이하면 감시 끔)
+    private final long intervalNs; // 같은 값(ns)
+    private final long timeoutNs; // 하트비트 클라이언트 유휴 한도
+    private final long legacyTimeoutNs; // 기존 클라이언트 유휴 한도(0이면 끊지 않음)
+    private final long authTimeoutNs; // 인증 전 연결 유휴 한도
+    private final ServerMessage ping; // 모든 연결이 공유하는 ping(인코딩 한 번)
+
+    private final LongAdder pings = new LongAdder(); // 보낸 ping 수
+    private final LongAdder idleClosed = new LongAdder(); // 유휴로 끊은 연결 수
+
+    IdleMonitor() { // 설정값(chat.heartbeat.*, chat.idle.*)으로 구성
+        this.intervalMs = ServerConfig.getLong("chat.heartbeat.intervalMs", 15_000); // 검사/핑 간격
+        this.intervalNs = TimeUnit.MILLISECONDS.toNanos(intervalMs); // ns
+        this.timeoutNs = TimeUnit.MILLISECONDS.toNanos(ServerConfig.getLong("chat.idle.timeoutMs", 45_000)); // 핑 세 번 놓치면
+        this.legacyTimeoutNs = TimeUnit.MILLISECONDS.toNanos(ServerConfig.getLong("chat.idle.legacyTimeoutMs", 0)); // 기본은 끊지 않음
+        this.authTimeoutNs = TimeUnit.MILLISECONDS.toNanos(ServerConfig.getLong("chat.idle.authTimeoutMs", 60_000)); // 인증 전
+        this.wheel = new TimerWheel("idle-timer", ServerConfig.getLong("chat.heartbeat.tickMs", 100), 512); // 바퀴 하나
+        this.ping = ServerMessage.ping(intervalMs); // 간격을 실어 보냄(클라이언트가 읽기 시간 제한을 맞춤)
+    } // 생성자 끝
+
+    void start() { if (intervalMs > 0) wheel.start(); } // 바퀴 시작
+    void stop() { wheel.stop(); } // 드레인 끝에서 정지
+
+    /** 연결 감시 시작(연결이 만들어질 때 한 번) */ // 예약은 스스로 다시 예약하며 이어짐
+    void watch(ClientHandler h) { // 감시 시작
+        if (intervalMs > 0) h.idleTimer(wheel.schedule(() -> check(h), intervalMs)); // 첫 검사 예약
+    } // watch 끝
+
+    private void check(ClientHandler h) { // 만료 시 검사(바퀴 스레드, 짧게)
+        if (h.isDisconnected()) return; // 이미 끊김(예약 끝)
+        long idle = System.nanoTime() - h.lastRead(); // 마지막 수신 뒤 지난 시간
+        long limit = !h.isLoggedIn() ? authTimeoutNs : h.heartbeat() ? timeoutNs : legacyTimeoutNs; // 연결 종류별 한도
+        if (limit > 0 && idle >= limit) { // 한도 초과
+            idleClosed.increment(); // 카운트
+            System.err.println("유휴 연결 종료(" + TimeUnit.NANOSECONDS.toSeconds(idle) + "초 동안 수신 없음): " + h.describe()); // 로그
+            h.closeIdle(); // 소켓만 닫음(퇴장 처리는 수신 스레드/이벤트 루프가)
+            return; // 예약 끝
+        } // if 끝
+        if (h.heartbeat() && h.isLoggedIn() && idle >= intervalNs / 2) { h.sendMessage(ping); pings.increment(); } // 조용하면 ping(응답이 pong으로 옴)
+        h.idleTimer(wheel.schedule(() -> check(h), intervalMs)); // 다음 검사
+    } // check 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=IdleMonitor) + Metrics
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        long getIntervalMs(); // 검사/핑 간격
+        long getPings(); // 보낸 ping 수
+        long getIdleClosed(); // 유휴로 끊은 연결 수
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 카운터를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(필드 직접 접근)
+        @Override public long getIntervalMs() { return intervalMs; } // 간격
+        @Override public long getPings() { return pings.sum(); } // 핑
+        @Override public long getIdleClosed() { return idleClosed.sum(); } // 종료
+    } // Stats 끝
+
+    void registerMBean() { // 플랫폼 MBean 서버에 등록(GET /metrics에도 같은 값)
+        Metrics.counter("chat_heartbeat_pings_total", pings::sum); // 보낸 ping 수
+        Metrics.counter("chat_idle_closed_total", idleClosed::sum); // 유휴로 끊은 연결 수
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Stats(), new ObjectName("com.mycompany.chat:type=IdleMonitor")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("유휴 감시 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // IdleMonitor 클래스 끝
@@ -0,0 +1,62 @@
+package com.mycompany.chat; // LatencyHistogram 클래스가 속한 패키지 선언
+
+import java.util.concurrent.atomic.AtomicLongArray; // 칸별 개수(여러 스레드가 동시에 기록)
+import java.util.concurrent.atomic.LongAccumulator; // 최댓값
+import java.util.concurrent.atomic.LongAdder; // 개수/합계
+
+/**
+ * 지연 시간 히스토그램(HdrHistogram과 같은 로그-선형 칸).
+ * - 0~127은 1 단위 칸, 그 위로는 2의 거듭제곱 구간마다 64칸: 어느 값이든 상대 오차 1/64(약 1.6%) 안에서 센다.
+ * - 칸 수가 고정(약 2.7천 개)이라 표본이 몇억 개여도 메모리가 늘지 않고, 기록은 배열 한 칸 증가뿐이라 여러 스레드가 락 없이 쓴다.
+ * - 백분위는 그 칸의 가장 큰 값으로 돌려준다(실제보다 작게 보고하지 않음).
+ */ // 단위는 호출자가 정함(LoadGenerator: 마이크로초)
+final class LatencyHistogram { // 여러 스레드가 공유
+
+    private static final int LINEAR = 128; // 1 단위로 세는 구간 [0, 128)
+    private static final int SUB = 64; // 거듭제곱 구간마다 칸 수
+    private static final int MAX_SHIFT = 40; // 2^46 근처까지(마이크로초면 2년 이상)
+
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR + MAX_SHIFT * SUB); // 칸별 개수
+    private final LongAdder total = new LongAdder(); // 표본 수
+    private final LongAdder sum = new LongAdder(); // 합계(평균용)
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0); // 최댓값(정확한 값)
+
+    void record(long value) { // 표본 하나 기록(음수는 0으로)
+        long v = Math.max(0, value); // 시계 오차 방어
+        counts.incrementAndGet(index(v)); // 칸 증가
+        total.increment(); // 개수
+        sum.add(v); // 합계
+        max.accumulate(v); // 최댓값
+    } // record 끝
+
+    long count() { return total.sum(); } // 표본 수
+    long max() { return max.get(); } // 최댓값
+    double mean() { long n = total.sum(); return n == 0 ? 0 : sum.sum() / (double) n; } // 평균
+
+    /** p(0~100) 백분위 값(그 칸의 상한) */ // nearest-rank 방식
+    long percentile(double p) { // 백분위
+        long n = total.sum(); // 표본 수(기록 중이면 대략적인 값)
+        if (n == 0) return 0; // 표본 없음
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n)); // 몇 번째 표본
+        long seen = 0; // 누적 개수
+        for (int i = 0; i < counts.length(); i++) { // 작은 칸부터
+            seen += counts.get(i); // 누적
+            if (seen >= rank) return Math.min(upper(i), max.get()); // 칸 상한(최댓값을 넘지 않게)
+        } // for 끝
+        return max.get(); // 기록 중 경쟁으로 못 찾으면 최댓값
+    } // percentile 끝
+
+    private static int index(long v) { // 값 → 칸 번호
+        if (v < LINEAR) return (int) v; // 1 단위 구간
+        int shift = Math.min(MAX_SHIFT, 63 - Long.numberOfLeadingZeros(v) - 6); // v >> shift가 [64, 128)이 되게
+        if (shift == MAX_SHIFT) return LINEAR + MAX_SHIFT * SUB - 1; // 범위 밖은 마지막 칸
+        return LINEAR + (shift - 1) * SUB + (int) ((v >> shift) - SUB); // 구간 시작 + 구간 안 위치
+    } // index 끝
+
+    private static long upper(int i) { // 칸 번호 → 그 칸의 가장 큰 값
+        if (i < LINEAR) return i; // 1 단위 구간
+        int shift = (i - LINEAR) / SUB + 1; // 구간
+        long sub = (i - LINEAR) % SUB + SUB; // 구간 안 위치
+        return ((sub + 1) << shift) - 1; // 다음 칸 시작 - 1
+    } // upper 끝
+} // LatencyHistogram 클래스 끝
@@ -0,0 +1,297 @@
+package com.mycompany.chat; // LoadGenerator 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 소켓/파일 입출력 예외
+import java.net.Socket; // 서버 포트 확인
+import java.nio.charset.StandardCharsets; // UTF-8
+import java.nio.file.Files; // 보고서 쓰기
+import java.nio.file.Path; // 파일 경로
+import java.util.ArrayList; // 가변 리스트
+import java.util.Arrays; // 누적 분포 검색
+import java.util.List; // 리스트 인터페이스
+import java.util.Locale; // 보고서 숫자 형식(소수점 '.')
+import java.util.SplittableRandom; // 방 배정용 난수(시드 고정 가능)
+import java.util.concurrent.ConcurrentLinkedQueue; // 연결된 클라이언트(정리용)
+import java.util.concurrent.CountDownLatch; // 모든 사용자 준비 대기
+import java.util.concurrent.ThreadLocalRandom; // 송신 시점 흩뜨리기
+import java.util.concurrent.TimeUnit; // 대기 시간 단위
+import java.util.concurrent.atomic.LongAdder; // 카운터
+import java.util.concurrent.locks.LockSupport; // 예정 시각까지 대기
+
+/**
+ * 화면 없는 부하 생성기/장시간 시험 도구.
+ * - 사용자 N명을 가상 스레드로 띄워 기존 프로토콜(ChatClient, 협상된 텍스트/바이너리 형식)로 접속시키고,
+ *   방 R개 중 roomsPerUser개에 분포(uniform / zipf)대로 가입시킨 뒤, 사용자마다 초당 rate건을 가입한 방에 보내고 statusMs마다 상태를 바꾼다.
+ * - 본문에 예정 송신 시각을 실어 보내고 받는 쪽(같은 JVM)에서 종단 간 지연을 히스토그램에 넣는다.
+ *   예정 시각 기준이라 송신이 밀려도 그만큼 지연에 포함된다(coordinated omission 보정).
+ * - --server <모드>를 주면 자식 JVM으로 서버를 메모리 저장소(chat.store=memory)·인증 없이 띄우므로 MySQL 없이 돈다.
+ *   주지 않으면 --host/--port의 서버에 붙는다(그 서버는 chat.auth.required=false여야 함).
+ * - 결과(접속 설정 시간/속도, 송수신 처리량, 지연 백분위)를 표준 출력과 JSON 보고서(--report)로 남긴다.
+ * 실행 예: java -cp target/classes com.mycompany.chat.LoadGenerator --server nio --users 2000 --rooms 50 --distribution zipf --rate 0.5 --durationSec 300
+ */ // 클래스 설명 주석
+public class LoadGenerator { // 명령행 도구 클래스
+
+    private static final String MARK = "lg:"; // 측정 메시지 본문 접두어(뒤에 예정 송신 시각 ns)
+    private static final String[] STATUSES = {"활동 중", "자리 비움"}; // 번갈아 보낼 상태
+
+    private static final LatencyHistogram latency = new LatencyHistogram(); // 종단 간 지연(µs)
+    private static final LatencyHistogram setup = new LatencyHistogram(); // 접속 설정 시간(µs, 연결 ~ 로비 활성화 수신)
+    private static final LongAdder sent = new LongAdder(); // 측정 구간에 보낸 수
+    private static final LongAdder delivered = new LongAdder(); // 측정 구간 메시지를 받은 수(방 인원만큼 여러 번)
+    private static final LongAdder statusChanges = new LongAdder(); // 보낸 상태 변경 수
+    private static final LongAdder failed = new LongAdder(); // 접속 실패 수
+    private static volatile long measureFrom = Long.MAX_VALUE; // 측정 구간 시작(예열 끝, nanoTime)
+    private static volatile long measureTo = Long.MAX_VALUE; // 측정 구간 끝(nanoTime)
+
+    public static void main(String[] args) throws Exception { // 도구 진입점
+        String host = "localhost"; // 접속할 서버 주소
+        int port = ServerConfig.getInt("chat.server.port", 8000); // 접속할 서버 포트
+        String server = null; // 자식 서버 모드(null이면 띄우지 않음)
+        int users = 200; // 사용자 수
+        int rooms = 10; // 방 수
+        int roomsPerUser = 2; // 사용자마다 가입할 방 수
+        String distribution = "uniform"; // 방 고르기 분포
+        double zipf = 1.0; // zipf 지수(클수록 앞쪽 방에 몰림)
+        double rate = 1.0; // 사용자마다 초당 메시지 수
+        long statusMs = 15_000; // 사용자마다 상태 변경 간격(0이면 안 함)
+        double connectRate = 500; // 초당 새 접속 수(0이면 제한 없음)
+        int warmupSec = 5; // 예열 시간(측정에서 뺌)
+        int durationSec = 30; // 측정 시간
+        int progressSec = 10; // 진행 상황 출력 간격(0이면 안 함)
+        boolean binary = true; // 바이너리 프레임 요청 여부
+        long seed = 42; // 방 배정 시드
+        String report = "loadgen-report.json"; // 보고서 경로
+        for (int i = 0; i + 1 < args.length; i += 2) { // "--이름 값" 쌍 해석
+            switch (args[i]) { // 옵션 이름별 분기
+                case "--host" -> host = args[i + 1]; // 서버 주소
+                case "--port" -> port = Integer.parseInt(args[i + 1]); // 서버 포트
+                case "--server" -> server = args[i + 1]; // 자식 서버 모드(thread/virtual/nio)
+                case "--users" -> users = Integer.parseInt(args[i + 1]); // 사용자 수
+                case "--rooms" -> rooms = Integer.parseInt(args[i + 1]); // 방 수
+                case "--roomsPerUser" -> roomsPerUser = Integer.parseInt(args[i + 1]); // 사용자당 방 수
+                case "--distribution" -> distribution = args[i + 1]; // uniform / zipf
+                case "--zipf" -> zipf = Double.parseDouble(args[i + 1]); // zipf 지수
+                case "--rate" -> rate = Double.parseDouble(args[i + 1]); // 사용자당 초당 메시지
+                case "--statusMs" -> statusMs = Long.parseLong(args[i + 1]); // 상태 변경 간격
+                case "--connectRate" -> connectRate = Double.parseDouble(args[i + 1]); // 초당 접속 수
+                case "--warmupSec" -> warmupSec = Integer.parseInt(args[i + 1]); // 예열 시간
+                case "--durationSec" -> durationSec = Integer.parseInt(args[i + 1]); // 측정 시간
+                case "--progressSec" -> progressSec = Integer.parseInt(args[i + 1]); // 진행 출력 간격
+                case "--binary" -> binary = Boolean.parseBoolean(args[i + 1]); // 형식
+                case "--seed" -> seed = Long.parseLong(args[i + 1]); // 시드
+                case "--report" -> report = args[i + 1]; // 보고서 경로
+                default -> System.err.println("알 수 없는 옵션 무시: " + args[i]); // 그 외
+            } // switch 끝
+        } // for 끝
+        System.setProperty("chat.client.binary", String.valueOf(binary)); // ChatClient가 처음 쓰이기 전에 형식 지정
+        rooms = Math.max(1, rooms); // 최소 1
+        roomsPerUser = Math.max(1, Math.min(roomsPerUser, rooms)); // 방 수를 넘지 않게
+
+        Process child = server == null ? null : startServer(server, port); // 필요하면 서버 띄우기
+        ConcurrentLinkedQueue<ChatClient> clients = new ConcurrentLinkedQueue<>(); // 정리용
+        try { // 끝나면 반드시 정리
+            if (child != null) host = "localhost"; // 자식 서버는 이 컴퓨터
+            waitForPort(host, port); // 서버 준비 대기
+
+            // 1) 접속: connectRate로 속도를 맞춰 띄우고, 사용자마다 로비 활성화(roomactive:)를 받으면 준비 완료
+            double[] cdf = cdf(rooms, "zipf".equalsIgnoreCase(distribution) ? zipf : 0); // 방 고르기 누적 분포
+            SplittableRandom rnd = new SplittableRandom(seed); // 방 배정 난수
+            CountDownLatch ready = new CountDownLatch(users); // 준비(또는 실패)한 사용자 수
+            List<Sim> sims = new ArrayList<>(users); // 사용자
+            long connectStart = System.nanoTime(); // 접속 시작
+            for (int i = 0; i < users; i++) { // 사용자마다
+                if (connectRate > 0) parkUntil(connectStart + (long) (i * 1e9 / connectRate)); // 접속 속도 맞춤
+                Sim s = new Sim("lg-" + i, pickRooms(rnd, cdf, roomsPerUser)); // 닉네임 + 가입할 방
+                sims.add(s); // 보관
+                String h = host; int p = port; // 람다용
+                Thread.ofVirtual().name("lg-connect").start(() -> s.connect(h, p, clients, ready)); // 접속은 따로
+            } // for 끝
+            ready.await(60 + (long) (connectRate > 0 ? users / connectRate : 0), TimeUnit.SECONDS); // 모두 준비될 때까지(최대)
+            double connectSec = (System.nanoTime() - connectStart) / 1e9; // 접속에 걸린 시간
+            System.out.printf("접속: %d/%d명, %.1f초 (%.0f명/초), 설정 시간 p50 %.2fms p99 %.2fms, 실패 %d%n", setup.count(), users, connectSec, // 접속 결과
+                    setup.count() / connectSec, setup.percentile(50) / 1000.0, setup.percentile(99) / 1000.0, failed.sum()); // 이어서
+            Thread.sleep(1000); // 가입/입장 알림 전파 대기
+
+            // 2) 송신: 사용자마다 예정 시각에 맞춰 보내고, 예열이 끝난 뒤 보낸 것만 측정
+            long start = System.nanoTime(); // 송신 시작
+            measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSec); // 측정 시작
+            measureTo = measureFrom + TimeUnit.SECONDS.toNanos(durationSec); // 측정 끝
+            long intervalNs = rate > 0 ? (long) (1e9 / rate) : Long.MAX_VALUE; // 사용자당 송신 간격
+            long statusNs = statusMs > 0 ? TimeUnit.MILLISECONDS.toNanos(statusMs) : Long.MAX_VALUE; // 상태 변경 간격
+            for (Sim s : sims) { // 준비된 사용자마다
+                if (s.client != null) Thread.ofVirtual().name("lg-send").start(() -> s.run(start, intervalNs, statusNs)); // 송신 루프
+            } // for 끝
+            long lastDelivered = 0; // 직전 진행 출력 때 수신 수
+            long now; // 현재 시각
+            while ((now = System.nanoTime()) < measureTo) { // 측정 끝까지
+                long step = progressSec > 0 ? TimeUnit.SECONDS.toNanos(progressSec) : measureTo - now; // 다음 출력까지
+                parkUntil(Math.min(measureTo, now + step)); // 대기
+                long d = delivered.sum(); // 지금까지 수신
+                if (progressSec > 0) System.out.printf("  진행: 송신 %d, 수신 %d (+%.0f/초), p99 %.2fms%n", sent.sum(), d, // 진행 상황
+                        (d - lastDelivered) / (double) progressSec, latency.percentile(99) / 1000.0); // 이어서
+                lastDelivered = d; // 기록
+            } // while 끝
+            Thread.sleep(2000); // 전송 중인 메시지 도착 대기
+
+            // 3) 보고
+            String json = report(host, port, server, users, rooms, roomsPerUser, distribution, zipf, rate, statusMs, binary, // 보고서
+                    warmupSec, durationSec, connectSec); // 이어서
+            Files.writeString(Path.of(report), json, StandardCharsets.UTF_8); // 파일로
+            System.out.printf("송신 %d건 (%.0f/초), 수신 %d건 (%.0f/초), 지연 p50 %.2fms p99 %.2fms p99.9 %.2fms 최대 %.2fms%n", // 요약
+                    sent.sum(), sent.sum() / (double) durationSec, delivered.sum(), delivered.sum() / (double) durationSec, // 처리량
+                    latency.percentile(50) / 1000.0, latency.percentile(99) / 1000.0, latency.percentile(99.9) / 1000.0, latency.max() / 1000.0); // 지연
+            System.out.println("보고서: " + Path.of(report).toAbsolutePath()); // 위치
+        } finally { // 정리
+            for (ChatClient c : clients) c.close(); // 연결 닫기
+            if (child != null) { child.destroy(); child.waitFor(10, TimeUnit.SECONDS); } // 자식 서버 종료
+        } // try-finally 끝
+    } // main 끝
+
+    /** 가상 사용자 하나 */ // 접속 스레드가 만들고 송신 스레드가 씀
+    private static final class Sim { // 사용자
+        final String nick; // 닉네임
+        final String[] rooms; // 가입할 방
+        volatile ChatClient client; // 연결(실패하면 null)
+        private long connectedAt; // 접속 시작 시각(설정 시간 측정)
+        private boolean active; // 로비 활성화를 받았는지(수신 스레드만 씀)
+
+        Sim(String nick, String[] rooms) { this.nick = nick; this.rooms = rooms; } // 생성
+
+        void connect(String host, int port, ConcurrentLinkedQueue<ChatClient> clients, CountDownLatch ready) { // 접속 + 가입
+            connectedAt = System.nanoTime(); // 시작 시각
+            try { // 접속 실패 대비
+                ChatClient c = new ChatClient(host, port); // 연결 + 형식 협상
+                clients.add(c); // 정리 대상
+                c.sendNickname(nick); // 인증 없이 닉네임으로
+                c.start(m -> onMessage(m, ready)); // 받은 메시지는 수신 스레드에서 바로 처리
+                for (String r : rooms) c.sendJoinRoom(r); // 방 가입(마지막 방이 활성 방)
+                client = c; // 송신 준비 완료
+            } catch (IOException e) { // 연결 거부 등
+                failed.increment(); // 지표
+                ready.countDown(); // 기다리지 않게
+            } // try-catch 끝
+        } // connect 끝
+
+        private void onMessage(ServerMessage m, CountDownLatch ready) { // 수신 스레드
+            if (m.type == ServerMessage.Type.ROOM_ACTIVE && !active) { // 첫 활성화 = 로그인 완료(로비)
+                active = true; // 한 번만
+                setup.record((System.nanoTime() - connectedAt) / 1000); // 설정 시간
+                ready.countDown(); // 준비
+                return; // 끝
+            } // if 끝
+            if (m.type != ServerMessage.Type.CHAT || m.text == null || !m.text.startsWith(MARK)) return; // 측정 메시지만
+            long now = System.nanoTime(); // 받은 시각
+            long at; // 예정 송신 시각
+            try { at = Long.parseLong(m.text.substring(MARK.length())); } catch (NumberFormatException e) { return; } // 형식 오류는 무시
+            if (at < measureFrom || at >= measureTo) return; // 측정 구간 밖
+            latency.record((now - at) / 1000); // 지연(µs)
+            delivered.increment(); // 지표
+        } // onMessage 끝
+
+        void run(long start, long intervalNs, long statusNs) { // 송신 루프(가상 스레드)
+            ChatClient c = client; // 연결
+            ThreadLocalRandom r = ThreadLocalRandom.current(); // 난수
+            long nextMsg = intervalNs == Long.MAX_VALUE ? Long.MAX_VALUE : start + r.nextLong(intervalNs); // 첫 송신(사용자마다 흩뜨림)
+            long nextStatus = statusNs == Long.MAX_VALUE ? Long.MAX_VALUE : start + r.nextLong(statusNs); // 첫 상태 변경
+            String current = rooms[rooms.length - 1]; // 지금 활성 방(마지막으로 가입한 방)
+            int status = 0; // 지금 상태
+            while (true) { // 측정 끝까지
+                long next = Math.min(nextMsg, nextStatus); // 다음 할 일
+                if (next >= measureTo) return; // 끝
+                parkUntil(next); // 예정 시각까지 대기
+                if (next == nextStatus) { // 상태 변경
+                    status ^= 1; // 바꿈
+                    c.sendStatus(STATUSES[status]); // 전송
+                    statusChanges.increment(); // 지표
+                    nextStatus += statusNs; // 다음
+                    continue; // 다음 할 일
+                } // if 끝
+                String room = rooms[r.nextInt(rooms.length)]; // 가입한 방 중 하나
+                if (!room.equals(current)) { c.sendSwitchRoom(room); current = room; } // 채팅은 활성 방으로 가므로 먼저 전환
+                c.sendMessage(MARK + nextMsg); // 예정 시각을 실어 보냄
+                if (nextMsg >= measureFrom) sent.increment(); // 측정 구간이면 셈
+                nextMsg += intervalNs; // 다음(밀려도 예정 시각은 그대로)
+            } // while 끝
+        } // run 끝
+    } // Sim 끝
+
+    private static double[] cdf(int rooms, double s) { // 방 번호 누적 분포(s = 0이면 균등, 아니면 zipf)
+        double[] w = new double[rooms]; // 누적 가중치
+        double acc = 0; // 누계
+        for (int k = 0; k < rooms; k++) { acc += s == 0 ? 1 : 1 / Math.pow(k + 1, s); w[k] = acc; } // 순위 k+1의 가중치 누적
+        for (int k = 0; k < rooms; k++) w[k] /= acc; // 0~1로
+        return w; // 결과
+    } // cdf 끝
+
+    private static String[] pickRooms(SplittableRandom rnd, double[] cdf, int n) { // 분포대로 서로 다른 방 n개
+        List<String> picked = new ArrayList<>(n); // 결과
+        for (int tries = 0; picked.size() < n && tries < n * 50; tries++) { // 한쪽에 몰린 분포라도 끝나게
+            int k = Arrays.binarySearch(cdf, rnd.nextDouble()); // 누적 분포 검색
+            String room = "lg-room-" + (k < 0 ? -k - 1 : k); // 방 이름
+            if (!picked.contains(room)) picked.add(room); // 중복 제외
+        } // for 끝
+        return picked.toArray(String[]::new); // 결과
+    } // pickRooms 끝
+
+    private static void parkUntil(long deadline) { // nanoTime 기준 시각까지 대기
+        long left; // 남은 시간
+        while ((left = deadline - System.nanoTime()) > 0) LockSupport.parkNanos(left); // 일찍 깨면 다시
+    } // parkUntil 끝
+
+    private static Process startServer(String mode, int port) throws IOException { // 자식 JVM으로 서버 실행(메모리 저장소, 인증 없음)
+        return new ProcessBuilder( // 서버 명령
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(), // 현재와 같은 JDK
+                "-Dchat.server.mode=" + mode, // 모드
+                "-Dchat.server.port=" + port, // 포트
+                "-Dchat.store=memory", // MySQL 없이 저장/조회 경로는 그대로
+                "-Dchat.auth.required=false", // 닉네임 첫 줄로 접속
+                "-Dchat.ratelimit.enabled=false", // 가상 사용자 송신률은 측정 조건이므로 제한하지 않음
+                "-cp", System.getProperty("java.class.path"), // 같은 클래스패스
+                ChatServer.class.getName()) // 서버 메인 클래스
+                .redirectErrorStream(true) // 표준 에러를 합쳐서
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD) // 접속 로그는 버림
+                .start(); // 실행
+    } // startServer 끝
+
+    private static void waitForPort(String host, int port) throws InterruptedException { // 서버 포트가 열릴 때까지 대기
+        for (int i = 0; i < 100; i++) { // 최대 약 10초
+            try { // 접속 시도
+                new Socket(host, port).close(); // 접속되면 준비 완료(빈 연결은 곧바로 닫음)
+                return; // 대기 종료
+            } catch (IOException e) { // 아직 열리지 않았으면
+                Thread.sleep(100); // 잠시 대기
+            } // try-catch 끝
+        } // for 끝
+        throw new IllegalStateException("서버에 접속할 수 없습니다: " + host + ":" + port); // 시간 초과
+    } // waitForPort 끝
+
+    private static String report(String host, int port, String server, int users, int rooms, int roomsPerUser, String distribution, // JSON 보고서
+                                 double zipf, double rate, long statusMs, boolean binary, int warmupSec, int durationSec, double connectSec) { // 이어서
+        StringBuilder b = new StringBuilder(1024); // 결과
+        b.append("{\n"); // 시작
+        b.append("  \"config\": {\"host\": \"").append(host).append("\", \"port\": ").append(port) // 설정
+                .append(", \"server\": ").append(server == null ? "null" : "\"" + server + "\"") // 자식 서버 모드
+                .append(", \"users\": ").append(users).append(", \"rooms\": ").append(rooms).append(", \"roomsPerUser\": ").append(roomsPerUser) // 규모
+                .append(", \"distribution\": \"").append(distribution).append("\", \"zipf\": ").append(num(zipf)) // 분포
+                .append(", \"ratePerUser\": ").append(num(rate)).append(", \"statusMs\": ").append(statusMs) // 송신
+                .append(", \"binary\": ").append(binary).append(", \"warmupSec\": ").append(warmupSec).append(", \"durationSec\": ").append(durationSec).append("},\n"); // 나머지
+        b.append("  \"connect\": {\"ready\": ").append(setup.count()).append(", \"failed\": ").append(failed.sum()) // 접속
+                .append(", \"seconds\": ").append(num(connectSec)).append(", \"perSecond\": ").append(num(setup.count() / connectSec)) // 속도
+                .append(", \"setupUs\": ").append(hist(setup)).append("},\n"); // 설정 시간
+        b.append("  \"messages\": {\"sent\": ").append(sent.sum()).append(", \"delivered\": ").append(delivered.sum()) // 처리량
+                .append(", \"sentPerSecond\": ").append(num(sent.sum() / (double) durationSec)) // 송신 속도
+                .append(", \"deliveredPerSecond\": ").append(num(delivered.sum() / (double) durationSec)) // 수신 속도
+                .append(", \"statusChanges\": ").append(statusChanges.sum()).append("},\n"); // 상태 변경
+        b.append("  \"latencyUs\": ").append(hist(latency)).append("\n"); // 종단 간 지연
+        b.append("}\n"); // 끝
+        return b.toString(); // 결과
+    } // report 끝
+
+    private static String hist(LatencyHistogram h) { // 히스토그램 요약 JSON
+        return String.format(Locale.ROOT, "{\"count\": %d, \"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"p999\": %d, \"max\": %d}", // 형식
+                h.count(), h.mean(), h.percentile(50), h.percentile(90), h.percentile(99), h.percentile(99.9), h.max()); // 값
+    } // hist 끝
+
+    private static String num(double v) { // JSON 숫자(NaN/무한대는 null)
+        return Double.isFinite(v) ? String.format(Locale.ROOT, "%.2f", v) : "null"; // 소수 둘째 자리
+    } // num 끝
+} // LoadGenerator 클래스 끝
@@ -1,5 +1,6 @@
 package com.mycompany.chat; // 이 클래스가 속한 패키지 선언. 동일 패키지의 클래스들이 함께 묶여 관리됨.
 
+import javafx.application.Platform; // 백그라운드 인증 결과를 UI 스레드로 넘길 때 사용(Platform.runLater).
 import javafx.fxml.FXML; // FXML에서 컨트롤러 필드/메서드를 주입하기 위한 애너테이션을 사용하기 위해 임포트.
 import javafx.fxml.FXMLLoader; // FXML 파일을 로드(파싱)하여 UI 트리를 생성하는 로더 클래스 임포트.
 import javafx.scene.Parent; // Scene의 루트 컨테이너 타입(모든 노드의 공통 조상) 임포트.
@@ -7,13 +8,9 @@ import javafx.scene.Scene; // JavaFX의 장면(화면)을 나타내는 클래스
 import javafx.scene.control.Label; // 라벨 UI 컨트롤 임포트.
 import javafx.scene.control.PasswordField; // 비밀번호 입력용 텍스트 필드(UI 컨트롤) 임포트.
 import javafx.scene.control.TextField; // 일반 텍스트 입력 필드(UI 컨트롤) 임포트.
-import javafx.scene.control.Alert; // 경고/정보용 팝업 다이얼로그(Alert) 임포트.
-import javafx.scene.control.ButtonType; // Alert에 들어가는 버튼 타입(OK 등) 임포트.
 import javafx.stage.Stage; // 최상위 윈도우(스테이지) 클래스를 임포트.
-import org.mindrot.jbcrypt.BCrypt; // 비밀번호 해시/검증을 위한 BCrypt 라이브러리 임포트.
 
-import java.io.IOException; // 입출력 예외 처리용 예외 클래스 임포트(FXML 로드 등에서 사용).
-import java.sql.*; // JDBC 연결/쿼리 수행을 위한 표준 SQL 인터페이스 임포트(DriverManager, Connection, PreparedStatement 등).
+import java.io.IOException; // 입출력 예외 처리용 예외 클래스 임포트(FXML 로드, 서버 연결 등에서 사용).
 
 public class LoginController { // 로그인/회원가입 화면을 제어하는 JavaFX 컨트롤러 클래스 선언.
 
@@ -22,9 +19,10 @@ public class LoginController { // 로그인/회원가입 화면을 제어하는
     @FXML private PasswordField passwordField; // 비밀번호 입력 필드(로그인/회원가입 공용).
     @FXML private Label statusLabel; // 상태 메시지를 사용자에게 보여줄 라벨(FXML에서 주입).
 
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/chat_app?serverTimezone=UTC"; // MySQL 접속 URL(스키마 chat_app, 타임존 지정).
-    private static final String DB_USER = "root"; // DB 접속 아이디.
-    private static final String DB_PASSWORD = "ljy"; // DB 접속 비밀번호.
+    private static final String SERVER_HOST = ServerConfig.get("chat.client.host", "localhost"); // 접속할 채팅 서버 주소.
+    private static final int SERVER_PORT = ServerConfig.getInt("chat.server.port", 8000); // 접속할 채팅 서버 포트.
+
+    private boolean authInFlight; // 인증 요청이 진행 중인지(UI 스레드에서만 접근, 버튼 연타 방지).
 
     /* ===================== 화면 전환 ===================== */ // 로그인/회원가입 화면 간 전환 관련 메서드 구역 주석.
 
@@ -70,29 +68,7 @@ public class LoginController { // 로그인/회원가입 화면을 제어하는
             return; // 더 진행하지 않고 종료.
         }
 
-        String sql = "SELECT password_hash, nickname FROM users WHERE id = ?"; // 해당 id 사용자의 해시/닉네임을 조회하는 SQL(프리페어드 스테이트먼트).
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD); // try-with-resources: 연결을 열고 블록 종료 시 자동 닫힘.
-             PreparedStatement pstmt = conn.prepareStatement(sql)) { // SQL을 미리 컴파일한 PreparedStatement 생성.
-
-            pstmt.setString(1, id); // 첫 번째 바인딩 파라미터(?)에 아이디 값 세팅(인젝션 방지).
-            try (ResultSet rs = pstmt.executeQuery()) { // 쿼리 실행 후 결과 집합을 받음(try-with-resources로 자동 close).
-                if (rs.next()) { // 결과가 존재하면(해당 id 사용자가 있으면)
-                    String hashedPassword = rs.getString("password_hash"); // 저장된 해시 문자열을 가져옴.
-                    String nickname = rs.getString("nickname"); // 저장된 닉네임을 가져옴.
-                    if (BCrypt.checkpw(password, hashedPassword)) { // 입력 비밀번호와 저장된 해시를 BCrypt로 검증.
-                        statusLabel.setText("로그인 성공! 자동 로그인 중..."); // 성공 메시지 표시.
-                        loadChatRoom(id, nickname);  // 멀티탭 메인(채팅 메인 화면)으로 전환 및 클라이언트 연결 시도.
-                    } else { // 비밀번호가 틀린 경우
-                        statusLabel.setText("비밀번호가 일치하지 않습니다."); // 오류 안내.
-                    }
-                } else { // 결과가 없으면(해당 id 사용자 없음)
-                    statusLabel.setText("존재하지 않는 사용자입니다."); // 존재하지 않음을 안내.
-                }
-            }
-        } catch (SQLException e) { // JDBC 처리 중 발생한 예외 처리.
-            e.printStackTrace(); // 디버그 로그 출력.
-            statusLabel.setText("데이터베이스 오류가 발생했습니다."); // 사용자 안내.
-        }
+        authenticate("login:" + id + ":" + password, "로그인 중..."); // 서버에서 BCrypt 검증(UI 스레드는 기다리지 않음).
     }
 
     @FXML // FXML 버튼에서 호출되도록 표시.
@@ -110,33 +86,55 @@ public class LoginController { // 로그인/회원가입 화면을 제어하는
             return; // 진행 중단.
         }
 
-        String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt()); // 입력 비밀번호를 BCrypt로 솔트 포함 해싱(보안 저장용).
-        String sql = "INSERT INTO users (id, password_hash, nickname) VALUES (?, ?, ?)"; // 사용자 정보를 저장할 INSERT SQL.
-
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD); // DB 연결을 열고 자동 닫기 설정.
-             PreparedStatement pstmt = conn.prepareStatement(sql)) { // INSERT용 PreparedStatement 준비.
-
-            pstmt.setString(1, id); // 1번째 파라미터: id 바인딩.
-            pstmt.setString(2, hashedPassword); // 2번째 파라미터: 해시된 비밀번호 바인딩.
-            pstmt.setString(3, nickname); // 3번째 파라미터: 닉네임 바인딩.
-            pstmt.executeUpdate(); // INSERT 실행(영향받은 행 수 반환되지만 여기서는 사용하지 않음).
+        if (id.contains(":") || nickname.contains(":") || nickname.contains(",") || nickname.contains("|")) { // 프로토콜 구분자는 아이디/닉네임에 쓸 수 없음.
+            statusLabel.setText("아이디에는 : 를, 닉네임에는 : , | 를 쓸 수 없습니다."); // 사용자 안내.
+            return; // 진행 중단.
+        }
 
-            statusLabel.setText("회원가입 성공! 자동 로그인 중..."); // 성공 메시지 표시.
-            loadChatRoom(id, nickname); // 즉시 로그인 처리처럼 채팅 메인으로 전환.
+        authenticate("signup:" + id + ":" + nickname + ":" + password, "회원가입 중..."); // 서버에서 해시 + 저장 후 바로 로그인.
+    }
 
-        } catch (SQLException e) { // INSERT 과정에서 발생할 수 있는 예외 처리.
-            if (e.getErrorCode() == 1062) { // MySQL 에러 코드 1062: 중복 키(아이디 또는 닉네임 중복).
-                statusLabel.setText("이미 존재하는 아이디 또는 닉네임입니다."); // 사용자에게 중복 안내.
-            } else { // 그 외 DB 예외
-                e.printStackTrace(); // 디버그 로그 출력.
-                statusLabel.setText("데이터베이스 오류가 발생했습니다."); // 일반 오류 안내.
+    /* ===================== 서버 인증(백그라운드) ===================== */ // 연결/BCrypt/DB 왕복은 모두 UI 스레드 밖에서.
+
+    private void authenticate(String arg, String progressText) { // 서버에 연결해 auth: 요청을 보내고 결과에 따라 화면 전환 또는 안내.
+        if (authInFlight) return; // 이미 진행 중이면 무시(연타 방지).
+        authInFlight = true; // 진행 표시.
+        statusLabel.setText(progressText); // 진행 안내.
+        Thread.ofVirtual().name("login").start(() -> { // 연결과 응답 대기는 가상 스레드에서(UI는 계속 반응).
+            ChatClient client = null; // 연결.
+            try { // 연결/인증 실패 대비.
+                client = new ChatClient(SERVER_HOST, SERVER_PORT); // 연결 + 형식 협상.
+                ServerMessage reply = client.authenticate(arg); // 요청 후 authok/authfail 대기.
+                if (reply.type == ServerMessage.Type.AUTH_OK) { // 성공이면
+                    ChatClient connected = client; // 람다용.
+                    Platform.runLater(() -> { authInFlight = false; statusLabel.setText("로그인 성공! 채팅 화면으로 이동 중..."); loadChatRoom(connected); }); // UI 스레드에서 화면 전환.
+                    return; // 연결은 채팅 화면이 이어서 사용.
+                }
+                client.close(); // 실패한 연결은 닫음(다음 시도는 새 연결).
+                String text = failureText(reply.text); // 사유별 안내 문구.
+                Platform.runLater(() -> { authInFlight = false; statusLabel.setText(text); }); // UI 스레드에서 안내.
+            } catch (IOException e) { // 서버가 꺼져 있거나 연결이 끊김.
+                if (client != null) client.close(); // 정리.
+                String text = "서버 연결 실패: " + e.getMessage(); // 안내 문구.
+                Platform.runLater(() -> { authInFlight = false; statusLabel.setText(text); }); // UI 스레드에서 안내.
             }
-        }
+        });
+    }
+
+    private static String failureText(String reason) { // authfail 사유 → 사용자 안내 문구.
+        return switch (reason == null ? "" : reason) { // 사유별.
+            case "bad" -> "아이디 또는 비밀번호가 일치하지 않습니다."; // 어느 쪽이 틀렸는지는 서버가 알려 주지 않음.
+            case "exists" -> "이미 존재하는 아이디 또는 닉네임입니다."; // 회원가입 중복.
+            case "invalid" -> "입력 형식이 올바르지 않습니다."; // 회원가입 형식 오류.
+            case "busy" -> "로그인 요청이 많습니다. 잠시 후 다시 시도하세요."; // 서버 해시 대기열이 가득 참.
+            default -> "서버 오류가 발생했습니다."; // DB 오류 등.
+        };
     }
 
     /* ===================== 채팅 메인(멀티탭) 로드 ===================== */ // 채팅 메인 화면(FXML) 로드 + 서버 연결 로직 구역.
 
-    private void loadChatRoom(String id, String nickname) { // 로그인/회원가입 성공 시 채팅 메인 화면을 띄우는 내부 메서드.
+    private void loadChatRoom(ChatClient client) { // 인증 성공 시 채팅 메인 화면을 띄우는 내부 메서드(UI 스레드).
+        String nickname = client.getNickname(); // 서버가 확정한 닉네임.
         Parent root; // 로드한 FXML의 루트 노드를 담을 변수.
         ChatMainController controller; // 로드한 FXML에 연결된 컨트롤러 참조를 담을 변수.
 
@@ -148,7 +146,8 @@ public class LoginController { // 로그인/회원가입 화면을 제어하는
         } catch (Exception e) { // 로드 실패 시(리소스 경로/구문 오류 등)
             e.printStackTrace(); // 디버그 로그 출력.
             statusLabel.setText("화면 로드 실패: " + e.getClass().getSimpleName() + " - " + String.valueOf(e.getMessage())); // 원인 요약 표시.
-            return; // 더 진행하지 않고 종료(서버 연결도 시도하지 않음).
+            client.close(); // 이미 맺은 연결 정리.
+            return; // 더 진행하지 않고 종료.
         }
 
         // 2) 화면 먼저 보여주고
@@ -166,17 +165,9 @@ public class LoginController { // 로그인/회원가입 화면을 제어하는
 
         stage.show(); // 새로운 장면을 사용자에게 표시.
 
-        // 3) 그 다음 서버 연결(연결 실패해도 화면은 뜸)
-        try { // 네트워크 연결은 화면 표시 뒤에 시도(실패해도 UI는 살아있도록).
-            ChatClient client = new ChatClient("localhost", 8000, controller, nickname); // 채팅 서버(로컬호스트:8000)에 연결하는 클라이언트 생성 + 수신 스레드 시작.
-            controller.init(nickname, client); // 컨트롤러에 닉네임/클라이언트 주입 및 UI 초기화(목록 요청 등).
-        } catch (IOException e) { // 서버가 꺼져있거나 연결 실패 시 예외 처리.
-            e.printStackTrace(); // 디버그 로그 출력.
-            new Alert(Alert.AlertType.ERROR, // 사용자에게 알림 창 표시.
-                    "서버 연결 실패: " + e.getMessage(), // 실패 원인 메시지 구성.
-                    ButtonType.OK).show(); // OK 버튼 하나로 보여주기.
-            // 필요하면 여기서 controller 쪽에 "오프라인 상태" 표시 메서드 호출 가능 // 추가 UX 개선 여지에 대한 주석.
-        }
+        // 3) 그 다음 수신 시작(연결과 인증은 이미 끝남)
+        client.start(); // 수신 스레드 시작 + 기능 협상(받은 메시지는 수신함에 쌓이고 컨트롤러가 프레임마다 꺼냄).
+        controller.init(nickname, client); // 컨트롤러에 닉네임/클라이언트 주입 및 UI 초기화(목록 요청 등).
     }
 
     /* ===================== 유틸 ===================== */ // 공통 유틸리티 메서드 영역.
@@ -0,0 +1,81 @@
+package com.mycompany.chat; // MemoryMessageStore 클래스가 속한 패키지 선언
+
+import java.util.ArrayList; // 결과 목록
+import java.util.List; // 리스트 인터페이스
+import java.util.concurrent.ConcurrentHashMap; // 방 이름 → 방 기록
+import java.util.concurrent.locks.ReentrantLock; // 가상 스레드를 고정하지 않는 락(synchronized 대신)
+import java.util.function.Consumer; // 페이지 행을 받는 쪽
+
+/**
+ * 메모리 저장소(chat.store=memory).
+ * - 방마다 최근 chat.store.memory.perRoom개만 원형 배열에 두고, 넘치면 가장 오래된 행부터 덮어쓴다. 프로세스가 끝나면 사라진다.
+ * - MySQL 없이 부하 시험(LoadGenerator)이나 개발용으로 서버를 띄울 때 쓴다: 저장/조회 경로(history:, 따라잡기)는 그대로 돌되 디스크/네트워크 비용이 없다.
+ * - 기록 id는 방별 순번(1부터).
+ */ // ChatServer가 하나 소유
+final class MemoryMessageStore implements MessageStore { // 저장소 구현
+
+    private static final class Room { // 방 하나의 기록
+        final ReentrantLock lock = new ReentrantLock(); // 추가/복사 보호(짧게 잡음)
+        final ServerMessage[] rows; // 원형 배열(history 메시지, version = id)
+        long last; // 마지막 id(= 지금까지 넣은 수)
+
+        Room(int capacity) { rows = new ServerMessage[capacity]; } // 생성
+
+        ServerMessage at(long id) { return rows[(int) ((id - 1) % rows.length)]; } // id의 칸
+        long first() { return Math.max(1, last - rows.length + 1); } // 남아 있는 가장 오래된 id
+    } // Room 끝
+
+    private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>(); // 방 이름 → 기록
+    private final int perRoom; // 방마다 남길 행 수
+
+    MemoryMessageStore() { // 설정값(chat.store.memory.*)으로 구성
+        this.perRoom = Math.max(1, ServerConfig.getInt("chat.store.memory.perRoom", 10_000)); // 방마다 남길 행 수
+    } // 생성자 끝
+
+    @Override public void start() { } // 저장 스레드 없음(append에서 바로 넣음)
+
+    @Override
+    public boolean append(String nickname, String message, String room) { // 바로 저장(락은 배열 한 칸 쓰는 동안만)
+        Room r = rooms.computeIfAbsent(room, k -> new Room(perRoom)); // 방 기록
+        r.lock.lock(); // 잠금
+        try { // 해제 보장
+            long id = ++r.last; // 다음 id
+            r.rows[(int) ((id - 1) % r.rows.length)] = ServerMessage.history(room, id, nickname, message); // 가장 오래된 칸을 덮어씀
+        } finally { // 항상
+            r.lock.unlock(); // 해제
+        } // try-finally 끝
+        return true; // 가득 찰 일 없음
+    } // append 끝
+
+    @Override
+    public List<ServerMessage> recent(String room, int limit) { // 방의 최근 채팅(오래된 것부터)
+        Room r = rooms.get(room); // 방 기록
+        List<ServerMessage> out = new ArrayList<>(); // 결과
+        if (r == null) return out; // 기록 없음
+        r.lock.lock(); // 잠금
+        try { // 해제 보장
+            for (long id = Math.max(r.first(), r.last - limit + 1); id <= r.last; id++) { // 오래된 것부터
+                ServerMessage h = r.at(id); // 한 행
+                out.add(ServerMessage.chat(h.sender, room, h.text)); // 채팅 메시지로
+            } // for 끝
+        } finally { // 항상
+            r.lock.unlock(); // 해제
+        } // try-finally 끝
+        return out; // 결과
+    } // recent 끝
+
+    @Override
+    public int page(String room, long beforeId, int limit, Consumer<ServerMessage> sink) { // 키셋 페이지
+        Room r = rooms.get(room); // 방 기록
+        if (r == null) return 0; // 기록 없음
+        List<ServerMessage> rows = new ArrayList<>(limit); // 락 안에서 참조만 복사
+        r.lock.lock(); // 잠금
+        try { // 해제 보장
+            for (long id = Math.min(beforeId - 1, r.last); id >= r.first() && rows.size() < limit; id--) rows.add(r.at(id)); // 최신 것부터
+        } finally { // 항상
+            r.lock.unlock(); // 해제(전송은 락 밖에서)
+        } // try-finally 끝
+        for (ServerMessage m : rows) sink.accept(m); // 넘김
+        return rows.size(); // 넘긴 수
+    } // page 끝
+} // MemoryMessageStore 클래스 끝
@@ -0,0 +1,239 @@
+package com.mycompany.chat; // MessageHistory 클래스가 속한 패키지 선언
+
+import java.lang.management.ManagementFactory; // 플랫폼 MBean 서버
+import java.util.ArrayList; // 따라잡기 묶음, 대기자 목록
+import java.util.List; // 리스트 인터페이스
+import java.util.Map; // 맵 인터페이스
+import java.util.concurrent.ConcurrentHashMap; // 방 이름 → 링
+import java.util.concurrent.atomic.LongAdder; // 지표 카운터
+import java.util.concurrent.locks.ReentrantLock; // 가상 스레드를 고정하지 않는 락(synchronized 대신)
+import java.util.function.BiFunction; // (방, 개수) → DB의 최근 메시지
+import javax.management.ObjectName; // MBean 이름
+
+/**
+ * 방별 최근 채팅 기록(메모리 링 버퍼).
+ * - 방마다 최근 N개의 채팅을 브로드캐스트에 쓴 ServerMessage 그대로(텍스트/바이너리 인코딩이 캐시된 채로) 보관한다.
+ * - 가입/전환/재접속 때 링에서 바로 따라잡기 묶음을 보내므로 그 경로에서는 DB를 읽지 않는다.
+ * - DB는 이 프로세스에서 방이 처음 생길 때 한 번만 읽어(chat_logs의 (room, log_id) 색인, LIMIT N) 재시작 전 기록으로 링을 채운다.
+ *   조회는 별도 가상 스레드에서 하고, 그동안 들어온 따라잡기 요청은 조회가 끝난 뒤 한꺼번에 보낸다.
+ * - 이 프로세스에서 기록한 채팅에는 방별 순번(version)을 붙인다. 재접속한 클라이언트는 마지막으로 받은 순번을 보내고 그 뒤 메시지만 받는다.
+ */ // 링보다 오래된 구간은 history: 명령(DB 페이지 조회)의 몫
+final class MessageHistory { // ChatServer가 하나 소유
+
+    /** 채우기 중에 따라잡기를 요청한 연결 */ // upto: 요청 시점까지 링에 들어온 메시지 수(그 뒤 메시지는 실시간으로 받았음)
+    private record Waiter(ClientHandler handler, int limit, long upto) {} // 대기자
+
+    /** 방 하나의 링 */ // 모든 필드는 lock 안에서만 접근
+    private static final class Ring { // 링 버퍼
+        final ReentrantLock lock = new ReentrantLock(); // 추가/복사 보호(짧게 잡음)
+        ServerMessage[] slots; // 원형 배열
+        long count; // 지금까지 넣은 수(다음 위치 = count % 길이)
+        long seq; // 마지막으로 붙인 순번(DB에서 채운 메시지에는 없음, 채우기로 count가 바뀌어도 그대로)
+        boolean seeding; // DB 채우기 진행 중
+        List<Waiter> waiters; // 채우기가 끝나면 보낼 대상
+
+        Ring(int capacity) { this.slots = new ServerMessage[capacity]; } // 생성자
+
+        void add(ServerMessage m) { slots[(int) (count++ % slots.length)] = m; } // 하나 추가(가장 오래된 것을 덮어씀)
+
+        int size() { return (int) Math.min(count, slots.length); } // 보관 중인 수
+
+        List<ServerMessage> last(int n, long upto) { // upto번째 이전 메시지 중 최근 n개(오래된 것부터)
+            long end = Math.min(upto, count); // 끝(제외)
+            long start = Math.max(Math.max(0, count - slots.length), end - n); // 링에 남아 있는 범위로 제한
+            List<ServerMessage> out = new ArrayList<>((int) Math.max(0, end - start)); // 결과
+            for (long i = start; i < end; i++) out.add(slots[(int) (i % slots.length)]); // 순서대로 복사(참조만)
+            return out; // 결과
+        } // last 끝
+
+        List<ServerMessage> after(long seq) { // 순번이 seq보다 큰 메시지(오래된 것부터)
+            long end = count, start = Math.max(0, count - slots.length); // 링에 남아 있는 범위
+            long i = end; // 뒤에서부터
+            while (i > start && slots[(int) ((i - 1) % slots.length)].version > seq) i--; // 순번은 넣은 순서대로 커짐(순번 없는 DB 기록에서 멈춤)
+            List<ServerMessage> out = new ArrayList<>((int) (end - i)); // 결과
+            for (; i < end; i++) out.add(slots[(int) (i % slots.length)]); // 순서대로 복사(참조만)
+            return out; // 결과
+        } // after 끝
+    } // Ring 끝
+
+    private final int capacity; // 방마다 보관할 최대 메시지 수
+    private final int catchUp; // 가입/전환 때 보낼 최대 메시지 수
+    private final BiFunction<String, Integer, List<ServerMessage>> loader; // DB 조회(오래된 것부터, 끄면 null)
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>(); // 방 이름 → 링
+
+    private final LongAdder recorded = new LongAdder(); // 기록한 메시지 수
+    private final LongAdder catchUps = new LongAdder(); // 따라잡기 횟수
+    private final LongAdder catchUpMessages = new LongAdder(); // 따라잡기로 보낸 메시지 수
+    private final LongAdder seeds = new LongAdder(); // DB 조회 횟수
+    private final LongAdder seededMessages = new LongAdder(); // DB에서 채운 메시지 수
+    private final LongAdder replays = new LongAdder(); // 재접속 재전송 횟수
+    private final LongAdder replayedMessages = new LongAdder(); // 재접속 때 보낸 메시지 수
+
+    MessageHistory(int capacity, int catchUp, BiFunction<String, Integer, List<ServerMessage>> loader) { // 링 크기, 따라잡기 개수, DB 조회 함수
+        this.capacity = Math.max(1, capacity); // 최소 1
+        this.catchUp = Math.min(Math.max(0, catchUp), this.capacity); // 링 크기 이하
+        this.loader = loader; // 보관
+    } // 생성자 끝
+
+    /** 방이 처음 생겼을 때 호출: 링을 만들고 DB 조회 함수가 있으면 백그라운드에서 채움 */ // 같은 방에 두 번 불러도 한 번만 채움
+    void open(String room) { // 링 생성
+        Ring fresh = new Ring(capacity); // 새 링
+        fresh.seeding = loader != null; // DB로 채울지
+        if (rings.putIfAbsent(room, fresh) != null || loader == null) return; // 이미 있거나 DB를 쓰지 않음
+        Thread.ofVirtual().name("history-seed").start(() -> seed(room, fresh)); // 방 생성 경로(이벤트 루프 포함)를 막지 않도록 따로 조회
+    } // open 끝
+
+    /** 방에 채팅 하나 기록하고 순번을 붙인 메시지를 돌려줌(호출자는 이 객체를 그대로 브로드캐스트) */ // 발신자 스레드, 링 락은 메시지 하나 만들어 넣는 동안만
+    ServerMessage record(String room, String sender, String text) { // 기록
+        Ring r = ring(room); // 방의 링
+        ServerMessage m; // 순번 붙은 채팅
+        r.lock.lock(); // 잠금(순번과 링 순서를 같게)
+        try { // 해제 보장
+            m = ServerMessage.chat(sender, room, text, ++r.seq); // 다음 순번
+            r.add(m); // 추가
+        } finally { // 항상
+            r.lock.unlock(); // 해제
+        } // try-finally 끝
+        recorded.increment(); // 지표
+        return m; // 브로드캐스트할 메시지
+    } // record 끝
+
+    /** 최근 메시지를 오래된 것부터 한 연결에 보냄(채우기 중이면 끝난 뒤 보냄) */ // 가입/전환/재접속 때 호출
+    void catchUp(String room, ClientHandler handler) { // 따라잡기
+        if (catchUp == 0) return; // 끔
+        Ring r = ring(room); // 방의 링
+        List<ServerMessage> burst; // 보낼 메시지
+        r.lock.lock(); // 잠금
+        try { // 해제 보장
+            if (r.seeding) { // DB 조회가 아직 안 끝났으면
+                if (r.waiters == null) r.waiters = new ArrayList<>(); // 대기자 목록
+                r.waiters.add(new Waiter(handler, catchUp, r.count)); // 끝나면 보냄
+                return; // 지금은 보내지 않음
+            } // if 끝
+            burst = r.last(catchUp, r.count); // 참조만 복사
+        } finally { // 항상
+            r.lock.unlock(); // 해제(송신은 락 밖에서)
+        } // try-finally 끝
+        send(handler, burst); // 전송
+    } // catchUp 끝
+
+    /**
+     * 순번 after 뒤의 메시지만 한 연결에 보내고, 어디까지 보냈는지(그 시점의 마지막 순번) 돌려줌(재접속). 링에서 밀려난 것은 빠진다.
+     * 채우기 중이면 아무것도 보내지 않고 -1(받은 순번이 있을 수 없는 막 생긴 방: 호출자가 가입 뒤 따라잡기로 대신함).
+     */ // 같은 프로세스에 다시 붙은 경우에만 호출(가입 전에 한 번, 가입 직후 그 사이 구간으로 한 번)
+    long replay(String room, long after, ClientHandler handler) { // 빠진 부분 재전송
+        Ring r = ring(room); // 방의 링
+        List<ServerMessage> burst; // 보낼 메시지
+        long upto; // 보낸 구간의 끝 순번
+        r.lock.lock(); // 잠금
+        try { // 해제 보장
+            if (r.seeding) return -1; // 채우는 중
+            burst = r.after(after); // 참조만 복사
+            upto = Math.max(after, r.seq); // 지금까지 붙인 순번
+        } finally { // 항상
+            r.lock.unlock(); // 해제(송신은 락 밖에서)
+        } // try-finally 끝
+        replays.increment(); // 지표
+        replayedMessages.add(burst.size()); // 지표
+        for (ServerMessage m : burst) handler.sendMessage(m); // 캐시된 인코딩 그대로
+        return upto; // 다음 구간의 시작
+    } // replay 끝
+
+    private Ring ring(String room) { // 방의 링(open 없이 쓰인 방이면 채우지 않은 링 생성)
+        Ring r = rings.get(room); // 조회
+        return r != null ? r : rings.computeIfAbsent(room, k -> new Ring(capacity)); // 없으면 생성
+    } // ring 끝
+
+    private void send(ClientHandler handler, List<ServerMessage> burst) { // 묶음 전송
+        if (burst.isEmpty()) return; // 보낼 것 없음
+        for (ServerMessage m : burst) handler.sendMessage(m); // 캐시된 인코딩 그대로
+        catchUps.increment(); // 지표
+        catchUpMessages.add(burst.size()); // 지표
+    } // send 끝
+
+    private void seed(String room, Ring r) { // DB의 최근 기록으로 링 앞부분 채우기(가상 스레드)
+        List<ServerMessage> rows; // DB 결과(오래된 것부터)
+        try { // 조회 실패해도 링은 계속 사용
+            rows = loader.apply(room, capacity); // 조회 한 번
+            seeds.increment(); // 지표
+        } catch (RuntimeException e) { // 예상 못 한 오류
+            System.err.println("채팅 기록 불러오기 실패(" + room + "): " + e.getMessage()); // 경고
+            rows = List.of(); // 빈 결과
+        } // try-catch 끝
+        List<Waiter> waiters; // 보낼 대상
+        List<List<ServerMessage>> bursts = new ArrayList<>(); // 대상별 묶음
+        r.lock.lock(); // 잠금
+        try { // 해제 보장
+            int fresh = r.size(); // 조회 중에 링에 들어온 수(방이 막 생겼으므로 링은 처음부터 그대로 남아 있음)
+            List<ServerMessage> live = r.last(fresh, r.count); // 그 메시지들
+            int overlap = overlap(rows, live); // 조회 직전에 이미 저장된 같은 메시지(앞뒤가 겹치는 부분)
+            List<ServerMessage> older = rows.subList(0, rows.size() - overlap); // DB에만 있는 이전 기록
+            Ring merged = new Ring(capacity); // 다시 채울 링
+            for (ServerMessage m : older) merged.add(m); // 이전 기록
+            for (ServerMessage m : live) merged.add(m); // 조회 중 기록
+            waiters = r.waiters == null ? List.of() : r.waiters; // 대기자
+            long shift = merged.count - r.count; // 대기 시점 위치(이전 링 기준)를 새 링 기준으로 옮길 양
+            for (Waiter w : waiters) bursts.add(merged.last(w.limit(), w.upto() + shift)); // 대기 시점까지의 최근 메시지
+            r.slots = merged.slots; // 교체
+            r.count = merged.count; // 교체
+            r.seeding = false; // 완료
+            r.waiters = null; // 비우기
+            seededMessages.add(older.size()); // 지표
+        } finally { // 항상
+            r.lock.unlock(); // 해제
+        } // try-finally 끝
+        for (int i = 0; i < waiters.size(); i++) send(waiters.get(i).handler(), bursts.get(i)); // 락 밖에서 전송
+    } // seed 끝
+
+    private static int overlap(List<ServerMessage> rows, List<ServerMessage> live) { // rows 끝부분과 live 앞부분이 겹치는 최대 길이
+        for (int k = Math.min(rows.size(), live.size()); k > 0; k--) { // 긴 것부터
+            boolean same = true; // 일치 여부
+            for (int i = 0; i < k && same; i++) { // k개 비교
+                ServerMessage a = rows.get(rows.size() - k + i), b = live.get(i); // 짝
+                same = a.sender.equals(b.sender) && a.text.equals(b.text); // 보낸 사람 + 본문
+            } // for 끝
+            if (same) return k; // 찾음
+        } // for 끝
+        return 0; // 겹침 없음
+    } // overlap 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=MessageHistory)
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        int getRooms(); // 링이 있는 방 수
+        int getCapacity(); // 방마다 보관할 최대 메시지 수
+        long getRecorded(); // 기록한 메시지 수
+        long getCatchUps(); // 따라잡기 횟수
+        long getCatchUpMessages(); // 따라잡기로 보낸 메시지 수
+        long getSeeds(); // DB 조회 횟수
+        long getSeededMessages(); // DB에서 채운 메시지 수
+        long getReplays(); // 재접속 재전송 횟수
+        long getReplayedMessages(); // 재접속 때 보낸 메시지 수
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 카운터를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(필드 직접 접근)
+        @Override public int getRooms() { return rings.size(); } // 방 수
+        @Override public int getCapacity() { return capacity; } // 링 크기
+        @Override public long getRecorded() { return recorded.sum(); } // 기록
+        @Override public long getCatchUps() { return catchUps.sum(); } // 따라잡기
+        @Override public long getCatchUpMessages() { return catchUpMessages.sum(); } // 보낸 메시지
+        @Override public long getSeeds() { return seeds.sum(); } // DB 조회
+        @Override public long getSeededMessages() { return seededMessages.sum(); } // DB에서 채움
+        @Override public long getReplays() { return replays.sum(); } // 재전송
+        @Override public long getReplayedMessages() { return replayedMessages.sum(); } // 재전송한 메시지
+    } // Stats 끝
+
+    Stats stats() { return new Stats(); } // 지표 객체
+
+    void registerMBean() { // 플랫폼 MBean 서버에 등록(재접속 재전송은 GET /metrics에도)
+        Metrics.counter("chat_resume_replays_total", replays::sum); // 재접속 재전송 횟수
+        Metrics.counter("chat_resume_replayed_messages_total", replayedMessages::sum); // 재접속 때 보낸 메시지 수
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats(), new ObjectName("com.mycompany.chat:type=MessageHistory")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("채팅 기록 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // MessageHistory 클래스 끝
@@ -0,0 +1,45 @@
+package com.mycompany.chat; // MessageStore 인터페이스가 속한 패키지 선언
+
+import java.io.IOException; // 조회 실패
+import java.util.List; // 최근 기록 목록
+import java.util.function.Consumer; // 페이지 행을 받는 쪽
+
+/**
+ * 채팅 로그 저장소 SPI.
+ * - 쓰기(append)는 발신자 스레드에서 불리므로 블로킹하지 않아야 하고, 실제 저장은 구현의 전용 스레드가 모아서 한다.
+ * - 읽기는 두 가지: 방이 처음 생길 때 링을 채울 최근 기록(recent), history: 명령의 키셋 페이지(page).
+ *   기록 id는 방 안에서 시간순으로 커지기만 하면 되고, 구현마다 의미가 다르다(MySQL: log_id, 로그 파일: 방별 순번).
+ * - 구현은 chat.store로 고른다: mysql(MySqlMessageStore) / log(SegmentLogStore) / memory(MemoryMessageStore) / none(저장 안 함) / 인자 없는 생성자를 가진 구현 클래스 이름.
+ */ // ChatServer가 하나 소유(없으면 null)
+interface MessageStore { // 저장소 구현이 따를 규약
+
+    void start(); // 저장 스레드 시작
+
+    default void shutdown(long timeoutMs) {} // 새 항목 받기를 멈추고 남은 것을 저장할 때까지 대기(ChatServer 드레인 마지막 단계)
+
+    boolean append(String nickname, String message, String room); // 저장 요청(블로킹하지 않음, 버퍼가 가득 차면 false)
+
+    List<ServerMessage> recent(String room, int limit); // 방의 최근 채팅 limit개(오래된 것부터, 실패하면 빈 목록)
+
+    /** beforeId보다 오래된 행을 최신 것부터 최대 limit개 sink로 넘김(읽는 대로), 넘긴 수 반환 */ // 행은 ServerMessage.history(version = 기록 id)
+    int page(String room, long beforeId, int limit, Consumer<ServerMessage> sink) throws IOException; // 키셋 페이지
+
+    default void online(String nickname) {} // 사용자 접속(구현이 미리 준비할 것이 있으면)
+    default void offline(String nickname) {} // 사용자 퇴장
+
+    default void registerMBean() {} // 구현별 지표(JMX) 등록
+
+    /** 설정(chat.store)에 맞는 구현 생성, 저장하지 않으면 null */ // ChatServer 초기화 때 한 번
+    static MessageStore fromConfig() { // 구현 선택
+        String kind = ServerConfig.get("chat.store", ServerConfig.getBoolean("chat.db.enabled", true) ? "mysql" : "none").trim(); // 설정값(없으면 기존 chat.db.enabled를 따름)
+        if (kind.isEmpty() || "none".equalsIgnoreCase(kind)) return null; // 저장 안 함
+        if ("mysql".equalsIgnoreCase(kind)) return new MySqlMessageStore(Database.dataSource()); // 기존 MySQL 경로
+        if ("log".equalsIgnoreCase(kind)) return new SegmentLogStore(); // 내장 로그 파일
+        if ("memory".equalsIgnoreCase(kind)) return new MemoryMessageStore(); // 메모리(부하 시험/개발용)
+        try { // 외부 구현 클래스
+            return (MessageStore) Class.forName(kind).getDeclaredConstructor().newInstance(); // 인자 없는 생성자
+        } catch (ReflectiveOperationException | ClassCastException e) { // 없는 클래스 등
+            throw new IllegalStateException("채팅 로그 저장소 구현을 만들 수 없음: " + kind, e); // 설정 오류는 시작 실패
+        } // try-catch 끝
+    } // fromConfig 끝
+} // MessageStore 인터페이스 끝
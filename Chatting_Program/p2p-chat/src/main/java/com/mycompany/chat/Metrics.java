@@ -0,0 +1,120 @@
+package com.mycompany.chat; // Metrics 클래스가 속한 패키지 선언
+
+import com.sun.net.httpserver.HttpServer; // JDK 내장 HTTP 서버(의존성 없음)
+import java.io.IOException; // 바인드/응답 실패
+import java.io.OutputStream; // 응답 본문
+import java.net.InetSocketAddress; // 바인드 주소
+import java.nio.charset.StandardCharsets; // UTF-8
+import java.util.Map; // 맵 인터페이스
+import java.util.TreeMap; // 출력 순서(같은 이름끼리 모이게)
+import java.util.concurrent.ConcurrentHashMap; // 이름 → 지표
+import java.util.concurrent.Executors; // 응답 스레드
+import java.util.concurrent.atomic.LongAdder; // 카운터
+import java.util.function.LongSupplier; // 읽을 때 계산하는 값
+
+/**
+ * 서버 지표 등록부 + 로컬 HTTP 텍스트 출력(GET /metrics, Prometheus 텍스트 형식).
+ * - 카운터(LongAdder), 게이지(읽을 때 계산하는 값), 지연 히스토그램(LatencyHistogram, µs)을 이름으로 등록한다.
+ *   이름에 레이블을 붙일 수 있다(chat_command_us{type="CHAT"}). 방처럼 값이 계속 생기는 레이블은 Family로 받는다.
+ *   Family는 처음 본 값 maxValues개까지만 따로 세고 그 뒤의 값은 모두 "_other" 하나로 모은다(방이 계속 생겨도 시계열 수가 늘지 않음).
+ * - 기록 쪽 비용은 LongAdder 증가/히스토그램 칸 증가뿐이고, 문자열 조립과 백분위 계산은 조회할 때만 한다(운영에서 켜 둘 수 있는 비용).
+ * - 기존 JMX MBean(각 구성 요소의 Stats)은 그대로 두고, 구성 요소가 registerMBean에서 같은 카운터를 여기에도 게이지로 건다.
+ */ // 한 이벤트의 자세한 내용(방, 인원, 걸린 시간)은 JFR 이벤트(ChatEvents)로
+final class Metrics { // 인스턴스 없이 정적 메서드로만 사용
+
+    private static final ConcurrentHashMap<String, LongAdder> COUNTERS = new ConcurrentHashMap<>(); // 직접 증가시키는 카운터
+    private static final ConcurrentHashMap<String, LongSupplier> DERIVED_COUNTERS = new ConcurrentHashMap<>(); // 구성 요소가 이미 세는 카운터
+    private static final ConcurrentHashMap<String, LongSupplier> GAUGES = new ConcurrentHashMap<>(); // 현재 값
+    private static final ConcurrentHashMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>(); // 지연 분포
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999}; // 출력할 백분위
+
+    private Metrics() {} // 인스턴스 생성 방지
+
+    static LongAdder counter(String name) { return COUNTERS.computeIfAbsent(name, k -> new LongAdder()); } // 카운터(호출자가 static final로 보관)
+    static void counter(String name, LongSupplier value) { DERIVED_COUNTERS.put(name, value); } // 이미 세고 있는 값을 카운터로 노출
+    static void gauge(String name, LongSupplier value) { GAUGES.put(name, value); } // 게이지
+    static LatencyHistogram histogram(String name) { return HISTOGRAMS.computeIfAbsent(name, k -> new LatencyHistogram()); } // 히스토그램
+
+    static String name(String base, String label, String value) { // 레이블 붙은 이름
+        return base + "{" + label + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"}"; // 값 이스케이프
+    } // name 끝
+
+    static final String OTHER = "_other"; // Family 한도를 넘은 값들을 모으는 레이블 값
+
+    /** 레이블 값마다 카운터 하나(방 이름 등), 값 종류는 maxValues개까지 */ // 기록할 때 문자열을 만들지 않도록 값 → 카운터를 캐시
+    static final class Family { // 카운터 묶음
+        private final String base; // 지표 이름
+        private final String label; // 레이블 이름
+        private final int maxValues; // 따로 셀 값 수(넘으면 OTHER로)
+        private final ConcurrentHashMap<String, LongAdder> byValue = new ConcurrentHashMap<>(); // 값 → 카운터
+        private volatile LongAdder other; // 한도를 넘은 값들의 카운터(처음 넘칠 때 등록)
+
+        Family(String base, String label, int maxValues) { this.base = base; this.label = label; this.maxValues = Math.max(0, maxValues); } // 생성
+
+        LongAdder of(String value) { // 값의 카운터
+            LongAdder a = byValue.get(value); // 빠른 경로(조회만)
+            if (a != null) return a; // 이미 있음
+            if (byValue.size() >= maxValues) return other(); // 한도 초과(동시에 처음 본 값 몇 개는 조금 넘을 수 있음)
+            return byValue.computeIfAbsent(value, v -> counter(name(base, label, v))); // 처음이면 등록
+        } // of 끝
+
+        private LongAdder other() { // 넘친 값 카운터
+            LongAdder o = other; // 필드 한 번 읽기
+            if (o == null) other = o = counter(name(base, label, OTHER)); // 같은 이름이면 같은 카운터(경쟁해도 하나)
+            return o; // 결과
+        } // other 끝
+    } // Family 끝
+
+    /** Prometheus 텍스트 형식으로 현재 값 출력 */ // GET /metrics 응답
+    static String render() { // 출력
+        Map<String, String> lines = new TreeMap<>(); // 이름 → 값 줄(정렬해서 같은 지표끼리 모음)
+        Map<String, String> types = new TreeMap<>(); // 지표 이름 → 종류
+        COUNTERS.forEach((k, v) -> { lines.put(k, k + " " + v.sum()); types.put(base(k), "counter"); }); // 카운터
+        DERIVED_COUNTERS.forEach((k, v) -> { lines.put(k, k + " " + v.getAsLong()); types.put(base(k), "counter"); }); // 카운터
+        GAUGES.forEach((k, v) -> { lines.put(k, k + " " + v.getAsLong()); types.put(base(k), "gauge"); }); // 게이지
+        HISTOGRAMS.forEach((k, h) -> { // 히스토그램 → summary(백분위 + 합계 + 개수) + 최댓값 게이지
+            StringBuilder b = new StringBuilder(); // 여러 줄
+            for (double q : QUANTILES) b.append(with(k, "quantile=\"" + q + "\"")).append(' ').append(h.percentile(q * 100)).append('\n'); // 백분위
+            b.append(suffixed(k, "_sum")).append(' ').append(Math.round(h.mean() * h.count())).append('\n'); // 합계
+            b.append(suffixed(k, "_count")).append(' ').append(h.count()); // 개수
+            lines.put(k, b.toString()); // 보관
+            types.put(base(k), "summary"); // 종류
+            String max = suffixed(k, "_max"); // 최댓값은 summary에 없는 줄이라 따로 게이지로
+            lines.put(max, max + " " + h.max()); // 최댓값
+            types.put(base(max), "gauge"); // 종류
+        }); // forEach 끝
+        StringBuilder out = new StringBuilder(lines.size() * 48); // 결과
+        String last = null; // 직전 지표 이름
+        for (Map.Entry<String, String> e : lines.entrySet()) { // 이름순
+            String b = base(e.getKey()); // 지표 이름
+            if (!b.equals(last)) { out.append("# TYPE ").append(b).append(' ').append(types.get(b)).append('\n'); last = b; } // 종류 한 번
+            out.append(e.getValue()).append('\n'); // 값
+        } // for 끝
+        return out.toString(); // 결과
+    } // render 끝
+
+    private static String base(String key) { int i = key.indexOf('{'); return i < 0 ? key : key.substring(0, i); } // 레이블 뺀 이름
+    private static String with(String key, String label) { return key.indexOf('{') < 0 ? key + "{" + label + "}" : key.substring(0, key.length() - 1) + "," + label + "}"; } // 레이블 추가
+    private static String suffixed(String key, String suffix) { int i = key.indexOf('{'); return i < 0 ? key + suffix : key.substring(0, i) + suffix + key.substring(i); } // 이름 뒤에 접미어
+
+    /** 로컬 HTTP 출력 시작(chat.metrics.port, 0이면 끔) */ // ChatServer.init에서 한 번
+    static void startHttp() { // 시작
+        int port = ServerConfig.getInt("chat.metrics.port", 9400); // 포트
+        if (port <= 0) return; // 끔
+        String host = ServerConfig.get("chat.metrics.host", "127.0.0.1"); // 바인드 주소(기본: 이 컴퓨터에서만)
+        try { // 바인드 실패 대비
+            HttpServer http = HttpServer.create(new InetSocketAddress(host, port), 0); // 서버
+            http.createContext("/metrics", ex -> { // GET /metrics
+                byte[] body = render().getBytes(StandardCharsets.UTF_8); // 본문
+                ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8"); // 텍스트 형식
+                ex.sendResponseHeaders(200, body.length); // 헤더
+                try (OutputStream o = ex.getResponseBody()) { o.write(body); } // 본문 쓰기
+            }); // createContext 끝
+            http.setExecutor(Executors.newSingleThreadExecutor(r -> { Thread t = new Thread(r, "metrics-http"); t.setDaemon(true); return t; })); // 응답은 데몬 스레드 하나
+            http.start(); // 시작
+            System.out.println("지표: http://" + host + ":" + port + "/metrics"); // 안내
+        } catch (IOException e) { // 포트 사용 중 등
+            System.err.println("지표 HTTP 시작 실패(" + host + ":" + port + "): " + e.getMessage()); // 경고만 출력(서버는 계속)
+        } // try-catch 끝
+    } // startHttp 끝
+} // Metrics 클래스 끝
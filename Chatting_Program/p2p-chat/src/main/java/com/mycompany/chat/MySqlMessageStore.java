@@ -0,0 +1,107 @@
+package com.mycompany.chat; // MySqlMessageStore 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 조회 실패(SQLException을 감쌈)
+import java.sql.*; // JDBC(Connection, PreparedStatement 등)
+import java.util.ArrayList; // 최근 기록 목록
+import java.util.Collections; // 순서 뒤집기
+import java.util.List; // 리스트 인터페이스
+import java.util.function.Consumer; // 페이지 행을 받는 쪽
+import javax.sql.DataSource; // 공용 커넥션 풀
+
+/**
+ * MySQL chat_logs 저장소.
+ * - 쓰기는 ChatLogWriter(링 버퍼 + 배치 INSERT), 사용자 id는 UserIdCache(접속 시 미리 조회)가 맡는다.
+ * - 읽기는 (room, log_id) 색인을 쓰는 키셋 조회: 최근 기록은 ORDER BY log_id DESC LIMIT, 페이지는 log_id < beforeId를 더한 같은 형태.
+ */ // chat.store=mysql(기본)
+final class MySqlMessageStore implements MessageStore { // ChatServer가 하나 소유
+
+    private static final String RECENT_SQL = "SELECT nickname, message FROM chat_logs WHERE room = ? ORDER BY log_id DESC LIMIT ?"; // (room, log_id) 색인을 거꾸로 읽고 LIMIT에서 멈춤
+    private static final String PAGE_SQL = "SELECT log_id, nickname, message FROM chat_logs WHERE room = ? AND log_id < ? ORDER BY log_id DESC LIMIT ?"; // 같은 색인의 범위 스캔(OFFSET 없음)
+    private static final String USER_ID_SQL = "SELECT id FROM users WHERE nickname = ?"; // 닉네임 → users.id
+
+    private final DataSource dataSource; // 커넥션 공급(공용 풀)
+    private final int fetchSize; // 페이지 조회 때 한 번에 받아 올 행 수
+    private final UserIdCache userIds; // 닉네임 → users.id 캐시(접속 시 한 번 조회, 퇴장 후에는 LRU/TTL로 잠시 유지)
+    private final ChatLogWriter writer; // 비동기 배치 저장기
+
+    MySqlMessageStore(DataSource dataSource) { // 설정값(chat.db.*)으로 구성
+        this.dataSource = dataSource; // 보관
+        this.fetchSize = ServerConfig.getInt("chat.history.page.chunk", 50); // 묶음 크기(URL의 useCursorFetch=true일 때 서버 커서 사용)
+        this.userIds = new UserIdCache( // id 캐시
+                this::fetchId, // 캐시에 없을 때 DB 조회
+                ServerConfig.getInt("chat.db.idCache.maxOffline", 10_000), // 오프라인 사용자 최대 항목 수
+                ServerConfig.getLong("chat.db.idCache.ttlMs", 600_000)); // 오프라인 항목 유지 시간(10분)
+        this.writer = new ChatLogWriter( // 저장기
+                dataSource, // 공용 커넥션 풀(URL의 rewriteBatchedStatements=true로 배치를 다중 VALUES 한 문장으로)
+                userIds::resolve, // 닉네임 → id 조회(캐시 우선)
+                ServerConfig.getInt("chat.db.writeBehind.capacity", 65536), // 링 버퍼 크기
+                ServerConfig.getInt("chat.db.writeBehind.batchSize", 500), // 배치 크기
+                ServerConfig.getInt("chat.db.writeBehind.maxRetries", 3)); // 재시도 횟수
+    } // 생성자 끝
+
+    @Override public void start() { writer.start(); } // 저장 스레드 시작
+    @Override public void shutdown(long timeoutMs) { writer.shutdown(timeoutMs); } // 남은 로그 저장 후 종료
+    @Override public boolean append(String nickname, String message, String room) { return writer.submit(nickname, message, room); } // 링 버퍼에 넣기만 함
+    @Override public void online(String nickname) { userIds.login(nickname); } // 로그 저장용 id를 미리 조회(메시지마다 조회하지 않도록)
+    @Override public void offline(String nickname) { userIds.logout(nickname); } // id를 오프라인 LRU로 이동(남은 로그 저장에 사용)
+    @Override
+    public void registerMBean() { // id 캐시 지표(JMX) + 저장기 카운터(GET /metrics) 등록
+        userIds.registerMBean(); // id 캐시 지표(JMX)
+        Metrics.counter("chat_store_written_total", writer::written); // 저장 완료 건수
+        Metrics.counter("chat_store_dropped_full_total", writer::droppedFull); // 버퍼 초과로 버린 건수
+        Metrics.counter("chat_store_dropped_failed_total", writer::droppedFailed); // 저장 실패로 버린 건수
+        Metrics.gauge("chat_store_buffered", writer::pending); // 저장 대기 건수
+    } // registerMBean 끝
+
+    @Override
+    public List<ServerMessage> recent(String room, int limit) { // 방의 최근 채팅(링 채우기용)
+        List<ServerMessage> rows = new ArrayList<>(); // 최신 것부터 담김
+        try (Connection conn = dataSource.getConnection(); // 풀에서 커넥션 대여(close 시 반납)
+             PreparedStatement pstmt = conn.prepareStatement(RECENT_SQL)) { // 스테이트먼트(커넥션별 캐시에서 재사용)
+            pstmt.setString(1, room); // 1번 파라미터: 방
+            pstmt.setInt(2, limit); // 2번 파라미터: 개수
+            try (ResultSet rs = pstmt.executeQuery()) { // 쿼리 실행
+                while (rs.next()) rows.add(ServerMessage.chat(rs.getString("nickname"), room, rs.getString("message"))); // 채팅 메시지로
+            } // try-with-resources(ResultSet) 끝
+        } catch (SQLException e) { // SQL 예외 처리
+            System.err.println("채팅 기록 조회 실패: " + e.getMessage()); // 에러 로그(기록 없이 계속)
+        } // try-catch 끝
+        Collections.reverse(rows); // 오래된 것부터
+        return rows; // 결과
+    } // recent 끝
+
+    @Override
+    public int page(String room, long beforeId, int limit, Consumer<ServerMessage> sink) throws IOException { // 키셋 페이지
+        int sent = 0; // 넘긴 행 수
+        try (Connection conn = dataSource.getConnection(); // 풀에서 대여(close 시 반납)
+             PreparedStatement pstmt = conn.prepareStatement(PAGE_SQL)) { // 캐시된 문장 재사용
+            pstmt.setString(1, room); // 1번 파라미터: 방
+            pstmt.setLong(2, beforeId); // 2번 파라미터: 키셋 커서
+            pstmt.setInt(3, limit); // 3번 파라미터: 개수
+            pstmt.setFetchSize(fetchSize); // 묶음 단위로 받음
+            try (ResultSet rs = pstmt.executeQuery()) { // 실행
+                while (rs.next()) { // 최신 것부터
+                    sink.accept(ServerMessage.history(room, rs.getLong(1), rs.getString(2), rs.getString(3))); // 받는 대로 넘김
+                    sent++; // 개수
+                } // while 끝
+            } // try-with-resources(ResultSet) 끝
+        } catch (SQLException e) { // 조회 실패
+            throw new IOException(e.getMessage(), e); // 저장소 공통 예외로
+        } // try-catch 끝
+        return sent; // 결과
+    } // page 끝
+
+    private String fetchId(String nickname) { // 닉네임으로 users 테이블에서 id 조회
+        try (Connection conn = dataSource.getConnection(); // 풀에서 커넥션 대여(close 시 반납)
+             PreparedStatement pstmt = conn.prepareStatement(USER_ID_SQL)) { // 스테이트먼트(커넥션별 캐시에서 재사용)
+            pstmt.setString(1, nickname); // 1번 파라미터 바인딩
+            try (ResultSet rs = pstmt.executeQuery()) { // 쿼리 실행 및 결과셋 획득
+                if (rs.next()) return rs.getString("id"); // 결과가 있으면 id 컬럼 반환
+            } // try-with-resources(ResultSet) 끝
+        } catch (SQLException e) { // SQL 예외 처리
+            System.err.println("DB 조회 실패: " + e.getMessage()); // 에러 로그 간단 출력
+            e.printStackTrace(); // 자세한 스택트레이스
+        } // try-catch 끝
+        return null; // 못 찾았으면 null 반환
+    } // fetchId 끝
+} // MySqlMessageStore 클래스 끝
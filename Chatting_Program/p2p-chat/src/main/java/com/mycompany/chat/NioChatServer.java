@@ -0,0 +1,55 @@
+package com.mycompany.chat; // NioChatServer 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 소켓 입출력 예외
+import java.net.InetSocketAddress; // 바인드 주소
+import java.net.StandardSocketOptions; // 소켓 옵션(TCP_NODELAY 등)
+import java.nio.channels.ClosedChannelException; // 드레인으로 수락 채널이 닫힘
+import java.nio.channels.ServerSocketChannel; // 접속 수락용 채널
+import java.nio.channels.SocketChannel; // 수락된 클라이언트 채널
+
+/** 논블로킹 서버 모드: 접속 수락 스레드 1개 + 고정 크기 I/O 이벤트 루프 풀 */ // 접속당 스레드 대신 소수의 루프가 모든 연결을 담당
+final class NioChatServer { // ChatServer.main에서 chat.server.mode=nio일 때 사용
+
+    private final int port; // 바인드 포트
+    private final NioEventLoop[] loops; // I/O 이벤트 루프 풀
+    private int next; // 다음에 배정할 루프 인덱스(수락 스레드 전용)
+    private volatile ServerSocketChannel server; // 수락 채널(드레인 때 닫음)
+    private volatile boolean stopping; // 드레인으로 수락을 멈췄는지
+
+    NioChatServer(int port, int loopCount) throws IOException { // 루프 풀 생성
+        this.port = port; // 포트 보관
+        int n = loopCount > 0 ? loopCount : Runtime.getRuntime().availableProcessors(); // 0 이하이면 CPU 코어 수만큼
+        this.loops = new NioEventLoop[n]; // 배열 생성
+        for (int i = 0; i < n; i++) loops[i] = new NioEventLoop("nio-loop-" + i); // 루프 생성
+    } // 생성자 끝
+
+    void run() throws IOException { // 서버 실행(호출 스레드가 수락 루프가 됨)
+        for (NioEventLoop loop : loops) loop.start(); // 모든 이벤트 루프 시작
+        try (ServerSocketChannel server = ServerSocketChannel.open()) { // 수락용 채널 열기
+            server.setOption(StandardSocketOptions.SO_REUSEADDR, true); // 재시작 시 TIME_WAIT 포트 재사용
+            server.bind(new InetSocketAddress(port), 1024); // 포트 바인드(대량 동시 접속 대비 백로그 확대)
+            this.server = server; // 드레인 때 닫을 수 있도록 보관
+            System.out.println("NIO 모드: 이벤트 루프 " + loops.length + "개로 " + port + "번 포트 대기"); // 시작 로그
+            while (!stopping) { // 접속 수락 루프
+                SocketChannel ch = server.accept(); // 블로킹 수락(수락 스레드는 이 일만 함)
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true); // 짧은 채팅 줄이 지연되지 않도록 Nagle 끔
+                loops[next].register(ch); // 라운드 로빈으로 루프에 배정
+                next = (next + 1) % loops.length; // 다음 인덱스
+            } // while 끝
+        } catch (ClosedChannelException e) { // 수락 채널이 닫힘
+            if (!stopping) throw e; // 드레인이 아니면 오류
+        } finally { // 수락 루프가 끝나면
+            if (!stopping) shutdownLoops(); // 비정상 종료면 바로 모든 루프 종료(드레인이면 연결을 닫은 뒤 드레인이 종료)
+        } // try-catch-finally 끝
+    } // run 끝
+
+    void stopAccepting() { // 새 접속 수락 중지(드레인, 기존 연결은 그대로)
+        stopping = true; // 표시
+        ServerSocketChannel s = server; // 수락 채널
+        if (s != null) { try { s.close(); } catch (IOException ignore) {} } // 막혀 있는 accept를 깨움
+    } // stopAccepting 끝
+
+    void shutdownLoops() { // 모든 이벤트 루프 종료(남은 연결 정리 포함)
+        for (NioEventLoop loop : loops) loop.shutdown(); // 종료 요청
+    } // shutdownLoops 끝
+} // NioChatServer 클래스 끝
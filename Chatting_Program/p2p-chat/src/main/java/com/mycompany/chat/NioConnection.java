@@ -0,0 +1,226 @@
+package com.mycompany.chat; // NioConnection 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 채널 입출력 예외
+import java.nio.ByteBuffer; // 송수신 바이트 버퍼
+import java.nio.channels.SelectionKey; // 관심 이벤트(OP_READ/OP_WRITE) 조정
+import java.nio.channels.SocketChannel; // 논블로킹 클라이언트 채널
+import java.nio.charset.StandardCharsets; // UTF-8 인코딩/디코딩
+import java.util.Arrays; // 줄 조립 버퍼 확장
+import java.util.concurrent.atomic.AtomicBoolean; // 쓰기 예약/종료 플래그
+
+/** NIO 모드의 연결 하나: 줄/길이 접두 프레이밍 + 송신 대기 큐 */ // 읽기는 루프 스레드에서만, 송신 요청은 어느 스레드에서나 가능
+final class NioConnection implements ClientTransport { // ClientHandler에게는 송신 통로로 보임
+
+    private static final int MAX_LINE_BYTES = 64 * 1024; // 한 줄 최대 길이(넘으면 비정상 클라이언트로 보고 종료)
+
+    private final SocketChannel channel; // 대상 채널
+    private final NioEventLoop loop; // 이 연결을 담당하는 이벤트 루프
+    private final ClientHandler handler; // 기존 명령 분기 로직(그대로 재사용)
+    private SelectionKey key; // 셀렉터 등록 키(루프 스레드에서만 접근)
+
+    private byte[] partial; // 아직 개행을 만나지 못한 줄(또는 다 오지 않은 프레임)의 앞부분(있을 때만 할당)
+    private int partialLen; // partial에 채워진 바이트 수
+    private boolean firstLineSeen; // 첫 줄(핸드셰이크 또는 닉네임)을 받았는지(루프 스레드 전용)
+    private boolean binary; // 핸드셰이크로 바이너리 프레임에 합의했는지(루프 스레드 전용)
+
+    private static final int WRITE_BATCH = 16; // 한 번의 모아 쓰기(gathering write)에 넣을 최대 메시지 수
+
+    private final OutboundQueue queue = new OutboundQueue(); // 제한된 송신 대기열(보낼 메시지)
+    private final ByteBuffer[] writing = new ByteBuffer[WRITE_BATCH]; // 소켓에 쓰는 중인 메시지 버퍼들(루프 스레드 전용)
+    private int writeHead; // writing에서 아직 다 쓰지 못한 첫 버퍼 위치
+    private int writeCount; // writing에 채워진 버퍼 수
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false); // flush 작업이 이미 예약되었는지
+    private final AtomicBoolean closed = new AtomicBoolean(false); // 종료 여부
+
+    NioConnection(SocketChannel channel, NioEventLoop loop) { // 연결 생성(루프 스레드에서 호출)
+        this.channel = channel; // 채널 보관
+        this.loop = loop; // 루프 보관
+        this.handler = new ClientHandler(this); // 명령 처리기는 이 연결을 송신 통로로 사용
+        ChatServer.idleMonitor().watch(handler); // 유휴 감시 시작(반쯤 열린 연결 정리)
+    } // 생성자 끝
+
+    void attach(SelectionKey key) { // 등록 키 연결
+        this.key = key; // 보관
+    } // attach 끝
+
+    /* ---------------- 읽기 ---------------- */ // 루프 스레드 전용
+
+    void onReadable(ByteBuffer buf) { // 읽기 가능 이벤트 처리(buf는 루프 공용 버퍼)
+        int n; // 읽은 바이트 수
+        try { // 읽기 예외 대비
+            buf.clear(); // 공용 버퍼 초기화
+            n = channel.read(buf); // 가능한 만큼 읽기
+        } catch (IOException e) { // 연결 리셋 등
+            close(); // 종료 처리
+            return; // 끝
+        } // try-catch 끝
+        if (n < 0) { close(); return; } // EOF: 상대가 연결을 닫음
+        buf.flip(); // 읽기 모드로 전환
+        if (binary) { readFrames(buf, buf.position(), buf.limit()); return; } // 바이너리 모드면 프레임 단위로
+
+        int lineStart = buf.position(); // 현재 줄의 시작 위치
+        for (int i = buf.position(); i < buf.limit(); i++) { // 받은 바이트를 훑으며
+            if (buf.get(i) != '\n') continue; // 개행이 아니면 계속(UTF-8 다중 바이트 안에는 0x0A가 나오지 않음)
+            String line = takeLine(buf, lineStart, i); // 미완성 조각과 합쳐 한 줄 완성
+            lineStart = i + 1; // 다음 줄 시작
+            if (line == null) return; // 길이 초과로 종료됨
+            if (!firstLineSeen) { // 첫 줄이면
+                firstLineSeen = true; // 표시
+                if (line.startsWith(WireCodec.HANDSHAKE_PREFIX)) { // 형식 협상 요청
+                    if (!handshake(line)) return; // 응답 실패면 종료됨
+                    if (binary) { readFrames(buf, lineStart, buf.limit()); return; } // 같은 읽기에 이어 온 바이트는 프레임으로
+                    continue; // 텍스트 유지: 다음 줄이 닉네임
+                } // if 끝
+            } // if 끝
+            if (!dispatch(line)) return; // 처리 결과 종료 요청이면 중단
+        } // for 끝
+        if (lineStart < buf.limit()) appendPartial(buf, lineStart, buf.limit(), MAX_LINE_BYTES); // 남은 조각은 다음 읽기까지 보관
+    } // onReadable 끝
+
+    private boolean handshake(String line) { // 핸드셰이크 응답 쓰기(대기열보다 먼저, 루프 스레드에서 바로)
+        String reply = ClientHandler.handshakeReply(line); // 응답 결정
+        ByteBuffer out = ByteBuffer.wrap((reply + "\n").getBytes(StandardCharsets.UTF_8)); // 응답 줄은 항상 텍스트
+        try { // 쓰기 예외 대비
+            channel.write(out); // 수십 바이트라 새 연결의 송신 버퍼에 한 번에 들어감
+        } catch (IOException e) { // 연결 끊김
+            close(); // 종료
+            return false; // 실패
+        } // try-catch 끝
+        if (out.hasRemaining()) { close(); return false; } // 못 쓴 경우는 비정상으로 보고 종료
+        binary = WireCodec.HANDSHAKE_BINARY.equals(reply); // 이후 형식
+        return true; // 성공
+    } // handshake 끝
+
+    private void readFrames(ByteBuffer buf, int from, int to) { // 길이 접두 프레임 자르기(다 오지 않은 프레임은 partial에 보관)
+        if (from < to && !appendPartial(buf, from, to, WireCodec.MAX_FRAME_BYTES + buf.capacity())) return; // 누적(미완성 프레임 + 한 번 읽은 양까지)
+        int pos = 0; // partial 안의 현재 프레임 시작
+        while (pos < partialLen) { // 남은 바이트가 있는 동안
+            long header = WireCodec.readHeader(partial, pos, partialLen); // 길이 접두 해석
+            if (header == WireCodec.INCOMPLETE) break; // 접두가 아직 다 오지 않음
+            if (header == WireCodec.MALFORMED) { close(); return; } // 잘못된 길이면 비정상 클라이언트로 보고 종료
+            int headerLen = (int) (header >>> 32); // 접두 바이트 수
+            int bodyLen = (int) header; // 본문 길이
+            if (pos + headerLen + bodyLen > partialLen) break; // 본문이 아직 다 오지 않음
+            ClientCommand cmd; // 해석한 명령
+            try { // 본문 해석
+                cmd = WireCodec.decodeCommand(partial, pos + headerLen, bodyLen); // 디코딩
+            } catch (IOException e) { // 잘못된 본문
+                close(); // 종료
+                return; // 끝
+            } // try-catch 끝
+            pos += headerLen + bodyLen; // 다음 프레임
+            if (!dispatch(cmd) || closed.get()) return; // 종료 요청이거나 처리 중 연결이 닫혔으면 중단
+        } // while 끝
+        int remaining = partialLen - pos; // 남은 미완성 프레임
+        if (remaining == 0) { partial = null; partialLen = 0; } // 모두 처리했으면 버퍼 해제(유휴 연결은 버퍼를 들고 있지 않음)
+        else if (pos > 0) { System.arraycopy(partial, pos, partial, 0, remaining); partialLen = remaining; } // 앞으로 당김
+    } // readFrames 끝
+
+    private String takeLine(ByteBuffer buf, int from, int to) { // [from, to) 구간과 미완성 조각을 합쳐 문자열로
+        if (partialLen > 0) { // 이전 조각이 있으면
+            if (!appendPartial(buf, from, to, MAX_LINE_BYTES)) return null; // 이어 붙이기(길이 초과 시 null)
+            int len = partialLen; // 전체 길이
+            if (len > 0 && partial[len - 1] == '\r') len--; // CRLF의 CR 제거
+            String line = new String(partial, 0, len, StandardCharsets.UTF_8); // UTF-8 디코딩
+            partial = null; // 조각 버퍼 해제(유휴 연결은 버퍼를 들고 있지 않음)
+            partialLen = 0; // 길이 초기화
+            return line; // 완성된 줄
+        } // if 끝
+        int len = to - from; // 줄 길이
+        if (len > MAX_LINE_BYTES) { close(); return null; } // 너무 길면 종료
+        if (len > 0 && buf.get(to - 1) == '\r') len--; // CRLF의 CR 제거
+        byte[] bytes = new byte[len]; // 줄 바이트 복사본
+        buf.get(from, bytes, 0, len); // 절대 위치에서 복사
+        return new String(bytes, StandardCharsets.UTF_8); // UTF-8 디코딩
+    } // takeLine 끝
+
+    private boolean appendPartial(ByteBuffer buf, int from, int to, int limit) { // 미완성 조각 뒤에 이어 붙이기
+        int add = to - from; // 추가할 길이
+        if (partialLen + add > limit) { close(); return false; } // 한도 초과면 종료
+        if (partial == null) partial = new byte[Math.max(256, add)]; // 처음이면 작게 할당
+        else if (partial.length < partialLen + add) partial = Arrays.copyOf(partial, Math.max(partial.length * 2, partialLen + add)); // 부족하면 두 배로 확장
+        buf.get(from, partial, partialLen, add); // 절대 위치에서 복사
+        partialLen += add; // 길이 갱신
+        return true; // 성공
+    } // appendPartial 끝
+
+    private boolean dispatch(String line) { // ClientHandler에 텍스트 한 줄 전달
+        try { // 명령 처리 중 예외가 루프를 죽이지 않도록
+            if (handler.handleLine(line)) return true; // 계속 수신
+        } catch (RuntimeException e) { // 처리 중 예외
+            e.printStackTrace(); // 로그 출력 후
+            return true; // 연결은 유지
+        } // try-catch 끝
+        close(); // /quit 요청이면 종료
+        return false; // 중단 신호
+    } // dispatch 끝
+
+    private boolean dispatch(ClientCommand cmd) { // ClientHandler에 명령 하나 전달(바이너리 모드)
+        try { // 명령 처리 중 예외가 루프를 죽이지 않도록
+            if (handler.handle(cmd)) return true; // 계속 수신
+        } catch (RuntimeException e) { // 처리 중 예외
+            e.printStackTrace(); // 로그 출력 후
+            return true; // 연결은 유지
+        } // try-catch 끝
+        close(); // /quit 요청이면 종료
+        return false; // 중단 신호
+    } // dispatch 끝
+
+    /* ---------------- 쓰기 ---------------- */ // 요청은 어느 스레드에서나, 실제 쓰기는 루프 스레드에서
+
+    @Override
+    public void send(ServerMessage msg) { // 메시지 송신 요청
+        if (closed.get()) return; // 닫힌 연결이면 무시
+        OutboundQueue.Result r = queue.offer(msg); // 제한된 대기열에 추가
+        if (r == OutboundQueue.Result.OVERFLOW) { close(); return; } // 느린 클라이언트면 종료
+        if (r != OutboundQueue.Result.QUEUED) return; // 합쳐졌거나 버려졌으면 flush 불필요(이미 예약됨)
+        if (loop.inEventLoop()) flush(); // 루프 스레드면 바로 쓰기 시도
+        else if (flushScheduled.compareAndSet(false, true)) loop.execute(this::flush); // 아니면 flush를 한 번만 예약
+    } // send 끝
+
+    void flush() { // 대기열을 소켓에 최대한 쓰기(루프 스레드 전용)
+        flushScheduled.set(false); // 이후 들어오는 송신은 다시 예약 가능
+        if (closed.get()) return; // 닫혔으면 무시
+        try { // 쓰기 예외 대비
+            while (true) { // 보낼 것이 있는 동안
+                while (writeCount < WRITE_BATCH) { // 빈 자리만큼 대기열에서 꺼내기
+                    ServerMessage msg = queue.poll(); // 다음 메시지
+                    if (msg == null) break; // 대기열 비었음
+                    writing[writeCount++] = msg.buffer(binary); // 방 전체가 공유하는 인코딩 버퍼의 뷰(복사 없음)
+                } // while 끝
+                if (writeHead == writeCount) break; // 모두 보냄
+                channel.write(writing, writeHead, writeCount - writeHead); // 여러 메시지를 시스템 호출 한 번으로
+                while (writeHead < writeCount && !writing[writeHead].hasRemaining()) writing[writeHead++] = null; // 다 쓴 버퍼 해제
+                if (writeHead < writeCount) { // 커널 송신 버퍼가 가득 찼으면
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE); // 쓰기 가능 이벤트를 기다림
+                    return; // 다음 이벤트에서 이어서(그동안 쌓이는 줄은 대기열 정책이 관리)
+                } // if 끝
+                writeHead = writeCount = 0; // 묶음을 다 보냈으면 처음부터 다시 채움
+            } // while 끝
+            if ((key.interestOps() & SelectionKey.OP_WRITE) != 0) key.interestOps(SelectionKey.OP_READ); // 모두 보냈으면 쓰기 감시 해제
+        } catch (IOException e) { // 연결 끊김 등
+            close(); // 종료 처리
+        } // try-catch 끝
+    } // flush 끝
+
+    @Override
+    public void execute(Runnable task) { // 루프 스레드에서 실행(명령 처리와 같은 스레드라 그 사이에 다른 명령이 끼지 않음)
+        if (loop.inEventLoop()) { task.run(); return; } // 이미 루프 스레드
+        loop.execute(() -> { if (!closed.get()) task.run(); }); // 예약(그 사이 닫혔으면 버림)
+    } // execute 끝
+
+    /* ---------------- 종료 ---------------- */ // 어느 스레드에서나 호출 가능
+
+    @Override
+    public void close() { // 연결 종료
+        if (!loop.inEventLoop()) { loop.execute(this::close); return; } // 셀렉터 관련 정리는 루프 스레드에서
+        if (!closed.compareAndSet(false, true)) return; // 이미 닫혔으면 무시
+        if (key != null) key.cancel(); // 셀렉터 등록 해제
+        try { channel.close(); } catch (IOException ignore) {} // 채널 닫기(예외 무시)
+        queue.close(); // 대기열 비우기
+        Arrays.fill(writing, null); // 쓰던 버퍼 해제
+        writeHead = writeCount = 0; // 위치 초기화
+        partial = null; // 조각 버퍼 해제
+        handler.onDisconnect(); // 퇴장 처리(방/접속자 목록 갱신)
+    } // close 끝
+} // NioConnection 클래스 끝
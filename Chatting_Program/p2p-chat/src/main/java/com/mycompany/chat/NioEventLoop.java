@@ -0,0 +1,105 @@
+package com.mycompany.chat; // NioEventLoop 클래스가 속한 패키지 선언
+
+import java.io.IOException; // Selector/채널 입출력 예외
+import java.nio.ByteBuffer; // 루프 공용 읽기 버퍼
+import java.nio.channels.ClosedSelectorException; // 종료된 셀렉터 접근 예외
+import java.nio.channels.SelectionKey; // 채널-셀렉터 등록 키
+import java.nio.channels.Selector; // 다수 채널의 준비 상태를 한 스레드에서 감시
+import java.nio.channels.SocketChannel; // 논블로킹 클라이언트 채널
+import java.util.Iterator; // 선택된 키 순회
+import java.util.Queue; // 루프 스레드에서 실행할 작업 큐
+import java.util.concurrent.ConcurrentLinkedQueue; // 다른 스레드가 작업을 넣는 락 없는 큐
+import java.util.concurrent.atomic.AtomicBoolean; // 중복 wakeup 방지 플래그
+
+/** Selector 하나로 여러 연결의 읽기/쓰기를 처리하는 I/O 이벤트 루프 */ // 스레드 하나가 수만 개의 유휴 연결을 담당
+final class NioEventLoop implements Runnable { // 전용 스레드에서 실행
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024; // 루프 공용 읽기 버퍼 크기(연결마다 따로 두지 않음)
+
+    private final Selector selector; // 이 루프가 감시하는 셀렉터
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>(); // 다른 스레드가 요청한 작업(등록/쓰기 예약 등)
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false); // 이미 wakeup을 걸어 두었는지
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE); // 모든 연결이 공유하는 읽기 버퍼(루프 스레드 전용)
+    private final Thread thread; // 루프 스레드
+    private volatile boolean running = true; // 루프 지속 여부
+
+    NioEventLoop(String name) throws IOException { // 셀렉터와 스레드 준비
+        this.selector = Selector.open(); // 셀렉터 생성
+        this.thread = new Thread(this, name); // 루프 스레드 생성
+    } // 생성자 끝
+
+    void start() { // 루프 시작
+        thread.start(); // 스레드 실행
+    } // start 끝
+
+    boolean inEventLoop() { // 현재 스레드가 이 루프 스레드인지
+        return Thread.currentThread() == thread; // 스레드 동일성 비교
+    } // inEventLoop 끝
+
+    void execute(Runnable task) { // 루프 스레드에서 실행할 작업 등록
+        tasks.add(task); // 작업 큐에 추가
+        if (!inEventLoop() && wakeupPending.compareAndSet(false, true)) selector.wakeup(); // select()에 묶여 있으면 한 번만 깨움
+    } // execute 끝
+
+    void register(SocketChannel channel) { // 새로 수락된 채널을 이 루프에 배정
+        execute(() -> { // 셀렉터 조작은 루프 스레드에서만
+            try { // 등록 실패 대비
+                channel.configureBlocking(false); // 논블로킹 모드로 전환
+                NioConnection conn = new NioConnection(channel, this); // 연결 상태 객체 생성
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, conn); // 읽기 이벤트 감시 등록
+                conn.attach(key); // 연결에 키 연결
+            } catch (IOException e) { // 등록 실패 시
+                System.err.println("채널 등록 실패: " + e.getMessage()); // 로그 출력
+                try { channel.close(); } catch (IOException ignore) {} // 채널 정리
+            } // try-catch 끝
+        }); // execute 끝
+    } // register 끝
+
+    @Override
+    public void run() { // 이벤트 루프 본체
+        while (running) { // 종료 요청 전까지 반복
+            try { // 루프 한 바퀴 중 예외가 나도 루프는 유지
+                selector.select(); // 준비된 채널이 있거나 wakeup될 때까지 대기
+                wakeupPending.set(false); // 다음 execute가 다시 깨울 수 있도록 해제
+                processSelectedKeys(); // 읽기/쓰기 이벤트 처리
+                runTasks(); // 다른 스레드가 넣은 작업 처리
+            } catch (ClosedSelectorException e) { // 셀렉터가 닫혔으면
+                break; // 루프 종료
+            } catch (Exception e) { // 그 밖의 예외
+                e.printStackTrace(); // 스택트레이스 출력 후 계속
+            } // try-catch 끝
+        } // while 끝
+        for (SelectionKey key : selector.keys()) { // 종료 시 남은 연결 정리
+            if (key.attachment() instanceof NioConnection c) c.close(); // 연결 종료(퇴장 처리 포함)
+        } // for 끝
+        try { selector.close(); } catch (IOException ignore) {} // 셀렉터 닫기
+    } // run 끝
+
+    private void processSelectedKeys() { // 선택된 키 처리
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator(); // 준비된 키 순회자
+        while (it.hasNext()) { // 모든 준비된 키에 대해
+            SelectionKey key = it.next(); // 키 꺼내기
+            it.remove(); // 처리한 키는 집합에서 제거
+            NioConnection conn = (NioConnection) key.attachment(); // 연결 객체
+            if (!key.isValid()) { conn.close(); continue; } // 이미 취소된 키면 정리
+            if (key.isWritable()) conn.flush(); // 송신 버퍼 여유가 생겼으면 대기 중인 데이터 전송
+            if (key.isValid() && key.isReadable()) conn.onReadable(readBuffer); // 읽을 데이터가 있으면 읽어서 줄 단위 처리
+        } // while 끝
+    } // processSelectedKeys 끝
+
+    private void runTasks() { // 작업 큐 비우기
+        Runnable task; // 꺼낸 작업
+        while ((task = tasks.poll()) != null) { // 큐가 빌 때까지
+            try { // 작업 하나의 실패가 다른 작업을 막지 않도록
+                task.run(); // 실행
+            } catch (Exception e) { // 작업 예외
+                e.printStackTrace(); // 스택트레이스 출력
+            } // try-catch 끝
+        } // while 끝
+    } // runTasks 끝
+
+    void shutdown() { // 루프 종료 요청
+        running = false; // 플래그 내리고
+        selector.wakeup(); // select()에서 깨움
+    } // shutdown 끝
+} // NioEventLoop 클래스 끝
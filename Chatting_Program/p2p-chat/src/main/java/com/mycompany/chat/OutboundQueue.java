@@ -0,0 +1,189 @@
+package com.mycompany.chat; // OutboundQueue 클래스가 속한 패키지 선언
+
+import java.lang.management.ManagementFactory; // 플랫폼 MBean 서버(JConsole 등에서 지표 조회)
+import java.util.ArrayDeque; // 송신 대기열 본체
+import java.util.HashMap; // 목록 갱신 종류별 최신 항목(합치기용)
+import java.util.Iterator; // 오래된 목록 갱신 찾기
+import java.util.Map; // 맵 인터페이스
+import java.util.concurrent.atomic.AtomicLong; // 전체 대기열 깊이 합계
+import java.util.concurrent.atomic.LongAdder; // 고빈도 증가 카운터
+import java.util.concurrent.locks.Condition; // 송신 대기 신호
+import java.util.concurrent.locks.ReentrantLock; // 가상 스레드를 고정하지 않는 락(synchronized 대신)
+import javax.management.ObjectName; // MBean 이름
+
+/**
+ * 연결 하나의 제한된 송신 대기열.
+ * - 브로드캐스트하는 쪽은 offer()로 넣기만 하고 바로 돌아가며, 실제 소켓 쓰기는 연결 전용 작성자(writer)가 한다.
+ * - 가득 찼을 때의 정책: 오래된 목록 갱신 버리기 / 같은 종류 목록 갱신 합치기 / 연결 끊기.
+ */ // 느린 클라이언트 한 명이 방 전체의 지연을 늘리지 않도록 분리
+final class OutboundQueue { // 송신 통로(SocketTransport, NioConnection)가 하나씩 소유
+
+    /** 대기열이 가득 찼을 때의 처리 방식 */ // chat.outbound.policy 설정값
+    enum Policy { // 정책 종류
+        DROP_OLDEST_PRESENCE, // 가장 오래된 목록 갱신(allusers/userlist 등)을 버리고 새 항목을 넣음
+        COALESCE, // 같은 종류의 목록 갱신이 이미 대기 중이면 그것을 빼고 최신 내용을 맨 뒤에 넣음(안 되면 오래된 목록 갱신 버리기)
+        DISCONNECT // 즉시 연결 종료
+    } // Policy 끝
+
+    /** offer 결과 */ // 호출한 송신 통로가 후속 조치를 결정
+    enum Result { QUEUED, COALESCED, DROPPED, OVERFLOW } // 대기열 추가 / 합쳐짐 / 버려짐 / 끊어야 함
+
+    static final int CAPACITY = ServerConfig.getInt("chat.outbound.capacity", 1024); // 연결당 최대 대기 메시지 수
+    static final Policy POLICY = Policy.valueOf(ServerConfig.get("chat.outbound.policy", "COALESCE").toUpperCase()); // 가득 찼을 때 정책
+
+    /* ---------------- 전역 지표 ---------------- */ // 모든 연결 합계(MBean으로 노출)
+
+    private static final AtomicLong totalDepth = new AtomicLong(); // 모든 대기열에 쌓인 줄 수 합계
+    private static final LongAdder dropped = new LongAdder(); // 버린 목록 갱신 수
+    private static final LongAdder coalesced = new LongAdder(); // 합쳐서 없앤 목록 갱신 수
+    private static final LongAdder slowDisconnects = new LongAdder(); // 대기열 초과로 끊은 연결 수
+    private static final AtomicLong maxDepth = new AtomicLong(); // 관측된 최대 단일 대기열 깊이
+
+    private static final class Entry { // 대기열 항목
+        final String key; // 목록 갱신 종류(일반 채팅/시스템 메시지는 null)
+        final ServerMessage msg; // 보낼 메시지
+        Entry(String key, ServerMessage msg) { this.key = key; this.msg = msg; } // 생성자
+    } // Entry 끝
+
+    private final ArrayDeque<Entry> deque = new ArrayDeque<>(); // 대기열
+    private final Map<String, Entry> latestByKey = new HashMap<>(); // 종류별 아직 안 보낸 목록 갱신
+    private final ReentrantLock lock = new ReentrantLock(); // 대기열 보호 락(블로킹 I/O는 락 밖에서)
+    private final Condition notEmpty = lock.newCondition(); // 작성자 깨우기 신호
+    private boolean closed; // 닫힘 여부(lock 안에서만 접근)
+
+    /** 메시지 하나 넣기(브로드캐스트 쪽, 블로킹하지 않음) */ // 결과에 따라 송신 통로가 flush 예약/연결 종료
+    Result offer(ServerMessage msg) { // 항목 추가
+        String key = msg.coalesceKey(); // 목록 갱신이면 종류 키
+        lock.lock(); // 대기열 잠금
+        try { // 해제 보장
+            if (closed) return Result.DROPPED; // 닫힌 대기열이면 버림
+            if (key != null && POLICY == Policy.COALESCE) { // 합치기 정책이고 목록 갱신이면
+                Entry prev = latestByKey.remove(key); // 같은 종류가 대기 중인지
+                if (prev != null) { // 있으면
+                    deque.removeFirstOccurrence(prev); // 이전 자리에서 뺌(그 뒤에 쌓인 채팅/시스템 줄보다 먼저 나가지 않도록)
+                    Entry e = new Entry(key, msg); // 최신 내용
+                    deque.addLast(e); // 맨 뒤에(깊이는 그대로)
+                    latestByKey.put(key, e); // 종류별 최신 항목
+                    coalesced.increment(); // 지표 증가
+                    return Result.COALESCED; // 늘어난 항목 없음(작성자는 이미 깨어 있음)
+                } // if 끝
+            } // if 끝
+            if (deque.size() >= CAPACITY) { // 가득 찼으면
+                if (POLICY == Policy.DISCONNECT || !dropOldestPresence()) { // 끊기 정책이거나 버릴 목록 갱신이 없으면
+                    slowDisconnects.increment(); // 지표 증가
+                    return Result.OVERFLOW; // 호출자가 연결을 끊음
+                } // if 끝
+            } // if 끝
+            Entry e = new Entry(key, msg); // 새 항목
+            deque.addLast(e); // 뒤에 추가
+            if (key != null) latestByKey.put(key, e); // 종류별 최신 항목 갱신
+            totalDepth.incrementAndGet(); // 전체 깊이 증가
+            maxDepth.accumulateAndGet(deque.size(), Math::max); // 최대 깊이 갱신
+            notEmpty.signal(); // 작성자 깨우기
+            return Result.QUEUED; // 추가 완료
+        } finally { // 항상
+            lock.unlock(); // 잠금 해제
+        } // try-finally 끝
+    } // offer 끝
+
+    private boolean dropOldestPresence() { // 가장 오래된 목록 갱신 하나 버리기(lock 안에서 호출)
+        Iterator<Entry> it = deque.iterator(); // 앞(오래된 쪽)부터
+        while (it.hasNext()) { // 끝까지
+            Entry e = it.next(); // 항목
+            if (e.key == null) continue; // 채팅/시스템 메시지는 버리지 않음
+            it.remove(); // 제거
+            if (latestByKey.get(e.key) == e) latestByKey.remove(e.key); // 종류별 최신 항목이었다면 정리
+            totalDepth.decrementAndGet(); // 전체 깊이 감소
+            dropped.increment(); // 지표 증가
+            return true; // 하나 버림
+        } // while 끝
+        return false; // 버릴 것이 없음
+    } // dropOldestPresence 끝
+
+    /** 메시지 하나 꺼내기(작성자 쪽, 없으면 null) */ // NIO 루프처럼 블로킹하면 안 되는 작성자용
+    ServerMessage poll() { // 즉시 반환
+        lock.lock(); // 잠금
+        try { // 해제 보장
+            return removeFirst(); // 맨 앞 항목
+        } finally { // 항상
+            lock.unlock(); // 해제
+        } // try-finally 끝
+    } // poll 끝
+
+    /** 메시지 하나 꺼내기(작성자 쪽, 빌 때까지 대기, 닫히면 null) */ // 연결 전용 작성자 스레드용
+    ServerMessage take() throws InterruptedException { // 블로킹 반환
+        lock.lock(); // 잠금
+        try { // 해제 보장
+            while (deque.isEmpty() && !closed) notEmpty.await(); // 항목이 생기거나 닫힐 때까지 대기
+            return removeFirst(); // 닫혔으면 null
+        } finally { // 항상
+            lock.unlock(); // 해제
+        } // try-finally 끝
+    } // take 끝
+
+    private ServerMessage removeFirst() { // 맨 앞 항목 제거(lock 안에서 호출)
+        Entry e = deque.pollFirst(); // 꺼내기
+        if (e == null) return null; // 비어 있음
+        if (e.key != null && latestByKey.get(e.key) == e) latestByKey.remove(e.key); // 보내는 중이므로 더 이상 합치기 대상 아님
+        totalDepth.decrementAndGet(); // 전체 깊이 감소
+        return e.msg; // 보낼 메시지
+    } // removeFirst 끝
+
+    void close() { // 대기열 닫기(남은 항목 폐기, 작성자 깨움)
+        lock.lock(); // 잠금
+        try { // 해제 보장
+            if (closed) return; // 이미 닫힘
+            closed = true; // 닫힘 표시
+            totalDepth.addAndGet(-deque.size()); // 남은 깊이만큼 합계 감소
+            deque.clear(); // 비우기
+            latestByKey.clear(); // 비우기
+            notEmpty.signalAll(); // 대기 중인 작성자 깨우기
+        } finally { // 항상
+            lock.unlock(); // 해제
+        } // try-finally 끝
+    } // close 끝
+
+    int depth() { // 현재 대기열 깊이
+        lock.lock(); // 잠금
+        try { return deque.size(); } finally { lock.unlock(); } // 크기 반환
+    } // depth 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=OutboundQueue) + Metrics
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙: 구현 클래스 이름 + "MBean"
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        long getTotalDepth(); // 모든 연결 대기열 깊이 합계
+        long getMaxDepth(); // 관측된 최대 단일 대기열 깊이
+        long getDroppedPresence(); // 버린 목록 갱신 수
+        long getCoalescedPresence(); // 합쳐진 목록 갱신 수
+        long getSlowConsumerDisconnects(); // 대기열 초과로 끊은 연결 수
+        String getPolicy(); // 현재 정책
+        int getCapacity(); // 연결당 용량
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 정적 카운터를 읽기만 함
+    public static final class Stats implements StatsMBean { // MBean 구현체
+        @Override public long getTotalDepth() { return totalDepth.get(); } // 깊이 합계
+        @Override public long getMaxDepth() { return maxDepth.get(); } // 최대 깊이
+        @Override public long getDroppedPresence() { return dropped.sum(); } // 버린 수
+        @Override public long getCoalescedPresence() { return coalesced.sum(); } // 합친 수
+        @Override public long getSlowConsumerDisconnects() { return slowDisconnects.sum(); } // 끊은 수
+        @Override public String getPolicy() { return POLICY.name(); } // 정책
+        @Override public int getCapacity() { return CAPACITY; } // 용량
+    } // Stats 끝
+
+    static long totalDepth() { return totalDepth.get(); } // 모든 연결 대기열 깊이 합계(드레인이 0이 될 때까지 기다림)
+
+    static void registerMBean() { // 서버 시작 시 한 번 등록(GET /metrics에도 같은 값)
+        Metrics.gauge("chat_outbound_depth_total", totalDepth::get); // 모든 연결 대기열 깊이 합계
+        Metrics.gauge("chat_outbound_depth_max", maxDepth::get); // 관측된 최대 단일 대기열 깊이
+        Metrics.counter("chat_outbound_dropped_total", dropped::sum); // 버린 목록 갱신 수
+        Metrics.counter("chat_outbound_coalesced_total", coalesced::sum); // 합쳐진 목록 갱신 수
+        Metrics.counter("chat_outbound_slow_disconnects_total", slowDisconnects::sum); // 대기열 초과로 끊은 연결 수
+        try { // 등록 실패해도 서버는 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Stats(), new ObjectName("com.mycompany.chat:type=OutboundQueue")); // 플랫폼 MBean 서버에 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("송신 대기열 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // OutboundQueue 클래스 끝
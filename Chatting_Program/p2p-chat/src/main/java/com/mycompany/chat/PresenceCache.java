@@ -0,0 +1,130 @@
+package com.mycompany.chat; // PresenceCache 클래스가 속한 패키지 선언
+
+import java.util.ArrayDeque; // 최근 변경분(재접속용)
+import java.util.ArrayList; // 전파 대기 변경분
+import java.util.List; // 리스트 인터페이스
+import java.util.Map; // 맵 인터페이스
+import java.util.TreeSet; // 정렬된 방 이름
+import java.util.concurrent.ConcurrentHashMap; // 상태 조회는 락 없이
+
+/**
+ * 전체 접속자/방 목록 스냅샷 캐시.
+ * - 접속/퇴장/상태 변경마다 버전을 올리고, 페이로드 메시지는 버전마다 한 번만 만든다(받는 사람마다 다시 만들지 않음).
+ * - 델타 모드 클라이언트에게 보낼 한 줄짜리 변경분(allusers+:/allusers-:)도 여기서 만들어 버전 순서대로 모아 둔다.
+ * - 방 목록은 방이 새로 생길 때만 바뀌므로 그때만 다시 만든다.
+ * - 최근 변경분을 전파와 별도로 조금 남겨 두어, 잠깐 끊겼다 다시 붙은 델타 모드 클라이언트에는 전체 목록 대신 빠진 변경분만 보낸다.
+ */ // 이벤트마다 clients 전체를 훑던 buildAllUsersPayload/getRoomListPayload 대체
+final class PresenceCache { // ChatServer에서 하나만 사용
+
+    static final String DEFAULT_STATUS = "활동 중"; // 상태 기본값
+
+    private final Map<String, String> statuses = new ConcurrentHashMap<>(); // 닉네임 → 상태(쓰기는 this 락 안에서)
+    private long version; // 전체 접속자 버전(변경마다 +1)
+    private ServerMessage fullPayload; // 캐시된 "allusers:..."(변경 시 null)
+    private ServerMessage versionedPayload; // 캐시된 "allusers@<버전>:..."(변경 시 null)
+    private final int maxPendingDeltas; // 이보다 많이 쌓이면 변경분 대신 스냅샷 전송
+    private List<ServerMessage> pendingDeltas = new ArrayList<>(); // 아직 전파하지 않은 변경분(버전 순)
+    private boolean deltasOverflowed; // 한도를 넘어 변경분을 버렸는지
+    private final ArrayDeque<ServerMessage> recent = new ArrayDeque<>(); // 최근 변경분(버전 순, 최대 maxPendingDeltas개)
+
+    private final TreeSet<String> roomNames = new TreeSet<>(); // 정렬된 방 이름
+    private ServerMessage roomListPayload = ServerMessage.roomList(List.of()); // 캐시된 "roomlist:..."
+
+    PresenceCache(int maxPendingDeltas) { // 전파 한 번에 보낼 최대 변경분 수
+        this.maxPendingDeltas = maxPendingDeltas; // 보관
+    } // 생성자 끝
+
+    /* ---------------- 전체 접속자 ---------------- */ // 접속/퇴장/상태 변경
+
+    /** 접속 또는 상태 변경. 바뀌었으면 true(변경분 "allusers+:<버전>:닉|상태"를 쌓아 둠) */ // 호출자가 전파 예약
+    synchronized boolean put(String nick, String status) { // 추가/갱신
+        if (status.equals(statuses.put(nick, status))) return false; // 같은 값이면 전파 불필요
+        invalidate(); // 버전 증가 + 캐시 무효화
+        addDelta(ServerMessage.allUsersPut(version, nick, status)); // 변경분
+        return true; // 바뀜
+    } // put 끝
+
+    /** 퇴장. 있던 사용자면 true(변경분 "allusers-:<버전>:닉"을 쌓아 둠) */ // 호출자가 전파 예약
+    synchronized boolean remove(String nick) { // 제거
+        if (statuses.remove(nick) == null) return false; // 없던 사용자
+        invalidate(); // 버전 증가 + 캐시 무효화
+        addDelta(ServerMessage.allUsersRemove(version, nick)); // 변경분
+        return true; // 바뀜
+    } // remove 끝
+
+    private void invalidate() { // 변경 후 처리(락 안에서 호출)
+        version++; // 버전 증가
+        fullPayload = null; // 다음 조회 때 다시 생성
+        versionedPayload = null; // 다음 조회 때 다시 생성
+    } // invalidate 끝
+
+    private void addDelta(ServerMessage delta) { // 변경분 쌓기(락 안에서 호출)
+        recent.addLast(delta); // 재접속용(전파와 무관하게 유지)
+        if (recent.size() > maxPendingDeltas) recent.removeFirst(); // 가장 오래된 것 버림
+        if (deltasOverflowed) return; // 이미 스냅샷으로 대체하기로 함
+        if (pendingDeltas.size() >= maxPendingDeltas) { // 한도 초과면
+            pendingDeltas.clear(); // 변경분 대신
+            deltasOverflowed = true; // 스냅샷을 보내도록 표시
+            return; // 끝
+        } // if 끝
+        pendingDeltas.add(delta); // 버전 순으로 추가
+    } // addDelta 끝
+
+    /** 쌓인 변경분을 꺼냄(버전 순). 한도를 넘었으면 null → 호출자는 버전 포함 스냅샷을 보냄 */ // 전파기 스레드에서 호출
+    synchronized List<ServerMessage> drainDeltas() { // 꺼내고 비우기
+        if (deltasOverflowed) { deltasOverflowed = false; return null; } // 스냅샷으로 대체
+        List<ServerMessage> out = pendingDeltas; // 현재 목록
+        pendingDeltas = new ArrayList<>(); // 새 목록
+        return out; // 반환
+    } // drainDeltas 끝
+
+    /** 버전 since 뒤의 변경분(버전 순). 남아 있지 않으면 null → 호출자는 버전 포함 스냅샷을 보냄 */ // 재접속 처리에서 호출
+    synchronized List<ServerMessage> deltasSince(long since) { // 빠진 변경분
+        if (since == version) return List.of(); // 바뀐 것 없음
+        if (since > version || recent.isEmpty() || recent.peekFirst().version > since + 1) return null; // 다른 세대이거나 이미 버린 구간
+        List<ServerMessage> out = new ArrayList<>((int) (version - since)); // 정확한 크기
+        for (ServerMessage d : recent) if (d.version > since) out.add(d); // 그 뒤 것만
+        return out; // 결과
+    } // deltasSince 끝
+
+    String status(String nick) { // 상태 조회(락 없음)
+        return statuses.getOrDefault(nick, DEFAULT_STATUS); // 없으면 기본값
+    } // status 끝
+
+    /** 기존 형식 전체 목록("allusers:닉|상태,...") */ // 델타를 모르는 클라이언트용
+    synchronized ServerMessage payload() { // 버전마다 한 번 생성
+        if (fullPayload == null) fullPayload = ServerMessage.allUsers(users(), ServerMessage.NO_VERSION); // 없으면 생성
+        return fullPayload; // 캐시 반환
+    } // payload 끝
+
+    /** 버전 포함 전체 목록("allusers@<버전>:닉|상태,...") */ // 델타 모드 클라이언트의 기준점
+    synchronized ServerMessage versionedPayload() { // 버전마다 한 번 생성
+        if (versionedPayload == null) versionedPayload = ServerMessage.allUsers(users(), version); // 없으면 생성
+        return versionedPayload; // 캐시 반환
+    } // versionedPayload 끝
+
+    private List<ServerMessage.User> users() { // 현재 접속자 목록(락 안에서 호출)
+        List<ServerMessage.User> out = new ArrayList<>(statuses.size()); // 정확한 크기로 시작
+        for (Map.Entry<String, String> e : statuses.entrySet()) { // 모든 접속자
+            out.add(new ServerMessage.User(e.getKey(), e.getValue())); // 닉네임 + 상태
+        } // for 끝
+        return out; // 결과
+    } // users 끝
+
+    /* ---------------- 방 목록 ---------------- */ // 방 생성 시에만 변경
+
+    /** 방 이름 추가. 새로 추가되었으면 true */ // 호출자가 방 목록을 전파
+    synchronized boolean addRoom(String room) { // 추가
+        if (!roomNames.add(room)) return false; // 이미 있음
+        roomListPayload = ServerMessage.roomList(List.copyOf(roomNames)); // 정렬된 이름으로 다시 생성
+        return true; // 새 방
+    } // addRoom 끝
+
+    synchronized ServerMessage roomListPayload() { // 캐시된 방 목록
+        return roomListPayload; // 반환
+    } // roomListPayload 끝
+
+    synchronized int roomCount() { // 방 수(방은 없어지지 않으므로 방 목록의 버전 역할)
+        return roomNames.size(); // 반환
+    } // roomCount 끝
+} // PresenceCache 클래스 끝
@@ -0,0 +1,122 @@
+package com.mycompany.chat; // PresenceScheduler 클래스가 속한 패키지 선언
+
+import java.lang.management.ManagementFactory; // 플랫폼 MBean 서버
+import java.util.Iterator; // 변경된 방 꺼내기
+import java.util.Set; // 변경된 방 집합
+import java.util.concurrent.ConcurrentHashMap; // 동시성 집합 생성
+import java.util.concurrent.Executors; // 전파 스케줄러
+import java.util.concurrent.ScheduledExecutorService; // 지연 실행기
+import java.util.concurrent.TimeUnit; // 시간 단위
+import java.util.concurrent.atomic.AtomicBoolean; // 변경/예약 플래그
+import java.util.concurrent.atomic.LongAdder; // 지표 카운터
+import javax.management.ObjectName; // MBean 이름
+
+/**
+ * 목록 갱신(userlist/allusers/roomlist) 묶음 전파기.
+ * - 입장/퇴장/상태 변경은 "무엇이 바뀌었는지"만 표시하고, 최대 tick ms마다 한 번 바뀐 목록만 최신 내용으로 보낸다.
+ * - 같은 tick 안에서 같은 방/목록이 여러 번 바뀌어도 한 번만 전송된다(재접속 폭주 시 중복 전송 제거).
+ * - 채팅/시스템 메시지와 본인에게만 가는 myrooms/roomactive는 거치지 않고 바로 보낸다.
+ */ // tick이 0이면 표시한 스레드에서 바로 전파(기존 동작)
+final class PresenceScheduler { // ChatServer에서 하나만 사용
+
+    private final long tickMs; // 전파 간격
+    private final Set<String> dirtyRooms = ConcurrentHashMap.newKeySet(); // 참가자 목록이 바뀐 방
+    private final AtomicBoolean rosterDirty = new AtomicBoolean(); // 전체 접속자 목록 변경 여부
+    private final AtomicBoolean roomListDirty = new AtomicBoolean(); // 방 목록 변경 여부
+    private final AtomicBoolean scheduled = new AtomicBoolean(); // 전파 작업 예약 여부
+    private final ScheduledExecutorService timer; // 전파 스레드(tick이 0이면 null)
+
+    private final LongAdder requested = new LongAdder(); // 표시 요청 수(기존 방식이라면 전파했을 횟수)
+    private final LongAdder emitted = new LongAdder(); // 실제로 만든 목록 전파 수
+    private final LongAdder lines = new LongAdder(); // 실제로 보낸 줄 수
+    private final LongAdder flushes = new LongAdder(); // 전파 실행 횟수
+
+    PresenceScheduler(long tickMs) { // 전파 간격 지정
+        this.tickMs = tickMs; // 보관
+        this.timer = tickMs <= 0 ? null : Executors.newSingleThreadScheduledExecutor(r -> { // 간격이 있을 때만 전용 스레드
+            Thread t = new Thread(r, "presence-flush"); // 이름 지정
+            t.setDaemon(true); // JVM 종료를 막지 않음
+            return t; // 반환
+        }); // newSingleThreadScheduledExecutor 끝
+    } // 생성자 끝
+
+    /* ---------------- 변경 표시 ---------------- */ // 어느 스레드에서나 호출
+
+    void markRoom(String room) { // 방 참가자 목록 변경
+        requested.increment(); // 지표 증가
+        dirtyRooms.add(room); // 표시
+        schedule(); // 전파 예약
+    } // markRoom 끝
+
+    void markRoster() { // 전체 접속자 목록 변경
+        requested.increment(); // 지표 증가
+        rosterDirty.set(true); // 표시
+        schedule(); // 전파 예약
+    } // markRoster 끝
+
+    void markRoomList() { // 방 목록 변경
+        requested.increment(); // 지표 증가
+        roomListDirty.set(true); // 표시
+        schedule(); // 전파 예약
+    } // markRoomList 끝
+
+    private void schedule() { // tick 뒤 전파 한 번 예약
+        if (timer == null) { flush(); return; } // 간격이 0이면 바로 전파
+        if (scheduled.compareAndSet(false, true)) timer.schedule(this::flush, tickMs, TimeUnit.MILLISECONDS); // 이미 예약돼 있으면 그 전파에 합류
+    } // schedule 끝
+
+    /* ---------------- 전파 ---------------- */ // 한 번에 한 스레드만
+
+    private synchronized void flush() { // 표시된 목록을 최신 내용으로 전송
+        scheduled.set(false); // 이후 표시는 다음 전파로(아래에서 꺼내기 전에 풀어 누락 방지)
+        flushes.increment(); // 지표 증가
+        try { // 전파 중 예외가 스케줄러를 멈추지 않도록
+            if (roomListDirty.getAndSet(false)) send(ChatServer.flushRoomList()); // 방 목록
+            if (rosterDirty.getAndSet(false)) send(ChatServer.flushAllUsers()); // 전체 접속자
+            for (Iterator<String> it = dirtyRooms.iterator(); it.hasNext(); ) { // 바뀐 방
+                String room = it.next(); // 방 이름
+                it.remove(); // 꺼내기(전송 중 다시 표시되면 다음 전파에 포함)
+                send(ChatServer.flushUserList(room)); // 참가자 목록
+            } // for 끝
+        } catch (RuntimeException e) { // 예상 못 한 오류
+            e.printStackTrace(); // 로그 출력 후 다음 전파는 계속
+        } // try-catch 끝
+    } // flush 끝
+
+    private void send(int sentLines) { // 전파 한 건 기록
+        emitted.increment(); // 목록 전파 수
+        lines.add(sentLines); // 보낸 줄 수
+    } // send 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=PresenceScheduler)
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        long getTickMs(); // 전파 간격
+        long getRequested(); // 표시 요청 수
+        long getEmitted(); // 실제 목록 전파 수
+        double getCoalescingRatio(); // 요청 수 / 전파 수(클수록 많이 합쳐짐)
+        long getLinesSent(); // 보낸 줄 수
+        long getFlushes(); // 전파 실행 횟수
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 카운터를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(필드 직접 접근)
+        @Override public long getTickMs() { return tickMs; } // 간격
+        @Override public long getRequested() { return requested.sum(); } // 요청
+        @Override public long getEmitted() { return emitted.sum(); } // 전파
+        @Override public double getCoalescingRatio() { long e = emitted.sum(); return e == 0 ? 0 : (double) requested.sum() / e; } // 비율
+        @Override public long getLinesSent() { return lines.sum(); } // 줄 수
+        @Override public long getFlushes() { return flushes.sum(); } // 실행 횟수
+    } // Stats 끝
+
+    Stats stats() { return new Stats(); } // 지표 객체
+
+    void registerMBean() { // 플랫폼 MBean 서버에 등록
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats(), new ObjectName("com.mycompany.chat:type=PresenceScheduler")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("목록 전파기 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // PresenceScheduler 클래스 끝
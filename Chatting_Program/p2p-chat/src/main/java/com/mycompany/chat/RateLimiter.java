@@ -0,0 +1,132 @@
+package com.mycompany.chat; // RateLimiter 클래스가 속한 패키지 선언
+
+import java.lang.management.ManagementFactory; // JMX 플랫폼 MBean 서버
+import java.util.concurrent.ConcurrentHashMap; // 방 이름 → 방 버킷
+import java.util.concurrent.TimeUnit; // 대기 시간 단위
+import java.util.concurrent.atomic.AtomicLong; // 다음 방 버킷 정리 시각
+import java.util.concurrent.atomic.LongAdder; // 조치별 카운터
+import java.util.concurrent.locks.LockSupport; // 예약한 만큼 기다림(가상 스레드를 고정하지 않음)
+import javax.management.ObjectName; // MBean 이름
+
+/**
+ * 명령 송신 제한(연결별 + 방별 토큰 버킷).
+ * - 연결마다 채팅/방 조작/상태/기록 조회 네 가지 예산을 따로 두고, 채팅은 방마다 한 예산을 더 둔다(여러 연결이 함께 한 방을 넘치게 하는 경우).
+ * - 예산을 넘으면 chat.ratelimit.action대로: delay(토큰이 생길 때까지 이 연결의 수신만 기다림, maxDelayMs를 넘으면 버림) / drop(버림) / disconnect(연결 종료).
+ *   delay는 연결마다 수신 스레드가 있는 thread/virtual 모드에서만 기다리고, 이벤트 루프가 여러 연결을 맡는 nio 모드에서는 버림으로 처리한다.
+ * - 방 버킷은 다시 가득 차면 새로 만든 것과 같으므로 SWEEP_NS마다 admit 하나가 가득 찬 버킷을 지운다(방이 계속 생겨도 쉬는 방의 버킷은 남지 않음).
+ * - 기다리는 쪽은 넘친 연결의 수신 스레드뿐이라 TCP 흐름 제어로 그 클라이언트만 느려지고, 다른 사용자의 전달 지연에는 더해지지 않는다.
+ */ // ChatServer가 하나 소유, ClientHandler가 명령마다 admit 호출
+final class RateLimiter { // 서버 전체에서 하나
+
+    enum Kind { CHAT, ROOM, STATUS, HISTORY } // 예산 종류(채팅 / 방 생성·가입·나가기·전환·목록 / 상태·재동기화 / 기록 페이지 조회)
+    enum Action { DELAY, DROP, DISCONNECT } // 예산을 넘었을 때 조치
+    enum Verdict { ALLOW, DROP, DISCONNECT } // admit 결과(기다린 뒤 통과하면 ALLOW)
+
+    private final boolean enabled; // 제한 사용 여부
+    private final double[] perSec = new double[Kind.values().length]; // 종류별 초당 허용 수(0 이하면 제한 없음)
+    private final int[] burst = new int[Kind.values().length]; // 종류별 연속 허용 수
+    private final double roomPerSec; // 방마다 초당 채팅 수(0 이하면 제한 없음)
+    private final int roomBurst; // 방마다 연속 채팅 수
+    private final Action action; // 넘쳤을 때 조치
+    private final long maxDelayNs; // delay 조치에서 기다릴 최대 시간
+    private final ConcurrentHashMap<String, TokenBucket> rooms = new ConcurrentHashMap<>(); // 방 이름 → 채팅 버킷
+    private static final long SWEEP_NS = TimeUnit.SECONDS.toNanos(10); // 가득 찬 방 버킷 정리 주기
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_NS); // 다음 정리 시각
+
+    private final LongAdder delayed = new LongAdder(); // 기다린 뒤 통과한 명령 수
+    private final LongAdder dropped = new LongAdder(); // 버린 명령 수
+    private final LongAdder disconnected = new LongAdder(); // 끊은 연결 수
+
+    RateLimiter() { // 설정값(chat.ratelimit.*)으로 구성
+        this.enabled = ServerConfig.getBoolean("chat.ratelimit.enabled", true); // 사용 여부
+        config(Kind.CHAT, 10, 20); // 연결당 채팅
+        config(Kind.ROOM, 2, 10); // 연결당 방 조작(접속 직후 여러 방 가입은 burst로)
+        config(Kind.STATUS, 1, 5); // 연결당 상태 변경/재동기화
+        config(Kind.HISTORY, 2, 10); // 연결당 기록 페이지 조회(저장소 조회 + 가상 스레드)
+        this.roomPerSec = ServerConfig.getDouble("chat.ratelimit.roomChat.perSec", 200); // 방당 채팅
+        this.roomBurst = ServerConfig.getInt("chat.ratelimit.roomChat.burst", 400); // 방당 연속 채팅
+        this.action = Action.valueOf(ServerConfig.get("chat.ratelimit.action", "delay").trim().toUpperCase()); // 조치
+        this.maxDelayNs = TimeUnit.MILLISECONDS.toNanos(ServerConfig.getLong("chat.ratelimit.maxDelayMs", 2_000)); // 최대 대기
+    } // 생성자 끝
+
+    private void config(Kind kind, double defPerSec, int defBurst) { // 종류별 설정 읽기
+        String key = "chat.ratelimit." + kind.name().toLowerCase(); // 설정 키 앞부분
+        perSec[kind.ordinal()] = ServerConfig.getDouble(key + ".perSec", defPerSec); // 초당 허용 수
+        burst[kind.ordinal()] = ServerConfig.getInt(key + ".burst", defBurst); // 연속 허용 수
+    } // config 끝
+
+    /** 연결 하나의 버킷(종류별, 제한 없는 종류는 null) */ // ClientHandler가 하나씩 보관
+    TokenBucket[] newConnection() { // 연결 버킷 생성
+        TokenBucket[] b = new TokenBucket[Kind.values().length]; // 종류별
+        if (!enabled) return b; // 제한 없음
+        for (Kind k : Kind.values()) if (perSec[k.ordinal()] > 0) b[k.ordinal()] = new TokenBucket(perSec[k.ordinal()], burst[k.ordinal()]); // 종류별 버킷
+        return b; // 결과
+    } // newConnection 끝
+
+    /** 명령 하나를 통과시킬지 결정. mayWait면 delay 조치일 때 이 스레드에서 토큰을 기다림 */ // room은 채팅이 들어갈 방(그 밖에는 null)
+    Verdict admit(TokenBucket[] conn, Kind kind, String room, boolean mayWait) { // 판정
+        if (!enabled) return Verdict.ALLOW; // 제한 없음
+        long now = System.nanoTime(); // 현재 시각
+        long maxWait = action == Action.DELAY && mayWait ? maxDelayNs : 0; // 기다릴 수 있는 시간
+        long wait = 0; // 실제로 기다릴 시간
+        TokenBucket own = conn[kind.ordinal()]; // 연결 예산
+        if (own != null && (wait = own.acquire(now, maxWait)) == TokenBucket.DENIED) return reject(); // 연결 예산 초과
+        if (kind == Kind.CHAT && room != null && roomPerSec > 0) { // 방 예산
+            sweep(now); // 가끔 쉬는 방 버킷 정리
+            TokenBucket shared = rooms.computeIfAbsent(room, r -> new TokenBucket(roomPerSec, roomBurst)); // 방 버킷
+            long w = shared.acquire(now, maxWait); // 방 토큰
+            if (w == TokenBucket.DENIED) return reject(); // 방 예산 초과(연결 토큰은 시도로 셈)
+            wait = Math.max(wait, w); // 둘 중 늦은 쪽까지
+        } // if 끝
+        if (wait > 0) { // 예약만 하고 토큰이 아직 없으면
+            delayed.increment(); // 기다린 명령 수
+            LockSupport.parkNanos(wait); // 이 연결의 수신만 멈춤
+        } // if 끝
+        return Verdict.ALLOW; // 통과
+    } // admit 끝
+
+    private void sweep(long now) { // 다시 가득 찬 방 버킷 제거(정리 시각이 된 첫 호출 하나만)
+        long due = nextSweep.get(); // 다음 정리 시각
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + SWEEP_NS)) return; // 아직이거나 다른 스레드가 맡음
+        rooms.forEach((r, b) -> { if (b.full(now)) rooms.remove(r, b); }); // 같은 버킷일 때만(그 사이 바뀌었으면 둠)
+    } // sweep 끝
+
+    private Verdict reject() { // 예산 초과 조치
+        if (action == Action.DISCONNECT) { disconnected.increment(); return Verdict.DISCONNECT; } // 연결 종료
+        dropped.increment(); // drop, 또는 기다릴 수 없거나 너무 오래 기다려야 하는 delay
+        return Verdict.DROP; // 버림
+    } // reject 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=RateLimiter) + Metrics
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        boolean isEnabled(); // 사용 여부
+        String getAction(); // 조치
+        long getDelayed(); // 기다린 뒤 통과한 명령 수
+        long getDropped(); // 버린 명령 수
+        long getDisconnected(); // 끊은 연결 수
+        int getRoomBuckets(); // 방 버킷 수
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 카운터를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(필드 직접 접근)
+        @Override public boolean isEnabled() { return enabled; } // 사용 여부
+        @Override public String getAction() { return action.name(); } // 조치
+        @Override public long getDelayed() { return delayed.sum(); } // 기다림
+        @Override public long getDropped() { return dropped.sum(); } // 버림
+        @Override public long getDisconnected() { return disconnected.sum(); } // 끊음
+        @Override public int getRoomBuckets() { return rooms.size(); } // 방 버킷
+    } // Stats 끝
+
+    void registerMBean() { // 플랫폼 MBean 서버에 등록(GET /metrics에도 같은 값)
+        Metrics.counter(Metrics.name("chat_ratelimit_total", "action", "delay"), delayed::sum); // 기다림
+        Metrics.counter(Metrics.name("chat_ratelimit_total", "action", "drop"), dropped::sum); // 버림
+        Metrics.counter(Metrics.name("chat_ratelimit_total", "action", "disconnect"), disconnected::sum); // 끊음
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Stats(), new ObjectName("com.mycompany.chat:type=RateLimiter")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("송신 제한 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // RateLimiter 클래스 끝
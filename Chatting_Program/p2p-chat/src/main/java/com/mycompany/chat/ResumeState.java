@@ -0,0 +1,39 @@
+package com.mycompany.chat; // ResumeState 레코드가 속한 패키지 선언
+
+import java.util.Collections; // 읽기 전용 맵
+import java.util.LinkedHashMap; // 가입 순서를 지키는 방 → 순번
+import java.util.Map; // 맵 인터페이스
+
+/**
+ * 재접속하는 클라이언트가 인증 전에 보내는 상태("resume:" 명령의 인자).
+ * - 서버 세대(epoch): 접속 중에 받은 "resume:<세대>" 값. 같은 프로세스에 다시 붙었을 때만 순번/버전을 비교할 수 있다.
+ * - 마지막으로 받은 전체 접속자 버전과 알고 있는 방 수: 같으면 그 목록은 다시 보내지 않고 빠진 변경분만 보낸다.
+ * - 활성 방, 가입한 방마다 마지막으로 받은 채팅 순번: 서버는 방에 다시 가입시키고 그 뒤 메시지만 기록 링에서 보낸다.
+ * 형식: 세대\t접속자버전\t방수\t활성방\t방1\t순번1\t방2\t순번2... (방 이름에 탭은 쓰지 않음)
+ */ // ChatClient가 만들고 ClientHandler가 해석
+record ResumeState(long epoch, long presenceVersion, int roomCount, String active, Map<String, Long> rooms) { // 값 레코드
+
+    /** 명령 인자 문자열 */ // 클라이언트 송신용
+    String encode() { // 직렬화
+        StringBuilder sb = new StringBuilder(64 + rooms.size() * 24); // 대략적인 크기로 시작
+        sb.append(epoch).append('\t').append(presenceVersion).append('\t').append(roomCount).append('\t').append(active == null ? "" : active); // 머리
+        for (Map.Entry<String, Long> e : rooms.entrySet()) sb.append('\t').append(e.getKey()).append('\t').append(e.getValue()); // 방 + 순번
+        return sb.toString(); // 완성 문자열
+    } // encode 끝
+
+    /** 명령 인자 해석. 형식 오류면 null(서버는 보통 접속으로 처리) */ // 방은 maxRooms개까지만 받음
+    static ResumeState parse(String arg, int maxRooms) { // 역직렬화
+        String[] f = arg.split("\t", -1); // 빈 칸 유지
+        if (f.length < 4 || (f.length - 4) % 2 != 0) return null; // 머리 넷 + (방, 순번) 쌍
+        try { // 숫자 해석
+            Map<String, Long> rooms = new LinkedHashMap<>(); // 보낸 순서(가입 순서)
+            for (int i = 4; i + 1 < f.length && rooms.size() < maxRooms; i += 2) { // 방마다
+                String room = f[i].trim(); // 방 이름
+                if (!room.isEmpty()) rooms.put(room, Math.max(0, Long.parseLong(f[i + 1]))); // 순번(음수는 0)
+            } // for 끝
+            return new ResumeState(Long.parseLong(f[0]), Long.parseLong(f[1]), Integer.parseInt(f[2]), f[3].trim(), Collections.unmodifiableMap(rooms)); // 결과
+        } catch (NumberFormatException e) { // 숫자가 아님
+            return null; // 형식 오류
+        } // try-catch 끝
+    } // parse 끝
+} // ResumeState 레코드 끝
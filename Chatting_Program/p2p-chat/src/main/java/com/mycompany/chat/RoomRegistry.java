@@ -0,0 +1,203 @@
+package com.mycompany.chat; // RoomRegistry 클래스가 속한 패키지 선언
+
+import java.util.ArrayList; // 정렬된 방 목록
+import java.util.Arrays; // 멤버 배열 복사
+import java.util.Collection; // 접속자 전체 순회
+import java.util.LinkedHashSet; // 가입 순서를 유지하는 방 집합
+import java.util.List; // 리스트 인터페이스
+import java.util.Map; // 맵 인터페이스
+import java.util.concurrent.ConcurrentHashMap; // 닉네임/방 이름 → 항목
+import java.util.concurrent.locks.ReentrantLock; // 가상 스레드를 고정하지 않는 락(synchronized 대신)
+
+/**
+ * 접속자·방 멤버십·활성 방을 한 곳에서 관리하는 레지스트리.
+ * - 사용자 쪽(가입 방 집합 + 활성 방)은 사용자 락, 방 쪽(멤버 배열)은 방 이름으로 고른 줄무늬(stripe) 락으로 보호한다.
+ * - 가입/나가기/전환/퇴장은 항상 사용자 락 → 줄무늬 락 순서로 잡으므로 양쪽이 어긋난 상태가 밖에서 보이지 않는다.
+ * - 방 멤버는 쓰기 때 복사하는 배열(copy-on-write)이라 브로드캐스트는 락도 복사본도 없이 volatile 읽기 한 번으로 순회한다.
+ */ // 가입/퇴장은 드물고 채팅 팬아웃은 잦다는 가정(멤버 변경 비용은 방 크기에 비례)
+final class RoomRegistry { // ChatServer가 하나 소유
+
+    /** 접속한 사용자 한 명 */ // 방 멤버 배열에 그대로 들어가므로 팬아웃 때 닉네임 조회가 필요 없음
+    static final class Member { // 사용자 항목
+        final String nick; // 닉네임
+        final ClientHandler handler; // 송신 대상
+        private final ReentrantLock lock = new ReentrantLock(); // 가입 방 집합/활성 방 보호
+        private final LinkedHashSet<String> rooms = new LinkedHashSet<>(); // 가입한 방(가입 순서, lock 안에서만 접근)
+        private volatile String active; // 활성 방(읽기는 락 없이)
+        private boolean gone; // 퇴장 처리됨(lock 안에서만 접근)
+
+        Member(String nick, ClientHandler handler) { this.nick = nick; this.handler = handler; } // 생성자
+    } // Member 끝
+
+    /** 방 하나 */ // 멤버 배열은 줄무늬 락 안에서만 교체
+    private static final class Room { // 방 항목
+        volatile Member[] members = NO_MEMBERS; // 현재 멤버(교체만 하고 내용은 바꾸지 않음)
+    } // Room 끝
+
+    /** leave 결과 */ // ChatServer가 알림을 결정
+    record Leave(boolean wasActive, String nextActive) {} // 활성 방을 나갔는지, 새 활성 방(없으면 null)
+
+    static final Member[] NO_MEMBERS = new Member[0]; // 빈 방
+
+    private final Map<String, Member> members = new ConcurrentHashMap<>(); // 닉네임 → 사용자
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>(); // 방 이름 → 방
+    private final ReentrantLock[] stripes; // 방 멤버 배열 교체용 락
+    private final int stripeMask; // 방 이름 해시 → 줄무늬 번호
+
+    RoomRegistry(int stripes) { // 줄무늬 수(2의 거듭제곱으로 올림)
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1; // 올림
+        this.stripes = new ReentrantLock[n]; // 배열
+        for (int i = 0; i < n; i++) this.stripes[i] = new ReentrantLock(); // 채우기
+        this.stripeMask = n - 1; // 마스크
+    } // 생성자 끝
+
+    private ReentrantLock stripe(String room) { // 방 이름에 해당하는 락
+        int h = room.hashCode(); // 해시
+        return stripes[(h ^ (h >>> 16)) & stripeMask]; // 상위 비트도 섞어서 선택
+    } // stripe 끝
+
+    /* ---------------- 조회(락 없음) ---------------- */ // 브로드캐스트/페이로드 생성 경로
+
+    Member member(String nick) { return members.get(nick); } // 접속 중인 사용자(없으면 null)
+    Collection<Member> all() { return members.values(); } // 전체 접속자(약한 일관성 순회)
+    int size() { return members.size(); } // 접속자 수
+    boolean hasRoom(String room) { return rooms.containsKey(room); } // 방 존재 여부
+    Collection<String> roomNames() { return rooms.keySet(); } // 전체 방 이름(약한 일관성 순회)
+
+    Member[] members(String room) { // 방 멤버 배열(호출자는 수정하지 않음)
+        Room r = rooms.get(room); // 방 조회
+        return r == null ? NO_MEMBERS : r.members; // 없으면 빈 배열
+    } // members 끝
+
+    String active(String nick) { // 활성 방(없으면 null)
+        Member m = members.get(nick); // 사용자 조회
+        return m == null ? null : m.active; // volatile 읽기
+    } // active 끝
+
+    List<String> roomsOf(String nick) { // 가입 방 목록(정렬됨)
+        Member m = members.get(nick); // 사용자 조회
+        if (m == null) return List.of(); // 없으면 빈 목록
+        List<String> list; // 복사본
+        m.lock.lock(); // 사용자 잠금
+        try { list = new ArrayList<>(m.rooms); } finally { m.lock.unlock(); } // 복사
+        list.sort(null); // 사전순
+        return list; // 결과
+    } // roomsOf 끝
+
+    /* ---------------- 변경 ---------------- */ // 모두 사용자 락 → 줄무늬 락 순서
+
+    boolean ensureRoom(String room) { // 방이 없으면 생성(새로 만들었으면 true)
+        if (rooms.containsKey(room)) return false; // 이미 있으면 할당 없이 종료
+        return rooms.putIfAbsent(room, new Room()) == null; // 경쟁에서 졌으면 기존 방 사용
+    } // ensureRoom 끝
+
+    /** 접속 등록(같은 닉네임이 있으면 새 연결로 교체하고 이전 항목을 반환) */ // 이전 항목의 방 정리는 호출자가 detach로
+    Member register(String nick, ClientHandler handler) { // 사용자 추가
+        return members.put(nick, new Member(nick, handler)); // 교체
+    } // register 끝
+
+    /** 퇴장: 사용자와 모든 방 멤버십을 한 번에 제거하고, 가입했던 방 목록을 반환(제거할 항목이 없으면 null) */ // handler가 주어지면 같은 닉네임의 새 연결은 건드리지 않음
+    List<String> unregister(String nick, ClientHandler handler) { // 사용자 제거
+        Member m = members.get(nick); // 사용자 조회
+        if (m == null || (handler != null && m.handler != handler)) return null; // 없거나 다른 연결의 항목이면 무시
+        members.remove(nick, m); // 맵에서 제거(새로 등록된 항목은 유지)
+        return detach(m); // 방 정리
+    } // unregister 끝
+
+    List<String> detach(Member m) { // 사용자 항목을 모든 방에서 제거(register로 밀려난 항목에도 사용)
+        List<String> left; // 가입했던 방
+        m.lock.lock(); // 사용자 잠금
+        try { // 해제 보장
+            if (m.gone) return List.of(); // 이미 정리됨
+            m.gone = true; // 이후 가입/전환 거부
+            left = new ArrayList<>(m.rooms); // 가입했던 방
+            for (String room : left) removeMember(room, m); // 방마다 멤버 배열에서 제거
+            m.rooms.clear(); // 비우기
+            m.active = null; // 활성 방 없음
+        } finally { // 항상
+            m.lock.unlock(); // 해제
+        } // try-finally 끝
+        return left; // 결과
+    } // detach 끝
+
+    /** 가입 + 활성화(이미 가입했으면 활성화만). 사용자가 없으면 false */ // 방은 없으면 만들어짐(ensureRoom을 먼저 부르면 생성 여부를 알 수 있음)
+    boolean join(String nick, String room) { // 가입
+        Member m = members.get(nick); // 사용자 조회
+        if (m == null) return false; // 접속 중이 아님
+        ensureRoom(room); // 방 보장
+        m.lock.lock(); // 사용자 잠금
+        try { // 해제 보장
+            if (m.gone) return false; // 퇴장 중
+            if (m.rooms.add(room)) addMember(room, m); // 새 가입이면 방 멤버 배열에도 추가
+            m.active = room; // 활성 방 전환
+            return true; // 성공
+        } finally { // 항상
+            m.lock.unlock(); // 해제
+        } // try-finally 끝
+    } // join 끝
+
+    /** 나가기: 가입하지 않은 방이면 null. 활성 방을 나갔으면 남은 방 중 가장 먼저 가입한 방이 활성화됨 */ // 남은 방이 없으면 활성 방은 null
+    Leave leave(String nick, String room) { // 나가기
+        Member m = members.get(nick); // 사용자 조회
+        if (m == null) return null; // 접속 중이 아님
+        m.lock.lock(); // 사용자 잠금
+        try { // 해제 보장
+            if (m.gone || !m.rooms.remove(room)) return null; // 가입하지 않은 방
+            removeMember(room, m); // 방 멤버 배열에서 제거
+            boolean wasActive = room.equals(m.active); // 활성 방이었는지
+            if (wasActive) m.active = m.rooms.isEmpty() ? null : m.rooms.iterator().next(); // 남은 방으로 전환
+            return new Leave(wasActive, m.active); // 결과
+        } finally { // 항상
+            m.lock.unlock(); // 해제
+        } // try-finally 끝
+    } // leave 끝
+
+    /** 활성 방 전환: 가입한 방일 때만 true */ // 가입 안 한 방이면 호출자가 join
+    boolean switchTo(String nick, String room) { // 전환
+        Member m = members.get(nick); // 사용자 조회
+        if (m == null) return false; // 접속 중이 아님
+        m.lock.lock(); // 사용자 잠금
+        try { // 해제 보장
+            if (m.gone || !m.rooms.contains(room)) return false; // 가입하지 않은 방
+            m.active = room; // 전환
+            return true; // 성공
+        } finally { // 항상
+            m.lock.unlock(); // 해제
+        } // try-finally 끝
+    } // switchTo 끝
+
+    /* ---------------- 방 멤버 배열(쓰기 때 복사) ---------------- */ // 사용자 락을 잡은 상태에서 호출
+
+    private void addMember(String room, Member m) { // 멤버 추가
+        Room r = rooms.get(room); // 방(ensureRoom으로 보장됨, 방은 지워지지 않음)
+        ReentrantLock lock = stripe(room); // 줄무늬 락
+        lock.lock(); // 잠금
+        try { // 해제 보장
+            Member[] cur = r.members; // 현재 배열
+            Member[] next = Arrays.copyOf(cur, cur.length + 1); // 한 칸 늘린 복사본
+            next[cur.length] = m; // 끝에 추가
+            r.members = next; // 교체(volatile 쓰기로 순회 중인 쪽은 이전 배열을 계속 봄)
+        } finally { // 항상
+            lock.unlock(); // 해제
+        } // try-finally 끝
+    } // addMember 끝
+
+    private void removeMember(String room, Member m) { // 멤버 제거
+        Room r = rooms.get(room); // 방
+        if (r == null) return; // 없으면 무시
+        ReentrantLock lock = stripe(room); // 줄무늬 락
+        lock.lock(); // 잠금
+        try { // 해제 보장
+            Member[] cur = r.members; // 현재 배열
+            int i = 0; // 위치 찾기
+            while (i < cur.length && cur[i] != m) i++; // 동일 항목 검색
+            if (i == cur.length) return; // 없으면 무시
+            Member[] next = new Member[cur.length - 1]; // 한 칸 줄인 배열
+            System.arraycopy(cur, 0, next, 0, i); // 앞부분
+            System.arraycopy(cur, i + 1, next, i, cur.length - i - 1); // 뒷부분
+            r.members = next; // 교체
+        } finally { // 항상
+            lock.unlock(); // 해제
+        } // try-finally 끝
+    } // removeMember 끝
+} // RoomRegistry 클래스 끝
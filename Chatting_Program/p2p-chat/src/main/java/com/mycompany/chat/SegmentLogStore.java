@@ -0,0 +1,537 @@
+package com.mycompany.chat; // SegmentLogStore 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 파일 입출력 실패
+import java.io.RandomAccessFile; // 세그먼트 파일 미리 할당
+import java.io.UncheckedIOException; // 방 열기 실패(computeIfAbsent 안)
+import java.lang.management.ManagementFactory; // 플랫폼 MBean 서버
+import java.nio.ByteBuffer; // 색인 항목 쓰기/읽기
+import java.nio.MappedByteBuffer; // 메모리 매핑된 세그먼트
+import java.nio.channels.FileChannel; // 매핑/색인 추가 쓰기
+import java.nio.charset.StandardCharsets; // 닉네임/본문 UTF-8
+import java.nio.file.Files; // 디렉터리/파일 조작
+import java.nio.file.Path; // 경로
+import java.nio.file.StandardOpenOption; // 색인 파일 열기 옵션
+import java.util.ArrayList; // 세그먼트 목록, 배치, 결과
+import java.util.Collections; // 결과 뒤집기
+import java.util.HashSet; // 배치에서 쓴 세그먼트
+import java.util.HexFormat; // 방 이름 → 디렉터리 이름
+import java.util.List; // 리스트 인터페이스
+import java.util.Map; // 맵 인터페이스
+import java.util.Set; // 집합 인터페이스
+import java.util.concurrent.ArrayBlockingQueue; // 고정 크기 링 버퍼
+import java.util.concurrent.BlockingQueue; // 블로킹 큐 인터페이스
+import java.util.concurrent.ConcurrentHashMap; // 방 이름 → 방 로그
+import java.util.concurrent.TimeUnit; // 대기 시간 단위
+import java.util.concurrent.atomic.LongAdder; // 지표 카운터
+import java.util.function.Consumer; // 페이지 행을 받는 쪽
+import java.util.stream.Stream; // 디렉터리 목록
+import java.util.zip.CRC32C; // 레코드 체크섬
+import javax.management.ObjectName; // MBean 이름
+
+/**
+ * 방별 내장 추가 전용 로그(MySQL 없이 채팅 로그 저장).
+ * - 방마다 디렉터리 하나(<dir>/<방 이름 UTF-8 16진수>/), 그 안에 고정 크기로 미리 할당해 메모리 매핑한 세그먼트 파일(<첫 id 20자리>.log)이 이어진다.
+ * - 레코드: [길이 int][CRC32C int][id long][시각 long][닉네임 길이 short][닉네임][본문]. 길이 0이면 데이터 끝, id는 방 안에서 1부터 1씩 증가.
+ * - 세그먼트마다 희소 색인(<첫 id>.idx, indexInterval 바이트마다 (id, 위치) 한 쌍)을 두어, 기록 페이지는 색인 이진 탐색 + 한 구간 순차 읽기로 끝난다.
+ * - 발신자 스레드는 링 버퍼에 넣기만 하고, 전용 스레드 하나가 배치로 매핑 영역에 쓴다. 디스크 반영(force)은 정책에 따라
+ *   GROUP(배치마다 한 번 = 그룹 커밋) / INTERVAL(flushIntervalMs마다) / OS(운영체제에 맡김).
+ * - 세그먼트가 차면 새 세그먼트로 넘어가고(rollover), 닫힌 세그먼트는 보존 기간/방별 최대 크기를 넘으면 오래된 것부터 지운다.
+ * - 시작 시 마지막 세그먼트는 마지막 색인 위치부터 CRC와 id 연속성을 확인하며 읽어, 깨진 꼬리(쓰다 만 레코드)는 버린다.
+ */ // chat.store=log: 엣지 노드가 MySQL 없이 순차 쓰기 속도로 저장
+final class SegmentLogStore implements MessageStore, Runnable { // 전용 플랫폼 스레드에서 실행
+
+    /** 디스크 반영 정책 */ // chat.store.log.flush
+    enum FlushPolicy { GROUP, INTERVAL, OS } // 배치마다 / 주기마다 / 운영체제에 맡김
+
+    private static final int HEADER = 8; // 길이 + CRC
+    private static final int FIXED = 8 + 8 + 2; // id + 시각 + 닉네임 길이
+    private static final int INDEX_ENTRY = 12; // 색인 항목(id long + 위치 int)
+    private static final long MAINTENANCE_MS = 60_000; // 시간 기준 보존 검사 간격
+
+    private record Entry(String nickname, String message, String room, long timestamp) {} // 저장 대기 항목
+
+    /** 희소 색인(쓰기 스레드만 추가, 읽기는 count까지만) */ // 가득 차면 두 배 크기로 바꿔 끼움
+    private static final class Index { // 색인
+        final long[] ids; // 레코드 id
+        final int[] pos; // 세그먼트 안 위치
+        volatile int count; // 유효 항목 수(배열을 채운 뒤 증가)
+        Index(int capacity) { ids = new long[capacity]; pos = new int[capacity]; } // 생성자
+
+        int floor(long id) { // id 이하인 마지막 항목의 위치(없으면 0)
+            int lo = 0, hi = count - 1, found = -1; // 이진 탐색 범위
+            while (lo <= hi) { // 탐색
+                int mid = (lo + hi) >>> 1; // 가운데
+                if (ids[mid] <= id) { found = mid; lo = mid + 1; } else hi = mid - 1; // 좁히기
+            } // while 끝
+            return found < 0 ? 0 : pos[found]; // 결과
+        } // floor 끝
+    } // Index 끝
+
+    /** 세그먼트 파일 하나 */ // 읽기는 end/lastId까지만(쓰기 스레드가 배치마다 갱신)
+    private static final class Segment { // 세그먼트
+        final long baseId; // 첫 레코드 id
+        final Path file, indexFile; // .log / .idx
+        final MappedByteBuffer map; // 매핑 영역(절대 위치 get/put만 사용)
+        final int capacity; // 파일 크기
+        volatile Index index = new Index(64); // 희소 색인
+        volatile int end; // 읽을 수 있는 끝 위치
+        volatile long lastId; // 읽을 수 있는 마지막 id(없으면 baseId - 1)
+        volatile long lastTimestamp; // 마지막 레코드 시각(보존 판단)
+        int writePos; // 쓰기 위치(쓰기 스레드 전용)
+        long writeId; // 마지막으로 쓴 id(쓰기 스레드 전용)
+        int lastIndexedPos = -1; // 마지막 색인 위치(쓰기 스레드 전용)
+        FileChannel indexOut; // 색인 추가 쓰기(활성 세그먼트만)
+        boolean dirty; // 마지막 force 이후 쓴 것이 있음(쓰기 스레드 전용)
+
+        Segment(long baseId, Path file, Path indexFile, MappedByteBuffer map) { // 생성자
+            this.baseId = baseId; this.file = file; this.indexFile = indexFile; this.map = map; // 보관
+            this.capacity = map.capacity(); // 크기
+            this.lastId = this.writeId = baseId - 1; // 비어 있음
+        } // 생성자 끝
+
+        void addIndex(long id, int p) throws IOException { // 색인 항목 추가(메모리 + 파일)
+            Index ix = index; // 현재 색인
+            int n = ix.count; // 항목 수
+            if (n == ix.ids.length) { // 가득 차면
+                Index bigger = new Index(n * 2); // 두 배
+                System.arraycopy(ix.ids, 0, bigger.ids, 0, n); // 복사
+                System.arraycopy(ix.pos, 0, bigger.pos, 0, n); // 복사
+                bigger.count = n; // 항목 수
+                index = ix = bigger; // 바꿔 끼움(읽는 쪽은 이전 색인을 계속 써도 됨)
+            } // if 끝
+            ix.ids[n] = id; ix.pos[n] = p; // 채우고
+            ix.count = n + 1; // 공개
+            lastIndexedPos = p; // 기록
+            if (indexOut != null) indexOut.write(ByteBuffer.allocate(INDEX_ENTRY).putLong(id).putInt(p).flip()); // 파일에도(잃어도 다시 만들 수 있음)
+        } // addIndex 끝
+
+        void closeIndex() { // 색인 파일 닫기(세그먼트가 닫히거나 지워질 때)
+            if (indexOut == null) return; // 이미 닫힘
+            try { indexOut.close(); } catch (IOException ignore) {} // 무시
+            indexOut = null; // 표시
+        } // closeIndex 끝
+    } // Segment 끝
+
+    /** 방 하나의 로그 */ // 세그먼트 목록은 쓰기 때 복사(읽는 쪽은 잠금 없이 순회)
+    private static final class RoomLog { // 방 로그
+        final Path dir; // 방 디렉터리
+        volatile List<Segment> segments = List.of(); // id 순 세그먼트
+        RoomLog(Path dir) { this.dir = dir; } // 생성자
+
+        Segment active() { List<Segment> s = segments; return s.isEmpty() ? null : s.get(s.size() - 1); } // 마지막 세그먼트
+    } // RoomLog 끝
+
+    private final Path root; // 저장 디렉터리
+    private final int segmentBytes; // 세그먼트 크기
+    private final int indexInterval; // 색인 간격(바이트)
+    private final FlushPolicy flush; // 디스크 반영 정책
+    private final long flushIntervalMs; // INTERVAL 정책 주기
+    private final long retentionMs; // 보존 기간(0이면 무제한)
+    private final long retentionBytes; // 방별 최대 크기(0이면 무제한)
+    private final int batchSize; // 한 번에 쓸 최대 건수
+    private final BlockingQueue<Entry> buffer; // 링 버퍼(가득 차면 새 항목은 버림)
+    private final Map<String, RoomLog> logs = new ConcurrentHashMap<>(); // 방 이름 → 로그
+    private final Set<Segment> unflushed = new HashSet<>(); // force 대기 세그먼트(쓰기 스레드 전용)
+    private final Thread thread; // 쓰기 스레드
+    private volatile boolean running = true; // 동작 여부
+    private long lastForce = System.currentTimeMillis(); // 마지막 force 시각(쓰기 스레드 전용)
+    private long lastMaintenance = System.currentTimeMillis(); // 마지막 보존 검사 시각(쓰기 스레드 전용)
+
+    private final LongAdder appended = new LongAdder(); // 저장 완료 건수
+    private final LongAdder droppedFull = new LongAdder(); // 버퍼가 가득 차서 버린 건수
+    private final LongAdder droppedFailed = new LongAdder(); // 쓰기 실패로 버린 건수
+    private final LongAdder forces = new LongAdder(); // force 호출 수
+    private final LongAdder rolled = new LongAdder(); // 새로 만든 세그먼트 수
+    private final LongAdder deleted = new LongAdder(); // 보존 정책으로 지운 세그먼트 수
+    private final LongAdder truncated = new LongAdder(); // 복구 때 버린 꼬리 바이트 수
+
+    SegmentLogStore() { // 설정값(chat.store.log.*)으로 구성
+        this(Path.of(ServerConfig.get("chat.store.log.dir", "chat-log")), // 저장 디렉터리
+                ServerConfig.getInt("chat.store.log.segmentBytes", 64 * 1024 * 1024), // 세그먼트 크기(64MB)
+                ServerConfig.getInt("chat.store.log.indexIntervalBytes", 4096), // 색인 간격
+                FlushPolicy.valueOf(ServerConfig.get("chat.store.log.flush", "GROUP").trim().toUpperCase()), // 디스크 반영 정책
+                ServerConfig.getLong("chat.store.log.flushIntervalMs", 200), // INTERVAL 주기
+                ServerConfig.getLong("chat.store.log.retentionMs", 7L * 24 * 3600 * 1000), // 보존 기간(7일)
+                ServerConfig.getLong("chat.store.log.retentionBytes", 1L << 30), // 방별 최대 크기(1GB)
+                ServerConfig.getInt("chat.store.log.capacity", 65536), // 링 버퍼 크기
+                ServerConfig.getInt("chat.store.log.batchSize", 1000)); // 배치 크기
+    } // 기본 생성자 끝
+
+    SegmentLogStore(Path root, int segmentBytes, int indexInterval, FlushPolicy flush, long flushIntervalMs, // 디렉터리, 크기, 색인 간격, 반영 정책, 주기
+                    long retentionMs, long retentionBytes, int capacity, int batchSize) { // 보존 기간/크기, 버퍼 크기, 배치 크기
+        this.root = root; // 보관
+        this.segmentBytes = Math.max(4096, segmentBytes); // 최소 한 페이지
+        this.indexInterval = Math.max(1, indexInterval); // 최소 1
+        this.flush = flush; // 보관
+        this.flushIntervalMs = flushIntervalMs; // 보관
+        this.retentionMs = retentionMs; // 보관
+        this.retentionBytes = retentionBytes; // 보관
+        this.batchSize = Math.max(1, batchSize); // 최소 1
+        this.buffer = new ArrayBlockingQueue<>(capacity); // 링 버퍼 생성
+        this.thread = new Thread(this, "chat-log-segments"); // 쓰기 스레드 생성
+    } // 생성자 끝
+
+    @Override
+    public void start() { // 쓰기 스레드 시작(종료 시 flush는 ChatServer 드레인이 shutdown으로)
+        thread.start(); // 스레드 실행
+    } // start 끝
+
+    @Override
+    public boolean append(String nickname, String message, String room) { // 링 버퍼에 추가(발신자 스레드, 블로킹하지 않음)
+        if (buffer.offer(new Entry(nickname, message, room, System.currentTimeMillis()))) return true; // 여유가 있으면 추가
+        droppedFull.increment(); // 가득 참 카운트
+        return false; // 버림
+    } // append 끝
+
+    /* ---------------- 쓰기 스레드 ---------------- */ // 배치 쓰기 + 정책에 따른 force
+
+    @Override
+    public void run() { // 쓰기 루프
+        List<Entry> batch = new ArrayList<>(batchSize); // 재사용 배치 버퍼
+        while (running || !buffer.isEmpty()) { // 종료 요청 후에도 버퍼가 빌 때까지
+            try { // 인터럽트 대비
+                Entry first = buffer.poll(flush == FlushPolicy.INTERVAL ? flushIntervalMs : 200, TimeUnit.MILLISECONDS); // 첫 항목 대기
+                if (first != null) { // 있으면
+                    batch.add(first); // 배치에 추가
+                    buffer.drainTo(batch, batchSize - 1); // 이미 쌓인 것을 한꺼번에 가져옴
+                    for (Entry e : batch) write(e); // 매핑 영역에 쓰기
+                    publish(); // 읽는 쪽에 공개
+                } // if 끝
+                forceIfDue(false); // 정책에 따라 디스크 반영
+                maintain(); // 시간 기준 보존 검사
+            } catch (InterruptedException e) { // 종료 중 인터럽트
+                running = false; // 남은 것만 처리하고 종료
+            } finally { // 항상
+                batch.clear(); // 배치 비우기
+            } // try-catch-finally 끝
+        } // while 끝
+        forceIfDue(true); // 마지막으로 모두 반영
+        for (RoomLog log : logs.values()) { Segment s = log.active(); if (s != null) s.closeIndex(); } // 색인 파일 닫기
+        System.out.println("채팅 로그 파일 저장기 종료: 저장 " + appended.sum() + "건, 버퍼 초과 " + droppedFull.sum() + "건, 실패 " + droppedFailed.sum() + "건"); // 요약 로그
+    } // run 끝
+
+    private void write(Entry e) { // 레코드 하나 쓰기(쓰기 스레드)
+        byte[] nick = e.nickname().getBytes(StandardCharsets.UTF_8); // 닉네임
+        byte[] text = e.message().getBytes(StandardCharsets.UTF_8); // 본문
+        int payload = FIXED + nick.length + text.length; // 본문 크기
+        int size = HEADER + payload; // 레코드 크기
+        if (nick.length > Short.MAX_VALUE || size > segmentBytes - HEADER) { droppedFailed.increment(); return; } // 세그먼트에 못 들어가는 크기
+        try { // 파일 오류 대비
+            RoomLog log = logs.computeIfAbsent(e.room(), this::open); // 방 로그(처음이면 열기/복구)
+            Segment s = log.active(); // 활성 세그먼트
+            if (s == null || s.writePos + size + HEADER > s.capacity) s = roll(log, s); // 다음 레코드의 끝 표시(길이 0) 자리까지 없으면 새 세그먼트
+            int p = s.writePos; // 쓸 위치
+            long id = s.writeId + 1; // 다음 id
+            MappedByteBuffer m = s.map; // 매핑 영역
+            m.putLong(p + HEADER, id); // id
+            m.putLong(p + HEADER + 8, e.timestamp()); // 시각
+            m.putShort(p + HEADER + 16, (short) nick.length); // 닉네임 길이
+            m.put(p + HEADER + FIXED, nick); // 닉네임
+            m.put(p + HEADER + FIXED + nick.length, text); // 본문
+            CRC32C crc = new CRC32C(); // 체크섬
+            crc.update(m.slice(p + HEADER, payload)); // 본문 전체
+            m.putInt(p + 4, (int) crc.getValue()); // CRC
+            m.putInt(p, payload); // 길이는 마지막에(길이가 보이면 레코드가 다 쓰인 것)
+            if (s.lastIndexedPos < 0 || p - s.lastIndexedPos >= indexInterval) s.addIndex(id, p); // 희소 색인
+            s.writePos = p + size; // 다음 위치
+            s.writeId = id; // 마지막 id
+            s.lastTimestamp = e.timestamp(); // 보존 판단용
+            s.dirty = true; // force 대상
+            unflushed.add(s); // 기록
+            appended.increment(); // 지표
+        } catch (IOException | UncheckedIOException ex) { // 열기/색인 쓰기 실패
+            droppedFailed.increment(); // 지표
+            System.err.println("채팅 로그 파일 쓰기 실패(" + e.room() + "): " + ex.getMessage()); // 경고
+        } // try-catch 끝
+    } // write 끝
+
+    private void publish() { // 배치에서 쓴 위치/id를 읽는 쪽에 공개
+        for (Segment s : unflushed) { s.end = s.writePos; s.lastId = s.writeId; } // volatile 쓰기(그 전의 매핑 영역 쓰기도 함께 보임)
+    } // publish 끝
+
+    private void forceIfDue(boolean always) { // 정책에 따라 매핑 영역을 디스크에 반영
+        if (unflushed.isEmpty()) return; // 쓴 것 없음
+        long now = System.currentTimeMillis(); // 현재 시각
+        boolean due = always || flush == FlushPolicy.GROUP || (flush == FlushPolicy.INTERVAL && now - lastForce >= flushIntervalMs); // 반영할 때인지
+        if (!due) return; // 아직
+        if (flush != FlushPolicy.OS || always) { // OS 정책은 종료 때만
+            for (Segment s : unflushed) { s.map.force(); s.dirty = false; forces.increment(); } // 배치(또는 주기) 전체를 한 번에 반영
+        } // if 끝
+        unflushed.clear(); // 비우기
+        lastForce = now; // 기록
+    } // forceIfDue 끝
+
+    private Segment roll(RoomLog log, Segment current) throws IOException { // 새 세그먼트로 넘어감
+        long base = current == null ? 1 : current.writeId + 1; // 새 세그먼트의 첫 id
+        if (current != null) { // 이전 세그먼트 닫기
+            current.end = current.writePos; current.lastId = current.writeId; // 공개
+            if (current.dirty) { current.map.force(); current.dirty = false; forces.increment(); } // 닫히는 세그먼트는 바로 반영
+            unflushed.remove(current); // force 대상에서 제외
+            current.closeIndex(); // 색인 파일 닫기
+        } // if 끝
+        Files.createDirectories(log.dir); // 방 디렉터리
+        Path file = log.dir.resolve(String.format("%020d.log", base)); // 파일 이름 = 첫 id
+        Segment s = new Segment(base, file, indexPath(file), map(file, segmentBytes)); // 미리 할당 + 매핑
+        s.indexOut = FileChannel.open(s.indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING); // 새 색인
+        List<Segment> next = new ArrayList<>(log.segments); // 복사
+        next.add(s); // 추가
+        log.segments = List.copyOf(next); // 교체
+        rolled.increment(); // 지표
+        retain(log, System.currentTimeMillis()); // 닫힌 세그먼트 보존 정책 적용
+        return s; // 새 활성 세그먼트
+    } // roll 끝
+
+    private void maintain() { // 주기적인 시간 기준 보존 검사(쓰기 스레드)
+        long now = System.currentTimeMillis(); // 현재 시각
+        if (now - lastMaintenance < MAINTENANCE_MS) return; // 아직
+        lastMaintenance = now; // 기록
+        for (RoomLog log : logs.values()) retain(log, now); // 방마다
+    } // maintain 끝
+
+    private void retain(RoomLog log, long now) { // 닫힌 세그먼트를 오래된 것부터 지움(활성 세그먼트는 남김)
+        List<Segment> segs = log.segments; // 현재 목록
+        long total = 0; // 방 전체 크기
+        for (Segment s : segs) total += s.end; // 합계
+        int drop = 0; // 지울 개수
+        while (drop < segs.size() - 1) { // 활성 세그먼트 전까지
+            Segment s = segs.get(drop); // 가장 오래된 것
+            boolean old = retentionMs > 0 && now - s.lastTimestamp > retentionMs; // 기간 초과
+            boolean big = retentionBytes > 0 && total > retentionBytes; // 크기 초과
+            if (!old && !big) break; // 남김
+            total -= s.end; // 크기 차감
+            drop++; // 지움
+        } // while 끝
+        if (drop == 0) return; // 지울 것 없음
+        log.segments = List.copyOf(segs.subList(drop, segs.size())); // 목록에서 먼저 제거(새 읽기는 보지 않음)
+        for (Segment s : segs.subList(0, drop)) { // 파일 삭제(진행 중인 읽기는 매핑이 풀릴 때까지 계속 읽을 수 있음)
+            try { Files.deleteIfExists(s.file); Files.deleteIfExists(s.indexFile); deleted.increment(); } // 삭제
+            catch (IOException e) { System.err.println("채팅 로그 세그먼트 삭제 실패: " + s.file + " (" + e.getMessage() + ")"); } // 다음 검사 때는 목록에 없으므로 수동 정리
+        } // for 끝
+    } // retain 끝
+
+    @Override
+    public void shutdown(long timeoutMs) { // 새 항목 받기를 멈추고 남은 것을 저장할 때까지 대기
+        running = false; // 루프 종료 요청(버퍼가 빌 때까지는 계속)
+        try { // 대기 중 인터럽트 대비
+            thread.join(timeoutMs); // 쓰기 스레드 종료 대기
+        } catch (InterruptedException e) { // 인터럽트
+            Thread.currentThread().interrupt(); // 상태 복구
+        } // try-catch 끝
+    } // shutdown 끝
+
+    /* ---------------- 열기/복구 ---------------- */ // 방을 처음 쓸 때(쓰기/읽기 어느 쪽이든) 한 번
+
+    private RoomLog open(String room) { // 방 디렉터리의 세그먼트를 매핑하고 마지막 세그먼트 복구
+        RoomLog log = new RoomLog(root.resolve(HexFormat.of().formatHex(room.getBytes(StandardCharsets.UTF_8)))); // 방 이름은 16진수로(경로 문자 문제 없음)
+        if (!Files.isDirectory(log.dir)) return log; // 아직 기록 없음(첫 쓰기 때 만듦)
+        List<Path> files; // 세그먼트 파일
+        try (Stream<Path> list = Files.list(log.dir)) { // 디렉터리 목록
+            files = list.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList(); // 이름(= 첫 id, 20자리) 순
+        } catch (IOException e) { // 목록 실패
+            throw new UncheckedIOException(e); // 호출자가 처리
+        } // try-catch 끝
+        List<Segment> segs = new ArrayList<>(); // 열린 세그먼트
+        try { // 매핑 실패 대비
+            for (int i = 0; i < files.size(); i++) { // 오래된 것부터
+                Path f = files.get(i); // 파일
+                long base = Long.parseLong(f.getFileName().toString().replace(".log", "")); // 첫 id
+                Segment s = new Segment(base, f, indexPath(f), map(f, Files.size(f))); // 기존 크기 그대로 매핑
+                recover(s, loadIndex(s)); // 색인 불러오기 + 끝 찾기(CRC/id 확인)
+                segs.add(s); // 추가
+            } // for 끝
+            Segment last = segs.isEmpty() ? null : segs.get(segs.size() - 1); // 활성 세그먼트
+            if (last != null) last.indexOut = rewriteIndex(last); // 복구한 색인으로 .idx를 다시 쓰고 이어서 추가(버린 꼬리를 가리키는 옛 항목 제거)
+        } catch (IOException | NumberFormatException e) { // 매핑/이름 오류
+            throw new UncheckedIOException(new IOException("채팅 로그 열기 실패: " + log.dir + " (" + e.getMessage() + ")", e)); // 호출자가 처리
+        } // try-catch 끝
+        log.segments = List.copyOf(segs); // 공개
+        return log; // 결과
+    } // open 끝
+
+    private int loadIndex(Segment s) throws IOException { // .idx를 읽어 색인 복원, 아직 유효한 마지막 색인 위치 반환(없으면 0)
+        if (!Files.exists(s.indexFile)) return 0; // 색인 없음: 처음부터 훑음
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(s.indexFile)); // 전체 읽기(항목당 12바이트라 작음)
+        int last = 0; // 마지막 위치
+        while (b.remaining() >= INDEX_ENTRY) { // 온전한 항목만
+            long id = b.getLong(); int p = b.getInt(); // 항목
+            if (p < 0 || p >= s.capacity || (s.index.count > 0 && p <= last)) break; // 깨진 항목 이후는 무시
+            s.addIndex(id, p); // 메모리 색인(파일에는 다시 쓰지 않음: indexOut은 아직 null)
+            last = p; // 기록
+        } // while 끝
+        Index ix = s.index; // 불러온 색인
+        while (ix.count > 0 && validAt(s.map, ix.pos[ix.count - 1], s.capacity) != ix.ids[ix.count - 1]) ix.count--; // 꼬리를 버린 뒤의 옛 항목(그 자리에 같은 id 레코드가 없음)
+        return ix.count == 0 ? 0 : ix.pos[ix.count - 1]; // 결과
+    } // loadIndex 끝
+
+    private static FileChannel rewriteIndex(Segment s) throws IOException { // 메모리 색인(복구 결과)을 .idx에 다시 쓰고 추가용 채널 반환
+        Index ix = s.index; // 복구한 색인(파일에 없던 보충 항목 포함)
+        ByteBuffer b = ByteBuffer.allocate(ix.count * INDEX_ENTRY); // 전체(항목당 12바이트라 작음)
+        for (int i = 0; i < ix.count; i++) b.putLong(ix.ids[i]).putInt(ix.pos[i]); // 항목
+        FileChannel ch = FileChannel.open(s.indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING); // 비우고 다시
+        try { // 쓰기 실패 시 닫기
+            for (b.flip(); b.hasRemaining(); ) ch.write(b); // 끝까지
+        } catch (IOException e) { // 실패
+            ch.close(); // 정리
+            throw e; // 호출자가 처리
+        } // try-catch 끝
+        return ch; // 이어서 addIndex가 씀(위치는 파일 끝)
+    } // rewriteIndex 끝
+
+    private void recover(Segment s, int from) { // from부터 유효한 레코드를 따라가 끝/마지막 id 결정
+        Index ix = s.index; // 색인
+        long expect = ix.count == 0 ? s.baseId : ix.ids[ix.count - 1]; // from 위치 레코드의 id
+        int p = from; // 현재 위치
+        long lastTs = 0; // 마지막 시각
+        while (true) { // 레코드마다
+            long id = validAt(s.map, p, s.capacity); // 유효하면 id
+            if (id != expect) break; // 끝이거나 깨졌거나 id가 이어지지 않음
+            if (s.lastIndexedPos < 0 || p - s.lastIndexedPos >= indexInterval) { // 색인이 빠진 구간이면
+                Index cur = s.index; // 현재 색인
+                if (cur.count == 0 || cur.pos[cur.count - 1] < p) { try { s.addIndex(id, p); } catch (IOException ignore) {} } // 메모리 색인 보충(파일 쓰기 없음)
+            } // if 끝
+            lastTs = s.map.getLong(p + HEADER + 8); // 시각
+            p += HEADER + s.map.getInt(p); // 다음 레코드
+            expect++; // 다음 id
+        } // while 끝
+        int garbage = 0; // 끝 뒤의 0이 아닌 바이트(쓰다 만 레코드)
+        for (int q = p; q < Math.min(s.capacity, p + HEADER); q++) if (s.map.get(q) != 0) garbage++; // 다음 헤더 자리 확인
+        if (garbage > 0) { // 깨진 꼬리가 있으면
+            truncated.add(s.capacity - p); // 지표(최대치)
+            for (int q = p; q < Math.min(s.capacity, p + HEADER); q++) s.map.put(q, (byte) 0); // 끝 표시(길이 0) 복원
+            System.err.println("채팅 로그 꼬리 복구: " + s.file + " 위치 " + p + " 이후 버림"); // 경고
+        } // if 끝
+        Index cur = s.index; // 색인
+        while (cur.count > 0 && cur.pos[cur.count - 1] >= p) cur.count--; // 끝 뒤를 가리키는 색인 항목 제거
+        s.end = s.writePos = p; // 끝
+        s.lastId = s.writeId = expect - 1; // 마지막 id
+        s.lastTimestamp = lastTs == 0 ? fileTime(s.file) : lastTs; // 보존 판단(빈 세그먼트는 파일 시각)
+        s.lastIndexedPos = cur.count == 0 ? -1 : cur.pos[cur.count - 1]; // 다음 색인 기준
+    } // recover 끝
+
+    /* ---------------- 읽기 ---------------- */ // 잠금 없이 공개된 end/lastId까지만
+
+    @Override
+    public List<ServerMessage> recent(String room, int limit) { // 방의 최근 채팅(링 채우기용, 오래된 것부터)
+        List<ServerMessage> rows = new ArrayList<>(); // 최신 것부터 담김
+        try { // 읽기 실패 대비
+            page(room, Long.MAX_VALUE, limit, m -> rows.add(ServerMessage.chat(m.sender, room, m.text))); // 최신 페이지 한 번
+        } catch (IOException | UncheckedIOException e) { // 실패
+            System.err.println("채팅 기록 조회 실패: " + e.getMessage()); // 에러 로그(기록 없이 계속)
+        } // try-catch 끝
+        Collections.reverse(rows); // 오래된 것부터
+        return rows; // 결과
+    } // recent 끝
+
+    @Override
+    public int page(String room, long beforeId, int limit, Consumer<ServerMessage> sink) throws IOException { // 키셋 페이지(최신 것부터)
+        RoomLog log; // 방 로그
+        try { log = logs.computeIfAbsent(room, this::open); } catch (UncheckedIOException e) { throw e.getCause(); } // 열기
+        List<Segment> segs = log.segments; // 현재 목록(한 시점)
+        if (segs.isEmpty()) return 0; // 기록 없음
+        long hi = Math.min(beforeId, segs.get(segs.size() - 1).lastId + 1); // 범위 끝(제외)
+        long lo = Math.max(segs.get(0).baseId, hi - limit); // 범위 시작(지워진 구간 제외)
+        if (lo >= hi) return 0; // 빈 페이지
+        List<ServerMessage> out = new ArrayList<>((int) (hi - lo)); // 오래된 것부터 모음
+        for (Segment s : segs) { // 범위에 걸치는 세그먼트만
+            long segLast = s.lastId; // 공개된 마지막 id
+            if (segLast < lo || s.baseId >= hi) continue; // 범위 밖
+            int end = s.end; // 공개된 끝
+            int p = s.index.floor(lo); // 희소 색인으로 시작 위치
+            while (p < end) { // 순차 읽기(최대 색인 간격 + 페이지 크기)
+                long id = validAt(s.map, p, end); // 레코드 확인
+                if (id < 0) throw new IOException("채팅 로그 손상: " + s.file + " 위치 " + p); // CRC 불일치 등
+                if (id >= hi) break; // 범위 끝
+                if (id >= lo) out.add(decode(s.map, p, room, id)); // 범위 안
+                p += HEADER + s.map.getInt(p); // 다음 레코드
+            } // while 끝
+        } // for 끝
+        for (int i = out.size() - 1; i >= 0; i--) sink.accept(out.get(i)); // 최신 것부터 넘김
+        return out.size(); // 넘긴 수
+    } // page 끝
+
+    /* ---------------- 레코드 ---------------- */ // 절대 위치 get만 사용(여러 스레드가 같은 매핑을 읽어도 안전)
+
+    private static long validAt(MappedByteBuffer m, int p, int limit) { // p의 레코드가 온전하면 id, 아니면 -1
+        if (p + HEADER + FIXED > limit) return -1; // 헤더도 없음
+        int len = m.getInt(p); // 본문 길이
+        if (len < FIXED || p + HEADER + len > limit) return -1; // 끝(0)이거나 잘림
+        CRC32C crc = new CRC32C(); // 체크섬
+        crc.update(m.slice(p + HEADER, len)); // 본문 전체
+        if ((int) crc.getValue() != m.getInt(p + 4)) return -1; // 불일치
+        return m.getLong(p + HEADER); // id
+    } // validAt 끝
+
+    private static ServerMessage decode(MappedByteBuffer m, int p, String room, long id) { // 레코드 → 기록 한 행
+        int len = m.getInt(p); // 본문 길이
+        int nickLen = m.getShort(p + HEADER + 16); // 닉네임 길이
+        byte[] nick = new byte[nickLen], text = new byte[len - FIXED - nickLen]; // 복사 버퍼
+        m.get(p + HEADER + FIXED, nick); // 닉네임
+        m.get(p + HEADER + FIXED + nickLen, text); // 본문
+        return ServerMessage.history(room, id, new String(nick, StandardCharsets.UTF_8), new String(text, StandardCharsets.UTF_8)); // 결과
+    } // decode 끝
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException { // 파일을 size 크기로 만들고 매핑
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) { // 읽기/쓰기
+            if (raf.length() < size) raf.setLength(size); // 미리 할당(0으로 채워짐)
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size); // 매핑(채널을 닫아도 유지)
+        } // try-with-resources 끝
+    } // map 끝
+
+    private static Path indexPath(Path log) { // .log → .idx
+        String name = log.getFileName().toString(); // 파일 이름
+        return log.resolveSibling(name.substring(0, name.length() - 4) + ".idx"); // 같은 디렉터리
+    } // indexPath 끝
+
+    private static long fileTime(Path file) { // 파일 수정 시각(실패하면 지금)
+        try { return Files.getLastModifiedTime(file).toMillis(); } catch (IOException e) { return System.currentTimeMillis(); } // 결과
+    } // fileTime 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=SegmentLogStore)
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        long getAppended(); // 저장 완료 건수
+        long getDroppedFull(); // 버퍼 초과로 버린 건수
+        long getDroppedFailed(); // 쓰기 실패로 버린 건수
+        int getPending(); // 저장 대기 건수
+        long getForces(); // force 호출 수
+        long getSegmentsRolled(); // 새로 만든 세그먼트 수
+        long getSegmentsDeleted(); // 보존 정책으로 지운 세그먼트 수
+        long getTruncatedBytes(); // 복구 때 버린 꼬리 바이트 수
+        int getRooms(); // 열린 방 수
+        String getFlushPolicy(); // 디스크 반영 정책
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 카운터를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(필드 직접 접근)
+        @Override public long getAppended() { return appended.sum(); } // 저장
+        @Override public long getDroppedFull() { return droppedFull.sum(); } // 버퍼 초과
+        @Override public long getDroppedFailed() { return droppedFailed.sum(); } // 실패
+        @Override public int getPending() { return buffer.size(); } // 대기
+        @Override public long getForces() { return forces.sum(); } // force
+        @Override public long getSegmentsRolled() { return rolled.sum(); } // 세그먼트 생성
+        @Override public long getSegmentsDeleted() { return deleted.sum(); } // 세그먼트 삭제
+        @Override public long getTruncatedBytes() { return truncated.sum(); } // 복구
+        @Override public int getRooms() { return logs.size(); } // 방 수
+        @Override public String getFlushPolicy() { return flush.name(); } // 정책
+    } // Stats 끝
+
+    Stats stats() { return new Stats(); } // 지표 객체
+
+    @Override
+    public void registerMBean() { // 플랫폼 MBean 서버에 등록 + 저장 카운터(GET /metrics, MySQL 저장소와 같은 이름)
+        Metrics.counter("chat_store_written_total", appended::sum); // 저장 완료 건수
+        Metrics.counter("chat_store_dropped_full_total", droppedFull::sum); // 버퍼 초과로 버린 건수
+        Metrics.counter("chat_store_dropped_failed_total", droppedFailed::sum); // 쓰기 실패로 버린 건수
+        Metrics.gauge("chat_store_buffered", buffer::size); // 저장 대기 건수
+        Metrics.counter("chat_store_forces_total", forces::sum); // 디스크 반영(force) 호출 수
+        Metrics.counter("chat_store_segments_rolled_total", rolled::sum); // 새로 만든 세그먼트 수
+        Metrics.counter("chat_store_segments_deleted_total", deleted::sum); // 보존 정책으로 지운 세그먼트 수
+        Metrics.counter("chat_store_truncated_bytes_total", truncated::sum); // 복구 때 버린 꼬리 바이트 수
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats(), new ObjectName("com.mycompany.chat:type=SegmentLogStore")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("채팅 로그 파일 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // SegmentLogStore 클래스 끝
@@ -0,0 +1,77 @@
+package com.mycompany.chat; // ServerConfig 클래스가 속한 패키지 선언
+
+import java.io.IOException; // 설정 파일 읽기 실패 예외
+import java.io.InputStream; // 설정 파일/리소스 입력 스트림
+import java.nio.file.Files; // 작업 디렉터리의 설정 파일 존재 확인/열기
+import java.nio.file.Path; // 설정 파일 경로 표현
+import java.util.Properties; // key=value 설정 저장소
+
+/** 설정값 조회 (시스템 프로퍼티 → 환경 변수 → 외부 설정 파일 → 클래스패스 기본값 → 코드 기본값 순) */ // 하드코딩 상수 대신 외부에서 조정 가능한 설정
+final class ServerConfig { // 인스턴스 없이 정적 메서드로만 사용하는 유틸 클래스
+
+    private static final String RESOURCE = "/chat-server.properties"; // 클래스패스 기본 설정 리소스 경로
+    private static final String[] SECRETS = {"chat.db.password", "chat.auth.tokenSecret"}; // jar에 든 기본 설정에서는 읽지 않는 키(배포물에 비밀값이 남지 않도록)
+    private static final Properties PROPS = load(); // 클래스 로딩 시 한 번만 읽어 둔 설정값
+
+    private ServerConfig() {} // 인스턴스 생성 방지
+
+    private static Properties load() { // 클래스패스 기본값 위에 외부 파일 값을 덮어써서 반환
+        Properties p = new Properties(); // 결과 저장소
+        try (InputStream in = ServerConfig.class.getResourceAsStream(RESOURCE)) { // jar 안의 기본 설정 열기
+            if (in != null) p.load(in); // 있으면 읽기
+            for (String k : SECRETS) { // 비밀값
+                Object v = p.remove(k); // 제거
+                if (v != null && !v.toString().isBlank()) System.err.println("기본 설정의 " + k + " 무시: 환경 변수나 외부 설정 파일로 지정하세요."); // jar에 넣지 않음
+            } // for 끝
+        } catch (IOException e) { // 읽기 실패 시
+            System.err.println("기본 설정 읽기 실패: " + e.getMessage()); // 경고만 출력하고 계속 진행
+        } // try-catch 끝
+        Path file = Path.of(System.getProperty("chat.config", "chat-server.properties")); // 외부 설정 파일 경로(-Dchat.config로 변경 가능)
+        if (Files.isRegularFile(file)) { // 작업 디렉터리(또는 지정 경로)에 파일이 있으면
+            try (InputStream in = Files.newInputStream(file)) { // 파일 열기
+                p.load(in); // 기본값 위에 덮어쓰기
+            } catch (IOException e) { // 읽기 실패 시
+                System.err.println("설정 파일 읽기 실패: " + file + " (" + e.getMessage() + ")"); // 경고 출력
+            } // try-catch 끝
+        } // if 끝
+        return p; // 완성된 설정 반환
+    } // load 끝
+
+    static String get(String key, String def) { // 문자열 설정값 조회
+        String v = System.getProperty(key); // 1순위: -Dkey=value
+        if (v == null) v = System.getenv(key.toUpperCase().replace('.', '_')); // 2순위: 환경 변수(chat.db.password → CHAT_DB_PASSWORD)
+        if (v == null) v = PROPS.getProperty(key); // 3순위: 설정 파일
+        return (v == null || v.isBlank()) ? def : v.trim(); // 없으면 코드 기본값
+    } // get 끝
+
+    static int getInt(String key, int def) { // 정수 설정값 조회
+        try { // 숫자 형식 오류 대비
+            return Integer.parseInt(get(key, String.valueOf(def))); // 문자열을 정수로 변환
+        } catch (NumberFormatException e) { // 잘못된 값이면
+            System.err.println("잘못된 설정값 무시: " + key); // 경고 후
+            return def; // 기본값 사용
+        } // try-catch 끝
+    } // getInt 끝
+
+    static long getLong(String key, long def) { // long 설정값 조회
+        try { // 숫자 형식 오류 대비
+            return Long.parseLong(get(key, String.valueOf(def))); // 문자열을 long으로 변환
+        } catch (NumberFormatException e) { // 잘못된 값이면
+            System.err.println("잘못된 설정값 무시: " + key); // 경고 후
+            return def; // 기본값 사용
+        } // try-catch 끝
+    } // getLong 끝
+
+    static double getDouble(String key, double def) { // 실수 설정값 조회
+        try { // 숫자 형식 오류 대비
+            return Double.parseDouble(get(key, String.valueOf(def))); // 문자열을 double로 변환
+        } catch (NumberFormatException e) { // 잘못된 값이면
+            System.err.println("잘못된 설정값 무시: " + key); // 경고 후
+            return def; // 기본값 사용
+        } // try-catch 끝
+    } // getDouble 끝
+
+    static boolean getBoolean(String key, boolean def) { // 불리언 설정값 조회
+        return Boolean.parseBoolean(get(key, String.valueOf(def))); // "true"(대소문자 무시)만 참
+    } // getBoolean 끝
+} // ServerConfig 클래스 끝
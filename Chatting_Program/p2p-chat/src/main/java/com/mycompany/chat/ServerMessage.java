@@ -0,0 +1,259 @@
+package com.mycompany.chat; // ServerMessage 클래스가 속한 패키지 선언
+
+import java.nio.ByteBuffer; // 연결들이 공유하는 읽기 전용 송신 버퍼
+import java.nio.charset.StandardCharsets; // 텍스트 줄 UTF-8 인코딩
+import java.util.ArrayList; // 파싱 결과 목록
+import java.util.List; // 리스트 인터페이스
+
+/**
+ * 서버 → 클라이언트 메시지 한 건(형식과 무관한 값).
+ * - 텍스트 줄("chat:...", "userlist:..." 등)과 바이너리 프레임은 이 값을 인코딩한 결과이며, 각각 처음 요청될 때 한 번만 만든다.
+ * - 같은 메시지를 여러 연결에 보내도 인코딩은 형식마다 한 번이다.
+ * - NIO 연결에는 인코딩 결과를 감싼 읽기 전용 ByteBuffer 하나를 공유하고, 연결마다 위치만 다른 뷰(duplicate)를 넘긴다.
+ */ // 브로드캐스트 경로는 이 객체를 그대로 공유
+final class ServerMessage { // 불변 값 객체
+
+    /** 메시지 종류(번호는 바이너리 프레임의 type 필드 값) */ // 새 종류는 번호를 바꾸지 말고 뒤에 추가
+    enum Type { // 종류 목록
+        UNKNOWN(0), // 해석할 수 없는 줄/프레임(클라이언트 표시용)
+        CHAT(1), // 채팅: sender, room, text, version(방별 순번, 재접속 때 빠진 부분만 받는 기준)
+        SYSTEM(2), // 시스템 메시지: text
+        ROOM_LIST(3), // 전체 방 목록: names
+        USER_LIST(4), // 방 참가자 목록: room, users
+        ALL_USERS(5), // 전체 접속자: users (+ version, 델타 모드 기준점)
+        ALL_USERS_PUT(6), // 접속/상태 변경 변경분: version, users[0]
+        ALL_USERS_REMOVE(7), // 퇴장 변경분: version, sender(닉네임)
+        MY_ROOMS(8), // 내 가입 방 목록: names
+        ROOM_ACTIVE(9), // 내 활성 방: room
+        HISTORY(10), // 기록 페이지의 한 행: room, version(= chat_logs.log_id), sender, text
+        HISTORY_END(11), // 기록 페이지 끝: room, version(= 다음 요청의 beforeId, 더 없으면 0, 다시 요청하라면 -1)
+        AUTH_OK(12), // 인증 성공: sender(닉네임), text(세션 토큰)
+        AUTH_FAIL(13), // 인증 실패: text(사유: bad/exists/invalid/busy/error)
+        PING(14), // 하트비트: version(서버 핑 간격 ms), 클라이언트는 pong으로 응답
+        RESUME(15); // 재개 기준: version(서버 프로세스 세대, 순번/접속자 버전이 이어지는지 판단)
+
+        final int code; // 프레임 번호
+        Type(int code) { this.code = code; } // 생성자
+
+        private static final Type[] BY_CODE = new Type[16]; // 번호 → 종류
+        static { for (Type t : values()) BY_CODE[t.code] = t; } // 표 채우기
+
+        static Type of(int code) { // 번호로 종류 찾기(모르는 번호는 UNKNOWN)
+            return (code >= 0 && code < BY_CODE.length && BY_CODE[code] != null) ? BY_CODE[code] : UNKNOWN; // 결과
+        } // of 끝
+    } // Type 끝
+
+    /** 사용자 한 명(닉네임 + 상태) */ // userlist/allusers 항목
+    record User(String nick, String status) {} // 값 레코드
+
+    static final long NO_VERSION = -1; // 버전 없음(기존 allusers:)
+    static final boolean DIRECT_BUFFERS = ServerConfig.getBoolean("chat.nio.directBuffers", false); // 공유 버퍼를 다이렉트 메모리에 둘지(쓰기 때 임시 버퍼 복사 생략)
+
+    final Type type; // 종류
+    final String room; // 방 이름(CHAT/USER_LIST/ROOM_ACTIVE)
+    final String sender; // 보낸 사람(CHAT) 또는 퇴장한 닉네임(ALL_USERS_REMOVE)
+    final String text; // 본문(CHAT/SYSTEM/UNKNOWN)
+    final List<String> names; // 방 이름 목록(ROOM_LIST/MY_ROOMS)
+    final List<User> users; // 사용자 목록(USER_LIST/ALL_USERS/ALL_USERS_PUT)
+    final long version; // 전체 접속자 버전(ALL_USERS*), 기록 id/커서(HISTORY*), 방별 순번(CHAT) 또는 세대(RESUME), 없으면 NO_VERSION
+
+    private volatile String textLine; // 캐시된 텍스트 줄(개행 제외)
+    private volatile byte[] textBytes; // 캐시된 텍스트 줄 UTF-8 + '\n'
+    private volatile byte[] frame; // 캐시된 바이너리 프레임(길이 접두 포함)
+    private volatile ByteBuffer textBuffer; // textBytes를 담은 공유 읽기 전용 버퍼
+    private volatile ByteBuffer frameBuffer; // frame을 담은 공유 읽기 전용 버퍼
+
+    ServerMessage(Type type, String room, String sender, String text, List<String> names, List<User> users, long version) { // 모든 필드 지정(코덱용)
+        this.type = type; // 보관
+        this.room = room; // 보관
+        this.sender = sender; // 보관
+        this.text = text; // 보관
+        this.names = names == null ? List.of() : names; // null 대신 빈 목록
+        this.users = users == null ? List.of() : users; // null 대신 빈 목록
+        this.version = version; // 보관
+    } // 생성자 끝
+
+    /* ---------------- 생성 ---------------- */ // 종류별 팩토리
+
+    static ServerMessage chat(String sender, String room, String text) { return new ServerMessage(Type.CHAT, room, sender, text, null, null, NO_VERSION); } // 채팅
+    static ServerMessage chat(String sender, String room, String text, long seq) { return new ServerMessage(Type.CHAT, room, sender, text, null, null, seq); } // 순번 붙은 채팅(기록 링이 만듦, 텍스트 줄에는 싣지 않음)
+    static ServerMessage system(String text) { return new ServerMessage(Type.SYSTEM, null, null, text, null, null, NO_VERSION); } // 시스템 메시지
+    static ServerMessage system(String room, String text) { return new ServerMessage(Type.SYSTEM, room, null, text, null, null, NO_VERSION); } // 방 시스템 메시지(바이너리는 방을 싣고, 텍스트 줄은 "system:내용" 그대로)
+    static ServerMessage roomList(List<String> rooms) { return new ServerMessage(Type.ROOM_LIST, null, null, null, List.copyOf(rooms), null, NO_VERSION); } // 방 목록
+    static ServerMessage userList(String room, List<User> users) { return new ServerMessage(Type.USER_LIST, room, null, null, null, List.copyOf(users), NO_VERSION); } // 방 참가자
+    static ServerMessage allUsers(List<User> users, long version) { return new ServerMessage(Type.ALL_USERS, null, null, null, null, List.copyOf(users), version); } // 전체 접속자
+    static ServerMessage allUsersPut(long version, String nick, String status) { return new ServerMessage(Type.ALL_USERS_PUT, null, null, null, null, List.of(new User(nick, status)), version); } // 접속/상태 변경분
+    static ServerMessage allUsersRemove(long version, String nick) { return new ServerMessage(Type.ALL_USERS_REMOVE, null, nick, null, null, null, version); } // 퇴장 변경분
+    static ServerMessage myRooms(List<String> rooms) { return new ServerMessage(Type.MY_ROOMS, null, null, null, List.copyOf(rooms), null, NO_VERSION); } // 내 가입 방
+    static ServerMessage roomActive(String room) { return new ServerMessage(Type.ROOM_ACTIVE, room, null, null, null, null, NO_VERSION); } // 내 활성 방
+    static ServerMessage history(String room, long id, String sender, String text) { return new ServerMessage(Type.HISTORY, room, sender, text, null, null, id); } // 기록 한 행
+    static ServerMessage historyEnd(String room, long next) { return new ServerMessage(Type.HISTORY_END, room, null, null, null, null, next); } // 기록 페이지 끝
+    static ServerMessage authOk(String nickname, String token) { return new ServerMessage(Type.AUTH_OK, null, nickname, token, null, null, NO_VERSION); } // 인증 성공
+    static ServerMessage authFail(String reason) { return new ServerMessage(Type.AUTH_FAIL, null, null, reason, null, null, NO_VERSION); } // 인증 실패
+    static ServerMessage ping(long intervalMs) { return new ServerMessage(Type.PING, null, null, null, null, null, intervalMs); } // 하트비트
+    static ServerMessage resume(long epoch) { return new ServerMessage(Type.RESUME, null, null, null, null, null, epoch); } // 재개 기준
+    static ServerMessage unknown(String line) { return new ServerMessage(Type.UNKNOWN, null, null, line, null, null, NO_VERSION); } // 해석 불가
+
+    /* ---------------- 인코딩(캐시) ---------------- */ // 형식마다 한 번
+
+    /** 목록 갱신이면 합치기 종류 키, 아니면 null */ // OutboundQueue의 합치기/버리기 기준
+    String coalesceKey() { // 종류 키
+        return switch (type) { // 종류별
+            case USER_LIST -> "userlist:" + room; // 방마다 다른 종류
+            case ALL_USERS -> "allusers:"; // 전체 접속자(버전 포함 스냅샷도 같은 종류)
+            case ROOM_LIST -> "roomlist:"; // 방 목록
+            case MY_ROOMS -> "myrooms:"; // 내 가입 방
+            case ROOM_ACTIVE -> "roomactive:"; // 내 활성 방
+            default -> null; // 채팅/시스템/변경분은 순서와 내용이 모두 중요하므로 합치지 않음
+        }; // switch 끝
+    } // coalesceKey 끝
+
+    String text() { // 텍스트 줄(개행 제외)
+        String s = textLine; // 캐시 읽기
+        if (s == null) textLine = s = toTextLine(); // 처음이면 생성(경쟁 시 같은 값을 두 번 만들 수 있으나 무해)
+        return s; // 반환
+    } // text 끝
+
+    byte[] textBytes() { // 텍스트 줄 UTF-8 + '\n'(소켓에 그대로 씀)
+        byte[] b = textBytes; // 캐시 읽기
+        if (b == null) textBytes = b = (text() + "\n").getBytes(StandardCharsets.UTF_8); // 처음이면 생성
+        return b; // 반환(호출자는 수정하지 않음)
+    } // textBytes 끝
+
+    byte[] frame() { // 바이너리 프레임(소켓에 그대로 씀)
+        byte[] f = frame; // 캐시 읽기
+        if (f == null) frame = f = WireCodec.encode(this); // 처음이면 생성
+        return f; // 반환(호출자는 수정하지 않음)
+    } // frame 끝
+
+    /** 협상된 형식의 송신 버퍼(공유 버퍼의 독립 뷰: 내용은 같고 위치/한계만 연결마다 따로) */ // NioConnection이 소켓에 그대로 씀
+    ByteBuffer buffer(boolean binary) { // 연결 하나의 쓰기용 뷰
+        ByteBuffer b = binary ? frameBuffer : textBuffer; // 캐시 읽기
+        if (b == null) { // 처음이면 생성(경쟁 시 두 번 만들 수 있으나 무해)
+            b = share(binary ? frame() : textBytes()); // 인코딩 결과를 공유 버퍼로
+            if (binary) frameBuffer = b; else textBuffer = b; // 캐시
+        } // if 끝
+        return b.duplicate(); // 뷰만 새로 만듦(바이트 복사 없음, 읽기 전용 유지)
+    } // buffer 끝
+
+    private static ByteBuffer share(byte[] bytes) { // 공유 읽기 전용 버퍼 생성
+        if (!DIRECT_BUFFERS) return ByteBuffer.wrap(bytes).asReadOnlyBuffer(); // 힙: 배열을 감싸기만 함
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length); // 다이렉트: 메시지당 한 번 복사
+        direct.put(bytes).flip(); // 채우고 읽기 모드로
+        return direct.asReadOnlyBuffer(); // 수신자가 내용을 바꿀 수 없게
+    } // share 끝
+
+    String toTextLine() { // 텍스트 프로토콜 줄 생성(캐시 없이)
+        return switch (type) { // 종류별 기존 형식
+            case CHAT -> "chat:" + sender + ": " + text; // "chat:닉: 내용"
+            case SYSTEM -> "system:" + text; // "system:내용"
+            case ROOM_LIST -> "roomlist:" + String.join(",", names); // "roomlist:방1,방2"
+            case USER_LIST -> "userlist:" + room + ":" + joinUsers(users); // "userlist:방:닉|상태,..."
+            case ALL_USERS -> (version == NO_VERSION ? "allusers:" : "allusers@" + version + ":") + joinUsers(users); // "allusers:..." 또는 "allusers@버전:..."
+            case ALL_USERS_PUT -> "allusers+:" + version + ":" + users.get(0).nick() + "|" + users.get(0).status(); // "allusers+:버전:닉|상태"
+            case ALL_USERS_REMOVE -> "allusers-:" + version + ":" + sender; // "allusers-:버전:닉"
+            case MY_ROOMS -> "myrooms:" + String.join(",", names); // "myrooms:방1,방2"
+            case ROOM_ACTIVE -> "roomactive:" + room; // "roomactive:방"
+            case HISTORY -> "history:" + room + ":" + version + ":" + sender + ": " + text; // "history:방:id:닉: 내용"
+            case HISTORY_END -> "historyend:" + room + ":" + version; // "historyend:방:다음 beforeId"
+            case AUTH_OK -> "authok:" + sender + ":" + text; // "authok:닉:토큰"(토큰에는 ':'가 없음)
+            case AUTH_FAIL -> "authfail:" + text; // "authfail:사유"
+            case PING -> "ping:" + version; // "ping:간격ms"
+            case RESUME -> "resume:" + version; // "resume:세대"
+            case UNKNOWN -> text; // 원문 그대로
+        }; // switch 끝
+    } // toTextLine 끝
+
+    private static String joinUsers(List<User> users) { // "닉|상태,닉|상태"
+        StringBuilder sb = new StringBuilder(users.size() * 16); // 대략적인 크기로 시작
+        for (User u : users) { // 각 사용자
+            if (sb.length() > 0) sb.append(','); // 구분자
+            sb.append(u.nick()).append('|').append(u.status()); // "닉|상태"
+        } // for 끝
+        return sb.toString(); // 완성 문자열
+    } // joinUsers 끝
+
+    /* ---------------- 텍스트 해석 ---------------- */ // 텍스트 프로토콜로 접속한 클라이언트용
+
+    /** 텍스트 줄을 메시지로 해석(모르는 형식은 UNKNOWN) */ // 닉네임/방 이름에 , | : 가 있으면 텍스트 형식의 한계로 잘못 나뉠 수 있음
+    static ServerMessage parseText(String line) { // 줄 해석
+        if (line.startsWith("chat:")) { // "chat:닉: 내용"
+            String body = line.substring("chat:".length()); // 접두어 제거
+            int idx = body.indexOf(": "); // 닉네임 끝
+            return idx < 0 ? chat("", null, body) : chat(body.substring(0, idx), null, body.substring(idx + 2)); // 텍스트 형식에는 방 정보가 없음
+        } // if 끝
+        if (line.startsWith("system:")) return system(line.substring("system:".length())); // "system:내용"
+        if (line.startsWith("roomlist:")) return roomList(splitNames(line.substring("roomlist:".length()))); // "roomlist:방1,방2"
+        if (line.startsWith("myrooms:")) return myRooms(splitNames(line.substring("myrooms:".length()))); // "myrooms:방1,방2"
+        if (line.startsWith("roomactive:")) return roomActive(line.substring("roomactive:".length())); // "roomactive:방"
+        if (line.startsWith("userlist:")) { // "userlist:방:닉|상태,..."
+            String body = line.substring("userlist:".length()); // 접두어 제거
+            int idx = body.indexOf(':'); // 방 이름 끝
+            return idx < 0 ? userList(body, List.of()) : userList(body.substring(0, idx), splitUsers(body.substring(idx + 1))); // 방 + 참가자
+        } // if 끝
+        if (line.startsWith("history:")) { // "history:방:id:닉: 내용"
+            String body = line.substring("history:".length()); // 접두어 제거
+            int c1 = body.indexOf(':'), c2 = c1 < 0 ? -1 : body.indexOf(':', c1 + 1), c3 = c2 < 0 ? -1 : body.indexOf(": ", c2 + 1); // 방/id/닉네임 끝
+            if (c3 < 0) return unknown(line); // 형식 오류
+            try { // id 해석
+                return history(body.substring(0, c1), Long.parseLong(body.substring(c1 + 1, c2)), body.substring(c2 + 1, c3), body.substring(c3 + 2)); // 한 행
+            } catch (NumberFormatException e) { return unknown(line); } // 형식 오류
+        } // if 끝
+        if (line.startsWith("historyend:")) { // "historyend:방:다음 beforeId"
+            String body = line.substring("historyend:".length()); // 접두어 제거
+            int idx = body.lastIndexOf(':'); // 방 이름 끝
+            try { return historyEnd(body.substring(0, idx), Long.parseLong(body.substring(idx + 1))); } // 페이지 끝
+            catch (RuntimeException e) { return unknown(line); } // 형식 오류(구분자 없음/숫자 아님)
+        } // if 끝
+        if (line.startsWith("authok:")) { // "authok:닉:토큰"
+            String body = line.substring("authok:".length()); // 접두어 제거
+            int idx = body.lastIndexOf(':'); // 토큰 앞 구분자
+            return idx < 0 ? unknown(line) : authOk(body.substring(0, idx), body.substring(idx + 1)); // 닉네임 + 토큰
+        } // if 끝
+        if (line.startsWith("ping:")) { // "ping:간격ms"
+            try { return ping(Long.parseLong(line.substring("ping:".length()))); } // 하트비트
+            catch (NumberFormatException e) { return unknown(line); } // 형식 오류
+        } // if 끝
+        if (line.startsWith("resume:")) { // "resume:세대"
+            try { return resume(Long.parseLong(line.substring("resume:".length()))); } // 재개 기준
+            catch (NumberFormatException e) { return unknown(line); } // 형식 오류
+        } // if 끝
+        if (line.startsWith("authfail:")) return authFail(line.substring("authfail:".length())); // "authfail:사유"
+        if (line.startsWith("allusers:")) return allUsers(splitUsers(line.substring("allusers:".length())), NO_VERSION); // 기존 전체 목록
+        if (line.startsWith("allusers@") || line.startsWith("allusers+:") || line.startsWith("allusers-:")) { // 버전 포함 형식
+            boolean snapshot = line.charAt("allusers".length()) == '@'; // 스냅샷 여부
+            String body = line.substring(snapshot ? "allusers@".length() : "allusers+:".length()); // 접두어 제거
+            int idx = body.indexOf(':'); // 버전 끝
+            long ver; // 버전
+            try { ver = Long.parseLong(body.substring(0, Math.max(idx, 0))); } catch (NumberFormatException e) { return unknown(line); } // 형식 오류
+            String rest = body.substring(idx + 1); // 나머지
+            if (snapshot) return allUsers(splitUsers(rest), ver); // 스냅샷
+            if (line.charAt("allusers".length()) == '-') return allUsersRemove(ver, rest); // 퇴장
+            User u = parseUser(rest); // 접속/상태 변경
+            return allUsersPut(ver, u.nick(), u.status()); // 변경분
+        } // if 끝
+        return unknown(line); // 그 외
+    } // parseText 끝
+
+    private static List<String> splitNames(String csv) { // "a,b" → [a, b]
+        return (csv == null || csv.isBlank()) ? List.of() : List.of(csv.split(",")); // 빈 문자열이면 빈 목록
+    } // splitNames 끝
+
+    private static List<User> splitUsers(String csv) { // "닉|상태,닉|상태" → 목록
+        if (csv == null || csv.isBlank()) return List.of(); // 빈 목록
+        List<User> out = new ArrayList<>(); // 결과
+        for (String token : csv.split(",")) out.add(parseUser(token)); // 각 항목
+        return out; // 반환
+    } // splitUsers 끝
+
+    private static User parseUser(String token) { // "닉|상태" → User(상태가 없으면 기본값)
+        String[] parts = token.split("\\|", 2); // 닉네임/상태 분리
+        String st = (parts.length > 1 && !parts[1].isBlank()) ? parts[1] : PresenceCache.DEFAULT_STATUS; // 상태 기본값
+        return new User(parts[0], st); // 결과
+    } // parseUser 끝
+
+    @Override
+    public String toString() { // 디버그 출력
+        return text(); // 텍스트 형식
+    } // toString 끝
+} // ServerMessage 클래스 끝
@@ -0,0 +1,185 @@
+package com.mycompany.chat; // ServerModeComparison 클래스가 속한 패키지 선언
+
+import java.io.BufferedReader; // 수신 라인 읽기
+import java.io.IOException; // 소켓/프로세스 입출력 예외
+import java.io.InputStreamReader; // 바이트 → 문자 변환
+import java.io.OutputStreamWriter; // 문자 → 바이트 변환
+import java.io.PrintWriter; // 라인 송신
+import java.net.Socket; // 테스트용 클라이언트 소켓
+import java.nio.charset.StandardCharsets; // UTF-8
+import java.nio.file.Files; // /proc 상태 파일 읽기
+import java.nio.file.Path; // 파일 경로
+import java.util.ArrayList; // 가변 리스트
+import java.util.Arrays; // 정렬
+import java.util.List; // 리스트 인터페이스
+import java.util.concurrent.ConcurrentLinkedQueue; // 여러 수신 스레드가 지연 시간을 기록하는 큐
+import java.util.concurrent.CountDownLatch; // 모든 수신 완료 대기
+import java.util.concurrent.TimeUnit; // 대기 시간 단위
+import java.util.concurrent.atomic.AtomicLong; // 버린 수신 바이트 누계
+
+/**
+ * 서버 실행 모드(thread / virtual / nio) 부하 비교 도구.
+ * - 모드마다 별도 JVM으로 ChatServer를 띄우고(DB 저장 끔) 유휴 연결 N개를 붙여 연결당 메모리(RSS 증가량)를 잰다.
+ * - 같은 방에 수신자 R명을 넣고 메시지를 보내 브로드캐스트 지연 p50/p99를 잰다.
+ * 실행 예: java -cp target/classes com.mycompany.chat.ServerModeComparison --connections 2000 --modes thread,virtual,nio
+ */ // 클래스 설명 주석
+public class ServerModeComparison { // 명령행 도구 클래스
+
+    private static final String ROOM = "bench"; // 지연 측정용 방 이름
+    private static final String MARK = "t="; // 메시지에 실어 보내는 송신 시각 표식
+    private static final AtomicLong drained = new AtomicLong(); // 유휴 연결들이 받아서 버린 바이트 누계(서버가 잠잠해졌는지 판단)
+
+    public static void main(String[] args) throws Exception { // 도구 진입점
+        int connections = 2000; // 유휴 연결 수 기본값
+        int receivers = 50; // 지연 측정 수신자 수 기본값
+        int messages = 200; // 측정 메시지 수 기본값
+        String modes = "thread,virtual,nio"; // 비교할 모드 기본값
+        int port = 18000; // 자식 서버 시작 포트
+        for (int i = 0; i + 1 < args.length; i += 2) { // "--이름 값" 쌍 해석
+            switch (args[i]) { // 옵션 이름별 분기
+                case "--connections" -> connections = Integer.parseInt(args[i + 1]); // 유휴 연결 수
+                case "--receivers" -> receivers = Integer.parseInt(args[i + 1]); // 수신자 수
+                case "--messages" -> messages = Integer.parseInt(args[i + 1]); // 메시지 수
+                case "--modes" -> modes = args[i + 1]; // 모드 목록
+                case "--port" -> port = Integer.parseInt(args[i + 1]); // 시작 포트
+                default -> System.err.println("알 수 없는 옵션 무시: " + args[i]); // 그 외
+            } // switch 끝
+        } // for 끝
+
+        System.out.printf("%-8s %12s %14s %12s %12s%n", "mode", "conns", "KB/conn(RSS)", "p50(ms)", "p99(ms)"); // 결과 표 머리글
+        for (String mode : modes.split(",")) { // 모드마다
+            Result r = runMode(mode.trim(), port++, connections, receivers, messages); // 측정
+            System.out.printf("%-8s %12d %14s %12.2f %12.2f%n", mode.trim(), connections, // 결과 한 줄 출력
+                    r.kbPerConn < 0 ? "n/a" : String.format("%.1f", r.kbPerConn), r.p50Ms, r.p99Ms); // RSS를 못 읽는 OS면 n/a
+        } // for 끝
+    } // main 끝
+
+    private record Result(double kbPerConn, double p50Ms, double p99Ms) {} // 모드별 측정 결과
+
+    private static Result runMode(String mode, int port, int connections, int receivers, int messages) throws Exception { // 모드 하나 측정
+        Process server = new ProcessBuilder( // 자식 JVM에서 서버 실행(모드마다 깨끗한 상태)
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(), // 현재와 같은 JDK
+                "-Dchat.server.mode=" + mode, // 측정할 모드
+                "-Dchat.server.port=" + port, // 전용 포트
+                "-Dchat.db.enabled=false", // DB 없이 실행
+                "-Dchat.auth.required=false", // 닉네임 첫 줄로 접속(측정 대상이 아닌 BCrypt 제외)
+                "-Dchat.ratelimit.enabled=false", // 가상 사용자 송신률은 측정 조건이므로 제한하지 않음
+                "-cp", System.getProperty("java.class.path"), // 같은 클래스패스
+                ChatServer.class.getName()) // 서버 메인 클래스
+                .redirectErrorStream(true) // 표준 에러를 합쳐서
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD) // 접속 로그는 버림
+                .start(); // 실행
+        List<Socket> sockets = new ArrayList<>(); // 열어 둔 소켓(정리용)
+        try { // 측정 후 반드시 자식 종료
+            waitForPort(port); // 서버가 뜰 때까지 대기
+            Thread.sleep(500); // JIT/초기화 안정화 대기
+            long rssBefore = rssKb(server.pid()); // 연결 전 RSS
+
+            for (int i = 0; i < connections; i++) { // 유휴 연결 생성
+                Socket s = connect(port, "idle-" + i); // 닉네임 전송까지
+                sockets.add(s); // 보관
+                drain(s); // 서버가 보내는 목록 갱신은 읽어서 버림(송신 버퍼가 막히지 않도록)
+            } // for 끝
+            waitForQuiet(); // 입장 알림 전파가 모두 끝날 때까지 대기
+            long rssAfter = rssKb(server.pid()); // 연결 후 RSS
+            double kbPerConn = (rssBefore < 0 || rssAfter < 0 || connections == 0) ? -1 : (rssAfter - rssBefore) / (double) connections; // 연결당 증가량
+
+            ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>(); // 수신 지연(나노초)
+            CountDownLatch done = new CountDownLatch(receivers); // 수신자별 완료 신호
+            for (int i = 0; i < receivers; i++) { // 수신자 생성
+                Socket s = connect(port, "rx-" + i); // 접속
+                sockets.add(s); // 보관
+                new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true).println("room:join:" + ROOM); // 측정 방 입장
+                final int expect = messages; // 받을 메시지 수
+                Thread.ofVirtual().start(() -> receive(s, expect, latencies, done)); // 수신 루프
+            } // for 끝
+            Socket sender = connect(port, "tx"); // 송신자 접속
+            sockets.add(sender); // 보관
+            drain(sender); // 송신자 수신분은 버림
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(sender.getOutputStream(), StandardCharsets.UTF_8), true); // 송신 스트림
+            out.println("room:join:" + ROOM); // 측정 방 입장
+            waitForQuiet(); // 입장 처리 대기
+            for (int i = 0; i < messages; i++) { // 메시지 송신
+                out.println(MARK + System.nanoTime()); // 송신 시각을 본문에 기록
+                Thread.sleep(5); // 초당 약 200건
+            } // for 끝
+            done.await(30, TimeUnit.SECONDS); // 모든 수신 대기(최대 30초)
+
+            long[] arr = latencies.stream().mapToLong(Long::longValue).toArray(); // 배열로 변환
+            Arrays.sort(arr); // 정렬
+            return new Result(kbPerConn, percentileMs(arr, 0.50), percentileMs(arr, 0.99)); // 결과 반환
+        } finally { // 정리
+            for (Socket s : sockets) { try { s.close(); } catch (IOException ignore) {} } // 소켓 닫기
+            server.destroy(); // 자식 서버 종료
+            server.waitFor(10, TimeUnit.SECONDS); // 종료 대기
+        } // try-finally 끝
+    } // runMode 끝
+
+    private static Socket connect(int port, String nickname) throws IOException { // 접속 후 닉네임 전송
+        Socket s = new Socket("localhost", port); // 연결
+        s.getOutputStream().write((nickname + "\n").getBytes(StandardCharsets.UTF_8)); // 프로토콜 첫 줄
+        return s; // 소켓 반환
+    } // connect 끝
+
+    private static void drain(Socket s) { // 받은 데이터를 계속 버리는 가상 스레드
+        Thread.ofVirtual().start(() -> { // 연결마다 가벼운 수신기
+            byte[] buf = new byte[8192]; // 버림용 버퍼
+            try { // 닫힐 때까지 읽기
+                int n; // 읽은 바이트 수
+                while ((n = s.getInputStream().read(buf)) >= 0) drained.addAndGet(n); // 버리면서 양만 기록
+            } catch (IOException ignore) {} // 연결 종료
+        }); // start 끝
+    } // drain 끝
+
+    private static void receive(Socket s, int expect, ConcurrentLinkedQueue<Long> latencies, CountDownLatch done) { // 측정 메시지 수신
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8))) { // 줄 단위 입력
+            int got = 0; // 받은 측정 메시지 수
+            String line; // 수신 라인
+            while (got < expect && (line = in.readLine()) != null) { // 다 받을 때까지
+                int idx = line.indexOf(MARK); // 표식 위치
+                if (!line.startsWith("chat:") || idx < 0) continue; // 측정 메시지가 아니면 무시
+                latencies.add(System.nanoTime() - Long.parseLong(line.substring(idx + MARK.length()).trim())); // 지연 기록
+                got++; // 개수 증가
+            } // while 끝
+        } catch (IOException | NumberFormatException ignore) { // 연결 종료 등
+        } finally { // 항상
+            done.countDown(); // 완료 신호
+        } // try-catch-finally 끝
+    } // receive 끝
+
+    private static double percentileMs(long[] sorted, double p) { // 정렬된 배열의 백분위(ms)
+        if (sorted.length == 0) return Double.NaN; // 표본 없음
+        int idx = (int) Math.ceil(p * sorted.length) - 1; // nearest-rank 방식 인덱스
+        return sorted[Math.max(0, idx)] / 1_000_000.0; // 나노초 → 밀리초
+    } // percentileMs 끝
+
+    private static void waitForPort(int port) throws InterruptedException { // 서버 포트가 열릴 때까지 대기
+        for (int i = 0; i < 100; i++) { // 최대 약 10초
+            try { // 접속 시도
+                new Socket("localhost", port).close(); // 접속되면 준비 완료(빈 연결은 곧바로 닫음)
+                return; // 대기 종료
+            } catch (IOException e) { // 아직 열리지 않았으면
+                Thread.sleep(100); // 잠시 대기
+            } // try-catch 끝
+        } // for 끝
+        throw new IllegalStateException("서버가 시작되지 않았습니다: " + port); // 시간 초과
+    } // waitForPort 끝
+
+    private static void waitForQuiet() throws InterruptedException { // 서버가 보내는 목록 갱신이 멈출 때까지 대기
+        long last = -1; // 직전 누계
+        while (drained.get() != last) { // 500ms 동안 변화가 없을 때까지
+            last = drained.get(); // 현재 누계 기록
+            Thread.sleep(500); // 잠시 대기
+        } // while 끝
+    } // waitForQuiet 끝
+
+    private static long rssKb(long pid) { // 리눅스 /proc에서 프로세스 RSS(KB) 읽기
+        try { // 다른 OS나 권한 문제 대비
+            for (String l : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) { // 상태 파일 각 줄
+                if (l.startsWith("VmRSS:")) return Long.parseLong(l.replaceAll("\\D+", "")); // 숫자만 추출
+            } // for 끝
+        } catch (IOException | NumberFormatException ignore) { // 읽기 실패
+        } // try-catch 끝
+        return -1; // 측정 불가
+    } // rssKb 끝
+} // ServerModeComparison 클래스 끝
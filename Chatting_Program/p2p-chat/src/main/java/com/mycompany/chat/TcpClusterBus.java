@@ -0,0 +1,232 @@
+package com.mycompany.chat; // TcpClusterBus 클래스가 속한 패키지 선언
+
+import java.io.BufferedInputStream; // 프레임 읽기 버퍼
+import java.io.BufferedOutputStream; // 프레임 모아 쓰기
+import java.io.IOException; // 소켓 예외
+import java.io.InputStream; // 소켓 입력
+import java.io.OutputStream; // 소켓 출력
+import java.net.InetAddress; // 기본 노드 id(호스트 이름)
+import java.net.InetSocketAddress; // 다른 노드 주소
+import java.net.ServerSocket; // 수신 대기 소켓
+import java.net.Socket; // 노드 간 연결
+import java.util.ArrayList; // 주소 목록
+import java.util.List; // 리스트 인터페이스
+import java.util.Map; // 맵 인터페이스
+import java.util.concurrent.ArrayBlockingQueue; // 링크별 제한된 송신 대기열
+import java.util.concurrent.BlockingQueue; // 대기열 인터페이스
+import java.util.concurrent.ConcurrentHashMap; // 노드 id → 링크
+
+/**
+ * TCP 클러스터 버스: 노드마다 chat.cluster.port에서 수신 대기하고, chat.cluster.peers의 모든 주소로 송신 링크를 연다.
+ * - 링크/피어 모두 연결 직후 HELLO 프레임으로 노드 id를 교환하고, 이후 프레임은 WireCodec의 길이 접두 형식이다.
+ * - 송신은 링크별 제한된 대기열 + 전용 작성자 가상 스레드(보내는 쪽은 넣기만 함). 대기열이 넘치면 링크를 끊고 다시 연결해 스냅샷부터 새로 받게 한다.
+ * - 끊긴 링크는 chat.cluster.reconnectMs마다 다시 연결한다. 같은 주소 목록을 모든 노드에 그대로 써도 되도록 자기 자신으로의 연결은 건너뛴다.
+ */ // 한 호스트에서 포트만 달리해 여러 노드를 띄우는 루프백 구성으로도 쓸 수 있음
+final class TcpClusterBus implements ClusterBus { // chat.cluster.bus=tcp
+
+    private static final byte[] CLOSE = new byte[0]; // 작성자 깨우기용 종료 표시
+    private static final int CONNECT_TIMEOUT_MS = 3000; // 연결 시도 제한 시간
+
+    private final String nodeId; // 이 노드의 id
+    private final int port; // 수신 대기 포트
+    private final List<InetSocketAddress> peers; // 송신 링크를 열 주소
+    private final int queueCapacity; // 링크별 송신 대기열 크기
+    private final long reconnectMs; // 재연결 간격
+
+    private final Map<String, Link> links = new ConcurrentHashMap<>(); // 노드 id → 송신 링크
+    private final Map<String, Socket> inbound = new ConcurrentHashMap<>(); // 노드 id → 수신 연결(재연결 시 이전 연결 정리)
+    private volatile Listener listener; // 이벤트 수신자
+    private volatile ServerSocket server; // 수신 대기 소켓
+    private volatile boolean closed; // 종료 여부
+
+    TcpClusterBus() { // 설정 파일 값으로 생성
+        this(ServerConfig.get("chat.cluster.nodeId", ""), // 비어 있으면 호스트:포트
+                ServerConfig.getInt("chat.cluster.port", 9000), // 수신 포트
+                parsePeers(ServerConfig.get("chat.cluster.peers", "")), // 다른 노드 주소
+                ServerConfig.getInt("chat.cluster.queueCapacity", 65536), // 대기열 크기
+                ServerConfig.getLong("chat.cluster.reconnectMs", 1000)); // 재연결 간격
+    } // 생성자 끝
+
+    TcpClusterBus(String nodeId, int port, List<InetSocketAddress> peers, int queueCapacity, long reconnectMs) { // 값 직접 지정
+        this.nodeId = nodeId.isEmpty() ? localHost() + ":" + port : nodeId; // 기본 id
+        this.port = port; // 보관
+        this.peers = List.copyOf(peers); // 보관
+        this.queueCapacity = queueCapacity; // 보관
+        this.reconnectMs = reconnectMs; // 보관
+    } // 생성자 끝
+
+    static List<InetSocketAddress> parsePeers(String spec) { // "host:port,host:port" 해석
+        List<InetSocketAddress> out = new ArrayList<>(); // 결과
+        for (String p : spec.split(",")) { // 항목마다
+            String s = p.trim(); // 공백 제거
+            if (s.isEmpty()) continue; // 빈 항목 무시
+            int i = s.lastIndexOf(':'); // 포트 구분
+            if (i <= 0) throw new IllegalArgumentException("chat.cluster.peers 항목 형식 오류: " + s); // host:port가 아님
+            out.add(InetSocketAddress.createUnresolved(s.substring(0, i), Integer.parseInt(s.substring(i + 1)))); // 연결할 때마다 다시 해석
+        } // for 끝
+        return out; // 결과
+    } // parsePeers 끝
+
+    private static String localHost() { // 기본 노드 id용 호스트 이름
+        try { return InetAddress.getLocalHost().getHostName(); } catch (IOException e) { return "localhost"; } // 실패하면 localhost
+    } // localHost 끝
+
+    @Override public String nodeId() { return nodeId; } // 노드 id
+
+    @Override
+    public void start(Listener listener) throws IOException { // 수신 대기 + 송신 링크 시작
+        this.listener = listener; // 보관
+        this.server = new ServerSocket(port); // 바인드 실패는 호출자에게
+        Thread.ofVirtual().name("cluster-accept").start(this::acceptLoop); // 수신 연결 받기
+        for (InetSocketAddress p : peers) { // 주소마다
+            Thread.ofVirtual().name("cluster-link-" + p.getHostString() + ":" + p.getPort()).start(() -> linkLoop(p)); // 송신 링크 유지
+        } // for 끝
+        System.out.println("클러스터 노드 " + nodeId + " 시작(포트 " + port + ", 다른 노드 " + peers.size() + "곳)"); // 시작 로그
+    } // start 끝
+
+    @Override
+    public boolean send(String node, ClusterMessage msg) { // 한 노드로 송신
+        Link link = links.get(node); // 링크 조회
+        if (link == null) return false; // 연결 안 됨
+        if (link.queue.offer(msg.frame())) return true; // 대기열에 추가(작성자가 보냄)
+        System.err.println("클러스터 송신 대기열 초과, 링크 재연결: " + node); // 상대가 못 따라옴
+        link.close(); // 끊으면 재연결 후 스냅샷으로 다시 맞춤
+        return false; // 이번 메시지는 버림
+    } // send 끝
+
+    @Override
+    public void close() { // 전체 종료
+        closed = true; // 이후 재연결 안 함
+        try { if (server != null) server.close(); } catch (IOException ignore) {} // 수신 대기 종료
+        for (Link l : links.values()) l.close(); // 송신 링크 종료
+        for (Socket s : inbound.values()) { try { s.close(); } catch (IOException ignore) {} } // 수신 연결 종료
+    } // close 끝
+
+    /* ---------------- 수신 피어 ---------------- */ // 다른 노드가 연결해 옴
+
+    private void acceptLoop() { // 수신 연결 받기
+        while (!closed) { // 종료 전까지
+            try { // accept 예외 대비
+                Socket s = server.accept(); // 연결 수락
+                Thread.ofVirtual().name("cluster-peer").start(() -> servePeer(s)); // 연결마다 읽기 스레드
+            } catch (IOException e) { // 소켓 닫힘 등
+                if (!closed) System.err.println("클러스터 수신 대기 오류: " + e.getMessage()); // 종료 중이 아니면 경고
+                return; // 수신 중단
+            } // try-catch 끝
+        } // while 끝
+    } // acceptLoop 끝
+
+    private void servePeer(Socket s) { // 수신 연결 하나 처리
+        String peer = null; // 상대 노드 id
+        try (s) { // 끝나면 닫기
+            s.setTcpNoDelay(true); // 작은 프레임 지연 방지
+            InputStream in = new BufferedInputStream(s.getInputStream()); // 프레임 읽기
+            ClusterMessage hello = read(in); // 첫 프레임
+            if (hello == null || hello.type != ClusterMessage.Type.HELLO) return; // 규약 위반
+            OutputStream out = s.getOutputStream(); // 응답
+            out.write(ClusterMessage.hello(nodeId).frame()); // 내 id
+            out.flush(); // 즉시 전송
+            if (nodeId.equals(hello.nick)) return; // 자기 자신(상대 링크가 알아서 멈춤)
+            peer = hello.nick; // 상대 id
+            Socket previous = inbound.put(peer, s); // 현재 연결로 등록
+            if (previous != null) { try { previous.close(); } catch (IOException ignore) {} } // 상대가 재연결했으면 이전 연결 정리
+            listener.onPeerUp(peer); // 이전 상태 무효화
+            ClusterMessage m; // 수신 메시지
+            while ((m = read(in)) != null) listener.onMessage(peer, m); // 순서대로 전달
+        } catch (IOException e) { // 연결 끊김/잘못된 프레임
+            // 아래에서 정리
+        } finally { // 항상
+            if (peer != null && inbound.remove(peer, s)) listener.onPeerDown(peer); // 최신 연결이 끊긴 경우에만 상태 제거
+        } // try-finally 끝
+    } // servePeer 끝
+
+    private static ClusterMessage read(InputStream in) throws IOException { // 프레임 하나 읽고 해석(정상 종료면 null)
+        byte[] body = WireCodec.readFrame(in); // 본문
+        return body == null ? null : WireCodec.decodeCluster(body, 0, body.length); // 해석
+    } // read 끝
+
+    /* ---------------- 송신 링크 ---------------- */ // 이 노드가 연결함
+
+    private void linkLoop(InetSocketAddress addr) { // 한 주소로의 링크 유지(끊기면 재연결)
+        boolean warned = false; // 연결 실패 경고를 한 번만
+        while (!closed) { // 종료 전까지
+            Link link = null; // 이번 연결
+            Socket s = new Socket(); // 새 소켓
+            try { // 연결/쓰기 예외 대비
+                s.connect(new InetSocketAddress(addr.getHostString(), addr.getPort()), CONNECT_TIMEOUT_MS); // 이름 다시 해석해 연결
+                s.setTcpNoDelay(true); // 작은 프레임 지연 방지
+                OutputStream out = new BufferedOutputStream(s.getOutputStream()); // 모아 쓰기
+                out.write(ClusterMessage.hello(nodeId).frame()); // 내 id
+                out.flush(); // 즉시 전송
+                InputStream in = new BufferedInputStream(s.getInputStream()); // 응답 읽기
+                ClusterMessage hello = read(in); // 상대 id
+                if (hello == null || hello.type != ClusterMessage.Type.HELLO) throw new IOException("HELLO 응답 없음"); // 규약 위반
+                if (nodeId.equals(hello.nick)) return; // 자기 자신이면 이 주소는 포기(소켓은 아래에서 닫음)
+                warned = false; // 연결 성공
+                link = new Link(hello.nick, s, out, in, queueCapacity); // 링크 생성
+                Link previous = links.put(link.node, link); // 등록
+                if (previous != null) previous.close(); // 같은 노드의 다른 주소 링크는 정리
+                listener.onLinkUp(link.node); // 스냅샷은 여기서 대기열에 들어감
+                Thread.ofVirtual().name("cluster-link-eof").start(link::awaitEof); // 상대가 닫으면 바로 알아채기
+                link.writeLoop(); // 끊길 때까지 송신
+            } catch (IOException e) { // 연결 실패/끊김
+                if (!warned && link == null) { System.err.println("클러스터 노드 연결 실패(" + addr.getHostString() + ":" + addr.getPort() + "): " + e.getMessage()); warned = true; } // 반복 경고 억제
+            } catch (InterruptedException e) { // 종료 요청
+                Thread.currentThread().interrupt(); // 플래그 복원
+                return; // 중단
+            } finally { // 이번 연결 정리
+                if (link != null) { // 링크까지 만들었으면
+                    link.close(); // 소켓 닫기
+                    if (links.remove(link.node, link)) listener.onLinkDown(link.node); // 최신 링크였으면 알림
+                } else { // 연결 도중 실패/자기 자신
+                    try { s.close(); } catch (IOException ignore) {} // 소켓만 닫기
+                } // if-else 끝
+            } // try-catch-finally 끝
+            try { Thread.sleep(reconnectMs); } catch (InterruptedException e) { return; } // 재연결 대기
+        } // while 끝
+    } // linkLoop 끝
+
+    /** 한 노드로의 송신 링크 */ // 보내는 쪽은 queue에 넣기만 하고, 작성자 스레드가 모아서 씀
+    private static final class Link { // 링크
+        final String node; // 상대 노드 id
+        final Socket socket; // 소켓
+        final OutputStream out; // 버퍼 출력
+        final InputStream in; // EOF 감지용 입력
+        final BlockingQueue<byte[]> queue; // 보낼 프레임
+        volatile boolean closed; // 종료 여부
+
+        Link(String node, Socket socket, OutputStream out, InputStream in, int capacity) { // 생성자
+            this.node = node; // 보관
+            this.socket = socket; // 보관
+            this.out = out; // 보관
+            this.in = in; // 보관
+            this.queue = new ArrayBlockingQueue<>(capacity); // 제한된 대기열
+        } // 생성자 끝
+
+        void writeLoop() throws IOException, InterruptedException { // 대기열을 소켓으로(끊기면 예외)
+            while (!closed) { // 종료 전까지
+                byte[] f = queue.take(); // 다음 프레임(없으면 대기)
+                if (f == CLOSE) return; // 종료 표시
+                out.write(f); // 버퍼에 쓰기
+                while ((f = queue.poll()) != null) { // 이미 쌓인 것은 이어서
+                    if (f == CLOSE) return; // 종료 표시
+                    out.write(f); // 버퍼에 쓰기
+                } // while 끝
+                out.flush(); // 대기열이 비면 한 번에 전송
+            } // while 끝
+        } // writeLoop 끝
+
+        void awaitEof() { // 상대는 이 연결로 아무것도 보내지 않으므로 read가 끝나면 끊긴 것
+            try { while (in.read() >= 0) { /* 무시 */ } } catch (IOException ignore) {} // 끝까지 읽기
+            close(); // 작성자도 멈추게
+        } // awaitEof 끝
+
+        void close() { // 링크 종료(여러 번 불려도 무해)
+            if (closed) return; // 이미 닫힘
+            closed = true; // 표시
+            try { socket.close(); } catch (IOException ignore) {} // 소켓 닫기
+            queue.clear(); // 남은 프레임 버림
+            queue.offer(CLOSE); // 대기 중인 작성자 깨우기
+        } // close 끝
+    } // Link 끝
+} // TcpClusterBus 클래스 끝
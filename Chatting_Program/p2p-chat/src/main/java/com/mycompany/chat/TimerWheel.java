@@ -0,0 +1,97 @@
+package com.mycompany.chat; // TimerWheel 클래스가 속한 패키지 선언
+
+import java.util.ArrayDeque; // 칸별 예약 목록(바퀴 스레드 전용)
+import java.util.Iterator; // 칸 순회 중 제거
+import java.util.Queue; // 새 예약 대기열
+import java.util.concurrent.ConcurrentLinkedQueue; // 어느 스레드에서나 넣는 락 없는 큐
+import java.util.concurrent.TimeUnit; // 시간 단위
+import java.util.concurrent.locks.LockSupport; // 다음 칸까지 잠들기
+
+/**
+ * 해시 타이머 바퀴(hashed timing wheel): 스레드 하나가 tickMs마다 한 칸씩 돌며 그 칸에서 만료된 예약을 실행한다.
+ * - 예약/취소는 O(1)이고(취소는 표시만 하고 그 칸을 지날 때 버림), 연결이 수만 개여도 타이머 스레드는 하나다.
+ * - 만료 시각은 tickMs 단위로 반올림되어 늦을 수 있다(유휴 검사처럼 정확할 필요 없는 시간 제한용).
+ * - 작업은 바퀴 스레드에서 실행되므로 짧아야 한다(대기열에 넣기, 소켓 닫기 정도).
+ */ // IdleMonitor가 하나 소유
+final class TimerWheel implements Runnable { // 전용 데몬 스레드에서 실행
+
+    /** 예약 하나 */ // cancel()은 어느 스레드에서나
+    static final class Timeout { // 예약
+        private final Runnable task; // 실행할 작업
+        private final long deadline; // 만료 시각(바퀴 시작 기준 ns)
+        private long rounds; // 남은 바퀴 수(바퀴 스레드 전용)
+        private volatile boolean cancelled; // 취소 여부
+
+        private Timeout(Runnable task, long deadline) { this.task = task; this.deadline = deadline; } // 생성
+
+        void cancel() { cancelled = true; } // 취소(칸을 지날 때 버려짐)
+    } // Timeout 끝
+
+    private final long tickNs; // 한 칸의 시간
+    private final ArrayDeque<Timeout>[] slots; // 칸(2의 거듭제곱 개)
+    private final int mask; // 칸 번호 마스크
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>(); // 아직 칸에 넣지 않은 예약
+    private final long startNs = System.nanoTime(); // 바퀴 시작 시각
+    private final Thread thread; // 바퀴 스레드
+    private volatile boolean running = true; // 동작 여부
+    private long tick; // 지금까지 지난 칸 수(바퀴 스레드 전용)
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) // 제네릭 배열
+    TimerWheel(String name, long tickMs, int slotCount) { // 이름, 칸 시간, 칸 수
+        this.tickNs = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMs)); // 칸 시간
+        int n = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1; // 2의 거듭제곱으로 올림
+        this.slots = new ArrayDeque[n]; // 칸 배열
+        for (int i = 0; i < n; i++) slots[i] = new ArrayDeque<>(); // 빈 칸
+        this.mask = n - 1; // 마스크
+        this.thread = new Thread(this, name); // 바퀴 스레드
+        this.thread.setDaemon(true); // 프로세스 종료를 막지 않음
+    } // 생성자 끝
+
+    void start() { thread.start(); } // 시작
+
+    void stop() { running = false; LockSupport.unpark(thread); } // 종료(남은 예약은 실행하지 않음)
+
+    /** delayMs 뒤에 task 실행 예약 */ // 어느 스레드에서나
+    Timeout schedule(Runnable task, long delayMs) { // 예약
+        Timeout t = new Timeout(task, System.nanoTime() - startNs + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs))); // 만료 시각
+        incoming.add(t); // 바퀴 스레드가 다음 칸에서 배치
+        return t; // 취소용
+    } // schedule 끝
+
+    @Override
+    public void run() { // 바퀴 루프
+        while (running) { // 종료 전까지
+            long wake = (tick + 1) * tickNs; // 다음 칸 시각
+            long sleep; // 남은 시간
+            while (running && (sleep = wake - (System.nanoTime() - startNs)) > 0) LockSupport.parkNanos(sleep); // 다음 칸까지 잠듦
+            if (!running) break; // 종료
+            transfer(); // 새 예약을 칸에 넣음
+            expire(slots[(int) (tick & mask)]); // 이번 칸 처리
+            tick++; // 다음 칸
+        } // while 끝
+    } // run 끝
+
+    private void transfer() { // 새 예약 배치(바퀴 스레드)
+        Timeout t; // 꺼낸 예약
+        while ((t = incoming.poll()) != null) { // 대기열이 빌 때까지
+            if (t.cancelled) continue; // 이미 취소됨
+            long due = Math.max(t.deadline / tickNs, tick); // 만료될 칸(지난 시각이면 이번 칸)
+            t.rounds = (due - tick) / slots.length; // 몇 바퀴 뒤인지
+            slots[(int) (due & mask)].add(t); // 칸에 넣음
+        } // while 끝
+    } // transfer 끝
+
+    private void expire(ArrayDeque<Timeout> slot) { // 한 칸 처리(바퀴 스레드)
+        for (Iterator<Timeout> it = slot.iterator(); it.hasNext(); ) { // 칸의 모든 예약
+            Timeout t = it.next(); // 예약
+            if (t.cancelled) { it.remove(); continue; } // 취소됨: 버림
+            if (t.rounds > 0) { t.rounds--; continue; } // 다음 바퀴
+            it.remove(); // 만료
+            try { // 작업 하나의 실패가 바퀴를 멈추지 않도록
+                t.task.run(); // 실행
+            } catch (RuntimeException e) { // 작업 예외
+                e.printStackTrace(); // 로그 후 계속
+            } // try-catch 끝
+        } // for 끝
+    } // expire 끝
+} // TimerWheel 클래스 끝
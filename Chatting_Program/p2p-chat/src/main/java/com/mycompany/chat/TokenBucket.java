@@ -0,0 +1,39 @@
+package com.mycompany.chat; // TokenBucket 클래스가 속한 패키지 선언
+
+import java.util.concurrent.atomic.AtomicLong; // 다음 토큰 시각(CAS로 갱신)
+
+/**
+ * 락 없는 토큰 버킷(GCRA: 다음 토큰이 생기는 "이론상 도착 시각" 하나만 보관).
+ * - 초당 perSec개씩 채워지고 최대 burst개까지 모아 둘 수 있는 버킷과 같은 결과를 낸다.
+ * - 상태가 long 하나라 CAS 한 번으로 꺼내고, 기다리는 스레드나 채우는 타이머가 없다(연결/방마다 하나씩 둬도 부담 없음).
+ */ // RateLimiter가 연결/방마다 하나씩 만듦
+final class TokenBucket { // 여러 스레드가 공유(방 버킷)
+
+    static final long DENIED = -1; // 허용할 수 없음(기다릴 수 있는 시간 초과)
+
+    private final long interval; // 토큰 하나가 채워지는 시간(ns)
+    private final long tolerance; // 미리 쓸 수 있는 시간((burst - 1) × interval)
+    private final AtomicLong tat; // 다음 토큰이 생기는 시각(nanoTime 기준)
+
+    TokenBucket(double perSec, int burst) { // 초당 개수, 최대 모아 둘 개수
+        this.interval = Math.max(1, (long) (1e9 / perSec)); // 토큰 간격
+        this.tolerance = (Math.max(1, burst) - 1) * interval; // 연속으로 쓸 수 있는 여유
+        this.tat = new AtomicLong(System.nanoTime()); // 처음에는 가득 찬 상태
+    } // 생성자 끝
+
+    /** 토큰 하나를 가져감. 지금 바로면 0, maxWaitNs 안에 생기면 그만큼 기다려야 하는 시간(예약), 아니면 DENIED */ // 기다리는 것은 호출자
+    long acquire(long now, long maxWaitNs) { // 꺼내기(CAS 반복)
+        while (true) { // 경쟁에서 지면 다시
+            long current = tat.get(); // 다음 토큰 시각
+            long start = Math.max(current, now); // 쉬고 있었으면 지금부터
+            long wait = start - now - tolerance; // 기다려야 하는 시간(0 이하면 바로)
+            if (wait > maxWaitNs) return DENIED; // 너무 멀면 거절(상태는 그대로)
+            if (tat.compareAndSet(current, start + interval)) return Math.max(0, wait); // 토큰 예약
+        } // while 끝
+    } // acquire 끝
+
+    /** 다시 가득 찼는지(버려도 새로 만든 버킷과 같음) */ // RateLimiter가 쉬는 방 버킷을 정리할 때
+    boolean full(long now) { // 가득 참 여부
+        return tat.get() <= now; // 예약이 모두 지났으면 burst개가 모여 있음
+    } // full 끝
+} // TokenBucket 클래스 끝
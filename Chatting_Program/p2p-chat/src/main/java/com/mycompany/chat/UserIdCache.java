@@ -0,0 +1,113 @@
+package com.mycompany.chat; // UserIdCache 클래스가 속한 패키지 선언
+
+import java.lang.management.ManagementFactory; // 플랫폼 MBean 서버
+import java.util.LinkedHashMap; // 오프라인 사용자 LRU
+import java.util.Map; // 맵 인터페이스
+import java.util.concurrent.ConcurrentHashMap; // 접속 중 사용자 매핑
+import java.util.concurrent.atomic.LongAdder; // 적중/실패 카운터
+import java.util.function.Function; // 닉네임 → id 조회 함수(DB)
+import javax.management.ObjectName; // MBean 이름
+
+/**
+ * 닉네임 → users.id 캐시.
+ * - 접속 중인 사용자는 로그인 시 한 번 조회해 두고 접속이 끝날 때까지 유지한다.
+ * - 접속을 끝낸 사용자는 크기 제한 LRU + TTL 영역으로 옮겨, 아직 저장되지 않은 로그나 곧 다시 접속하는 경우에 재사용한다.
+ */ // 채팅 한 줄마다 SELECT id FROM users 를 하던 왕복 제거
+final class UserIdCache { // ChatServer에서 하나만 사용
+
+    private static final class Slot { // 접속 중 사용자 한 명의 자리
+        volatile String id; // 조회가 끝나기 전에는 null
+    } // Slot 끝
+
+    private record Offline(String id, long expiresAt) {} // 접속을 끝낸 사용자의 id와 만료 시각
+
+    private final Function<String, String> loader; // 캐시에 없을 때 쓰는 조회 함수
+    private final long ttlMs; // 오프라인 항목 유지 시간
+    private final Map<String, Slot> online = new ConcurrentHashMap<>(); // 접속 중 사용자(퇴장 시 제거)
+    private final LinkedHashMap<String, Offline> offline; // 오프라인 사용자(접근 순서 LRU, 자기 자신으로 동기화)
+
+    private final LongAdder hits = new LongAdder(); // 캐시 적중
+    private final LongAdder misses = new LongAdder(); // 캐시 실패(DB 조회)
+    private final LongAdder expired = new LongAdder(); // TTL 만료로 버린 항목
+
+    UserIdCache(Function<String, String> loader, int maxOffline, long ttlMs) { // 조회 함수, 오프라인 최대 항목 수, 유지 시간
+        this.loader = loader; // 보관
+        this.ttlMs = ttlMs; // 보관
+        this.offline = new LinkedHashMap<>(16, 0.75f, true) { // 접근 순서 LRU
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Offline> eldest) { // 용량 초과 시
+                return size() > maxOffline; // 가장 오래 안 쓴 항목 제거
+            } // removeEldestEntry 끝
+        }; // offline 끝
+    } // 생성자 끝
+
+    /** 접속 시 호출: 오프라인 영역에 있으면 옮기고, 없으면 백그라운드에서 미리 조회 */ // 첫 메시지부터 캐시 적중
+    void login(String nickname) { // 접속 중 영역에 자리 만들기
+        Slot slot = new Slot(); // 새 자리
+        online.put(nickname, slot); // 등록
+        Offline o; // 오프라인 항목
+        synchronized (offline) { o = offline.remove(nickname); } // 재접속이면 꺼냄
+        if (o != null && o.expiresAt() > System.currentTimeMillis()) { slot.id = o.id(); return; } // 유효하면 그대로 사용
+        Thread.ofVirtual().name("id-preload").start(() -> { // 접속 처리(이벤트 루프 포함)를 막지 않도록 따로 조회
+            String id = loader.apply(nickname); // DB 조회
+            misses.increment(); // 조회 한 번 = 실패 한 번
+            slot.id = id; // 그 사이 퇴장했으면 버려질 자리에 기록(무해)
+        }); // start 끝
+    } // login 끝
+
+    /** 퇴장 시 호출: 접속 중 영역에서 빼서 오프라인 LRU로 이동 */ // 남은 로그 저장에 재사용
+    void logout(String nickname) { // 접속 중 영역에서 제거
+        Slot slot = online.remove(nickname); // 제거
+        if (slot == null || slot.id == null) return; // 조회가 끝나지 않았으면 옮길 것 없음
+        synchronized (offline) { offline.put(nickname, new Offline(slot.id, System.currentTimeMillis() + ttlMs)); } // 만료 시각과 함께 보관
+    } // logout 끝
+
+    /** 닉네임의 users.id 조회(캐시 우선) */ // 없는 사용자는 null
+    String resolve(String nickname) { // 저장기 스레드에서 호출
+        Slot slot = online.get(nickname); // 접속 중 영역
+        if (slot != null && slot.id != null) { hits.increment(); return slot.id; } // 적중
+        synchronized (offline) { // 오프라인 영역
+            Offline o = offline.get(nickname); // 조회(LRU 순서 갱신)
+            if (o != null) { // 있으면
+                if (o.expiresAt() > System.currentTimeMillis()) { hits.increment(); return o.id(); } // 유효하면 적중
+                offline.remove(nickname); // 만료면 제거
+                expired.increment(); // 지표 증가
+            } // if 끝
+        } // synchronized 끝
+        misses.increment(); // 실패
+        String id = loader.apply(nickname); // DB 조회
+        if (id == null) return null; // 없는 사용자는 캐시하지 않음
+        if (slot != null) slot.id = id; // 접속 중이면 자리에 기록
+        else synchronized (offline) { offline.put(nickname, new Offline(id, System.currentTimeMillis() + ttlMs)); } // 아니면 오프라인 영역에
+        return id; // 결과
+    } // resolve 끝
+
+    /* ---------------- 지표 노출 ---------------- */ // JMX(com.mycompany.chat:type=UserIdCache)
+
+    /** JMX 노출 인터페이스 */ // 표준 MBean 규칙
+    public interface StatsMBean { // JConsole/VisualVM에서 읽을 속성
+        long getHits(); // 캐시 적중
+        long getMisses(); // 캐시 실패(DB 조회)
+        long getExpired(); // TTL 만료
+        int getOnline(); // 접속 중 항목 수
+        int getOffline(); // 오프라인 항목 수
+    } // StatsMBean 끝
+
+    /** JMX 구현 */ // 캐시 상태를 읽기만 함
+    public final class Stats implements StatsMBean { // 내부 클래스(캐시 필드 직접 접근)
+        @Override public long getHits() { return hits.sum(); } // 적중
+        @Override public long getMisses() { return misses.sum(); } // 실패
+        @Override public long getExpired() { return expired.sum(); } // 만료
+        @Override public int getOnline() { return online.size(); } // 접속 중
+        @Override public int getOffline() { synchronized (offline) { return offline.size(); } } // 오프라인
+    } // Stats 끝
+
+    Stats stats() { return new Stats(); } // 지표 객체
+
+    void registerMBean() { // 플랫폼 MBean 서버에 등록
+        try { // 등록 실패해도 계속
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats(), new ObjectName("com.mycompany.chat:type=UserIdCache")); // 등록
+        } catch (Exception e) { // 중복 등록 등
+            System.err.println("사용자 id 캐시 지표 등록 실패: " + e.getMessage()); // 경고만 출력
+        } // try-catch 끝
+    } // registerMBean 끝
+} // UserIdCache 클래스 끝
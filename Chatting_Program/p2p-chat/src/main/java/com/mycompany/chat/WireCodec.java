@@ -0,0 +1,357 @@
+package com.mycompany.chat; // WireCodec 클래스가 속한 패키지 선언
+
+import com.google.protobuf.CodedInputStream; // varint/문자열 필드 읽기
+import com.google.protobuf.CodedOutputStream; // varint/문자열 필드 쓰기
+import com.google.protobuf.WireFormat; // 태그 해석
+import java.io.ByteArrayOutputStream; // 핸드셰이크 줄 모으기
+import java.io.EOFException; // 프레임 도중 연결 종료
+import java.io.IOException; // 입출력 예외
+import java.io.InputStream; // 소켓 입력
+import java.nio.charset.StandardCharsets; // 핸드셰이크 줄 인코딩
+import java.util.ArrayList; // 디코딩 목록
+import java.util.List; // 리스트 인터페이스
+
+/**
+ * 길이 접두 바이너리 프레임 코덱.
+ * - 프레임 = varint32 본문 길이 + 본문. 본문은 protobuf 와이어 형식(태그 + 값)이며 .proto 없이 필드를 직접 쓴다.
+ * - 접속 직후 클라이언트가 "proto:bin1" 한 줄을 보내고 서버가 같은 줄로 답하면 그다음부터 양쪽 모두 프레임을 쓴다.
+ *   서버가 "proto:text"로 답하거나 첫 줄이 닉네임이면 기존 텍스트 줄 프로토콜 그대로다.
+ * - 줄 파싱/이스케이프가 없고, 닉네임·방 이름·본문에 , | : 가 들어가도 깨지지 않는다.
+ * - 서버 → 클라이언트 목록(allusers/userlist/roomlist 등)이 MAX_FRAME_BYTES를 넘으면 같은 머리의 여러 프레임으로 나누고
+ *   마지막을 뺀 프레임에 more 필드를 붙인다. 받는 쪽(Pages)은 마지막 프레임까지 모아 메시지 하나로 합친다.
+ */ // 메시지 필드 번호는 ServerMessage/ClientCommand의 Type 번호와 함께 고정
+final class WireCodec { // 정적 메서드만 제공
+
+    static final String HANDSHAKE_PREFIX = "proto:"; // 핸드셰이크 줄 접두어
+    static final String HANDSHAKE_BINARY = "proto:bin1"; // 바이너리 프레임 요청/수락
+    static final String HANDSHAKE_TEXT = "proto:text"; // 텍스트 줄 유지
+    static final int MAX_FRAME_BYTES = 64 * 1024; // 클라이언트 → 서버(및 노드 간) 프레임 본문 최대 크기(텍스트 줄 한도와 같음), 서버 → 클라이언트 목록을 나누는 단위
+    static final int MAX_SERVER_FRAME_BYTES = 1024 * 1024; // 서버 → 클라이언트 프레임 하나의 최대 크기(나눌 수 없는 메시지: 한도 가까운 채팅 + 머리 등)
+    static final int MAX_MESSAGE_BYTES = 64 * 1024 * 1024; // 나뉜 프레임을 합친 메시지 하나의 최대 크기(받는 쪽 한도)
+
+    static final long INCOMPLETE = -1; // readHeader: 바이트가 더 필요함
+    static final long MALFORMED = -2; // readHeader: 길이가 잘못됨
+
+    // ServerMessage 본문 필드 번호
+    private static final int F_TYPE = 1; // 종류
+    private static final int F_ROOM = 2; // 방 이름
+    private static final int F_SENDER = 3; // 보낸 사람
+    private static final int F_TEXT = 4; // 본문
+    private static final int F_NAMES = 5; // 방 이름 목록(반복)
+    private static final int F_USERS = 6; // 사용자 목록(반복, 내장 메시지)
+    private static final int F_VERSION = 7; // 전체 접속자 버전
+    private static final int F_MORE = 8; // 뒤에 같은 메시지의 나머지 목록 프레임이 이어짐
+    private static final int MORE_SIZE = CodedOutputStream.computeUInt32Size(F_MORE, 1); // more 필드 크기
+    private static final int F_USER_NICK = 1; // 사용자: 닉네임
+    private static final int F_USER_STATUS = 2; // 사용자: 상태
+    // ClientCommand 본문 필드 번호
+    private static final int F_CMD_TYPE = 1; // 종류
+    private static final int F_CMD_ARG = 2; // 인자
+    // ClusterMessage 본문 필드 번호
+    private static final int F_CL_TYPE = 1; // 종류
+    private static final int F_CL_ROOM = 2; // 방 이름
+    private static final int F_CL_NICK = 3; // 닉네임/노드 id
+    private static final int F_CL_TEXT = 4; // 상태/본문
+
+    private WireCodec() {} // 인스턴스 생성 금지
+
+    /* ---------------- 서버 → 클라이언트 ---------------- */ // ServerMessage
+
+    /**
+     * 메시지를 프레임(길이 접두 포함)으로 인코딩. 목록이 MAX_FRAME_BYTES를 넘으면 여러 프레임을 이어 붙인 바이트를 돌려준다.
+     * 나눌 수 없는 메시지가 MAX_SERVER_FRAME_BYTES를 넘으면 보내지 않고 예외(받는 클라이언트가 끊기기 전에 서버에서 드러나도록).
+     */ // 보통은 캐시하는 ServerMessage.frame()을 거쳐 호출
+    static byte[] encode(ServerMessage m) { // 인코딩
+        int body = bodySize(m); // 본문 크기
+        if (body > MAX_FRAME_BYTES && m.names.size() + m.users.size() > 1) return encodePages(m); // 큰 목록은 나눔
+        if (body > MAX_SERVER_FRAME_BYTES) throw new IllegalArgumentException("프레임 크기 초과: " + m.type + " " + body + "바이트"); // 받는 쪽 한도
+        return frame(m, body, false); // 프레임 하나
+    } // encode 끝
+
+    private static byte[] encodePages(ServerMessage m) { // 목록을 MAX_FRAME_BYTES 이하 프레임들로 나눠 이어 붙임
+        int head = bodySize(new ServerMessage(m.type, m.room, m.sender, m.text, null, null, m.version)) + MORE_SIZE; // 프레임마다 반복되는 머리
+        List<byte[]> pages = new ArrayList<>(); // 프레임들
+        int total = 0; // 합계 크기
+        int n = m.names.size() + m.users.size(); // 항목 수(한 메시지에는 둘 중 하나만 있음)
+        for (int from = 0; from < n; ) { // 페이지마다
+            int size = head, to = from; // 이번 페이지 크기, 끝(제외)
+            while (to < n) { // 들어가는 만큼
+                int item = to < m.names.size() ? CodedOutputStream.computeStringSize(F_NAMES, m.names.get(to)) : userEntrySize(m.users.get(to - m.names.size())); // 항목 크기
+                if (to > from && size + item > MAX_FRAME_BYTES) break; // 다음 페이지로(항목 하나는 항상 넣음)
+                size += item; // 누적
+                to++; // 다음 항목
+            } // while 끝
+            List<String> names = m.names.subList(Math.min(from, m.names.size()), Math.min(to, m.names.size())); // 이번 방 이름
+            List<ServerMessage.User> users = m.users.subList(Math.max(0, from - m.names.size()), Math.max(0, to - m.names.size())); // 이번 사용자
+            ServerMessage page = new ServerMessage(m.type, m.room, m.sender, m.text, names, users, m.version); // 같은 머리 + 일부 목록
+            boolean more = to < n; // 뒤에 더 있는지
+            byte[] f = frame(page, bodySize(page) + (more ? MORE_SIZE : 0), more); // 한 프레임
+            pages.add(f); // 보관
+            total += f.length; // 합계
+            from = to; // 다음 페이지
+        } // for 끝
+        byte[] out = new byte[total]; // 이어 붙인 결과
+        int off = 0; // 쓰는 위치
+        for (byte[] f : pages) { System.arraycopy(f, 0, out, off, f.length); off += f.length; } // 순서대로 복사
+        return out; // 여러 프레임
+    } // encodePages 끝
+
+    private static byte[] frame(ServerMessage m, int body, boolean more) { // 프레임 하나(body는 more 필드 포함 크기)
+        byte[] out = new byte[CodedOutputStream.computeUInt32SizeNoTag(body) + body]; // 정확한 크기로 한 번만 할당
+        try { // 배열 출력에서는 IOException이 나지 않음
+            CodedOutputStream cos = CodedOutputStream.newInstance(out); // 배열 출력
+            cos.writeUInt32NoTag(body); // 길이 접두
+            cos.writeUInt32(F_TYPE, m.type.code); // 종류
+            if (m.room != null) cos.writeString(F_ROOM, m.room); // 방 이름
+            if (m.sender != null) cos.writeString(F_SENDER, m.sender); // 보낸 사람
+            if (m.text != null) cos.writeString(F_TEXT, m.text); // 본문
+            for (String n : m.names) cos.writeString(F_NAMES, n); // 방 이름 목록
+            for (ServerMessage.User u : m.users) { // 사용자 목록
+                cos.writeTag(F_USERS, WireFormat.WIRETYPE_LENGTH_DELIMITED); // 내장 메시지 태그
+                cos.writeUInt32NoTag(userSize(u)); // 내장 메시지 길이
+                cos.writeString(F_USER_NICK, u.nick()); // 닉네임
+                cos.writeString(F_USER_STATUS, u.status()); // 상태
+            } // for 끝
+            if (m.version != ServerMessage.NO_VERSION) cos.writeUInt64(F_VERSION, m.version); // 버전(0도 그대로 씀)
+            if (more) cos.writeUInt32(F_MORE, 1); // 나뉜 목록의 중간 프레임
+            cos.checkNoSpaceLeft(); // 크기 계산과 실제 쓰기가 일치하는지 확인
+        } catch (IOException e) { // 크기 계산 오류
+            throw new IllegalStateException("프레임 인코딩 크기 불일치", e); // 프로그래밍 오류
+        } // try-catch 끝
+        return out; // 프레임
+    } // frame 끝
+
+    private static int bodySize(ServerMessage m) { // 본문 크기 계산
+        int size = CodedOutputStream.computeUInt32Size(F_TYPE, m.type.code); // 종류
+        if (m.room != null) size += CodedOutputStream.computeStringSize(F_ROOM, m.room); // 방 이름
+        if (m.sender != null) size += CodedOutputStream.computeStringSize(F_SENDER, m.sender); // 보낸 사람
+        if (m.text != null) size += CodedOutputStream.computeStringSize(F_TEXT, m.text); // 본문
+        for (String n : m.names) size += CodedOutputStream.computeStringSize(F_NAMES, n); // 방 이름 목록
+        for (ServerMessage.User u : m.users) size += userEntrySize(u); // 사용자 목록
+        if (m.version != ServerMessage.NO_VERSION) size += CodedOutputStream.computeUInt64Size(F_VERSION, m.version); // 버전
+        return size; // 합계
+    } // bodySize 끝
+
+    private static int userEntrySize(ServerMessage.User u) { // 사용자 항목 하나의 크기(태그 + 길이 + 본문)
+        int us = userSize(u); // 내장 메시지 크기
+        return CodedOutputStream.computeTagSize(F_USERS) + CodedOutputStream.computeUInt32SizeNoTag(us) + us; // 합계
+    } // userEntrySize 끝
+
+    private static int userSize(ServerMessage.User u) { // 사용자 내장 메시지 크기
+        return CodedOutputStream.computeStringSize(F_USER_NICK, u.nick()) + CodedOutputStream.computeStringSize(F_USER_STATUS, u.status()); // 닉네임 + 상태
+    } // userSize 끝
+
+    /** 프레임 본문(길이 접두 제외)을 메시지로 디코딩 */ // 모르는 필드는 건너뜀(이후 필드 추가와 호환)
+    static ServerMessage decodeMessage(byte[] buf, int off, int len) throws IOException { // 디코딩
+        return decodeMessage(buf, off, len, null); // more 필드는 보지 않음
+    } // decodeMessage 끝
+
+    private static ServerMessage decodeMessage(byte[] buf, int off, int len, boolean[] more) throws IOException { // 디코딩(more[0]에 나뉜 목록 여부)
+        CodedInputStream in = CodedInputStream.newInstance(buf, off, len); // 배열 입력
+        int type = 0; // 종류 번호
+        String room = null, sender = null, text = null; // 문자열 필드
+        List<String> names = new ArrayList<>(); // 방 이름 목록
+        List<ServerMessage.User> users = new ArrayList<>(); // 사용자 목록
+        long version = ServerMessage.NO_VERSION; // 버전(없으면 NO_VERSION)
+        int tag; // 현재 태그
+        while ((tag = in.readTag()) != 0) { // 본문 끝까지
+            switch (WireFormat.getTagFieldNumber(tag)) { // 필드 번호별
+                case F_TYPE -> type = in.readUInt32(); // 종류
+                case F_ROOM -> room = in.readStringRequireUtf8(); // 방 이름
+                case F_SENDER -> sender = in.readStringRequireUtf8(); // 보낸 사람
+                case F_TEXT -> text = in.readStringRequireUtf8(); // 본문
+                case F_NAMES -> names.add(in.readStringRequireUtf8()); // 방 이름
+                case F_USERS -> users.add(readUser(in)); // 사용자
+                case F_VERSION -> version = in.readUInt64(); // 버전
+                case F_MORE -> { int b = in.readUInt32(); if (more != null) more[0] = b != 0; } // 뒤에 이어지는 프레임
+                default -> in.skipField(tag); // 모르는 필드
+            } // switch 끝
+        } // while 끝
+        return new ServerMessage(ServerMessage.Type.of(type), room, sender, text, names, users, version); // 결과
+    } // decodeMessage 끝
+
+    /** 나뉜 목록 프레임을 메시지 하나로 합치는 수신 쪽 상태(연결마다 하나, 수신 스레드 전용) */ // 서버는 한 메시지의 프레임들을 이어서 보내므로 사이에 다른 메시지가 끼지 않음
+    static final class Pages { // 합치기
+        private ServerMessage head; // 첫 프레임(머리)
+        private List<String> names; // 모은 방 이름
+        private List<ServerMessage.User> users; // 모은 사용자
+        private long bytes; // 모은 본문 크기
+
+        /** 프레임 본문 하나를 넣고, 메시지가 완성되면 돌려줌(더 받아야 하면 null) */ // 나뉘지 않은 메시지는 바로 반환
+        ServerMessage add(byte[] frame) throws IOException { // 추가
+            boolean[] more = new boolean[1]; // more 필드
+            ServerMessage m = decodeMessage(frame, 0, frame.length, more); // 해석
+            if (head == null && !more[0]) return m; // 보통 메시지
+            if (head == null) { head = m; names = new ArrayList<>(m.names); users = new ArrayList<>(m.users); } // 첫 프레임
+            else if (m.type != head.type) throw new IOException("나뉜 목록 사이에 다른 메시지: " + m.type); // 규약 위반
+            else { names.addAll(m.names); users.addAll(m.users); } // 이어지는 프레임
+            if ((bytes += frame.length) > MAX_MESSAGE_BYTES) throw new IOException("메시지 크기 초과: " + bytes); // 합친 크기 한도
+            if (more[0]) return null; // 더 받아야 함
+            ServerMessage whole = new ServerMessage(head.type, head.room, head.sender, head.text, names, users, head.version); // 합친 메시지
+            head = null; names = null; users = null; bytes = 0; // 다음 메시지 준비
+            return whole; // 완성
+        } // add 끝
+    } // Pages 끝
+
+    /** encode 결과(프레임 하나 또는 나뉜 프레임들)를 메시지로 해석 */ // 벤치마크/도구용
+    static ServerMessage decodeAll(byte[] frames) throws IOException { // 전체 해석
+        Pages pages = new Pages(); // 합치기
+        for (int off = 0; off < frames.length; ) { // 프레임마다
+            long header = readHeader(frames, off, frames.length, MAX_SERVER_FRAME_BYTES); // 길이 접두
+            if (header < 0) throw new IOException("잘못된 프레임"); // 형식 오류
+            int start = off + (int) (header >>> 32), len = (int) header; // 본문 위치/길이
+            ServerMessage m = pages.add(java.util.Arrays.copyOfRange(frames, start, start + len)); // 본문
+            off = start + len; // 다음 프레임
+            if (m != null) return m; // 완성
+        } // for 끝
+        throw new EOFException("나뉜 목록이 끝나지 않음"); // 잘림
+    } // decodeAll 끝
+
+    private static ServerMessage.User readUser(CodedInputStream in) throws IOException { // 내장 사용자 메시지 읽기
+        int oldLimit = in.pushLimit(in.readRawVarint32()); // 내장 메시지 범위로 제한
+        String nick = "", status = PresenceCache.DEFAULT_STATUS; // 기본값
+        int tag; // 현재 태그
+        while ((tag = in.readTag()) != 0) { // 내장 메시지 끝까지
+            switch (WireFormat.getTagFieldNumber(tag)) { // 필드 번호별
+                case F_USER_NICK -> nick = in.readStringRequireUtf8(); // 닉네임
+                case F_USER_STATUS -> status = in.readStringRequireUtf8(); // 상태
+                default -> in.skipField(tag); // 모르는 필드
+            } // switch 끝
+        } // while 끝
+        in.popLimit(oldLimit); // 제한 복원
+        return new ServerMessage.User(nick, status); // 결과
+    } // readUser 끝
+
+    /* ---------------- 클라이언트 → 서버 ---------------- */ // ClientCommand
+
+    /** 명령을 프레임(길이 접두 포함)으로 인코딩 */ // 클라이언트 송신
+    static byte[] encode(ClientCommand c) { // 인코딩
+        boolean hasArg = !c.arg().isEmpty(); // 빈 인자는 생략
+        int body = CodedOutputStream.computeUInt32Size(F_CMD_TYPE, c.type().code) + (hasArg ? CodedOutputStream.computeStringSize(F_CMD_ARG, c.arg()) : 0); // 본문 크기
+        byte[] out = new byte[CodedOutputStream.computeUInt32SizeNoTag(body) + body]; // 정확한 크기
+        try { // 배열 출력
+            CodedOutputStream cos = CodedOutputStream.newInstance(out); // 배열 출력
+            cos.writeUInt32NoTag(body); // 길이 접두
+            cos.writeUInt32(F_CMD_TYPE, c.type().code); // 종류
+            if (hasArg) cos.writeString(F_CMD_ARG, c.arg()); // 인자
+            cos.checkNoSpaceLeft(); // 크기 확인
+        } catch (IOException e) { // 크기 계산 오류
+            throw new IllegalStateException("프레임 인코딩 크기 불일치", e); // 프로그래밍 오류
+        } // try-catch 끝
+        return out; // 프레임
+    } // encode 끝
+
+    /** 프레임 본문(길이 접두 제외)을 명령으로 디코딩 */ // 서버 수신
+    static ClientCommand decodeCommand(byte[] buf, int off, int len) throws IOException { // 디코딩
+        CodedInputStream in = CodedInputStream.newInstance(buf, off, len); // 배열 입력
+        int type = 0; // 종류 번호
+        String arg = ""; // 인자
+        int tag; // 현재 태그
+        while ((tag = in.readTag()) != 0) { // 본문 끝까지
+            switch (WireFormat.getTagFieldNumber(tag)) { // 필드 번호별
+                case F_CMD_TYPE -> type = in.readUInt32(); // 종류
+                case F_CMD_ARG -> arg = in.readStringRequireUtf8(); // 인자
+                default -> in.skipField(tag); // 모르는 필드
+            } // switch 끝
+        } // while 끝
+        return new ClientCommand(ClientCommand.Type.of(type), arg); // 결과
+    } // decodeCommand 끝
+
+    /* ---------------- 노드 ↔ 노드 ---------------- */ // ClusterMessage(클러스터 버스)
+
+    /** 노드 간 메시지를 프레임(길이 접두 포함)으로 인코딩 */ // 보통은 캐시하는 ClusterMessage.frame()을 거쳐 호출
+    static byte[] encode(ClusterMessage m) { // 인코딩
+        int body = CodedOutputStream.computeUInt32Size(F_CL_TYPE, m.type.code); // 종류
+        if (m.room != null) body += CodedOutputStream.computeStringSize(F_CL_ROOM, m.room); // 방 이름
+        if (m.nick != null) body += CodedOutputStream.computeStringSize(F_CL_NICK, m.nick); // 닉네임
+        if (m.text != null) body += CodedOutputStream.computeStringSize(F_CL_TEXT, m.text); // 상태/본문
+        byte[] out = new byte[CodedOutputStream.computeUInt32SizeNoTag(body) + body]; // 정확한 크기
+        try { // 배열 출력
+            CodedOutputStream cos = CodedOutputStream.newInstance(out); // 배열 출력
+            cos.writeUInt32NoTag(body); // 길이 접두
+            cos.writeUInt32(F_CL_TYPE, m.type.code); // 종류
+            if (m.room != null) cos.writeString(F_CL_ROOM, m.room); // 방 이름
+            if (m.nick != null) cos.writeString(F_CL_NICK, m.nick); // 닉네임
+            if (m.text != null) cos.writeString(F_CL_TEXT, m.text); // 상태/본문
+            cos.checkNoSpaceLeft(); // 크기 확인
+        } catch (IOException e) { // 크기 계산 오류
+            throw new IllegalStateException("프레임 인코딩 크기 불일치", e); // 프로그래밍 오류
+        } // try-catch 끝
+        return out; // 프레임
+    } // encode 끝
+
+    /** 프레임 본문(길이 접두 제외)을 노드 간 메시지로 디코딩 */ // 모르는 필드는 건너뜀
+    static ClusterMessage decodeCluster(byte[] buf, int off, int len) throws IOException { // 디코딩
+        CodedInputStream in = CodedInputStream.newInstance(buf, off, len); // 배열 입력
+        int type = 0; // 종류 번호
+        String room = null, nick = null, text = null; // 문자열 필드
+        int tag; // 현재 태그
+        while ((tag = in.readTag()) != 0) { // 본문 끝까지
+            switch (WireFormat.getTagFieldNumber(tag)) { // 필드 번호별
+                case F_CL_TYPE -> type = in.readUInt32(); // 종류
+                case F_CL_ROOM -> room = in.readStringRequireUtf8(); // 방 이름
+                case F_CL_NICK -> nick = in.readStringRequireUtf8(); // 닉네임
+                case F_CL_TEXT -> text = in.readStringRequireUtf8(); // 상태/본문
+                default -> in.skipField(tag); // 모르는 필드
+            } // switch 끝
+        } // while 끝
+        return new ClusterMessage(ClusterMessage.Type.of(type), room, nick, text); // 결과
+    } // decodeCluster 끝
+
+    /* ---------------- 프레임 경계 ---------------- */ // 블로킹 스트림/NIO 버퍼 공용
+
+    /**
+     * 버퍼의 [off, end)에서 길이 접두를 읽는다.
+     * 성공하면 (접두 바이트 수 << 32) | 본문 길이, 바이트가 모자라면 INCOMPLETE, 길이가 잘못되었으면 MALFORMED.
+     */ // NIO 연결이 누적 버퍼에서 프레임을 자를 때 사용
+    static long readHeader(byte[] buf, int off, int end) { // 길이 접두 해석
+        return readHeader(buf, off, end, MAX_FRAME_BYTES); // 클라이언트 → 서버 한도
+    } // readHeader 끝
+
+    private static long readHeader(byte[] buf, int off, int end, int max) { // 길이 접두 해석(본문 한도 지정)
+        int value = 0; // 누적 값
+        for (int i = 0; i < 5; i++) { // varint32는 최대 5바이트
+            if (off + i >= end) return INCOMPLETE; // 아직 다 오지 않음
+            int b = buf[off + i]; // 다음 바이트
+            value |= (b & 0x7F) << (7 * i); // 7비트씩 누적
+            if ((b & 0x80) == 0) { // 마지막 바이트
+                if (value < 0 || value > max) return MALFORMED; // 한도 초과
+                return ((long) (i + 1) << 32) | value; // 접두 길이 + 본문 길이
+            } // if 끝
+        } // for 끝
+        return MALFORMED; // 5바이트를 넘는 varint
+    } // readHeader 끝
+
+    /** 블로킹 스트림에서 프레임 본문 하나를 읽는다(정상 종료면 null) */ // 스레드/가상 스레드 모드와 클라이언트 수신 루프
+    static byte[] readFrame(InputStream in) throws IOException { // 프레임 읽기
+        return readFrame(in, MAX_FRAME_BYTES); // 클라이언트 → 서버(및 노드 간) 한도
+    } // readFrame 끝
+
+    /** 본문 한도를 지정해 프레임 하나를 읽는다 */ // 클라이언트는 MAX_SERVER_FRAME_BYTES로 서버 프레임을 읽음
+    static byte[] readFrame(InputStream in, int max) throws IOException { // 프레임 읽기
+        int first = in.read(); // 첫 바이트(프레임 사이의 EOF는 정상 종료)
+        if (first < 0) return null; // 연결 종료
+        int len = CodedInputStream.readRawVarint32(first, in); // 나머지 길이 접두
+        if (len < 0 || len > max) throw new IOException("프레임 크기 초과: " + len); // 한도 초과
+        byte[] body = in.readNBytes(len); // 본문
+        if (body.length < len) throw new EOFException("프레임 도중 연결 종료"); // 잘림
+        return body; // 본문
+    } // readFrame 끝
+
+    /**
+     * 블로킹 스트림에서 핸드셰이크 줄 하나를 바이트 단위로 읽는다(정상 종료면 null).
+     * BufferedReader를 쓰면 뒤따르는 프레임 바이트까지 미리 읽어 버리므로 개행까지만 소비한다.
+     */ // 호출자는 버퍼링된 InputStream을 넘길 것
+    static String readLine(InputStream in) throws IOException { // 줄 읽기
+        ByteArrayOutputStream line = new ByteArrayOutputStream(32); // 줄 바이트
+        int b; // 현재 바이트
+        while ((b = in.read()) >= 0) { // 스트림 끝까지
+            if (b == '\n') break; // 줄 끝
+            if (line.size() >= MAX_FRAME_BYTES) throw new IOException("줄 길이 초과"); // 한도 초과
+            line.write(b); // 누적
+        } // while 끝
+        if (b < 0 && line.size() == 0) return null; // 아무것도 없이 종료
+        String s = line.toString(StandardCharsets.UTF_8); // 디코딩
+        return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s; // CRLF 허용
+    } // readLine 끝
+} // WireCodec 클래스 끝
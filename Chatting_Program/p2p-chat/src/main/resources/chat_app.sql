@@ -13,13 +13,15 @@ CREATE TABLE IF NOT EXISTS users (
   COLLATE = utf8mb4_0900_ai_ci;
 
 CREATE TABLE IF NOT EXISTS chat_logs (
+    log_id    BIGINT       NOT NULL AUTO_INCREMENT,
     id        VARCHAR(50)  NOT NULL,
     nickname  VARCHAR(50)  NOT NULL,
     message   TEXT         NOT NULL,
     room      VARCHAR(50)  NOT NULL DEFAULT 'Lobby',
     timestamp DATETIME     DEFAULT CURRENT_TIMESTAMP,
-    PRIMARY KEY (id, timestamp),
+    PRIMARY KEY (log_id),
     KEY idx_logs_room_time (room, timestamp),
+    KEY idx_logs_room_id (room, log_id),
     KEY idx_logs_user_time (id, timestamp),
     CONSTRAINT fk_logs_user
         FOREIGN KEY (id) REFERENCES users(id)
@@ -0,0 +1,9 @@
+-- chat_logs 기본 키를 (id, timestamp)에서 자동 증가 log_id로 변경
+-- 같은 사용자가 1초 안에 여러 메시지를 보내면 (id, timestamp)가 겹쳐 배치 INSERT 전체가 실패하므로
+-- 기존 chat_app.sql로 만든 DB에 한 번만 실행
+USE chat_app;
+
+ALTER TABLE chat_logs
+    DROP PRIMARY KEY,
+    ADD COLUMN log_id BIGINT NOT NULL AUTO_INCREMENT FIRST,
+    ADD PRIMARY KEY (log_id);
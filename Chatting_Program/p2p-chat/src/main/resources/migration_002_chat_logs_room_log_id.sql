@@ -0,0 +1,9 @@
+-- 방별 기록 페이지 조회(history:방:beforeId:limit)용 (room, log_id) 색인 추가
+-- WHERE room = ? AND log_id < ? ORDER BY log_id DESC LIMIT ? 를 색인 범위 스캔 한 번으로 끝내 OFFSET 없이 페이지마다 O(페이지 크기)
+-- migration_001 이후의 DB에 한 번만 실행(ALGORITHM=INPLACE, LOCK=NONE: 큰 테이블도 쓰기를 막지 않고 추가)
+USE chat_app;
+
+ALTER TABLE chat_logs
+    ADD KEY idx_logs_room_id (room, log_id),
+    ALGORITHM = INPLACE,
+    LOCK = NONE;